@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.bench;
+
+import java.util.Arrays;
+
+/**
+ * Runs the WALA benchmarks with the JMH command line. Unless a result format is given with <code>-rf</code>, the results
+ * are also written as JSON, to <code>jmh-result.json</code> or to the file given with <code>-rff</code>, so that runs
+ * against different versions of WALA can be compared by tools.
+ */
+public class Main {
+
+  public static void main(String[] args) throws Exception {
+    if (!Arrays.asList(args).contains("-rf")) {
+      String[] withFormat = new String[args.length + 2];
+      withFormat[0] = "-rf";
+      withFormat[1] = "json";
+      System.arraycopy(args, 0, withFormat, 2, args.length);
+      args = withFormat;
+    }
+    org.openjdk.jmh.Main.main(args);
+  }
+}
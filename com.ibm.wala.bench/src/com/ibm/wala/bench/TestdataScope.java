@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.config.FileOfClasses;
+
+/**
+ * The analysis scope of the benchmarks that analyze <code>com.ibm.wala.core.testdata</code>: the JDK runtime library as
+ * the primordial loader, less the same packages that the regression tests exclude, and the testdata jar as the
+ * application loader.
+ *
+ * The jar is built by <code>com.ibm.wala.core.testdata/build.xml</code>. It is looked for at the path given by the
+ * system property <code>wala.testdata</code>, and otherwise in the <code>com.ibm.wala.core.testdata</code> directory
+ * of the working directory or of its parent.
+ */
+public class TestdataScope {
+
+  public static final String JAR_PROPERTY = "wala.testdata";
+
+  private static final String JAR_NAME = "com.ibm.wala.core.testdata_1.0.0.jar";
+
+  private static final String EXCLUSIONS = "java\\/awt\\/.*\n" + "javax\\/swing\\/.*\n" + "sun\\/awt\\/.*\n"
+      + "sun\\/swing\\/.*\n" + "com\\/sun\\/.*\n" + "sun\\/.*\n" + "org\\/netbeans\\/.*\n" + "org\\/openide\\/.*\n"
+      + "com\\/ibm\\/crypto\\/.*\n" + "com\\/ibm\\/security\\/.*\n" + "org\\/apache\\/xerces\\/.*\n" + "dalvik\\/.*\n"
+      + "java\\/io\\/ObjectStreamClass*\n" + "apple\\/.*\n" + "com\\/apple\\/.*\n" + "jdk\\/.*\n" + "org\\/omg\\/.*\n"
+      + "org\\/w3c\\/.*\n";
+
+  private TestdataScope() {
+  }
+
+  /**
+   * @return the testdata jar
+   * @throws FileNotFoundException if the jar cannot be found
+   */
+  public static File findJar() throws FileNotFoundException {
+    String path = System.getProperty(JAR_PROPERTY);
+    if (path != null) {
+      File f = new File(path);
+      if (!f.isFile()) {
+        throw new FileNotFoundException(JAR_PROPERTY + "=" + path);
+      }
+      return f;
+    }
+    for (String dir : new String[] { "com.ibm.wala.core.testdata", "../com.ibm.wala.core.testdata" }) {
+      File f = new File(dir, JAR_NAME);
+      if (f.isFile()) {
+        return f;
+      }
+    }
+    throw new FileNotFoundException(JAR_NAME + "; build com.ibm.wala.core.testdata or set -D" + JAR_PROPERTY);
+  }
+
+  public static AnalysisScope make() throws IOException {
+    AnalysisScope scope = AnalysisScopeReader.makeJavaBinaryAnalysisScope(findJar().getPath(), null);
+    scope.setExclusions(new FileOfClasses(new ByteArrayInputStream(EXCLUSIONS.getBytes("UTF-8"))));
+    return scope;
+  }
+
+  /**
+   * @return the <code>main</code> methods of the application classes, less those whose call graphs cannot be built in
+   *         this scope
+   */
+  public static List<Entrypoint> makeMainEntrypoints(AnalysisScope scope, IClassHierarchy cha) {
+    List<Entrypoint> result = new ArrayList<Entrypoint>();
+    for (Entrypoint e : Util.makeMainEntrypoints(scope, cha)) {
+      // reaches lambdas in the JDK whose implementation methods are excluded
+      if (!e.getMethod().getDeclaringClass().getName().toString().equals("Lslice/TestInetAddr")) {
+        result.add(e);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.bench.callgraph;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.bench.TestdataScope;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+
+/**
+ * Builds an RTA or a 0-CFA call graph of <code>com.ibm.wala.core.testdata</code>, from the <code>main</code> methods
+ * of all its classes. Each invocation starts from an empty IR cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class CallGraphBenchmark {
+
+  @Param({ "rta", "0-cfa" })
+  public String algorithm;
+
+  private AnalysisScope scope;
+
+  private IClassHierarchy cha;
+
+  private Iterable<Entrypoint> entrypoints;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, ClassHierarchyException {
+    scope = TestdataScope.make();
+    cha = ClassHierarchyFactory.make(scope);
+    entrypoints = TestdataScope.makeMainEntrypoints(scope, cha);
+  }
+
+  /**
+   * @return the number of call graph nodes, so that the work cannot be optimized away
+   */
+  @Benchmark
+  public int buildCallGraph() throws CancelException {
+    AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+    CallGraphBuilder builder;
+    if ("rta".equals(algorithm)) {
+      builder = Util.makeRTABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    } else if ("0-cfa".equals(algorithm)) {
+      builder = Util.makeZeroCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    } else {
+      throw new IllegalArgumentException("unknown algorithm " + algorithm);
+    }
+    CallGraph cg = builder.makeCallGraph(options, null);
+    return cg.getNumberOfNodes();
+  }
+}
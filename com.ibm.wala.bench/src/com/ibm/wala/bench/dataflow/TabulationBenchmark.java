@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.bench.dataflow;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.bench.TestdataScope;
+import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationSolver;
+import com.ibm.wala.dataflow.IFDS.TabulationSolver;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.slicer.NormalStatement;
+import com.ibm.wala.ipa.slicer.PDG;
+import com.ibm.wala.ipa.slicer.SDG;
+import com.ibm.wala.ipa.slicer.SDGBuilder;
+import com.ibm.wala.ipa.slicer.SDGSupergraph;
+import com.ibm.wala.ipa.slicer.Slicer;
+import com.ibm.wala.ipa.slicer.Slicer.ControlDependenceOptions;
+import com.ibm.wala.ipa.slicer.Slicer.DataDependenceOptions;
+import com.ibm.wala.ipa.slicer.Slicer.SliceProblem;
+import com.ibm.wala.ipa.slicer.Statement;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAReturnInstruction;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+/**
+ * Solves a fixed IFDS problem with the {@link TabulationSolver}: the {@link Slicer.SliceProblem backward slice}, over a
+ * 0-CFA system dependence graph of <code>com.ibm.wala.core.testdata</code>, of every return statement of the
+ * application. The call graph and the SDG are built once; the warmup iterations populate the SDG's dependence graphs,
+ * so the measured iterations time the solver alone. The solver runs on <code>threads</code> threads, or on as many as
+ * there are processors if that is fewer, to measure how parallel tabulation scales. {@link #sliceEach()} instead slices
+ * from each return statement on its own, with the {@link Slicer#computeBackwardSlices batch slicer} on
+ * <code>threads</code> threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class TabulationBenchmark {
+
+  @Param({ "NO_BASE_NO_HEAP", "NO_HEAP" })
+  public String dataDependence;
+
+  @Param({ "1", "2", "4" })
+  public int threads;
+
+  private SDG<InstanceKey> sdg;
+
+  private Collection<Statement> seeds;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, ClassHierarchyException, CancelException {
+    AnalysisScope scope = TestdataScope.make();
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    AnalysisOptions options = new AnalysisOptions(scope, TestdataScope.makeMainEntrypoints(scope, cha));
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    seeds = HashSetFactory.make();
+    for (CGNode n : cg) {
+      IR ir = n.getIR();
+      if (ir != null && n.getMethod().getDeclaringClass().getClassLoader().getReference()
+          .equals(ClassLoaderReference.Application)) {
+        SSAInstruction[] instructions = ir.getInstructions();
+        for (int i = 0; i < instructions.length; i++) {
+          if (instructions[i] instanceof SSAReturnInstruction) {
+            seeds.add(new NormalStatement(n, i));
+          }
+        }
+      }
+    }
+
+    SDGBuilder<InstanceKey> sdgBuilder = new SDGBuilder<InstanceKey>();
+    sdgBuilder.setCg(cg);
+    sdgBuilder.setPa(builder.getPointerAnalysis());
+    sdgBuilder.computeAndSetModRef(InstanceKey.class);
+    sdgBuilder.setdOptions(DataDependenceOptions.valueOf(dataDependence));
+    sdgBuilder.setcOptions(ControlDependenceOptions.NO_EXCEPTIONAL_EDGES);
+    sdg = sdgBuilder.build();
+  }
+
+  /**
+   * @return {@link #threads}, but no more than there are processors available: threads that share a processor only slow the
+   *         solver down
+   */
+  private int solverThreads() {
+    return Math.min(threads, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @return the size of the slice, so that the work cannot be optimized away
+   */
+  @Benchmark
+  public int slice() throws CancelException {
+    SliceProblem<Statement, PDG<? extends InstanceKey>> p = new SliceProblem<Statement, PDG<? extends InstanceKey>>(seeds,
+        new SDGSupergraph(sdg, true), true);
+    return PartiallyBalancedTabulationSolver.createPartiallyBalancedTabulationSolver(p, null, solverThreads()).solve()
+        .getSupergraphNodesReached().size();
+  }
+
+  /**
+   * @return the total size of the slices, so that the work cannot be optimized away
+   */
+  @Benchmark
+  public int sliceEach() throws CancelException {
+    int size = 0;
+    for (Collection<Statement> slice : Slicer.computeBackwardSlices(sdg, seeds, threads).values()) {
+      size += slice.size();
+    }
+    return size;
+  }
+}
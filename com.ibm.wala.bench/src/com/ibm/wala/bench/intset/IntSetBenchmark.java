@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.bench.intset;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.BitVectorIntSetFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
+import com.ibm.wala.util.intset.SemiSparseMutableIntSet;
+import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
+
+/**
+ * The basic operations of {@link MutableSparseIntSet}, {@link BitVectorIntSet} and {@link SemiSparseMutableIntSet}, on
+ * pseudo-random sets of a fixed size whose elements are drawn from a fixed range. The seed is fixed, so every run sees
+ * the same sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+public class IntSetBenchmark {
+
+  @Param({ "sparse", "bitVector", "semiSparse" })
+  public String impl;
+
+  /**
+   * the number of elements of each set
+   */
+  @Param({ "100", "10000" })
+  public int size;
+
+  /**
+   * the elements are drawn from [0, size * density)
+   */
+  @Param({ "4", "64" })
+  public int density;
+
+  private MutableIntSetFactory<?> factory;
+
+  private int[] elements;
+
+  private int[] probes;
+
+  private IntSet a;
+
+  private IntSet b;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    if ("sparse".equals(impl)) {
+      factory = new MutableSparseIntSetFactory();
+    } else if ("bitVector".equals(impl)) {
+      factory = new BitVectorIntSetFactory();
+    } else if ("semiSparse".equals(impl)) {
+      factory = new SemiSparseMutableIntSetFactory();
+    } else {
+      throw new IllegalArgumentException("unknown set implementation " + impl);
+    }
+    Random r = new Random(1234);
+    int range = size * density;
+    elements = randomInts(r, size, range);
+    probes = randomInts(r, size, range);
+    a = factory.make(elements);
+    b = factory.make(probes);
+  }
+
+  private static int[] randomInts(Random r, int n, int range) {
+    int[] result = new int[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = r.nextInt(range);
+    }
+    return result;
+  }
+
+  /**
+   * Add the elements one at a time, in random order.
+   */
+  @Benchmark
+  public IntSet add() {
+    MutableIntSet s = factory.make();
+    for (int i : elements) {
+      s.add(i);
+    }
+    return s;
+  }
+
+  /**
+   * @return the number of probes found in the set
+   */
+  @Benchmark
+  public int contains() {
+    int found = 0;
+    for (int i : probes) {
+      if (a.contains(i)) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  @Benchmark
+  public IntSet union() {
+    MutableIntSet s = factory.makeCopy(a);
+    s.addAll(b);
+    return s;
+  }
+
+  @Benchmark
+  public IntSet intersect() {
+    MutableIntSet s = factory.makeCopy(a);
+    s.intersectWith(b);
+    return s;
+  }
+
+  /**
+   * @return the sum of the elements, so that the iteration cannot be optimized away
+   */
+  @Benchmark
+  public long iterate() {
+    long sum = 0;
+    for (IntIterator it = a.intIterator(); it.hasNext();) {
+      sum += it.next();
+    }
+    return sum;
+  }
+}
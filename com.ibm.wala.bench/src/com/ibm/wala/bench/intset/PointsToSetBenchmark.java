@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.bench.intset;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.intset.MutableRoaringIntSetFactory;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
+
+/**
+ * Builds a 0-1-CFA call graph and pointer analysis for the public methods of <code>java.util</code>, with points-to sets
+ * represented by {@link MutableSharedBitVectorIntSetFactory shared bit vectors} or by
+ * {@link MutableRoaringIntSetFactory compressed bitmaps}. JMH reports the time; the heap retained by the result is
+ * printed after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class PointsToSetBenchmark {
+
+  @Param({ "sharedBitVector", "roaring" })
+  public String sets;
+
+  private AnalysisScope scope;
+
+  private IClassHierarchy cha;
+
+  private List<Entrypoint> entrypoints;
+
+  /**
+   * the heap in use before the analysis runs
+   */
+  private long baseline;
+
+  /**
+   * the result of the last invocation, kept so that its footprint can be measured
+   */
+  private PointerAnalysis<?> result;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, ClassHierarchyException {
+    scope = AnalysisScopeReader.makePrimordialScope(null);
+    cha = ClassHierarchyFactory.make(scope);
+    entrypoints = new ArrayList<Entrypoint>();
+    for (IClass klass : cha) {
+      if (klass.getName().toString().startsWith("Ljava/util/") && klass.isPublic() && !klass.isInterface()
+          && !klass.isAbstract()) {
+        for (IMethod m : klass.getDeclaredMethods()) {
+          if (m.isPublic() && !m.isAbstract()) {
+            entrypoints.add(new DefaultEntrypoint(m, cha));
+          }
+        }
+      }
+    }
+    baseline = usedHeap();
+  }
+
+  @TearDown(Level.Iteration)
+  public void printFootprint() {
+    long retained = usedHeap() - baseline;
+    System.err.println("\nheap retained with " + sets + " points-to sets: " + (retained >> 20) + "MB");
+    result = null;
+  }
+
+  private static long usedHeap() {
+    Runtime r = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return r.totalMemory() - r.freeMemory();
+  }
+
+  /**
+   * @return the number of call graph nodes, so that the work cannot be optimized away
+   */
+  @Benchmark
+  public int buildPointerAnalysis() throws CancelException {
+    AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+    options.setPointsToSetFactory("roaring".equals(sets) ? new MutableRoaringIntSetFactory()
+        : new MutableSharedBitVectorIntSetFactory());
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    result = builder.getPointerAnalysis();
+    return cg.getNumberOfNodes();
+  }
+}
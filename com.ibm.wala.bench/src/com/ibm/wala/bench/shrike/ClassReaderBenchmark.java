@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.bench.shrike;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.bench.TestdataScope;
+import com.ibm.wala.shrikeBT.ConstantPoolReader;
+import com.ibm.wala.shrikeBT.Decoder.InvalidBytecodeException;
+import com.ibm.wala.shrikeBT.shrikeCT.CTDecoder;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.CodeReader;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+
+/**
+ * Parses every class of a jar with {@link ClassReader}, reading the names and types of its members, and decodes the
+ * bytecode of every method with {@link CTDecoder}. The class files are read into memory beforehand, so no I/O is
+ * measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class ClassReaderBenchmark {
+
+  /**
+   * "testdata" for <code>com.ibm.wala.core.testdata</code>, "stdlib" for the JDK runtime library
+   */
+  @Param({ "testdata", "stdlib" })
+  public String jar;
+
+  private byte[][] classes;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    classes = readClasses("stdlib".equals(jar) ? stdlib() : TestdataScope.findJar());
+  }
+
+  private static File stdlib() {
+    String path = Object.class.getResource("Object.class").getPath();
+    // jar:file:/.../rt.jar!/java/lang/Object.class
+    return new File(path.substring("file:".length(), path.indexOf('!')));
+  }
+
+  private static byte[][] readClasses(File f) throws IOException {
+    List<byte[]> result = new ArrayList<byte[]>();
+    try (JarFile jarFile = new JarFile(f, false)) {
+      for (Enumeration<JarEntry> e = jarFile.entries(); e.hasMoreElements();) {
+        JarEntry entry = e.nextElement();
+        if (entry.getName().endsWith(".class")) {
+          try (InputStream s = jarFile.getInputStream(entry)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n = s.read(buffer); n >= 0; n = s.read(buffer)) {
+              bytes.write(buffer, 0, n);
+            }
+            result.add(bytes.toByteArray());
+          }
+        }
+      }
+    }
+    return result.toArray(new byte[result.size()][]);
+  }
+
+  /**
+   * @return the number of methods and fields read, so that the work cannot be optimized away
+   */
+  @Benchmark
+  public int parse() throws InvalidClassFileException {
+    int members = 0;
+    for (byte[] bytes : classes) {
+      ClassReader cr = new ClassReader(bytes);
+      cr.getName();
+      cr.getSuperName();
+      cr.getInterfaceNames();
+      for (int i = 0; i < cr.getFieldCount(); i++) {
+        cr.getFieldName(i);
+        cr.getFieldType(i);
+        members++;
+      }
+      for (int i = 0; i < cr.getMethodCount(); i++) {
+        cr.getMethodName(i);
+        cr.getMethodType(i);
+        members++;
+      }
+    }
+    return members;
+  }
+
+  /**
+   * @return the number of instructions decoded, so that the work cannot be optimized away
+   */
+  @Benchmark
+  public long decode() throws InvalidClassFileException, InvalidBytecodeException {
+    long instructions = 0;
+    ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
+    for (byte[] bytes : classes) {
+      ClassReader cr = new ClassReader(bytes);
+      ConstantPoolReader cpr = CTDecoder.makeConstantPoolReader(cr);
+      for (int i = 0; i < cr.getMethodCount(); i++) {
+        cr.initMethodAttributeIterator(i, iter);
+        for (; iter.isValid(); iter.advance()) {
+          if (iter.getName().equals("Code")) {
+            CTDecoder d = new CTDecoder(new CodeReader(iter), cpr);
+            d.decode();
+            instructions += d.getInstructions().length;
+          }
+        }
+      }
+    }
+    return instructions;
+  }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.bench.ssa;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.bench.TestdataScope;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSABuilder;
+import com.ibm.wala.ssa.SSAOptions;
+
+/**
+ * Builds the {@link SSABuilder SSA form} of every concrete method of one class loader, with no cache, so that every
+ * invocation runs SSA construction anew. The bytecode of each method is decoded once, before the first measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class IRBuildBenchmark {
+
+  /**
+   * "Application" for <code>com.ibm.wala.core.testdata</code>, "Primordial" for the JDK runtime library
+   */
+  @Param({ "Application", "Primordial" })
+  public String loader;
+
+  private IMethod[] methods;
+
+  private final DefaultIRFactory factory = new DefaultIRFactory();
+
+  private final SSAOptions options = SSAOptions.defaultOptions();
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, ClassHierarchyException {
+    IClassHierarchy cha = ClassHierarchyFactory.make(TestdataScope.make());
+    List<IMethod> result = new ArrayList<IMethod>();
+    for (IClass klass : cha) {
+      if (klass.getClassLoader().getName().toString().equals(loader)) {
+        for (IMethod m : klass.getDeclaredMethods()) {
+          if (!m.isAbstract() && !m.isNative()) {
+            result.add(m);
+          }
+        }
+      }
+    }
+    methods = result.toArray(new IMethod[result.size()]);
+  }
+
+  /**
+   * @return the total number of instructions built, so that the work cannot be optimized away
+   */
+  @Benchmark
+  public long buildAllIRs() {
+    long instructions = 0;
+    for (IMethod m : methods) {
+      try {
+        IR ir = factory.makeIR(m, Everywhere.EVERYWHERE, options);
+        instructions += ir.getInstructions().length;
+      } catch (RuntimeException e) {
+        // a few library methods cannot be decoded; that is not what we are measuring
+      }
+    }
+    return instructions;
+  }
+}
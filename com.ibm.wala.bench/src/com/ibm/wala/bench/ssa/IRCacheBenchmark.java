@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.bench.ssa;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCacheImpl;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+
+/**
+ * Builds the IR of every concrete method in the JDK runtime library from a fixed number of threads, all sharing one analysis
+ * cache. Compares the monitor-guarded {@link AnalysisCacheImpl} with {@link ConcurrentAnalysisCacheImpl}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class IRCacheBenchmark {
+
+  @Param({ "1", "2", "4", "8" })
+  public int threads;
+
+  @Param({ "synchronized", "concurrent" })
+  public String cache;
+
+  private IMethod[] methods;
+
+  private ExecutorService executor;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, ClassHierarchyException {
+    AnalysisScope scope = AnalysisScopeReader.makePrimordialScope(null);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    List<IMethod> result = new ArrayList<IMethod>();
+    for (IClass klass : cha) {
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (!m.isAbstract() && !m.isNative()) {
+          result.add(m);
+        }
+      }
+    }
+    methods = result.toArray(new IMethod[result.size()]);
+    executor = Executors.newFixedThreadPool(threads);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  /**
+   * @return the total number of instructions built, so that the work cannot be optimized away
+   */
+  @Benchmark
+  public long buildAllIRs() throws InterruptedException, ExecutionException {
+    final AnalysisCache irs = "concurrent".equals(cache) ? new ConcurrentAnalysisCacheImpl() : new AnalysisCacheImpl();
+    final AtomicInteger next = new AtomicInteger();
+    List<Future<Long>> workers = new ArrayList<Future<Long>>();
+    for (int t = 0; t < threads; t++) {
+      workers.add(executor.submit(new Callable<Long>() {
+        @Override
+        public Long call() {
+          long instructions = 0;
+          for (int i = next.getAndIncrement(); i < methods.length; i = next.getAndIncrement()) {
+            try {
+              IR ir = irs.getIR(methods[i]);
+              if (ir != null) {
+                instructions += ir.getInstructions().length;
+              }
+            } catch (RuntimeException e) {
+              // a few library methods cannot be decoded; that is not what we are measuring
+            }
+          }
+          return instructions;
+        }
+      }));
+    }
+    long total = 0;
+    for (Future<Long> w : workers) {
+      total += w.get();
+    }
+    return total;
+  }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.bench.types;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.strings.Atom;
+import com.ibm.wala.util.strings.ImmutableByteArray;
+
+/**
+ * Interns the names, types and method references of a synthetic constant pool from a fixed number of threads, the way
+ * class loaders and IR construction do. Each thread interns every name, so after the first invocation nearly all lookups
+ * find an existing entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InterningBenchmark {
+
+  private static final int NAMES = 20000;
+
+  @Param({ "1", "2", "4", "8" })
+  public int threads;
+
+  /**
+   * all names, back to back, as in a class file
+   */
+  private ImmutableByteArray pool;
+
+  private int[] offsets;
+
+  private int[] lengths;
+
+  private ExecutorService executor;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    StringBuilder b = new StringBuilder();
+    offsets = new int[NAMES];
+    lengths = new int[NAMES];
+    for (int i = 0; i < NAMES; i++) {
+      String name = "Lcom/example/pkg" + (i % 50) + "/Class" + i;
+      offsets[i] = b.length();
+      lengths[i] = name.length();
+      b.append(name);
+    }
+    pool = ImmutableByteArray.make(b.toString());
+    executor = Executors.newFixedThreadPool(threads);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  /**
+   * @return a value depending on every interned object, so that the work cannot be optimized away
+   */
+  @Benchmark
+  public long intern() throws InterruptedException, ExecutionException {
+    final Descriptor descriptor = Descriptor.findOrCreateUTF8("()V");
+    List<Future<Long>> workers = new ArrayList<Future<Long>>();
+    for (int t = 0; t < threads; t++) {
+      final int first = t * NAMES / threads;
+      workers.add(executor.submit(new Callable<Long>() {
+        @Override
+        public Long call() {
+          long sum = 0;
+          for (int i = 0; i < NAMES; i++) {
+            int j = (first + i) % NAMES;
+            Atom atom = Atom.findOrCreate(pool, offsets[j], lengths[j]);
+            TypeName name = TypeName.findOrCreate(pool, offsets[j], lengths[j]);
+            TypeReference type = TypeReference.findOrCreate(ClassLoaderReference.Application, name);
+            MethodReference method = MethodReference.findOrCreate(type, atom, descriptor);
+            sum += System.identityHashCode(method);
+          }
+          return sum;
+        }
+      }));
+    }
+    long total = 0;
+    for (Future<Long> w : workers) {
+      total += w.get();
+    }
+    return total;
+  }
+}
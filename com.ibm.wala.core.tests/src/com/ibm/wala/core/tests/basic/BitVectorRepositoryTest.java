@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.basic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.BitVectorRepository;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
+
+/**
+ * Tests for the sharing of bit vectors between {@link MutableSharedBitVectorIntSet}s
+ */
+public class BitVectorRepositoryTest extends WalaTestCase {
+
+  private static BitVectorIntSet range(int from, int to) {
+    BitVectorIntSet result = new BitVectorIntSet();
+    for (int i = from; i < to; i++) {
+      result.add(i);
+    }
+    return result;
+  }
+
+  @Test
+  public void testSharing() {
+    BitVectorRepository r = new BitVectorRepository();
+    BitVectorIntSet a = r.findOrCreate(range(0, 100));
+    // same bits, different array length
+    BitVectorIntSet big = range(0, 1000);
+    for (int i = 100; i < 1000; i++) {
+      big.remove(i);
+    }
+    BitVectorIntSet b = r.findOrCreate(big);
+    BitVectorIntSet c = r.findOrCreate(range(0, 101));
+    Assert.assertSame(a, b);
+    Assert.assertNotSame(a, c);
+    Assert.assertTrue(a.sameValue(range(0, 100)));
+    Assert.assertEquals(1, r.getHits());
+    Assert.assertEquals(2, r.getMisses());
+    Assert.assertEquals(2, r.getEntryCount());
+    Assert.assertTrue(r.getBytes() > 0);
+  }
+
+  @Test
+  public void testIsolation() {
+    MutableSharedBitVectorIntSetFactory f1 = new MutableSharedBitVectorIntSetFactory(new BitVectorRepository());
+    MutableSharedBitVectorIntSetFactory f2 = new MutableSharedBitVectorIntSetFactory(new BitVectorRepository());
+    MutableSharedBitVectorIntSet s1 = f1.makeCopy(range(0, 50));
+    MutableSharedBitVectorIntSet s2 = f2.makeCopy(range(0, 50));
+    MutableSharedBitVectorIntSet s3 = f1.makeCopy(range(0, 50));
+    Assert.assertTrue(s1.sameValue(s2));
+    Assert.assertTrue(s1.sameValue(s3));
+    Assert.assertEquals(1, f1.getRepository().getMisses());
+    Assert.assertEquals(1, f1.getRepository().getHits());
+    Assert.assertEquals(1, f2.getRepository().getMisses());
+    Assert.assertEquals(0, f2.getRepository().getHits());
+
+    // sets made from s1 keep using its repository
+    MutableSharedBitVectorIntSet s4 = new MutableSharedBitVectorIntSet(s1);
+    for (int i = 50; i < 100; i++) {
+      s4.add(i);
+    }
+    Assert.assertTrue(s4.sameValue(range(0, 100)));
+    Assert.assertTrue(f1.getRepository().getMisses() > 1);
+    Assert.assertEquals(1, f2.getRepository().getMisses());
+  }
+
+  @Test
+  public void testMemoryBudget() {
+    BitVectorRepository r = new BitVectorRepository(1000);
+    List<BitVectorIntSet> shared = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      BitVectorIntSet s = range(i, i + 30);
+      BitVectorIntSet x = r.findOrCreate(s);
+      Assert.assertTrue(x.sameValue(s));
+      shared.add(x);
+    }
+    Assert.assertTrue(r.getBytes() <= r.getMaxBytes());
+    Assert.assertTrue(r.getRejected() > 0);
+    Assert.assertEquals(100, r.getMisses());
+    Assert.assertEquals(100 - r.getRejected(), r.getEntryCount());
+
+    // sets still work once the budget is used up
+    MutableSharedBitVectorIntSet s = new MutableSharedBitVectorIntSet(r);
+    for (int i = 0; i < 200; i++) {
+      s.add(i);
+    }
+    Assert.assertTrue(s.sameValue(range(0, 200)));
+  }
+
+  @Test
+  public void testConcurrentQueries() throws InterruptedException {
+    final BitVectorRepository r = new BitVectorRepository();
+    final BitVectorIntSet[][] results = new BitVectorIntSet[4][50];
+    Thread[] threads = new Thread[results.length];
+    for (int t = 0; t < threads.length; t++) {
+      final int thread = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 50; i++) {
+            results[thread][i] = r.findOrCreate(range(i, 2 * i + 1));
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    for (int i = 0; i < 50; i++) {
+      for (int t = 1; t < results.length; t++) {
+        Assert.assertSame(results[0][i], results[t][i]);
+      }
+    }
+    Assert.assertEquals(50, r.getMisses());
+    Assert.assertEquals(150, r.getHits());
+  }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.basic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * Tests that atoms, type names and member references stay canonical when many threads intern them at once
+ */
+public class ConcurrentInterningTest extends WalaTestCase {
+
+  private static final int THREADS = 8;
+
+  private static final int NAMES = 2000;
+
+  @Test
+  public void testAtomSlices() {
+    byte[] bytes = "xxLjava/lang/Objectyy".getBytes();
+    Atom slice = Atom.findOrCreate(bytes, 2, 17);
+    Assert.assertSame(Atom.findOrCreateAsciiAtom("Ljava/lang/Object"), slice);
+    Assert.assertEquals("Ljava/lang/Object", slice.toString());
+    // the atom does not share the caller's array
+    bytes[2] = 'X';
+    Assert.assertEquals("Ljava/lang/Object", slice.toString());
+  }
+
+  @Test
+  public void testConcurrentInterning() throws InterruptedException {
+    // each test run uses fresh names, so that the threads really race to create them
+    final String prefix = "Lconcurrent/interning/C" + System.nanoTime() + "_";
+    final Object[][] results = new Object[THREADS][];
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Throwable> failures = new ArrayList<Throwable>();
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int id = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            Object[] mine = new Object[NAMES * 4];
+            start.await();
+            for (int i = 0; i < NAMES; i++) {
+              int j = (i + id * NAMES / THREADS) % NAMES;
+              TypeReference type = TypeReference.findOrCreate(ClassLoaderReference.Application, prefix + j);
+              mine[4 * j] = Atom.findOrCreateUnicodeAtom("name" + j);
+              mine[4 * j + 1] = type;
+              mine[4 * j + 2] = MethodReference.findOrCreate(type, Atom.findOrCreateUnicodeAtom("m" + j),
+                  Descriptor.findOrCreateUTF8("(" + prefix + j + ";)V"));
+              mine[4 * j + 3] = FieldReference.findOrCreate(type, Atom.findOrCreateUnicodeAtom("f" + j), TypeReference.Int);
+            }
+            results[id] = mine;
+          } catch (Throwable e) {
+            synchronized (failures) {
+              failures.add(e);
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    start.countDown();
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    Assert.assertTrue(failures.toString(), failures.isEmpty());
+    for (int t = 1; t < THREADS; t++) {
+      for (int i = 0; i < results[0].length; i++) {
+        Assert.assertSame(results[0][i], results[t][i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.basic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.ParallelUtil;
+import com.ibm.wala.util.ParallelUtil.IndexedTask;
+import com.ibm.wala.util.ParallelUtil.IndexedTaskFactory;
+
+/**
+ * Tests {@link ParallelUtil}
+ */
+public class ParallelUtilTest extends WalaTestCase {
+
+  private static final int N = 1000;
+
+  @Test
+  public void testEachTaskRunsOnce() throws CancelException {
+    for (int nThreads : new int[] { 1, 4, 2 * N }) {
+      final AtomicIntegerArray runs = new AtomicIntegerArray(N);
+      ParallelUtil.forEach(N, nThreads, "test worker", new IndexedTask() {
+        @Override
+        public void run(int i) {
+          runs.incrementAndGet(i);
+        }
+      });
+      for (int i = 0; i < N; i++) {
+        Assert.assertEquals(1, runs.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testTaskPerThread() throws CancelException {
+    final AtomicInteger made = new AtomicInteger();
+    final AtomicInteger runs = new AtomicInteger();
+    ParallelUtil.forEach(N, 4, "test worker", new IndexedTaskFactory() {
+      @Override
+      public IndexedTask make() {
+        made.incrementAndGet();
+        final Thread[] owner = new Thread[1];
+        return new IndexedTask() {
+          @Override
+          public void run(int i) {
+            if (owner[0] == null) {
+              owner[0] = Thread.currentThread();
+            }
+            Assert.assertSame(owner[0], Thread.currentThread());
+            runs.incrementAndGet();
+          }
+        };
+      }
+    });
+    Assert.assertEquals(4, made.get());
+    Assert.assertEquals(N, runs.get());
+  }
+
+  @Test
+  public void testFailure() {
+    final AtomicInteger runs = new AtomicInteger();
+    try {
+      ParallelUtil.forEach(N, 4, "test worker", new IndexedTask() {
+        @Override
+        public void run(int i) throws CancelException {
+          runs.incrementAndGet();
+          if (i == 10) {
+            throw CancelException.make("task " + i);
+          }
+        }
+      });
+      Assert.fail("expected a CancelException");
+    } catch (CancelException e) {
+      Assert.assertEquals("task 10", e.getMessage());
+    }
+    // the threads stop after the failure, rather than running all the tasks
+    Assert.assertTrue(runs.get() < N);
+  }
+
+  @Test
+  public void testCheckedFailure() throws CancelException {
+    try {
+      ParallelUtil.forEach(N, 4, "test worker", new IndexedTask() {
+        @Override
+        public void run(int i) throws Exception {
+          if (i == 10) {
+            throw new Exception("task " + i);
+          }
+        }
+      });
+      Assert.fail("expected a RuntimeException");
+    } catch (RuntimeException e) {
+      Assert.assertEquals("task 10", e.getCause().getMessage());
+    }
+  }
+}
@@ -15,6 +15,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -34,8 +35,10 @@ import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.BimodalMutableIntSetFactory;
 import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.BitVectorBase;
+import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.intset.BitVectorIntSetFactory;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntPair;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetUtil;
@@ -46,6 +49,8 @@ import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableLongSet;
 import com.ibm.wala.util.intset.MutableLongSetFactory;
+import com.ibm.wala.util.intset.MutableRoaringIntSet;
+import com.ibm.wala.util.intset.MutableRoaringIntSetFactory;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseLongSetFactory;
@@ -348,6 +353,85 @@ public class PrimitivesTest extends WalaTestCase {
     doMutableIntSet(new SemiSparseMutableIntSetFactory());
   }
 
+  /**
+   * Test the MutableRoaringIntSet implementation
+   */
+  @Test public void testMutableRoaringIntSet() {
+    doMutableIntSet(new MutableRoaringIntSetFactory());
+  }
+
+  /**
+   * Test MutableRoaringIntSet against BitVectorIntSet on sets big enough to switch between array and bitmap containers
+   */
+  @Test public void testMutableRoaringIntSetContainers() {
+    Random r = new Random(17);
+    MutableRoaringIntSet a = new MutableRoaringIntSet();
+    MutableRoaringIntSet b = new MutableRoaringIntSet();
+    BitVectorIntSet expectedA = new BitVectorIntSet();
+    BitVectorIntSet expectedB = new BitVectorIntSet();
+    for (int i = 0; i < 20000; i++) {
+      // dense in the first chunk, sparse in the others
+      int x = r.nextBoolean() ? r.nextInt(1 << 16) : r.nextInt(1 << 20);
+      Assert.assertEquals(expectedA.add(x), a.add(x));
+      int y = r.nextInt(3 << 15);
+      Assert.assertEquals(expectedB.add(y), b.add(y));
+    }
+    Assert.assertTrue(a.sameValue(expectedA));
+    Assert.assertTrue(expectedA.sameValue(a));
+    Assert.assertEquals(expectedA.max(), a.max());
+
+    MutableRoaringIntSet filtered = new MutableRoaringIntSet();
+    Assert.assertTrue(filtered.addAllInIntersection(a, b));
+    Assert.assertFalse(filtered.addAllInIntersection(a, b));
+    Assert.assertTrue(filtered.sameValue(expectedA.intersection(expectedB)));
+
+    MutableRoaringIntSet union = new MutableRoaringIntSet(a);
+    Assert.assertTrue(union.addAll(b));
+    Assert.assertFalse(union.addAll(b));
+    expectedA.addAll(expectedB);
+    Assert.assertTrue(union.sameValue(expectedA));
+    Assert.assertTrue(a.isSubset(union));
+    Assert.assertTrue(b.isSubset(union));
+
+    // remove enough of the first chunk to turn it back into an array
+    for (int x = 0; x < 60000; x++) {
+      Assert.assertEquals(expectedA.remove(x), union.remove(x));
+    }
+    Assert.assertTrue(union.sameValue(expectedA));
+    int count = 0;
+    int last = -1;
+    for (IntIterator it = union.intIterator(); it.hasNext();) {
+      int x = it.next();
+      Assert.assertTrue(x > last);
+      Assert.assertTrue(expectedA.contains(x));
+      last = x;
+      count++;
+    }
+    Assert.assertEquals(expectedA.size(), count);
+
+    union.intersectWith(b);
+    expectedA.intersectWith(expectedB);
+    Assert.assertTrue(union.sameValue(expectedA));
+    Assert.assertTrue(IntSetUtil.makeMutableCopy(union).sameValue(expectedA));
+  }
+
+  /**
+   * Test MutableRoaringIntSet as the argument of operations on a BimodalMutableIntSet, e.g. a points-to set used by a client
+   */
+  @Test public void testMutableRoaringIntSetWithBimodal() {
+    MutableRoaringIntSet roaring = new MutableRoaringIntSet();
+    for (int i = 0; i < 100; i += 3) {
+      roaring.add(i);
+    }
+    MutableIntSet bimodal = new BimodalMutableIntSetFactory().make(new int[] { 1, 3, 4, 99 });
+    Assert.assertTrue(bimodal.containsAny(roaring));
+    Assert.assertTrue(bimodal.intersection(roaring).sameValue(SparseIntSet.pair(3, 99)));
+    bimodal.intersectWith(roaring);
+    Assert.assertTrue(bimodal.sameValue(SparseIntSet.pair(3, 99)));
+    bimodal.copySet(roaring);
+    Assert.assertTrue(roaring.sameValue(bimodal));
+  }
+
   /**
    * Test the MutableSparseIntSet implementation
    */
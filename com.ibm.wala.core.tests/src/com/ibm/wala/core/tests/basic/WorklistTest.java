@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.basic;
+
+import java.util.NoSuchElementException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.dataflow.graph.AbstractMeetOperator;
+import com.ibm.wala.dataflow.graph.BitVectorFramework;
+import com.ibm.wala.dataflow.graph.BitVectorIdentity;
+import com.ibm.wala.dataflow.graph.BitVectorSolver;
+import com.ibm.wala.dataflow.graph.BitVectorUnion;
+import com.ibm.wala.dataflow.graph.BitVectorUnionConstant;
+import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
+import com.ibm.wala.fixedpoint.impl.BucketWorklist;
+import com.ibm.wala.fixedpoint.impl.ChangeFrequencyWorklist;
+import com.ibm.wala.fixedpoint.impl.IFixedPointWorklist;
+import com.ibm.wala.fixedpoint.impl.LifoWorklist;
+import com.ibm.wala.fixedpoint.impl.SolverMetrics;
+import com.ibm.wala.fixedpoint.impl.Worklist;
+import com.ibm.wala.fixedpoint.impl.WorklistPolicy;
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.fixpoint.BitVectorVariable;
+import com.ibm.wala.fixpoint.UnaryOperator;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+
+/**
+ * Tests for the worklists of the fixed-point solver
+ */
+public class WorklistTest extends WalaTestCase {
+
+  @SuppressWarnings("rawtypes")
+  private static AbstractStatement[] makeStatements(int... orderNumbers) {
+    AbstractStatement[] result = new AbstractStatement[orderNumbers.length];
+    for (int i = 0; i < orderNumbers.length; i++) {
+      BitVectorVariable lhs = new BitVectorVariable();
+      lhs.setOrderNumber(orderNumbers[i]);
+      result[i] = BitVectorIdentity.instance().makeEquation(lhs, new BitVectorVariable());
+    }
+    return result;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static void checkOrderAndDuplicates(IFixedPointWorklist worklist) {
+    AbstractStatement[] statements = makeStatements(40, 3, 17, 3, 0, 100);
+    for (AbstractStatement s : statements) {
+      worklist.insertStatement(s);
+      worklist.insertStatement(s);
+      Assert.assertTrue(s.isQueued());
+    }
+    Assert.assertEquals(statements.length, worklist.size());
+
+    int last = -1;
+    while (!worklist.isEmpty()) {
+      AbstractStatement s = worklist.takeStatement();
+      Assert.assertFalse(s.isQueued());
+      Assert.assertTrue(s.getOrderNumber() >= last);
+      last = s.getOrderNumber();
+      if (last == 17) {
+        // a statement taken off the worklist can be queued again, as can one that goes before the others
+        worklist.insertStatement(s);
+        Assert.assertEquals(17, worklist.takeStatement().getOrderNumber());
+        worklist.insertStatement(statements[1]);
+        Assert.assertEquals(3, worklist.takeStatement().getOrderNumber());
+        last = 3;
+      }
+    }
+    Assert.assertEquals(0, worklist.size());
+    try {
+      worklist.takeStatement();
+      Assert.fail("took a statement from an empty worklist");
+    } catch (NoSuchElementException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testHeapWorklist() {
+    checkOrderAndDuplicates(new Worklist());
+  }
+
+  @Test
+  public void testBucketWorklist() {
+    checkOrderAndDuplicates(new BucketWorklist());
+  }
+
+  @Test
+  public void testLifoWorklist() {
+    LifoWorklist worklist = new LifoWorklist();
+    AbstractStatement[] statements = makeStatements(40, 3, 17);
+    for (AbstractStatement s : statements) {
+      worklist.insertStatement(s);
+      worklist.insertStatement(s);
+    }
+    Assert.assertEquals(statements.length, worklist.size());
+    for (int i = statements.length - 1; i >= 0; i--) {
+      AbstractStatement s = worklist.takeStatement();
+      Assert.assertSame(statements[i], s);
+      Assert.assertFalse(s.isQueued());
+    }
+    Assert.assertTrue(worklist.isEmpty());
+  }
+
+  @Test
+  public void testChangeFrequencyWorklist() {
+    ChangeFrequencyWorklist worklist = new ChangeFrequencyWorklist();
+    AbstractStatement[] statements = makeStatements(0, 1, 2);
+    for (int i = 0; i < statements.length; i++) {
+      statements[i].setGraphNodeId(i);
+    }
+    // statement 0 is queued a second time, so it now goes after the others, despite its order number
+    worklist.insertStatement(statements[0]);
+    Assert.assertSame(statements[0], worklist.takeStatement());
+    worklist.insertStatement(statements[2]);
+    worklist.insertStatement(statements[0]);
+    worklist.insertStatement(statements[1]);
+    worklist.insertStatement(statements[1]);
+    Assert.assertEquals(2, worklist.getCount(statements[0]));
+    Assert.assertEquals(1, worklist.getCount(statements[1]));
+    Assert.assertSame(statements[1], worklist.takeStatement());
+    Assert.assertSame(statements[2], worklist.takeStatement());
+    Assert.assertSame(statements[0], worklist.takeStatement());
+    Assert.assertTrue(worklist.isEmpty());
+  }
+
+  private static BitVectorFramework<String, String> makeFramework() {
+    Graph<String> G = GraphDataflowTest.buildGraph();
+    final OrdinalSetMapping<String> values = new MutableMapping<>(GraphDataflowTest.nodes);
+    ITransferFunctionProvider<String, BitVectorVariable> functions = new ITransferFunctionProvider<String, BitVectorVariable>() {
+
+      @Override
+      public UnaryOperator<BitVectorVariable> getNodeTransferFunction(String node) {
+        return new BitVectorUnionConstant(values.getMappedIndex(node));
+      }
+
+      @Override
+      public boolean hasNodeTransferFunctions() {
+        return true;
+      }
+
+      @Override
+      public UnaryOperator<BitVectorVariable> getEdgeTransferFunction(String from, String to) {
+        Assertions.UNREACHABLE();
+        return null;
+      }
+
+      @Override
+      public boolean hasEdgeTransferFunctions() {
+        return false;
+      }
+
+      @Override
+      public AbstractMeetOperator<BitVectorVariable> getMeetOperator() {
+        return BitVectorUnion.instance();
+      }
+    };
+
+    return new BitVectorFramework<>(G, functions, values);
+  }
+
+  /**
+   * solve the dataflow problem of {@link GraphDataflowTest} with a {@link BucketWorklist}
+   */
+  @Test
+  public void testSolverWithBucketWorklist() throws CancelException {
+    BitVectorSolver<String> s = new BitVectorSolver<String>(makeFramework()) {
+      @Override
+      protected IFixedPointWorklist makeWorklist() {
+        return new BucketWorklist();
+      }
+    };
+    s.solve(null);
+    Assert.assertEquals(GraphDataflowTest.expectedStringNodeOnly(), GraphDataflowTest.result2String(s));
+  }
+
+  /**
+   * solve the dataflow problem of {@link GraphDataflowTest} under each {@link WorklistPolicy}
+   */
+  @Test
+  public void testWorklistPolicies() throws CancelException {
+    for (WorklistPolicy policy : WorklistPolicy.values()) {
+      BitVectorSolver<String> s = new BitVectorSolver<>(makeFramework());
+      s.setWorklistPolicy(policy);
+      Assert.assertSame(policy, s.getWorklistPolicy());
+      s.solve(null);
+      Assert.assertEquals(policy.toString(), GraphDataflowTest.expectedStringNodeOnly(), GraphDataflowTest.result2String(s));
+      SolverMetrics metrics = s.getMetrics();
+      Assert.assertTrue(metrics.toString(), metrics.getEvaluations() >= metrics.getChanges());
+      Assert.assertEquals(metrics.toString(), metrics.getEvaluations(), metrics.getInsertions());
+      Assert.assertTrue(metrics.toString(), metrics.getReorders() > 0);
+      Assert.assertTrue(metrics.toString(), metrics.getMaxWorklistSize() > 0);
+    }
+  }
+
+  /**
+   * changing the policy halfway through gives the same result
+   */
+  @Test
+  public void testChangePolicyWhileSolving() throws CancelException {
+    BitVectorSolver<String> s = new BitVectorSolver<>(makeFramework());
+    s.setWorklistPolicy(WorklistPolicy.LIFO);
+    s.initForFirstSolve();
+    s.setWorklistPolicy(WorklistPolicy.SCC);
+    s.solve(null);
+    Assert.assertEquals(GraphDataflowTest.expectedStringNodeOnly(), GraphDataflowTest.result2String(s));
+  }
+}
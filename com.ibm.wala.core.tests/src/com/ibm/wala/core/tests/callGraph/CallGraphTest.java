@@ -38,6 +38,7 @@ import com.ibm.wala.ipa.callgraph.impl.Util;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
 import com.ibm.wala.ipa.cfg.BasicBlockInContext;
 import com.ibm.wala.ipa.cfg.InterproceduralCFG;
@@ -55,6 +56,10 @@ import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.GraphIntegrity;
 import com.ibm.wala.util.graph.GraphIntegrity.UnsoundGraphException;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableRoaringIntSet;
+import com.ibm.wala.util.intset.MutableRoaringIntSetFactory;
 import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.strings.Atom;
 import com.ibm.wala.util.warnings.Warnings;
@@ -205,6 +210,53 @@ public class CallGraphTest extends WalaTestCase {
     doCallGraphs(options, new AnalysisCacheImpl(), cha, scope);
   }
 
+  @Test public void testParallelConstraintGeneration() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = new AllApplicationEntrypoints(scope, cha);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraph sequential = CallGraphTestUtil.buildZeroOneCFA(options, new AnalysisCacheImpl(), cha, scope, false);
+    options.setConstraintGenerationParallelism(4);
+    CallGraph parallel = CallGraphTestUtil.buildZeroOneCFA(options, new AnalysisCacheImpl(), cha, scope, false);
+
+    Assert.assertEquals(sequential.getNumberOfNodes(), parallel.getNumberOfNodes());
+    Graph<MethodReference> squashSequential = checkCallGraph(sequential, null, null, "0-1-CFA");
+    Graph<MethodReference> squashParallel = checkCallGraph(parallel, squashSequential, null, "parallel 0-1-CFA");
+    com.ibm.wala.ipa.callgraph.impl.Util.checkGraphSubset(squashParallel, squashSequential);
+  }
+
+  @Test public void testRoaringPointsToSets() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = new AllApplicationEntrypoints(scope, cha);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraph bitVectors = CallGraphTestUtil.buildZeroOneCFA(options, new AnalysisCacheImpl(), cha, scope, false);
+    MutableIntSetFactory<?> defaultFactory = IntSetUtil.getDefaultIntSetFactory();
+    options.setPointsToSetFactory(new MutableRoaringIntSetFactory());
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph roaring = builder.makeCallGraph(options, null);
+    // the points-to sets use the chosen representation, without changing the default for everyone else
+    Assert.assertSame(defaultFactory, IntSetUtil.getDefaultIntSetFactory());
+    int nonEmpty = 0;
+    for (Iterator<?> it = builder.getPropagationSystem().getFixedPointSystem().getVariables(); it.hasNext();) {
+      PointsToSetVariable v = (PointsToSetVariable) it.next();
+      if (v.getValue() != null) {
+        Assert.assertTrue(v + ": " + v.getValue().getClass(), v.getValue() instanceof MutableRoaringIntSet);
+        nonEmpty++;
+      }
+    }
+    Assert.assertTrue(nonEmpty > 0);
+
+    Assert.assertEquals(bitVectors.getNumberOfNodes(), roaring.getNumberOfNodes());
+    Graph<MethodReference> squashBitVectors = checkCallGraph(bitVectors, null, null, "0-1-CFA");
+    Graph<MethodReference> squashRoaring = checkCallGraph(roaring, squashBitVectors, null, "roaring 0-1-CFA");
+    com.ibm.wala.ipa.callgraph.impl.Util.checkGraphSubset(squashRoaring, squashBitVectors);
+  }
+
   @Test public void testHelloAllEntrypoints() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
     if (analyzingJar()) return;    
     AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.HELLO, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.binary.CallGraphWriter;
+import com.ibm.wala.ipa.callgraph.binary.MappedCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * Tests the formats of {@link CallGraphWriter} on a call graph with contexts.
+ */
+public class CallGraphWriterTest extends WalaTestCase {
+
+  private static IClassHierarchy cha;
+
+  private static CallGraph cg;
+
+  private static int nEdges;
+
+  @BeforeClass
+  public static void beforeClass() throws ClassHierarchyException, IOException, IllegalArgumentException, CancelException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    cg = Util.makeNCFABuilder(1, options, new AnalysisCacheImpl(), cha, scope).makeCallGraph(options, null);
+    nEdges = 0;
+    for (CGNode n : cg) {
+      for (Iterator<CallSiteReference> sites = n.iterateCallSites(); sites.hasNext();) {
+        nEdges += cg.getNumberOfTargets(n, sites.next());
+      }
+    }
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    cha = null;
+    cg = null;
+  }
+
+  private static String signature(CGNode n) {
+    return n.getMethod().getReference().getDeclaringClass().getName() + "." + n.getMethod().getSelector();
+  }
+
+  @Test
+  public void testColumnar() throws IOException {
+    File file = File.createTempFile("callgraph", ".cg");
+    try {
+      CallGraphWriter.writeColumnar(cg, file);
+      MappedCallGraph mapped = MappedCallGraph.open(file, cha, new AnalysisCacheImpl());
+
+      Assert.assertEquals(cg.getNumberOfNodes(), mapped.getNumberOfNodes());
+      Assert.assertEquals(cg.getMaxNumber(), mapped.getMaxNumber());
+      Assert.assertEquals(cg.getNumber(cg.getFakeRootNode()), mapped.getNumber(mapped.getFakeRootNode()));
+      Assert.assertEquals(cg.getEntrypointNodes().size(), mapped.getEntrypointNodes().size());
+      boolean someContext = false;
+      for (CGNode n : cg) {
+        CGNode m = mapped.getNode(cg.getNumber(n));
+        Assert.assertEquals(n.getMethod().getReference(), m.getMethod().getReference());
+        Assert.assertEquals(n.getContext().toString(), m.getContext().toString());
+        Assert.assertEquals(n.getContext() == Everywhere.EVERYWHERE, m.getContext() == Everywhere.EVERYWHERE);
+        someContext |= n.getContext() != Everywhere.EVERYWHERE;
+        Assert.assertEquals(m, mapped.getNode(m.getMethod(), m.getContext()));
+        if (cha.resolveMethod(n.getMethod().getReference()) != null) {
+          Assert.assertEquals(cg.getNodes(n.getMethod().getReference()).size(),
+              mapped.getNodes(n.getMethod().getReference()).size());
+        } else {
+          Assert.assertTrue(mapped.getNodes(n.getMethod().getReference()).contains(m));
+        }
+        Assert.assertTrue(sameValue(cg.getSuccNodeNumbers(n), mapped.getSuccNodeNumbers(m)));
+        Assert.assertTrue(sameValue(cg.getPredNodeNumbers(n), mapped.getPredNodeNumbers(m)));
+        Assert.assertEquals(Iterator2Collection.toSet(n.iterateCallSites()), Iterator2Collection.toSet(m.iterateCallSites()));
+        for (Iterator<CallSiteReference> sites = n.iterateCallSites(); sites.hasNext();) {
+          CallSiteReference site = sites.next();
+          Assert.assertEquals(numbers(cg, cg.getPossibleTargets(n, site)), numbers(mapped, mapped.getPossibleTargets(m, site)));
+          Assert.assertEquals(cg.getNumberOfTargets(n, site), mapped.getNumberOfTargets(m, site));
+        }
+        for (CGNode s : Iterator2Collection.toSet(cg.getSuccNodes(n))) {
+          CGNode t = mapped.getNode(cg.getNumber(s));
+          Assert.assertTrue(mapped.hasEdge(m, t));
+          Assert.assertEquals(Iterator2Collection.toSet(cg.getPossibleSites(n, s)),
+              Iterator2Collection.toSet(mapped.getPossibleSites(m, t)));
+        }
+      }
+      Assert.assertTrue("expected some nodes in a context other than Everywhere", someContext);
+      Assert.assertNotNull(mapped.getFakeRootNode().getMethod());
+      Assert.assertNull(mapped.getFakeRootNode().getIR());
+    } finally {
+      file.delete();
+    }
+  }
+
+  private static boolean sameValue(IntSet a, IntSet b) {
+    return a == null || a.isEmpty() ? b == null || b.isEmpty() : b != null && a.sameValue(b);
+  }
+
+  private static Set<Integer> numbers(CallGraph g, Set<CGNode> nodes) {
+    Set<Integer> result = HashSetFactory.make();
+    for (CGNode n : nodes) {
+      result.add(g.getNumber(n));
+    }
+    return result;
+  }
+
+  /**
+   * decode the varint format and check it against the call graph
+   */
+  @Test
+  public void testBinary() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CallGraphWriter.writeBinary(cg, bytes);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    List<String> strings = new ArrayList<String>();
+
+    Assert.assertEquals(0x57434742, in.readInt());
+    Assert.assertEquals(1, readVarint(in));
+    Assert.assertEquals(cg.getMaxNumber() + 1, readVarint(in));
+    Assert.assertEquals(cg.getNumber(cg.getFakeRootNode()) + 1, readVarint(in));
+    readVarint(in);
+    int number = -1;
+    int nNodes = 0;
+    int edges = 0;
+    for (int delta = readVarint(in); delta != 0; delta = readVarint(in)) {
+      number += delta;
+      nNodes++;
+      CGNode n = cg.getNode(number);
+      int flags = readVarint(in);
+      Assert.assertEquals(n.getMethod().getReference().getDeclaringClass().getClassLoader().getName().toString(),
+          readString(in, strings));
+      Assert.assertEquals(signature(n), readString(in, strings));
+      if ((flags & 2) == 0) {
+        Assert.assertEquals(n.getContext().toString(), readString(in, strings));
+      } else {
+        Assert.assertEquals(Everywhere.EVERYWHERE, n.getContext());
+      }
+      int nSites = readVarint(in);
+      Assert.assertEquals(Iterator2Collection.toSet(n.iterateCallSites()).size(), nSites);
+      for (int s = 0; s < nSites; s++) {
+        readVarint(in);
+        readVarint(in);
+        readString(in, strings);
+        readString(in, strings);
+        int nTargets = readVarint(in);
+        for (int t = 0, target = -1; t < nTargets; t++) {
+          target += readVarint(in);
+          Assert.assertTrue(cg.hasEdge(n, cg.getNode(target)));
+        }
+        edges += nTargets;
+      }
+    }
+    Assert.assertEquals(-1, in.read());
+    Assert.assertEquals(cg.getNumberOfNodes(), nNodes);
+    Assert.assertEquals(nEdges, edges);
+    Assert.assertEquals("each string is written once", strings.size(), HashSetFactory.make(strings).size());
+  }
+
+  private static int readVarint(InputStream in) throws IOException {
+    int result = 0;
+    for (int shift = 0;; shift += 7) {
+      int b = in.read();
+      result |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+  }
+
+  private static String readString(DataInputStream in, List<String> strings) throws IOException {
+    int number = readVarint(in);
+    if (number > 0) {
+      return strings.get(number - 1);
+    }
+    byte[] bytes = new byte[readVarint(in)];
+    in.readFully(bytes);
+    String s = new String(bytes, "UTF-8");
+    strings.add(s);
+    return s;
+  }
+
+  @Test
+  public void testEdgeList() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CallGraphWriter.writeEdgeList(cg, bytes);
+    BufferedReader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(bytes
+        .toByteArray())), "UTF-8"));
+    try {
+      Assert.assertEquals("caller,callerMethod,pc,callee,calleeMethod", in.readLine());
+      int edges = 0;
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        String[] fields = line.split(",");
+        Assert.assertEquals(5, fields.length);
+        CGNode caller = cg.getNode(Integer.parseInt(fields[0]));
+        CGNode callee = cg.getNode(Integer.parseInt(fields[3]));
+        Assert.assertTrue(fields[1].endsWith(" " + signature(caller)));
+        Assert.assertTrue(fields[4].endsWith(" " + signature(callee)));
+        boolean found = false;
+        for (Iterator<CallSiteReference> sites = cg.getPossibleSites(caller, callee); sites.hasNext();) {
+          found |= sites.next().getProgramCounter() == Integer.parseInt(fields[2]);
+        }
+        Assert.assertTrue(line, found);
+        edges++;
+      }
+      Assert.assertEquals(nEdges, edges);
+    } finally {
+      in.close();
+    }
+  }
+}
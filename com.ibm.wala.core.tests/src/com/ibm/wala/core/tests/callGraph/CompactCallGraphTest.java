@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.CompactCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * Tests {@link CompactCallGraph} and {@link ExplicitCallGraph#freeze()}.
+ */
+public class CompactCallGraphTest extends WalaTestCase {
+
+  private static boolean sameValue(IntSet a, IntSet b) {
+    return a == null || a.isEmpty() ? b == null || b.isEmpty() : b != null && a.sameValue(b);
+  }
+
+  private static void assertSameGraph(CallGraph expected, CallGraph actual) {
+    Assert.assertEquals(expected.getNumberOfNodes(), actual.getNumberOfNodes());
+    Assert.assertEquals(expected.getMaxNumber(), actual.getMaxNumber());
+    Assert.assertSame(expected.getFakeRootNode(), actual.getFakeRootNode());
+    Assert.assertSame(expected.getFakeWorldClinitNode(), actual.getFakeWorldClinitNode());
+    Assert.assertEquals(Iterator2Collection.toSet(expected.getEntrypointNodes().iterator()),
+        Iterator2Collection.toSet(actual.getEntrypointNodes().iterator()));
+    for (CGNode n : expected) {
+      Assert.assertSame(n, actual.getNode(expected.getNumber(n)));
+      Assert.assertEquals(expected.getNumber(n), actual.getNumber(n));
+      Assert.assertSame(n, actual.getNode(n.getMethod(), n.getContext()));
+      Assert.assertEquals(expected.getNodes(n.getMethod().getReference()), actual.getNodes(n.getMethod().getReference()));
+      Assert.assertTrue(sameValue(expected.getSuccNodeNumbers(n), actual.getSuccNodeNumbers(n)));
+      Assert.assertTrue(sameValue(expected.getPredNodeNumbers(n), actual.getPredNodeNumbers(n)));
+      Assert.assertEquals(expected.getSuccNodeCount(n), actual.getSuccNodeCount(n));
+      Assert.assertEquals(expected.getPredNodeCount(n), actual.getPredNodeCount(n));
+      for (Iterator<CallSiteReference> sites = n.iterateCallSites(); sites.hasNext();) {
+        CallSiteReference site = sites.next();
+        Assert.assertEquals(expected.getPossibleTargets(n, site), actual.getPossibleTargets(n, site));
+        Assert.assertEquals(expected.getNumberOfTargets(n, site), actual.getNumberOfTargets(n, site));
+      }
+      for (CGNode s : Iterator2Collection.toSet(expected.getSuccNodes(n))) {
+        Assert.assertTrue(actual.hasEdge(n, s));
+        Assert.assertEquals(Iterator2Collection.toSet(expected.getPossibleSites(n, s)),
+            Iterator2Collection.toSet(actual.getPossibleSites(n, s)));
+      }
+    }
+  }
+
+  @Test
+  public void testFreeze() throws ClassHierarchyException, IOException, IllegalArgumentException, CancelException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    ExplicitCallGraph cg = (ExplicitCallGraph) Util.makeNCFABuilder(1, options, new AnalysisCacheImpl(), cha, scope)
+        .makeCallGraph(options, null);
+
+    CompactCallGraph copy = CompactCallGraph.make(cg);
+    assertSameGraph(cg, copy);
+
+    CGNode root = cg.getFakeRootNode();
+    CompactCallGraph frozen = cg.freeze();
+    assertSameGraph(copy, frozen);
+    Assert.assertNotNull(frozen.getEntrypointNodes().iterator().next().getIR());
+    try {
+      cg.findOrCreateNode(root.getMethod(), Everywhere.EVERYWHERE);
+      Assert.fail("a frozen call graph should not get new nodes");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+}
@@ -22,6 +22,7 @@ import com.ibm.wala.util.intset.BitVectorIntSetFactory;
 import com.ibm.wala.util.intset.DebuggingMutableIntSetFactory;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableRoaringIntSetFactory;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
@@ -71,4 +72,8 @@ public class DebuggingBitsetCallGraphTest extends WalaTestCase {
     runBitsetTest(new SemiSparseMutableIntSetFactory(), new MutableSharedBitVectorIntSetFactory());
   }
 
+  @Test public void testRoaringShared() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    runBitsetTest(new MutableRoaringIntSetFactory(), new MutableSharedBitVectorIntSetFactory());
+  }
+
 }
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeBT.InvokeInstruction;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.MethodEditor;
+import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Tests for updating a call graph and pointer analysis after code changes
+ */
+public class IncrementalCallGraphTest extends WalaTestCase {
+
+  private static List<Entrypoint> entrypoints(Iterable<Entrypoint> entrypoints) {
+    List<Entrypoint> result = new ArrayList<>();
+    for (Entrypoint e : entrypoints) {
+      result.add(e);
+    }
+    return result;
+  }
+
+  /**
+   * @return the edges of the call graph
+   */
+  private static Set<String> edges(CallGraph cg) {
+    Set<String> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      for (CGNode m : Iterator2Iterable.make(cg.getSuccNodes(n))) {
+        result.add(n + " -> " + m);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the non-empty points-to sets of the pointer analysis
+   */
+  private static Map<String, Set<String>> pointsTo(PointerAnalysis<InstanceKey> pa) {
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (PointerKey k : pa.getPointerKeys()) {
+      Set<String> s = HashSetFactory.make();
+      for (InstanceKey i : pa.getPointsToSet(k)) {
+        s.add(i.toString());
+      }
+      if (!s.isEmpty()) {
+        result.put(k.toString(), s);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the class file of klass, with the calls in method to callee replaced by calls to newCallee, which must have the same
+   *         descriptor
+   */
+  private static byte[] redirectCalls(ShrikeClass klass, String method, final String callee, final String newCallee)
+      throws InvalidClassFileException {
+    ClassInstrumenter ci = new ClassInstrumenter(klass.getName().toString(), klass.getReader(), null, false);
+    for (int i = 0; i < ci.getReader().getMethodCount(); i++) {
+      if (ci.getReader().getMethodName(i).equals(method)) {
+        MethodData d = ci.visitMethod(i);
+        MethodEditor me = new MethodEditor(d);
+        me.beginPass();
+        me.visitInstructions(new MethodEditor.Visitor() {
+          @Override
+          public void visitInvoke(IInvokeInstruction instruction) {
+            if (instruction.getMethodName().equals(callee)) {
+              final InvokeInstruction call = InvokeInstruction.make(instruction.getMethodSignature(), instruction.getClassType(),
+                  newCallee, ((InvokeInstruction) instruction).getInvocationCode());
+              replaceWith(new MethodEditor.Patch() {
+                @Override
+                public void emitTo(MethodEditor.Output w) {
+                  w.emit(call);
+                }
+              });
+            }
+          }
+        });
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    return ci.emitClass().makeBytes();
+  }
+
+  @Test
+  public void testAddEntrypoint() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    List<Entrypoint> first = entrypoints(Util.makeMainEntrypoints(scope, cha, TestConstants.RECURSE_MAIN));
+    List<Entrypoint> second = entrypoints(Util.makeMainEntrypoints(scope, cha, TestConstants.CLASSCONSTANT_MAIN));
+    List<Entrypoint> both = new ArrayList<>(first);
+    both.addAll(second);
+
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, both);
+    SSAPropagationCallGraphBuilder fresh = Util.makeZeroCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph expected = fresh.makeCallGraph(options, null);
+
+    options = CallGraphTestUtil.makeAnalysisOptions(scope, first);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    int before = cg.getNumberOfNodes();
+
+    // change the fake root method, adding calls to the second entrypoint
+    AbstractRootMethod root = (AbstractRootMethod) cg.getFakeRootNode().getMethod();
+    for (Entrypoint e : second) {
+      e.addCall(root);
+    }
+    CallGraph updated = builder.updateCallGraph(Collections.singleton(root.getDeclaringClass()), null);
+
+    Assert.assertSame(cg, updated);
+    Assert.assertTrue(updated.getNumberOfNodes() > before);
+    Assert.assertEquals(expected.getNumberOfNodes(), updated.getNumberOfNodes());
+    Assert.assertEquals(edges(expected), edges(updated));
+    Map<String, Set<String>> expectedPointsTo = pointsTo(fresh.getPointerAnalysis());
+    Map<String, Set<String>> updatedPointsTo = pointsTo(builder.getPointerAnalysis());
+    for (Map.Entry<String, Set<String>> e : expectedPointsTo.entrySet()) {
+      Assert.assertEquals(e.getKey(), e.getValue(), updatedPointsTo.get(e.getKey()));
+    }
+    // the update processes the fake world clinit with all its calls at once, so it may see exceptions that
+    // the original analysis, which added the calls one by one, did not
+    String clinit = cg.getFakeWorldClinitNode().toString();
+    for (String key : updatedPointsTo.keySet()) {
+      Assert.assertTrue(key, expectedPointsTo.containsKey(key) || key.contains(clinit));
+    }
+  }
+
+  @Test
+  public void testUpdateUnchangedClass() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    Set<String> edges = edges(cg);
+    Map<String, Set<String>> pointsTo = pointsTo(builder.getPointerAnalysis());
+
+    IClass main = cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, TestConstants.RECURSE_MAIN));
+    Assert.assertFalse(cg.getNodes(main.getMethod(Selector.make("main([Ljava/lang/String;)V")).getReference()).isEmpty());
+    builder.updateCallGraph(Collections.singleton(main), null);
+
+    Assert.assertEquals(edges, edges(cg));
+    Assert.assertEquals(pointsTo, pointsTo(builder.getPointerAnalysis()));
+  }
+
+  @Test
+  public void testReloadChangedClass() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException,
+      InvalidClassFileException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, TestConstants.SLICE1_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder = Util.makeZeroCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    TypeReference slice1 = TypeReference.findOrCreate(ClassLoaderReference.Application, TestConstants.SLICE1_MAIN);
+    MethodReference mainRef = MethodReference.findOrCreate(slice1, "main", "([Ljava/lang/String;)V");
+    MethodReference fooRef = MethodReference.findOrCreate(slice1, "foo", "(I)I");
+    MethodReference barRef = MethodReference.findOrCreate(slice1, "bar", "(I)I");
+    CGNode main = cg.getNodes(mainRef).iterator().next();
+    CGNode foo = cg.getNodes(fooRef).iterator().next();
+    CGNode bar = cg.getNodes(barRef).iterator().next();
+    Assert.assertTrue(cg.hasEdge(main, bar));
+    Set<CGNode> unchanged = HashSetFactory.make();
+    for (CGNode n : cg) {
+      if (!n.getMethod().getDeclaringClass().getReference().equals(slice1)) {
+        unchanged.add(n);
+      }
+    }
+
+    // load a new version of the class, in which main calls foo instead of bar, into a new class hierarchy
+    File classFile = File.createTempFile("Slice1", ".class");
+    classFile.deleteOnExit();
+    try (OutputStream s = new FileOutputStream(classFile)) {
+      s.write(redirectCalls((ShrikeClass) cha.lookupClass(slice1), "main", "bar", "foo"));
+    }
+    AnalysisScope newScope = AnalysisScopeReader.makePrimordialScope((new FileProvider())
+        .getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS));
+    newScope.addClassFileToScope(ClassLoaderReference.Application, classFile);
+    ClassHierarchy newCha = ClassHierarchyFactory.make(newScope);
+    IClass newClass = newCha.lookupClass(slice1);
+    Assert.assertNotNull(newClass);
+
+    AnalysisOptions newOptions = CallGraphTestUtil.makeAnalysisOptions(newScope,
+        Util.makeMainEntrypoints(newScope, newCha, TestConstants.SLICE1_MAIN));
+    SSAPropagationCallGraphBuilder fresh = Util.makeZeroCFABuilder(newOptions, new AnalysisCacheImpl(), newCha, newScope);
+    CallGraph expected = fresh.makeCallGraph(newOptions, null);
+    Assert.assertTrue(expected.getNodes(barRef).isEmpty());
+
+    builder.updateCallGraph(Collections.singleton(newClass), null);
+
+    // the nodes of the changed class now represent the new versions of their methods, and the others are untouched
+    Assert.assertSame(main, cg.getNodes(mainRef).iterator().next());
+    for (CGNode n : new CGNode[] { main, foo, bar }) {
+      Assert.assertSame(n.toString(), newClass, n.getMethod().getDeclaringClass());
+    }
+    for (CGNode n : unchanged) {
+      Assert.assertSame(n.toString(), cha, n.getMethod().getClassHierarchy());
+    }
+    // the edge to bar is gone, but bar stays in the call graph, without edges
+    Assert.assertFalse(cg.hasEdge(main, bar));
+    Assert.assertTrue(cg.hasEdge(main, foo));
+    Assert.assertEquals(0, cg.getPredNodeCount(bar));
+    Assert.assertEquals(0, cg.getSuccNodeCount(bar));
+    Assert.assertEquals(expected.getNumberOfNodes() + 1, cg.getNumberOfNodes());
+    Assert.assertEquals(edges(expected), edges(cg));
+    Assert.assertEquals(pointsTo(fresh.getPointerAnalysis()), pointsTo(builder.getPointerAnalysis()));
+  }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.JarFileSnapshot;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Tests that a class hierarchy built from {@link JarFileSnapshot}s is the same as one built from the class files
+ */
+public class JarFileSnapshotTest extends WalaTestCase {
+
+  private static AnalysisScope makeScope() throws IOException {
+    return AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"), JarFileSnapshotTest.class.getClassLoader());
+  }
+
+  private static Set<TypeReference> references(Iterable<? extends IClass> classes) {
+    Set<TypeReference> result = HashSetFactory.make();
+    for (IClass klass : classes) {
+      result.add(klass.getReference());
+    }
+    return result;
+  }
+
+  private static Set<String> members(IClass klass) {
+    Set<String> result = HashSetFactory.make();
+    for (IField f : klass.getDeclaredInstanceFields()) {
+      result.add(f.getReference().toString());
+    }
+    for (IField f : klass.getDeclaredStaticFields()) {
+      result.add("static " + f.getReference().toString());
+    }
+    for (IMethod m : klass.getDeclaredMethods()) {
+      result.add(m.getReference().toString());
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameAsClassFiles() throws ClassHierarchyException, IOException {
+    File dir = Files.createTempDirectory("snapshots").toFile();
+    try {
+      AnalysisScope scope = makeScope();
+      ClassHierarchy fromClassFiles = ClassHierarchyFactory.make(scope);
+      // the first hierarchy is built from the class files, and writes the snapshots
+      ClassHierarchyFactory.make(makeScope(), dir);
+      for (Module m : scope.getModules(scope.getApplicationLoader())) {
+        if (m instanceof JarFileModule) {
+          JarFileSnapshot snapshot = JarFileSnapshot.load(JarFileSnapshot.getSnapshotFile(dir, (JarFileModule) m));
+          Assert.assertNotNull("no snapshot of " + m, snapshot);
+          Assert.assertTrue(snapshot.size() > 0);
+        }
+      }
+      // the second is built from the snapshots
+      ClassHierarchy fromSnapshots = ClassHierarchyFactory.make(makeScope(), dir);
+
+      Assert.assertEquals(fromClassFiles.getNumberOfClasses(), fromSnapshots.getNumberOfClasses());
+      Assert.assertEquals(references(fromClassFiles), references(fromSnapshots));
+      for (IClass c : fromClassFiles) {
+        IClass s = fromSnapshots.lookupClass(c.getReference());
+        Assert.assertEquals(c.getModifiers(), s.getModifiers());
+        Assert.assertEquals(c.getSuperclass() == null ? null : c.getSuperclass().getReference(),
+            s.getSuperclass() == null ? null : s.getSuperclass().getReference());
+        Assert.assertEquals(references(c.getDirectInterfaces()), references(s.getDirectInterfaces()));
+        Assert.assertEquals(references(fromClassFiles.getImmediateSubclasses(c)),
+            references(fromSnapshots.getImmediateSubclasses(s)));
+        if (c.getClassLoader().getReference().equals(scope.getApplicationLoader())) {
+          Assert.assertEquals(members(c), members(s));
+        }
+      }
+    } finally {
+      for (File f : dir.listFiles()) {
+        f.delete();
+      }
+      dir.delete();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.JarFileEntry;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.MappedJarFile;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.io.FileUtil;
+
+/**
+ * Tests that a {@link MappedJarFile} reads the same contents as a {@link JarFile}
+ */
+public class MappedJarFileTest extends WalaTestCase {
+
+  private static byte[] toArray(ByteBuffer b) {
+    byte[] result = new byte[b.remaining()];
+    b.duplicate().get(result);
+    return result;
+  }
+
+  private static byte[] readClassFile(Class<?> c) throws IOException {
+    InputStream s = c.getResourceAsStream(c.getSimpleName() + ".class");
+    try {
+      return FileUtil.readBytes(s);
+    } finally {
+      s.close();
+    }
+  }
+
+  @Test
+  public void testSameAsJarFile() throws IOException, URISyntaxException {
+    File jar = new File(Test.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    MappedJarFile mapped = new MappedJarFile(jar);
+    JarFile jarFile = new JarFile(jar, false);
+    try {
+      int n = 0;
+      for (Enumeration<JarEntry> e = jarFile.entries(); e.hasMoreElements(); n++) {
+        JarEntry entry = e.nextElement();
+        Assert.assertEquals(entry.getSize(), mapped.getEntry(entry.getName()).getSize());
+        InputStream s = jarFile.getInputStream(entry);
+        Assert.assertArrayEquals(entry.getName(), FileUtil.readBytes(s), toArray(mapped.getContents(entry.getName())));
+        s.close();
+      }
+      Assert.assertEquals(n, mapped.getEntries().size());
+      Assert.assertNull(mapped.getContents("no/such/Entry.class"));
+    } finally {
+      jarFile.close();
+    }
+  }
+
+  @Test
+  public void testStoredAndDeflated() throws IOException, InvalidClassFileException {
+    byte[] bytes = readClassFile(MappedJarFileTest.class);
+    File jar = File.createTempFile("mapped", ".jar");
+    try {
+      JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+      try {
+        ZipEntry stored = new ZipEntry("stored/MappedJarFileTest.class");
+        stored.setMethod(ZipEntry.STORED);
+        stored.setSize(bytes.length);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        stored.setCrc(crc.getValue());
+        out.putNextEntry(stored);
+        out.write(bytes);
+        out.closeEntry();
+        out.putNextEntry(new ZipEntry("deflated/MappedJarFileTest.class"));
+        out.write(bytes);
+        out.closeEntry();
+      } finally {
+        out.close();
+      }
+
+      MappedJarFile mapped = new MappedJarFile(jar);
+      Assert.assertTrue(mapped.getEntry("stored/MappedJarFileTest.class").isStored());
+      Assert.assertFalse(mapped.getEntry("deflated/MappedJarFileTest.class").isStored());
+      // a stored entry is a slice of the mapped file, not a copy
+      ByteBuffer storedContents = mapped.getContents("stored/MappedJarFileTest.class");
+      Assert.assertTrue(storedContents.isReadOnly());
+      Assert.assertArrayEquals(bytes, toArray(storedContents));
+      ByteBuffer deflatedContents = mapped.getContents("deflated/MappedJarFileTest.class");
+      Assert.assertArrayEquals(bytes, deflatedContents.array());
+
+      ClassReader expected = new ClassReader(bytes);
+      for (ByteBuffer contents : new ByteBuffer[] { storedContents, deflatedContents }) {
+        ClassReader reader = new ClassReader(contents);
+        Assert.assertEquals(expected.getName(), reader.getName());
+        Assert.assertEquals(expected.getSuperName(), reader.getSuperName());
+        Assert.assertEquals(expected.getMethodCount(), reader.getMethodCount());
+        for (int i = 0; i < expected.getMethodCount(); i++) {
+          Assert.assertEquals(expected.getMethodName(i), reader.getMethodName(i));
+          Assert.assertEquals(expected.getMethodType(i), reader.getMethodType(i));
+        }
+        Assert.assertArrayEquals(bytes, reader.getBytes());
+      }
+
+      JarFileModule module = new JarFileModule(new JarFile(jar, false));
+      try {
+        for (ModuleEntry entry : Iterator2Iterable.make(module.getEntries())) {
+          Assert.assertArrayEquals(bytes, toArray(((JarFileEntry) entry).getContents()));
+          Assert.assertEquals(bytes.length, ((JarFileEntry) entry).getSize());
+          Assert.assertArrayEquals(bytes, module.getContents(module.getJarFile().getEntry(entry.getName())));
+        }
+      } finally {
+        module.getJarFile().close();
+      }
+    } finally {
+      jar.delete();
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.CancelCHAConstructionException;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ParallelClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.SeqClassHierarchyFactory;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Tests that {@link ParallelClassHierarchyFactory} builds the same hierarchy as {@link SeqClassHierarchyFactory}
+ */
+public class ParallelClassHierarchyTest extends WalaTestCase {
+
+  private static AnalysisScope makeScope() throws IOException {
+    return AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"), ParallelClassHierarchyTest.class.getClassLoader());
+  }
+
+  private static List<TypeReference> references(Iterator<IClass> classes) {
+    List<TypeReference> result = new ArrayList<TypeReference>();
+    while (classes.hasNext()) {
+      result.add(classes.next().getReference());
+    }
+    return result;
+  }
+
+  private static Set<TypeReference> references(Collection<IClass> classes) {
+    Set<TypeReference> result = HashSetFactory.make();
+    for (IClass klass : classes) {
+      result.add(klass.getReference());
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameAsSequential() throws ClassHierarchyException, IOException {
+    ClassHierarchy seq = SeqClassHierarchyFactory.make(makeScope());
+    ClassHierarchy par = ParallelClassHierarchyFactory.make(makeScope(), 4);
+
+    Assert.assertEquals(seq.getNumberOfClasses(), par.getNumberOfClasses());
+    // same classes, in the same order
+    Assert.assertEquals(references(seq.iterator()), references(par.iterator()));
+    for (int i = 0; i < seq.getLoaders().length; i++) {
+      Assert.assertEquals(references(seq.getLoaders()[i].iterateAllClasses()),
+          references(par.getLoaders()[i].iterateAllClasses()));
+    }
+    for (IClass s : seq) {
+      IClass p = par.lookupClass(s.getReference());
+      Assert.assertNotNull(s.toString(), p);
+      Assert.assertEquals(s.getSuperclass() == null ? null : s.getSuperclass().getReference(),
+          p.getSuperclass() == null ? null : p.getSuperclass().getReference());
+      Assert.assertEquals(references(seq.getImmediateSubclasses(s)), references(par.getImmediateSubclasses(p)));
+      if (s.isInterface()) {
+        Assert.assertEquals(references(seq.getImplementors(s.getReference())),
+            references(par.getImplementors(p.getReference())));
+      }
+    }
+  }
+
+  @Test(expected = CancelCHAConstructionException.class)
+  public void testCancel() throws ClassHierarchyException, IOException {
+    ParallelClassHierarchyFactory.make(makeScope(), 4, new IProgressMonitor() {
+      private int polls = 0;
+
+      @Override
+      public void beginTask(String task, int totalWork) {
+      }
+
+      @Override
+      public void subTask(String subTask) {
+      }
+
+      @Override
+      public void cancel() {
+      }
+
+      @Override
+      public synchronized boolean isCanceled() {
+        // give up part way through reading the first loader
+        return ++polls > 100;
+      }
+
+      @Override
+      public void done() {
+      }
+
+      @Override
+      public void worked(int units) {
+      }
+
+      @Override
+      public String getCancelMessage() {
+        return "canceled by test";
+      }
+    });
+  }
+}
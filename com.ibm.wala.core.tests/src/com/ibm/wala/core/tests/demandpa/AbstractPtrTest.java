@@ -40,6 +40,7 @@ package com.ibm.wala.core.tests.demandpa;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -47,6 +48,7 @@ import org.junit.Assert;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.NewSiteReference;
 import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.demandpa.alg.DemandQueryExecutor;
 import com.ibm.wala.demandpa.alg.DemandRefinementPointsTo;
 import com.ibm.wala.demandpa.alg.refinepolicy.NeverRefineCGPolicy;
 import com.ibm.wala.demandpa.alg.refinepolicy.OnlyArraysPolicy;
@@ -73,12 +75,16 @@ import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAGetInstruction;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSAInvokeInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
@@ -224,6 +230,49 @@ public abstract class AbstractPtrTest {
     return pointsTo;
   }
 
+  /**
+   * query the points-to sets of the reference-typed locals of main one by one, then all at once on several threads, then
+   * again with a query cache, and check that the results agree
+   */
+  protected void doParallelQueriesTest(String mainClass) throws ClassHierarchyException, IllegalArgumentException,
+      CancelException, IOException {
+    final DemandRefinementPointsTo dmp = makeDemandPointerAnalysis(mainClass);
+    CGNode mainMethod = AbstractPtrTest.findMainMethod(dmp.getBaseCallGraph());
+    Collection<PointerKey> queries = HashSetFactory.make();
+    for (SSAInstruction instr : mainMethod.getIR().getInstructions()) {
+      if (instr instanceof SSANewInstruction) {
+        queries.add(dmp.getHeapModel().getPointerKeyForLocal(mainMethod, instr.getDef()));
+      } else if (instr instanceof SSAGetInstruction && ((SSAGetInstruction) instr).getDeclaredFieldType().isReferenceType()) {
+        queries.add(dmp.getHeapModel().getPointerKeyForLocal(mainMethod, instr.getDef()));
+      } else if (instr instanceof SSAInvokeInstruction) {
+        SSAInvokeInstruction call = (SSAInvokeInstruction) instr;
+        if (!call.isStatic()) {
+          queries.add(dmp.getHeapModel().getPointerKeyForLocal(mainMethod, call.getReceiver()));
+        }
+        if (call.hasDef() && call.getDeclaredResultType().isReferenceType()) {
+          queries.add(dmp.getHeapModel().getPointerKeyForLocal(mainMethod, call.getDef()));
+        }
+      }
+    }
+    Assert.assertFalse(queries.isEmpty());
+
+    Map<PointerKey, Collection<InstanceKey>> expected = HashMapFactory.make();
+    for (PointerKey pk : queries) {
+      Collection<InstanceKey> p2set = dmp.getPointsTo(pk);
+      expected.put(pk, p2set == null ? null : HashSetFactory.make(p2set));
+    }
+    Map<PointerKey, Collection<InstanceKey>> parallel = new DemandQueryExecutor(dmp, 4).getPointsTo(queries);
+    Assert.assertEquals(expected, parallel);
+
+    dmp.setCacheQueries(true);
+    for (int i = 0; i < 2; i++) {
+      for (PointerKey pk : queries) {
+        Collection<InstanceKey> p2set = dmp.getPointsTo(pk);
+        Assert.assertEquals(pk.toString(), expected.get(pk), p2set == null ? null : HashSetFactory.make(p2set));
+      }
+    }
+  }
+
   protected DemandRefinementPointsTo makeDemandPointerAnalysis(String mainClass) throws ClassHierarchyException,
       IllegalArgumentException, CancelException, IOException {
     AnalysisScope scope = findOrCreateAnalysisScope();
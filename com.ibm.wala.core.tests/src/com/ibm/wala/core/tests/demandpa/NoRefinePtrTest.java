@@ -155,4 +155,9 @@ public class NoRefinePtrTest extends AbstractPtrTest {
 //  public void testFlowsToHashSet() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
 //    doFlowsToSizeTest(TestInfo.FLOWSTO_TEST_HASHSET, 8);
 //  }
+
+  @Test
+  public void testParallelQueries() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doParallelQueriesTest(TestInfo.TEST_HASH_SET);
+  }
 }
@@ -137,6 +137,11 @@ public class TunedRefinementTest extends AbstractPtrTest {
     doPointsToSizeTest(TestInfo.TEST_LINKED_LIST, 1);
   }
 
+  @Test
+  public void testParallelQueries() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doParallelQueriesTest(TestInfo.TEST_HASH_SET);
+  }
+
   @Override
   protected StateMachineFactory<IFlowLabel> getStateMachineFactory() {
     return new ContextSensitiveStateMachine.Factory();
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.ir;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.ConcurrentAnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.util.WalaRuntimeException;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Tests that {@link ConcurrentAnalysisCacheImpl} builds each IR once when many threads ask for it at the same time
+ */
+public class ConcurrentSSACacheTest extends WalaTestCase {
+
+  private static final int THREADS = 8;
+
+  /**
+   * An IR factory that counts how often it builds the IR of each method
+   */
+  private static class CountingIRFactory extends DefaultIRFactory {
+    private final ConcurrentHashMap<IMethod, AtomicInteger> counts = new ConcurrentHashMap<IMethod, AtomicInteger>();
+
+    @Override
+    public IR makeIR(IMethod method, Context c, SSAOptions options) throws IllegalArgumentException {
+      AtomicInteger count = new AtomicInteger();
+      AtomicInteger old = counts.putIfAbsent(method, count);
+      (old == null ? count : old).incrementAndGet();
+      return super.makeIR(method, c, options);
+    }
+  }
+
+  @Test
+  public void testBuildOnce() throws ClassHierarchyException, IOException, InterruptedException {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"), ConcurrentSSACacheTest.class.getClassLoader());
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+
+    // the test data deliberately contains some methods with broken bytecodes; leave them out
+    AnalysisCacheImpl sequential = new AnalysisCacheImpl();
+    final List<IMethod> methods = new ArrayList<IMethod>();
+    for (IClass klass : cha) {
+      if (klass.getClassLoader().getReference().equals(scope.getApplicationLoader())) {
+        for (IMethod m : klass.getDeclaredMethods()) {
+          if (!m.isAbstract() && !m.isNative()) {
+            try {
+              sequential.getIR(m);
+              methods.add(m);
+            } catch (WalaRuntimeException e) {
+              // skip it
+            }
+          }
+        }
+      }
+    }
+
+    final CountingIRFactory factory = new CountingIRFactory();
+    final ConcurrentAnalysisCacheImpl cache = new ConcurrentAnalysisCacheImpl(factory, new AnalysisOptions().getSSAOptions());
+    final IR[][] irs = new IR[THREADS][methods.size()];
+    final DefUse[][] dus = new DefUse[THREADS][methods.size()];
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Throwable> failures = new ArrayList<Throwable>();
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int id = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            // every thread asks for every method, each starting from a different offset
+            for (int i = 0; i < methods.size(); i++) {
+              int j = (i + id * methods.size() / THREADS) % methods.size();
+              irs[id][j] = cache.getIR(methods.get(j));
+              dus[id][j] = cache.getDefUse(irs[id][j]);
+            }
+          } catch (Throwable e) {
+            synchronized (failures) {
+              failures.add(e);
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    start.countDown();
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    Assert.assertTrue(failures.toString(), failures.isEmpty());
+    for (int j = 0; j < methods.size(); j++) {
+      Assert.assertEquals("IR for " + methods.get(j) + " built more than once", 1, factory.counts.get(methods.get(j)).get());
+      for (int t = 1; t < THREADS; t++) {
+        Assert.assertSame(irs[0][j], irs[t][j]);
+        Assert.assertSame(dus[0][j], dus[t][j]);
+      }
+    }
+  }
+}
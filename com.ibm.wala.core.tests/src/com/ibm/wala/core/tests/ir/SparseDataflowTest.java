@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.ir;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.dataflow.graph.AbstractMeetOperator;
+import com.ibm.wala.dataflow.graph.BitVectorIdentity;
+import com.ibm.wala.dataflow.graph.BitVectorUnion;
+import com.ibm.wala.dataflow.graph.BitVectorUnionConstant;
+import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
+import com.ibm.wala.dataflow.ssa.SparseDataflowSolver;
+import com.ibm.wala.fixpoint.BitVectorVariable;
+import com.ibm.wala.fixpoint.UnaryOperator;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSACheckCastInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.ssa.SSAPhiInstruction;
+import com.ibm.wala.ssa.SSAPiInstruction;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.WalaRuntimeException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.io.FileProvider;
+import com.ibm.wala.util.intset.IntIterator;
+
+/**
+ * Tests for {@link SparseDataflowSolver}, on a problem that computes, for each SSA value, the allocations it may come
+ * from through phis, pis and casts.
+ */
+public class SparseDataflowTest extends WalaTestCase {
+
+  /**
+   * the value number of each allocation is its bit
+   */
+  private static class AllocationFunctions implements ITransferFunctionProvider<SSAInstruction, BitVectorVariable> {
+    @Override
+    public UnaryOperator<BitVectorVariable> getNodeTransferFunction(SSAInstruction s) {
+      if (s instanceof SSANewInstruction) {
+        return new BitVectorUnionConstant(s.getDef());
+      } else if (s instanceof SSACheckCastInstruction || s instanceof SSAPiInstruction) {
+        return BitVectorIdentity.instance();
+      } else {
+        return null;
+      }
+    }
+
+    @Override
+    public boolean hasNodeTransferFunctions() {
+      return true;
+    }
+
+    @Override
+    public UnaryOperator<BitVectorVariable> getEdgeTransferFunction(SSAInstruction src, SSAInstruction dst) {
+      Assertions.UNREACHABLE();
+      return null;
+    }
+
+    @Override
+    public boolean hasEdgeTransferFunctions() {
+      return false;
+    }
+
+    @Override
+    public AbstractMeetOperator<BitVectorVariable> getMeetOperator() {
+      return BitVectorUnion.instance();
+    }
+  }
+
+  private static class AllocationSolver extends SparseDataflowSolver<BitVectorVariable> {
+    AllocationSolver(IR ir, AllocationFunctions functions) {
+      super(ir, functions);
+    }
+
+    @Override
+    protected BitVectorVariable makeValueVariable(int valueNumber) {
+      return new BitVectorVariable();
+    }
+
+    @Override
+    protected BitVectorVariable makeInVariable(SSAInstruction s) {
+      return new BitVectorVariable();
+    }
+
+    @Override
+    protected BitVectorVariable[] makeStmtRHS(int size) {
+      return new BitVectorVariable[size];
+    }
+  }
+
+  /**
+   * @return the allocations each value may come from, by iterating over all instructions until nothing changes
+   */
+  @SuppressWarnings("unchecked")
+  private static Set<Integer>[] expected(IR ir) {
+    int max = ir.getSymbolTable().getMaxValueNumber();
+    Set<Integer>[] result = new Set[max + 1];
+    for (int v = 1; v <= max; v++) {
+      result[v] = HashSetFactory.make();
+    }
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (Iterator<SSAInstruction> it = ir.iterateAllInstructions(); it.hasNext();) {
+        SSAInstruction s = it.next();
+        if (s instanceof SSANewInstruction) {
+          changed |= result[s.getDef()].add(s.getDef());
+        } else if (s instanceof SSAPhiInstruction || s instanceof SSACheckCastInstruction || s instanceof SSAPiInstruction) {
+          for (int j = 0; j < s.getNumberOfUses(); j++) {
+            if (s.getUse(j) > 0) {
+              changed |= result[s.getDef()].addAll(result[s.getUse(j)]);
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testAllocations() throws ClassHierarchyException, IOException, CancelException {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"), SparseDataflowTest.class.getClassLoader());
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    AnalysisCacheImpl cache = new AnalysisCacheImpl();
+    int nMethods = 0;
+    int nWithPhis = 0;
+    for (IClass klass : cha) {
+      // the test data, and java.util for some bigger methods with loops
+      if (!klass.getClassLoader().getReference().equals(scope.getApplicationLoader())
+          && !klass.getName().getPackage().toString().equals("java/util")) {
+        continue;
+      }
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (m.isAbstract() || m.isNative()) {
+          continue;
+        }
+        IR ir;
+        try {
+          ir = cache.getIR(m);
+        } catch (WalaRuntimeException e) {
+          // the test data deliberately contains some methods with broken bytecodes
+          continue;
+        }
+        AllocationSolver solver = new AllocationSolver(ir, new AllocationFunctions());
+        solver.solve(null);
+        Set<Integer>[] expected = expected(ir);
+        for (int v = 1; v < expected.length; v++) {
+          Set<Integer> actual = HashSetFactory.make();
+          if (solver.getValue(v).getValue() != null) {
+            for (IntIterator it = solver.getValue(v).getValue().intIterator(); it.hasNext();) {
+              actual.add(it.next());
+            }
+          }
+          Assert.assertEquals(m + " v" + v, expected[v], actual);
+        }
+        nMethods++;
+        if (ir.iteratePhis().hasNext()) {
+          nWithPhis++;
+        }
+      }
+    }
+    Assert.assertTrue(nMethods > 1000);
+    Assert.assertTrue(nWithPhis > 100);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoEdgeFunctions() throws ClassHierarchyException, IOException {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile("J2SEClassHierarchyExclusions.txt"), SparseDataflowTest.class.getClassLoader());
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    IClass klass = cha.lookupClass(TypeReference.findOrCreate(scope.getApplicationLoader(), "Lhello/Hello"));
+    IR ir = new AnalysisCacheImpl().getIR(klass.getMethod(Selector.make("main([Ljava/lang/String;)V")));
+    new AllocationSolver(ir, new AllocationFunctions() {
+      @Override
+      public boolean hasEdgeTransferFunctions() {
+        return true;
+      }
+    });
+  }
+}
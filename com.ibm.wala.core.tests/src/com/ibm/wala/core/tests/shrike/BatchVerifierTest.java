@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.shrike;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeBT.Constants;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.analysis.Analyzer.FailureException;
+import com.ibm.wala.shrikeBT.analysis.ClassHierarchyStore;
+import com.ibm.wala.shrikeBT.analysis.Verifier;
+import com.ibm.wala.shrikeBT.shrikeCT.CTDecoder;
+import com.ibm.wala.shrikeBT.shrikeCT.CTUtils;
+import com.ibm.wala.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrikeBT.shrikeCT.tools.BatchVerifier;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.CodeReader;
+import com.ibm.wala.util.ParallelUtil;
+import com.ibm.wala.util.io.FileUtil;
+
+/**
+ * Tests that {@link BatchVerifier} gives the same results on several threads as on one, and that the
+ * {@link ClassHierarchyStore} it shares between the threads gives its verifiers the class hierarchy.
+ */
+public class BatchVerifierTest extends WalaTestCase {
+
+  private static File getTestDataJar() {
+    for (String s : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      if (s.indexOf("com.ibm.wala.core.testdata") >= 0 && s.endsWith(".jar")) {
+        return new File(s);
+      }
+    }
+    Assert.fail("cannot find the test data jar");
+    return null;
+  }
+
+  private static List<ClassReader> readClasses(File jar) throws Exception {
+    List<ClassReader> result = new ArrayList<>();
+    try (JarFile j = new JarFile(jar)) {
+      for (Enumeration<JarEntry> e = j.entries(); e.hasMoreElements();) {
+        JarEntry entry = e.nextElement();
+        if (entry.getName().endsWith(".class")) {
+          try (InputStream s = j.getInputStream(entry)) {
+            result.add(new ClassReader(FileUtil.readBytes(s)));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static String verify(File jar, int threads, int[] errors) throws Exception {
+    OfflineInstrumenter oi = new OfflineInstrumenter(true);
+    oi.addInputJar(jar);
+    StringWriter w = new StringWriter();
+    try {
+      errors[0] = BatchVerifier.verify(oi, threads, true, w);
+    } finally {
+      oi.close();
+    }
+    return w.toString();
+  }
+
+  @Test
+  public void testSameAsSequential() throws Exception {
+    File jar = getTestDataJar();
+    int[] sequentialErrors = new int[1];
+    String sequential = verify(jar, 1, sequentialErrors);
+    int[] parallelErrors = new int[1];
+    String parallel = verify(jar, 4, parallelErrors);
+    Assert.assertTrue(sequential.contains("Verifying slice/TestMultiTarget.main"));
+    Assert.assertEquals(sequential, parallel);
+    Assert.assertEquals(sequentialErrors[0], parallelErrors[0]);
+  }
+
+  /**
+   * Fill a store from several threads at once, and compare it with one filled by one thread.
+   */
+  @Test
+  public void testConcurrentStore() throws Exception {
+    final List<ClassReader> classes = readClasses(getTestDataJar());
+    ClassHierarchyStore sequential = new ClassHierarchyStore();
+    for (ClassReader cr : classes) {
+      CTUtils.addClassToHierarchy(sequential, cr);
+    }
+    final ClassHierarchyStore parallel = new ClassHierarchyStore();
+    ParallelUtil.forEach(classes.size(), 4, "store writer", new ParallelUtil.IndexedTask() {
+      @Override
+      public void run(int i) throws Exception {
+        CTUtils.addClassToHierarchy(parallel, classes.get(i));
+        // and read it back while the other threads write
+        String cl = CTDecoder.convertClassToType(classes.get(i).getName());
+        Assert.assertNotEquals(Constants.MAYBE, parallel.isInterface(cl));
+      }
+    });
+
+    Assert.assertEquals(classes.size(), sequential.size());
+    Assert.assertEquals(sequential.size(), parallel.size());
+    for (Iterator<String> it = sequential.iterateOverClasses(); it.hasNext();) {
+      String cl = it.next();
+      Assert.assertEquals(cl, sequential.getSuperClass(cl), parallel.getSuperClass(cl));
+      Assert.assertArrayEquals(cl, sequential.getSuperInterfaces(cl), parallel.getSuperInterfaces(cl));
+      Assert.assertArrayEquals(cl, sequential.getSubClasses(cl), parallel.getSubClasses(cl));
+      Assert.assertEquals(cl, sequential.isInterface(cl), parallel.isInterface(cl));
+    }
+    Assert.assertNull(parallel.getSuperClass(null));
+    Assert.assertNull(parallel.getSuperClass("Lno/such/Class;"));
+  }
+
+  private static MethodData getMethod(ClassReader cr, String name) throws Exception {
+    for (int m = 0; m < cr.getMethodCount(); m++) {
+      if (cr.getMethodName(m).equals(name)) {
+        ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
+        for (cr.initMethodAttributeIterator(m, iter); iter.isValid(); iter.advance()) {
+          if (iter.getName().equals("Code")) {
+            CTDecoder d = new CTDecoder(new CodeReader(iter), CTDecoder.makeConstantPoolReader(cr));
+            d.decode();
+            return new MethodData(d, cr.getMethodAccessFlags(m), CTDecoder.convertClassToType(cr.getName()), name, cr
+                .getMethodType(m));
+          }
+        }
+      }
+    }
+    Assert.fail("no method " + name);
+    return null;
+  }
+
+  private static boolean verifies(MethodData md, ClassHierarchyStore store) {
+    Verifier v = new Verifier(md);
+    v.setClassHierarchy(store);
+    try {
+      v.verify();
+      return true;
+    } catch (FailureException e) {
+      return false;
+    }
+  }
+
+  /**
+   * TestMultiTarget.main calls A.foo on an A or a B, which only verifies if the hierarchy says that B extends A.
+   */
+  @Test
+  public void testVerifierUsesHierarchy() throws Exception {
+    List<ClassReader> classes = readClasses(getTestDataJar());
+    ClassHierarchyStore store = new ClassHierarchyStore();
+    MethodData main = null;
+    for (ClassReader cr : classes) {
+      CTUtils.addClassToHierarchy(store, cr);
+      if (cr.getName().equals("slice/TestMultiTarget")) {
+        main = getMethod(cr, "main");
+      }
+    }
+    Assert.assertNotNull(main);
+    Assert.assertEquals("Lslice/A;", store.getSuperClass("Lslice/B;"));
+    Assert.assertTrue(verifies(main, store));
+
+    store.setClassInfo("Lslice/B;", false, false, "Ljava/lang/Object;", new String[0]);
+    Assert.assertFalse(verifies(main, store));
+  }
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.shrike;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeCT.ClassConstants;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.ConstantPoolParser;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.io.FileUtil;
+import com.ibm.wala.util.strings.UTF8Convert;
+
+/**
+ * Tests that the raw bytes of constant pool strings are the UTF-8 encoding of their decoded values
+ */
+public class ConstantPoolParserTest extends WalaTestCase {
+
+  @Test
+  public void testRawBytes() throws IOException, InvalidClassFileException {
+    File jar = null;
+    for (String s : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      if (s.indexOf("com.ibm.wala.core.testdata") >= 0 && s.endsWith(".jar")) {
+        jar = new File(s);
+      }
+    }
+    Assert.assertNotNull("cannot find the test data jar", jar);
+    int checked = 0;
+    try (JarFile f = new JarFile(jar)) {
+      for (Enumeration<JarEntry> e = f.entries(); e.hasMoreElements();) {
+        JarEntry entry = e.nextElement();
+        if (!entry.getName().endsWith(".class")) {
+          continue;
+        }
+        byte[] bytes;
+        try (InputStream s = f.getInputStream(entry)) {
+          bytes = FileUtil.readBytes(s);
+        }
+        ConstantPoolParser cp = new ClassReader(bytes).getCP();
+        for (int i = 1; i < cp.getItemCount(); i++) {
+          switch (cp.getItemType(i)) {
+          case ClassConstants.CONSTANT_Utf8:
+            Assert.assertArrayEquals(UTF8Convert.toUTF8(cp.getCPUtf8(i)), cp.getCPUtf8Bytes(i));
+            checked++;
+            break;
+          case ClassConstants.CONSTANT_Class:
+            Assert.assertArrayEquals(UTF8Convert.toUTF8(cp.getCPClass(i)), cp.getCPClassBytes(i));
+            break;
+          default:
+            break;
+          }
+        }
+      }
+    }
+    Assert.assertTrue(checked > 0);
+  }
+}
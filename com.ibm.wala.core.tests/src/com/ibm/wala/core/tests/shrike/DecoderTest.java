@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.shrike;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeBT.ConstantPoolReader;
+import com.ibm.wala.shrikeBT.Decoder;
+import com.ibm.wala.shrikeBT.GetInstruction;
+import com.ibm.wala.shrikeBT.IInstruction;
+import com.ibm.wala.shrikeBT.shrikeCT.CTDecoder;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.CodeReader;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.io.FileUtil;
+
+/**
+ * Tests the {@link Decoder}, which reuses its working data and shares the instructions it makes
+ */
+public class DecoderTest extends WalaTestCase {
+
+  private static int counter;
+
+  private static int first() {
+    return counter;
+  }
+
+  private static int second() {
+    return counter + 1;
+  }
+
+  private static Decoder decode(byte[] code) throws Decoder.InvalidBytecodeException {
+    Decoder d = new Decoder(code, new int[0], null) {
+    };
+    d.decode();
+    return d;
+  }
+
+  private static String toString(Decoder d) {
+    StringBuilder result = new StringBuilder();
+    IInstruction[] instructions = d.getInstructions();
+    for (int i = 0; i < instructions.length; i++) {
+      result.append(instructions[i]).append(" @").append(d.getInstructionsToBytecodes()[i]).append("; ");
+    }
+    return result.toString();
+  }
+
+  @Test
+  public void testSubroutine() throws Decoder.InvalidBytecodeException {
+    // 0: jsr 5; 3: iconst_1; 4: ireturn; 5: astore_1; 6: iconst_2; 7: pop; 8: ret 1
+    byte[] code = { (byte) 0xa8, 0, 5, 0x04, (byte) 0xac, 0x4c, 0x05, 0x57, (byte) 0xa9, 1 };
+    String expected = "Goto(3) @0; Constant(I,1) @3; Return(I) @4; Constant(L;,null) @0; LocalStore(Ljava/lang/Object;,1) @5; "
+        + "Constant(I,2) @6; Pop(1) @7; Goto(1) @8; ";
+    Assert.assertEquals(expected, toString(decode(code)));
+    // again, with the working data of the first decoding
+    Assert.assertEquals(expected, toString(decode(code)));
+  }
+
+  @Test
+  public void testSharedLocals() throws Decoder.InvalidBytecodeException {
+    // 0: iload 20; 2: iload 20; 4: iadd; 5: istore 20; 7: sipush 4096; 10: ireturn
+    byte[] code = { 0x15, 20, 0x15, 20, 0x60, 0x36, 20, 0x11, 0x10, 0, (byte) 0xac };
+    Decoder d = decode(code);
+    Assert.assertEquals("LocalLoad(I,20) @0; LocalLoad(I,20) @2; BinaryOp(I,add) @4; LocalStore(I,20) @5; Constant(I,4096) @7; "
+        + "Return(I) @10; ", toString(d));
+    Assert.assertSame(d.getInstructions()[0], d.getInstructions()[1]);
+    Assert.assertSame(d.getInstructions()[0], decode(code).getInstructions()[0]);
+  }
+
+  private static GetInstruction findGet(ClassReader cr, ConstantPoolReader cpr, String methodName)
+      throws InvalidClassFileException, Decoder.InvalidBytecodeException {
+    for (int m = 0; m < cr.getMethodCount(); m++) {
+      if (cr.getMethodName(m).equals(methodName)) {
+        ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
+        for (cr.initMethodAttributeIterator(m, iter); iter.isValid(); iter.advance()) {
+          if (iter.getName().equals("Code")) {
+            Decoder d = new CTDecoder(new CodeReader(iter), cpr);
+            d.decode();
+            for (IInstruction i : d.getInstructions()) {
+              if (i instanceof GetInstruction) {
+                return (GetInstruction) i;
+              }
+            }
+          }
+        }
+      }
+    }
+    Assert.fail("no field read in " + methodName);
+    return null;
+  }
+
+  @Test
+  public void testSharedConstantPoolInstructions() throws IOException, InvalidClassFileException,
+      Decoder.InvalidBytecodeException {
+    Assert.assertEquals(0, first() + second() - 1);
+    byte[] bytes;
+    try (InputStream s = DecoderTest.class.getResourceAsStream("DecoderTest.class")) {
+      bytes = FileUtil.readBytes(s);
+    }
+    ClassReader cr = new ClassReader(bytes);
+    ConstantPoolReader cpr = CTDecoder.makeConstantPoolReader(cr);
+    GetInstruction get = findGet(cr, cpr, "first");
+    Assert.assertEquals("counter", get.getFieldName());
+    Assert.assertSame(get, findGet(cr, cpr, "second"));
+    // a different constant pool reader may be used differently, e.g. by a Compiler, so it gets its own instructions
+    Assert.assertNotSame(get, findGet(cr, CTDecoder.makeConstantPoolReader(cr), "second"));
+  }
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.shrike;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrikeBT.Instruction;
+import com.ibm.wala.shrikeBT.MethodData;
+import com.ibm.wala.shrikeBT.MethodEditor;
+import com.ibm.wala.shrikeBT.Util;
+import com.ibm.wala.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrikeCT.ClassWriter;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.io.FileUtil;
+
+/**
+ * Tests that {@link OfflineInstrumenter#instrumentAll(OfflineInstrumenter.ClassProcessor, int)} writes the same JAR file on
+ * several threads as on one.
+ */
+public class OfflineInstrumenterTest extends WalaTestCase {
+
+  private static final Instruction getSysErr = Util.makeGet(System.class, "err");
+
+  private static final Instruction callPrintln = Util.makeInvoke(PrintStream.class, "println", new Class[] { String.class });
+
+  /**
+   * print a message at the start of each method of every other class, leaving the others unmodified
+   */
+  private static final OfflineInstrumenter.ClassProcessor tracer = new OfflineInstrumenter.ClassProcessor() {
+    @Override
+    public ClassWriter process(ClassInstrumenter ci) throws InvalidClassFileException {
+      if (ci.getReader().getName().hashCode() % 2 == 0) {
+        return null;
+      }
+      for (int i = 0; i < ci.getReader().getMethodCount(); i++) {
+        MethodData d = ci.visitMethod(i);
+        if (d != null) {
+          MethodEditor me = new MethodEditor(d);
+          me.beginPass();
+          final String msg = "Call to " + ci.getReader().getName() + "." + ci.getReader().getMethodName(i);
+          me.insertAtStart(new MethodEditor.Patch() {
+            @Override
+            public void emitTo(MethodEditor.Output w) {
+              w.emit(getSysErr);
+              w.emit(ConstantInstruction.makeString(msg));
+              w.emit(callPrintln);
+            }
+          });
+          me.applyPatches();
+          me.endPass();
+        }
+      }
+      return ci.emitClass();
+    }
+  };
+
+  private static File getTestDataJar() {
+    for (String s : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      if (s.indexOf("com.ibm.wala.core.testdata") >= 0 && s.endsWith(".jar")) {
+        return new File(s);
+      }
+    }
+    Assert.fail("cannot find the test data jar");
+    return null;
+  }
+
+  private static File instrument(File input, int parallelism) throws IOException {
+    File output = File.createTempFile("instrumented", ".jar");
+    OfflineInstrumenter instrumenter = new OfflineInstrumenter(true);
+    instrumenter.addInputJar(input);
+    instrumenter.setPassUnmodifiedClasses(true);
+    instrumenter.setOutputJar(output);
+    instrumenter.instrumentAll(tracer, parallelism);
+    instrumenter.close();
+    return output;
+  }
+
+  private static List<String> entryNames(JarFile jar) {
+    List<String> result = new ArrayList<>();
+    for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();) {
+      result.add(e.nextElement().getName());
+    }
+    return result;
+  }
+
+  private static byte[] read(JarFile jar, String name) throws IOException {
+    try (InputStream s = jar.getInputStream(jar.getEntry(name))) {
+      return FileUtil.readBytes(s);
+    }
+  }
+
+  @Test
+  public void testSameAsSequential() throws IOException {
+    File input = getTestDataJar();
+    File sequential = instrument(input, 1);
+    File parallel = instrument(input, 4);
+    try (JarFile s = new JarFile(sequential); JarFile p = new JarFile(parallel); JarFile in = new JarFile(input)) {
+      List<String> names = entryNames(s);
+      Assert.assertEquals(names, entryNames(p));
+      int modified = 0;
+      for (String name : names) {
+        byte[] bytes = read(s, name);
+        Assert.assertArrayEquals(name, bytes, read(p, name));
+        if (in.getEntry(name) == null || !Arrays.equals(bytes, read(in, name))) {
+          modified++;
+        }
+      }
+      Assert.assertTrue("expected some instrumented classes", modified > 0);
+      Assert.assertTrue("expected some unmodified classes", modified < names.size());
+    } finally {
+      sequential.delete();
+      parallel.delete();
+    }
+  }
+}
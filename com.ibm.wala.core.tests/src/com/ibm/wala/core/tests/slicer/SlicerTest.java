@@ -15,9 +15,11 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -25,6 +27,8 @@ import org.junit.Test;
 
 import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
 import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationSolver;
+import com.ibm.wala.dataflow.IFDS.TabulationResult;
 import com.ibm.wala.examples.drivers.PDFSlice;
 import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
@@ -38,6 +42,7 @@ import com.ibm.wala.ipa.callgraph.impl.PartialCallGraph;
 import com.ibm.wala.ipa.callgraph.impl.Util;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.SSAContextInterpreter;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys;
@@ -45,14 +50,20 @@ import com.ibm.wala.ipa.callgraph.propagation.cfa.nCFABuilder;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.modref.ModRef;
 import com.ibm.wala.ipa.slicer.MethodEntryStatement;
 import com.ibm.wala.ipa.slicer.NormalStatement;
+import com.ibm.wala.ipa.slicer.PDG;
 import com.ibm.wala.ipa.slicer.SDG;
 import com.ibm.wala.ipa.slicer.SDGBuilder;
+import com.ibm.wala.ipa.slicer.SDGSupergraph;
 import com.ibm.wala.ipa.slicer.Slicer;
 import com.ibm.wala.ipa.slicer.Slicer.ControlDependenceOptions;
 import com.ibm.wala.ipa.slicer.Slicer.DataDependenceOptions;
+import com.ibm.wala.ipa.slicer.Slicer.SliceProblem;
 import com.ibm.wala.ipa.slicer.Statement;
+import com.ibm.wala.ipa.slicer.binary.MappedSDGSupergraph;
+import com.ibm.wala.ipa.slicer.binary.SDGBinaryWriter;
 import com.ibm.wala.ipa.slicer.thin.ThinSlicer;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
@@ -67,10 +78,13 @@ import com.ibm.wala.ssa.SSAPutInstruction;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.GraphIntegrity;
 import com.ibm.wala.util.graph.GraphIntegrity.UnsoundGraphException;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.strings.Atom;
 
 public class SlicerTest {
@@ -792,6 +806,165 @@ public class SlicerTest {
     dumpSlice(slice);
   }
 
+  /**
+   * tabulating a slice on several threads should reach the same statements, with the same facts, as on one thread
+   */
+  @Test
+  public void testParallelTabulation() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        TestConstants.SLICE1_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    CGNode main = findMainMethod(cg);
+    Statement s = findCallTo(main, "println");
+
+    SDGBuilder<InstanceKey> sdgBuilder = new SDGBuilder<InstanceKey>();
+    sdgBuilder.setCg(cg);
+    sdgBuilder.setPa(builder.getPointerAnalysis());
+    sdgBuilder.computeAndSetModRef(InstanceKey.class);
+    sdgBuilder.setdOptions(DataDependenceOptions.NO_BASE_NO_HEAP);
+    sdgBuilder.setcOptions(ControlDependenceOptions.NO_EXCEPTIONAL_EDGES);
+    SDG<InstanceKey> sdg = sdgBuilder.build();
+
+    TabulationResult<Statement, PDG<? extends InstanceKey>, Object> sequential = PartiallyBalancedTabulationSolver
+        .createPartiallyBalancedTabulationSolver(
+            new SliceProblem<Statement, PDG<? extends InstanceKey>>(Collections.singleton(s), new SDGSupergraph(sdg, true), true),
+            null).solve();
+    PartiallyBalancedTabulationSolver<Statement, PDG<? extends InstanceKey>, Object> parallelSolver = PartiallyBalancedTabulationSolver
+        .createPartiallyBalancedTabulationSolver(
+            new SliceProblem<Statement, PDG<? extends InstanceKey>>(Collections.singleton(s), new SDGSupergraph(sdg, true), true),
+            null, 4);
+    Assert.assertTrue(parallelSolver.isParallel());
+    TabulationResult<Statement, PDG<? extends InstanceKey>, Object> parallel = parallelSolver.solve();
+
+    Collection<Statement> slice = sequential.getSupergraphNodesReached();
+    Assert.assertEquals(slice, parallel.getSupergraphNodesReached());
+    for (Statement st : slice) {
+      Assert.assertTrue(st.toString(), sequential.getResult(st).sameValue(parallel.getResult(st)));
+    }
+  }
+
+  /**
+   * slicing a batch of statements on several threads, sharing one SDG, gives the slices found one at a time
+   */
+  @Test
+  public void testBatchSlice() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        TestConstants.SLICE1_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    CGNode main = findMainMethod(cg);
+    Collection<Statement> criteria = new ArrayList<Statement>();
+    SSAInstruction[] instructions = main.getIR().getInstructions();
+    for (int i = 0; i < instructions.length; i++) {
+      if (instructions[i] instanceof SSAAbstractInvokeInstruction) {
+        criteria.add(new NormalStatement(main, i));
+      }
+    }
+
+    SDGBuilder<InstanceKey> sdgBuilder = new SDGBuilder<InstanceKey>();
+    sdgBuilder.setCg(cg);
+    sdgBuilder.setPa(builder.getPointerAnalysis());
+    sdgBuilder.computeAndSetModRef(InstanceKey.class);
+    sdgBuilder.setdOptions(DataDependenceOptions.NO_BASE_PTRS);
+    sdgBuilder.setcOptions(ControlDependenceOptions.NO_EXCEPTIONAL_EDGES);
+    SDG<InstanceKey> shared = sdgBuilder.build();
+    Map<Statement, Collection<Statement>> slices = Slicer.computeBackwardSlices(shared, criteria, 4);
+    Assert.assertEquals(criteria.size(), slices.size());
+
+    SDG<InstanceKey> sdg = sdgBuilder.build();
+    for (Statement s : criteria) {
+      Assert.assertEquals(s.toString(), HashSetFactory.make(Slicer.computeBackwardSlice(sdg, s)),
+          HashSetFactory.make(slices.get(s)));
+    }
+  }
+
+  @Test
+  public void testMappedSDG() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        TestConstants.SLICE1_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    SDGBuilder<InstanceKey> sdgBuilder = new SDGBuilder<InstanceKey>();
+    sdgBuilder.setCg(cg);
+    sdgBuilder.setPa(builder.getPointerAnalysis());
+    sdgBuilder.computeAndSetModRef(InstanceKey.class);
+    sdgBuilder.setdOptions(DataDependenceOptions.NO_BASE_PTRS);
+    sdgBuilder.setcOptions(ControlDependenceOptions.NO_EXCEPTIONAL_EDGES);
+    SDG<InstanceKey> sdg = sdgBuilder.build();
+
+    File file = File.createTempFile("slice1", ".sdg");
+    try {
+      SDGBinaryWriter.write(sdg, file);
+      MappedSDGSupergraph mapped = MappedSDGSupergraph.open(file);
+      Assert.assertEquals(sdg.getNumberOfNodes(), mapped.getNumberOfNodes());
+
+      CGNode main = findMainMethod(cg);
+      SSAInstruction[] instructions = main.getIR().getInstructions();
+      for (int i = 0; i < instructions.length; i++) {
+        if (instructions[i] instanceof SSAAbstractInvokeInstruction) {
+          Statement s = new NormalStatement(main, i);
+          Integer root = mapped.getLocalBlock(cg.getNumber(main), sdg.getPDG(main).getNumber(s));
+          Collection<Statement> actual = HashSetFactory.make();
+          for (Integer n : new Slicer().slice(mapped, Collections.singleton(root), true, -1, -1)) {
+            actual.add(sdg.getPDG(cg.getNode(mapped.getProcOf(n))).getNode(mapped.getLocalBlockNumber(n)));
+          }
+          Assert.assertEquals(s.toString(), HashSetFactory.make(Slicer.computeBackwardSlice(sdg, s)), actual);
+        }
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testParallelModRef() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        TestConstants.SLICE1_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    @SuppressWarnings("unchecked")
+    PointerAnalysis<InstanceKey> pa = (PointerAnalysis<InstanceKey>) builder.getPointerAnalysis();
+
+    ModRef<InstanceKey> sequential = ModRef.make(InstanceKey.class);
+    ModRef<InstanceKey> parallel = ModRef.make(InstanceKey.class, 4);
+    Map<CGNode, OrdinalSet<PointerKey>> mod = sequential.computeMod(cg, pa);
+    Map<CGNode, OrdinalSet<PointerKey>> parallelMod = parallel.computeMod(cg, pa);
+    Map<CGNode, OrdinalSet<PointerKey>> ref = sequential.computeRef(cg, pa);
+    Map<CGNode, OrdinalSet<PointerKey>> parallelRef = parallel.computeRef(cg, pa);
+    Assert.assertEquals(mod.keySet(), parallelMod.keySet());
+    Assert.assertEquals(ref.keySet(), parallelRef.keySet());
+    for (CGNode n : cg) {
+      Assert.assertEquals(n.toString(), Iterator2Collection.toSet(mod.get(n).iterator()),
+          Iterator2Collection.toSet(parallelMod.get(n).iterator()));
+      Assert.assertEquals(n.toString(), Iterator2Collection.toSet(ref.get(n).iterator()),
+          Iterator2Collection.toSet(parallelRef.get(n).iterator()));
+    }
+  }
+
   public static int countAllocations(Collection<Statement> slice) {
     int count = 0;
     for (Statement s : slice) {
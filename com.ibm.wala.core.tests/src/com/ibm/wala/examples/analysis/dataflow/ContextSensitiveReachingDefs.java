@@ -21,6 +21,7 @@ import com.ibm.wala.dataflow.IFDS.ISupergraph;
 import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
 import com.ibm.wala.dataflow.IFDS.IdentityFlowFunction;
 import com.ibm.wala.dataflow.IFDS.KillEverything;
+import com.ibm.wala.dataflow.IFDS.LazyICFGSupergraph;
 import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationProblem;
 import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationSolver;
 import com.ibm.wala.dataflow.IFDS.PathEdge;
@@ -69,6 +70,14 @@ public class ContextSensitiveReachingDefs {
     this.supergraph = ICFGSupergraph.make(cg, cache);
   }
 
+  /**
+   * @param supergraph a supergraph of cg, e.g., a {@link LazyICFGSupergraph}
+   */
+  public ContextSensitiveReachingDefs(CallGraph cg, ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> supergraph) {
+    this.cha = cg.getClassHierarchy();
+    this.supergraph = supergraph;
+  }
+
   /**
    * controls numbering of putstatic instructions for use in tabulation
    */
@@ -13,6 +13,7 @@ package com.ibm.wala.examples.analysis.dataflow;
 import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -23,7 +24,9 @@ import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
 import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.dataflow.IFDS.ICFGSupergraph;
 import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.dataflow.IFDS.LazyICFGSupergraph;
 import com.ibm.wala.dataflow.IFDS.TabulationResult;
 import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
@@ -49,6 +52,8 @@ import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.config.AnalysisScopeReader;
 import com.ibm.wala.util.config.FileOfClasses;
@@ -208,4 +213,68 @@ public class DataflowTest extends WalaTestCase {
       }
     }
   }
+
+  /**
+   * the lazy supergraph, with a cache too small to hold the CFGs of a caller and its callees, has the nodes and edges of
+   * the eager one
+   */
+  @Test
+  public void testLazySupergraph() throws IllegalArgumentException, CancelException {
+    CallGraph cg = makeStaticDataflowCallGraph();
+    ICFGSupergraph eager = ICFGSupergraph.make(cg, new AnalysisCacheImpl());
+    LazyICFGSupergraph lazy = LazyICFGSupergraph.make(cg, 2);
+    Assert.assertEquals(eager.getNumberOfNodes(), lazy.getNumberOfNodes());
+    for (BasicBlockInContext<IExplodedBasicBlock> bb : eager) {
+      Assert.assertTrue(lazy.containsNode(bb));
+      Assert.assertEquals(bb, lazy.getNode(lazy.getNumber(bb)));
+      Assert.assertEquals(eager.isCall(bb), lazy.isCall(bb));
+      Assert.assertEquals(eager.isReturn(bb), lazy.isReturn(bb));
+      Assert.assertEquals(eager.isEntry(bb), lazy.isEntry(bb));
+      Assert.assertEquals(eager.isExit(bb), lazy.isExit(bb));
+      Assert.assertEquals(bb.toString(), Iterator2Collection.toSet(eager.getSuccNodes(bb)),
+          Iterator2Collection.toSet(lazy.getSuccNodes(bb)));
+      Assert.assertEquals(bb.toString(), Iterator2Collection.toSet(eager.getPredNodes(bb)),
+          Iterator2Collection.toSet(lazy.getPredNodes(bb)));
+      if (eager.isCall(bb)) {
+        Assert.assertEquals(Iterator2Collection.toSet(eager.getCalledNodes(bb)), Iterator2Collection.toSet(lazy.getCalledNodes(bb)));
+        Assert.assertEquals(eager.getReturnSitesAsSet(bb, null), lazy.getReturnSitesAsSet(bb, null));
+      }
+      if (eager.isReturn(bb)) {
+        Assert.assertEquals(eager.getCallSitesAsSet(bb, null), lazy.getCallSitesAsSet(bb, null));
+      }
+    }
+  }
+
+  /**
+   * context-sensitive reaching defs over the lazy supergraph finds the same definitions as over the eager one
+   */
+  @Test
+  public void testContextSensitiveLazy() throws IllegalArgumentException, CancelException {
+    CallGraph cg = makeStaticDataflowCallGraph();
+    ContextSensitiveReachingDefs eager = new ContextSensitiveReachingDefs(cg, new AnalysisCacheImpl());
+    ContextSensitiveReachingDefs lazy = new ContextSensitiveReachingDefs(cg, LazyICFGSupergraph.make(cg, 2));
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> eagerResult = eager.analyze();
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> lazyResult = lazy.analyze();
+    Assert.assertEquals(eagerResult.getSupergraphNodesReached(), lazyResult.getSupergraphNodesReached());
+    for (BasicBlockInContext<IExplodedBasicBlock> bb : eagerResult.getSupergraphNodesReached()) {
+      // the two analyses number the definitions independently
+      Assert.assertEquals(bb.toString(), getDefs(eager, eagerResult.getResult(bb)), getDefs(lazy, lazyResult.getResult(bb)));
+    }
+  }
+
+  private static CallGraph makeStaticDataflowCallGraph() throws IllegalArgumentException, CallGraphBuilderCancelException {
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCacheImpl(), cha, scope);
+    return builder.makeCallGraph(options, null);
+  }
+
+  private static Set<Pair<CGNode, Integer>> getDefs(ContextSensitiveReachingDefs reachingDefs, IntSet facts) {
+    Set<Pair<CGNode, Integer>> result = HashSetFactory.make();
+    for (IntIterator it = facts.intIterator(); it.hasNext();) {
+      result.add(reachingDefs.getDomain().getMappedObject(it.next()));
+    }
+    return result;
+  }
 }
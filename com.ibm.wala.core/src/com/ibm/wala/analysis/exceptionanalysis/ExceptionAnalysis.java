@@ -18,6 +18,8 @@ import com.ibm.wala.analysis.nullpointer.IntraproceduralNullPointerAnalysis;
 import com.ibm.wala.classLoader.CallSiteReference;
 import com.ibm.wala.dataflow.graph.BitVectorFramework;
 import com.ibm.wala.dataflow.graph.BitVectorSolver;
+import com.ibm.wala.fixedpoint.impl.SolverMetrics;
+import com.ibm.wala.fixedpoint.impl.WorklistPolicy;
 import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
@@ -101,6 +103,21 @@ public class ExceptionAnalysis {
     solver.initForFirstSolve();
   }
 
+  /**
+   * Choose the order in which the data flow analysis on the call graph evaluates its equations; call before
+   * {@link #solve()}. The result is the same for every policy.
+   */
+  public void setWorklistPolicy(WorklistPolicy policy) {
+    solver.setWorklistPolicy(policy);
+  }
+
+  /**
+   * @return counts of the work done by the data flow analysis on the call graph
+   */
+  public SolverMetrics getSolverMetrics() {
+    return solver.getMetrics();
+  }
+
   public void solve() {
     try {
       solver.solve(null);
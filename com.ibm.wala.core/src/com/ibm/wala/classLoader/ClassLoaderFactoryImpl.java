@@ -10,6 +10,7 @@
  *******************************************************************************/
 package com.ibm.wala.classLoader;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.HashMap;
@@ -17,6 +18,7 @@ import java.util.HashMap;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.config.SetOfClasses;
 import com.ibm.wala.util.warnings.Warning;
@@ -38,12 +40,46 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
    */
   final private HashMap<ClassLoaderReference, IClassLoader> map = HashMapFactory.make(3);
 
+  /**
+   * Number of threads each {@link ClassLoaderImpl} uses to read its class files
+   */
+  final private int parallelism;
+
+  /**
+   * If non-null, polled by each {@link ClassLoaderImpl} while it reads its class files
+   */
+  final private IProgressMonitor monitor;
+
+  /**
+   * If non-null, a directory of {@link JarFileSnapshot}s for each {@link ClassLoaderImpl} to use
+   */
+  private File snapshotDirectory;
+
   /**
    * @param exclusions
    *          A set of classes that class loaders should pretend don't exist.
    */
   public ClassLoaderFactoryImpl(SetOfClasses exclusions) {
+    this(exclusions, 1, null);
+  }
+
+  /**
+   * @param exclusions
+   *          A set of classes that class loaders should pretend don't exist.
+   * @param parallelism
+   *          number of threads each {@link ClassLoaderImpl} uses to read its class files
+   * @param monitor
+   *          if non-null, class loaders stop reading class files once it is canceled
+   * @throws IllegalArgumentException
+   *           if parallelism &lt; 1
+   */
+  public ClassLoaderFactoryImpl(SetOfClasses exclusions, int parallelism, IProgressMonitor monitor) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("invalid parallelism: " + parallelism);
+    }
     this.exclusions = exclusions;
+    this.parallelism = parallelism;
+    this.monitor = monitor;
   }
 
   /**
@@ -112,6 +148,11 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
           cl = new ClassLoaderImpl(classLoaderReference, scope.getArrayClassLoader(), parent, exclusions, cha);
         }
       }
+    if (cl instanceof ClassLoaderImpl) {
+      ((ClassLoaderImpl) cl).setParallelism(parallelism);
+      ((ClassLoaderImpl) cl).setProgressMonitor(monitor);
+      ((ClassLoaderImpl) cl).setSnapshotDirectory(snapshotDirectory);
+    }
     cl.init(scope.getModules(classLoaderReference));
     return cl;
   }
@@ -138,6 +179,16 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
     }
   }
 
+  /**
+   * Have class loaders created from now on take the classes of jar files from snapshots in the given directory, and
+   * write snapshots there for jar files that have none.
+   * 
+   * @see ClassLoaderImpl#setSnapshotDirectory(File)
+   */
+  public void setSnapshotDirectory(File snapshotDirectory) {
+    this.snapshotDirectory = snapshotDirectory;
+  }
+
   /**
    * @return the set of classes that will be ignored.
    */
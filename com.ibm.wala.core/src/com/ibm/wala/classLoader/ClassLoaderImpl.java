@@ -10,23 +10,19 @@
  *******************************************************************************/
 package com.ibm.wala.classLoader;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarInputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.shrikeCT.ClassReader;
@@ -36,9 +32,9 @@ import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.TypeName;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
-import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.config.SetOfClasses;
-import com.ibm.wala.util.io.FileProvider;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.io.FileSuffixes;
 import com.ibm.wala.util.shrike.ShrikeClassReaderHandle;
 import com.ibm.wala.util.strings.Atom;
@@ -88,6 +84,26 @@ public class ClassLoaderImpl implements IClassLoader {
    */
   private final ArrayClassLoader arrayClassLoader;
 
+  /**
+   * number of threads used to read class files in {@link #init(List)}
+   */
+  private int parallelism = 1;
+
+  /**
+   * if non-null, polled while reading class files; {@link #init(List)} stops early once it is canceled
+   */
+  private IProgressMonitor monitor;
+
+  /**
+   * if non-null, a directory of {@link JarFileSnapshot}s used by {@link #init(List)}
+   */
+  private File snapshotDirectory;
+
+  /**
+   * number of class files each thread reads in one go when reading in parallel
+   */
+  private static final int READ_TASK_GRAIN = 16;
+
   /**
    * @param loader class loader reference identifying this loader
    * @param parent parent loader for delegation
@@ -238,23 +254,167 @@ public class ClassLoaderImpl implements IClassLoader {
 
   }
 
+  /**
+   * A class file found in a module. The class is normally read from it on demand, but {@link #read()} reads it ahead of
+   * time so that the class files of a loader can be read on several threads. If a {@link JarFileSnapshot} recorded the
+   * class, the class file is not read at all.
+   */
+  private class ClassFile {
+    private final ShrikeClassReaderHandle reader;
+
+    private final JarFileSnapshot.ClassHeader header;
+
+    private String name;
+
+    private ShrikeClass klass;
+
+    private InvalidClassFileException failure;
+
+    /**
+     * @param header the class as recorded in a snapshot, or null
+     */
+    ClassFile(ModuleEntry entry, JarFileSnapshot.ClassHeader header) {
+      this.reader = new ShrikeClassReaderHandle(entry);
+      this.header = header;
+      if (header != null) {
+        name = header.getName();
+      }
+    }
+
+    /**
+     * read the name of the class and, unless it is excluded, the class itself. Any failure is remembered and reported
+     * by the accessors, when the class is added to the loader.
+     */
+    void read() {
+      if (header != null) {
+        return;
+      }
+      try {
+        name = reader.get().getName();
+        if (exclusions == null || !exclusions.contains(name)) {
+          klass = new ShrikeClass(reader, ClassLoaderImpl.this, cha);
+        }
+      } catch (InvalidClassFileException e) {
+        failure = e;
+      }
+    }
+
+    String getName() throws InvalidClassFileException {
+      if (name == null) {
+        if (failure != null) {
+          throw failure;
+        }
+        name = reader.get().getName();
+      }
+      return name;
+    }
+
+    ShrikeClass getShrikeClass() throws InvalidClassFileException {
+      if (klass == null) {
+        if (failure != null) {
+          throw failure;
+        }
+        klass = header == null ? new ShrikeClass(reader, ClassLoaderImpl.this, cha) : new ShrikeClass(reader,
+            ClassLoaderImpl.this, cha, header);
+      }
+      return klass;
+    }
+  }
+
+  /**
+   * Reads a range of class files, splitting it among the threads of the pool
+   */
+  private class ReadClassFilesTask extends RecursiveAction {
+    private static final long serialVersionUID = 4179430263471985201L;
+
+    private final ClassFile[] classFiles;
+
+    private final int from;
+
+    private final int to;
+
+    ReadClassFilesTask(ClassFile[] classFiles, int from, int to) {
+      this.classFiles = classFiles;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= READ_TASK_GRAIN) {
+        for (int i = from; i < to && !isCanceled(); i++) {
+          classFiles[i].read();
+        }
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new ReadClassFilesTask(classFiles, from, mid), new ReadClassFilesTask(classFiles, mid, to));
+      }
+    }
+  }
+
+  private boolean isCanceled() {
+    return monitor != null && monitor.isCanceled();
+  }
+
+  /**
+   * Read the given class files on {@link #parallelism} threads.
+   */
+  private void readAllClasses(Collection<ClassFile> classFiles) {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new ReadClassFilesTask(classFiles.toArray(new ClassFile[classFiles.size()]), 0, classFiles.size()));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Record the classes read from the entries of a jar file in a new snapshot. Class files that cannot be read are left
+   * out; they will be read, and reported, again next time.
+   */
+  private static void writeSnapshot(File snapshotFile, JarFileModule archive, Map<ModuleEntry, ClassFile> classFiles) {
+    List<Pair<String, ClassReader>> recorded = new ArrayList<Pair<String, ClassReader>>();
+    for (Map.Entry<ModuleEntry, ClassFile> e : classFiles.entrySet()) {
+      if (e.getKey().getContainer() == archive) {
+        try {
+          recorded.add(Pair.make(e.getKey().getName(), e.getValue().reader.get()));
+        } catch (InvalidClassFileException x) {
+          // leave it out
+        }
+      }
+    }
+    try {
+      JarFileSnapshot.write(snapshotFile, recorded);
+    } catch (IOException e) {
+      // the snapshot only saves time
+      if (DEBUG_LEVEL > 0) {
+        System.err.println("could not write " + snapshotFile + ": " + e);
+      }
+    }
+  }
+
   /**
    * Set up the set of classes loaded by this object.
+   * 
+   * @param classFiles the class file of each module entry
    */
   @SuppressWarnings("unused")
-  private void loadAllClasses(Collection<ModuleEntry> moduleEntries) {
+  private void loadAllClasses(Collection<ModuleEntry> moduleEntries, Map<ModuleEntry, ClassFile> classFiles) {
     for (Iterator<ModuleEntry> it = moduleEntries.iterator(); it.hasNext();) {
       ModuleEntry entry = it.next();
       if (!entry.isClassFile()) {
         continue;
       }
+      if (isCanceled()) {
+        return;
+      }
       String className = entry.getClassName().replace('.', '/');
       if (DEBUG_LEVEL > 0) {
         System.err.println("Consider " + className);
       }
       try {
-        ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
-        String classNameInternal = entryReader.get().getName();
+        ClassFile classFile = classFiles.get(entry);
+        String classNameInternal = classFile.getName();
         if (DEBUG_LEVEL > 0) {
           System.err.println("Load class " + classNameInternal);
         }
@@ -278,7 +438,7 @@ public class ClassLoaderImpl implements IClassLoader {
         } else {
           // always used the reader based on the entry after this point,
           // so we can null out and re-read class file contents
-          loadedClasses.put(internalT, new ShrikeClass(entryReader, this, cha));
+          loadedClasses.put(internalT, classFile.getShrikeClass());
           if (DEBUG_LEVEL > 1) {
             System.err.println("put " + internalT + " ");
           }
@@ -292,64 +452,6 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
-  @SuppressWarnings("unused")
-  private Map<String, Object> getAllClassAndSourceFileContents(byte[] jarFileContents, String fileName,
-      Map<String, Map<String, Long>> entrySizes) {
-    if (jarFileContents == null) {
-      return null;
-    }
-    Map<String, Long> entrySizesForFile = entrySizes.get(fileName);
-    if (entrySizesForFile == null) {
-      return null;
-    }
-    Map<String, Object> result = HashMapFactory.make();
-    try {
-      JarInputStream s = new JarInputStream(new ByteArrayInputStream(jarFileContents), false);
-      JarEntry entry = null;
-      while ((entry = s.getNextJarEntry()) != null) {
-        byte[] entryBytes = getEntryBytes(entry, entrySizesForFile.get(entry.getName()), s);
-        if (entryBytes == null) {
-          return null;
-        }
-        String name = entry.getName();
-        if (FileSuffixes.isJarFile(name) || FileSuffixes.isWarFile(name)) {
-          Map<String, Object> nestedResult = getAllClassAndSourceFileContents(entryBytes, name, entrySizes);
-          if (nestedResult == null) {
-            return null;
-          }
-          for (String entryName : nestedResult.keySet()) {
-            if (!result.containsKey(entryName)) {
-              result.put(entryName, nestedResult.get(entryName));
-            }
-          }
-        } else if (FileSuffixes.isClassFile(name) || FileSuffixes.isSourceFile(name)) {
-          result.put(name, entryBytes);
-        }
-      }
-    } catch (IOException e) {
-      assert false;
-    }
-    return result;
-  }
-
-  private byte[] getEntryBytes(JarEntry entry, Long size, InputStream is) throws IOException {
-    if (size == null) {
-      return null;
-    }
-    ByteArrayOutputStream S = new ByteArrayOutputStream();
-    int n = 0;
-    long count = 0;
-    byte[] buffer = new byte[1024];
-    while (n > -1 && count < size) {
-      n = is.read(buffer, 0, 1024);
-      if (n > -1) {
-        S.write(buffer, 0, n);
-        count += n;
-      }
-    }
-    return S.toByteArray();
-  }
-
   /**
    * A warning when we find more than one implementation of a given class name
    */
@@ -477,41 +579,48 @@ public class ClassLoaderImpl implements IClassLoader {
     // module are loaded according to the given order (same as in Java VM)
     Set<ModuleEntry> classModuleEntries = HashSetFactory.make();
     Set<ModuleEntry> sourceModuleEntries = HashSetFactory.make();
+    List<Set<ModuleEntry>> classFilesByModule = new ArrayList<Set<ModuleEntry>>();
+    List<Set<ModuleEntry>> sourceFilesByModule = new ArrayList<Set<ModuleEntry>>();
+    List<Map<ModuleEntry, ClassFile>> classFilesByEntry = new ArrayList<Map<ModuleEntry, ClassFile>>();
+    List<File> snapshotFiles = new ArrayList<File>();
     for (Iterator<Module> it = modules.iterator(); it.hasNext();) {
       Module archive = it.next();
       if (DEBUG_LEVEL > 0) {
         System.err.println("add archive: " + archive);
       }
-      // byte[] jarFileContents = null;
-      if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule) {
-        // if we have a jar file, we read the whole thing into memory and operate on that; enables more
-        // efficient sequential I/O
-        // this is work in progress; for now, we read the file into memory and throw away the contents, which
-        // still gives a speedup for large jar files since it reads sequentially and warms up the FS cache. we get a small slowdown
-        // for smaller jar files or for jar files already in the FS cache. eventually, we should
-        // actually use the bytes read and eliminate the slowdown
-        // 11/22/10: I can't figure out a way to actually use the bytes without hurting performance.  Apparently,
-        // extracting files from a jar stored in memory via a JarInputStream is really slow compared to using
-        // a JarFile.  Will leave this as is for now.  --MS
-        // jarFileContents = archive instanceof JarFileModule ? getJarFileContents((JarFileModule) archive) : null;
-        getJarFileContents((JarFileModule) archive);
+      JarFileSnapshot snapshot = null;
+      File snapshotFile = null;
+      if (snapshotDirectory != null && archive instanceof JarFileModule) {
+        // hashing the jar file reads it sequentially, just like loading the mapped jar file
+        snapshotFile = JarFileSnapshot.getSnapshotFile(snapshotDirectory, (JarFileModule) archive);
+        snapshot = JarFileSnapshot.load(snapshotFile);
+      } else if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule) {
+        // class files are read from the jar file mapped into memory, with its central directory parsed once. loading the
+        // mapping up front reads the file sequentially, which is faster for a large jar file than reading the entries in
+        // an arbitrary order, and unlike reading the file into an array it does not use the Java heap
+        MappedJarFile mapped = ((JarFileModule) archive).getMappedJarFile();
+        if (mapped != null) {
+          mapped.load();
+        }
       }
       Set<ModuleEntry> classFiles = getClassFiles(archive);
       removeClassFiles(classFiles, classModuleEntries);
       Set<ModuleEntry> sourceFiles = getSourceFiles(archive);
-      Map<String, Object> allClassAndSourceFileContents = null;
-      if (OPTIMIZE_JAR_FILE_IO) {
-        // work in progress --MS
-        // if (archive instanceof JarFileModule) {
-        // final JarFileModule jfModule = (JarFileModule) archive;
-        // final String name = jfModule.getJarFile().getName();
-        // Map<String, Map<String, Long>> entrySizes = getEntrySizes(jfModule, name);
-        // allClassAndSourceFileContents = getAllClassAndSourceFileContents(jarFileContents, name, entrySizes);
-        // }
-        // jarFileContents = null;
-      }
-      loadAllClasses(classFiles);
-      loadAllSources(sourceFiles);
+      Map<ModuleEntry, ClassFile> byEntry = HashMapFactory.make();
+      for (ModuleEntry entry : classFiles) {
+        if (entry.isClassFile()) {
+          JarFileSnapshot.ClassHeader header = null;
+          if (snapshot != null && entry.getContainer() == archive) {
+            header = snapshot.find(entry.getName());
+          }
+          byEntry.put(entry, new ClassFile(entry, header));
+        }
+      }
+      classFilesByModule.add(classFiles);
+      sourceFilesByModule.add(sourceFiles);
+      classFilesByEntry.add(byEntry);
+      // only write a snapshot for a jar file that does not have one yet
+      snapshotFiles.add(snapshot == null ? snapshotFile : null);
       for (Iterator<ModuleEntry> it2 = classFiles.iterator(); it2.hasNext();) {
         ModuleEntry file = it2.next();
         classModuleEntries.add(file);
@@ -521,49 +630,58 @@ public class ClassLoaderImpl implements IClassLoader {
         sourceModuleEntries.add(file);
       }
     }
-  }
 
-  @SuppressWarnings("unused")
-  private Map<String, Map<String, Long>> getEntrySizes(Module module, String name) {
-    Map<String, Map<String, Long>> result = HashMapFactory.make();
-    Map<String, Long> curFileResult = HashMapFactory.make();
-    for (ModuleEntry e : Iterator2Iterable.make(module.getEntries())) {
-      if (e.isModuleFile()) {
-        result.putAll(getEntrySizes(e.asModule(), e.getName()));
-      } else {
-        if (e instanceof JarFileEntry) {
-          curFileResult.put(e.getName(), ((JarFileEntry) e).getSize());
-        }
+    // the class files may be read on several threads, but classes are added
+    // one module at a time, in the same order as when reading sequentially
+    if (parallelism > 1) {
+      List<ClassFile> all = new ArrayList<ClassFile>();
+      for (Map<ModuleEntry, ClassFile> byEntry : classFilesByEntry) {
+        all.addAll(byEntry.values());
+      }
+      readAllClasses(all);
+    }
+    for (int i = 0; i < classFilesByModule.size(); i++) {
+      if (isCanceled()) {
+        return;
+      }
+      loadAllClasses(classFilesByModule.get(i), classFilesByEntry.get(i));
+      loadAllSources(sourceFilesByModule.get(i));
+      if (snapshotFiles.get(i) != null && !isCanceled()) {
+        writeSnapshot(snapshotFiles.get(i), (JarFileModule) modules.get(i), classFilesByEntry.get(i));
       }
     }
-    result.put(name, curFileResult);
-    return result;
   }
 
   /**
-   * get the contents of a jar file. if any IO exceptions occur, catch and return null.
+   * Set the number of threads {@link #init(List)} uses to read class files. Whatever the number, the loader ends up with
+   * the same classes.
+   * 
+   * @throws IllegalArgumentException if parallelism &lt; 1
    */
-  private void getJarFileContents(JarFileModule archive) {
-    String jarFileName = archive.getJarFile().getName();
-    InputStream s = null;
-    try {
-      File jarFile = (new FileProvider()).getFile(jarFileName);
-      int bufferSize = 65536;
-      s = new BufferedInputStream(new FileInputStream(jarFile), bufferSize);
-      byte[] b = new byte[1024];
-      int n = s.read(b);
-      while (n != -1) {
-        n = s.read(b);
-      }
-    } catch (IOException e) {
-    } finally {
-      try {
-        if (s != null) {
-          s.close();
-        }
-      } catch (IOException e) {
-      }
+  public void setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("invalid parallelism: " + parallelism);
     }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Set a directory of {@link JarFileSnapshot}s. {@link #init(List)} then takes the classes of a jar file from its
+   * snapshot, if there is one, instead of reading the class files, and writes a snapshot for each jar file that has
+   * none.
+   * 
+   * @param snapshotDirectory the directory, or null to read all class files
+   */
+  public void setSnapshotDirectory(File snapshotDirectory) {
+    this.snapshotDirectory = snapshotDirectory;
+  }
+
+  /**
+   * Set a monitor for {@link #init(List)} to poll while reading class files. If it is canceled, init returns early,
+   * leaving the loader incomplete.
+   */
+  public void setProgressMonitor(IProgressMonitor monitor) {
+    this.monitor = monitor;
   }
 
   @Override
@@ -11,11 +11,14 @@
 
 package com.ibm.wala.classLoader;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.jar.JarFile;
 
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.io.FileSuffixes;
+import com.ibm.wala.util.io.FileUtil;
 
 /**
  * An entry in a Jar file.
@@ -63,11 +66,33 @@ public class JarFileEntry implements ModuleEntry {
     }
   }
 
+  /**
+   * Get the contents of the entry, read from the jar file mapped into memory if possible, so that a stored entry is not
+   * copied.
+   * 
+   * @return the contents, from the position to the limit of the result
+   */
+  public ByteBuffer getContents() throws IOException {
+    ByteBuffer result = jarFileModule.getContents(entryName);
+    if (result == null) {
+      InputStream s = getInputStream();
+      try {
+        result = ByteBuffer.wrap(FileUtil.readBytes(s));
+      } finally {
+        s.close();
+      }
+    }
+    return result;
+  }
+
   /*
    * @see com.ibm.wala.classLoader.ModuleEntry#getSize()
    */
   public long getSize() {
-    // TODO: cache this?
+    MappedJarFile mapped = jarFileModule.getMappedJarFile();
+    if (mapped != null && mapped.getEntry(entryName) != null) {
+      return mapped.getEntry(entryName).getSize();
+    }
     return jarFileModule.getJarFile().getEntry(entryName).getSize();
   }
 
@@ -10,8 +10,10 @@
  *******************************************************************************/
 package com.ibm.wala.classLoader;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -37,6 +39,16 @@ public class JarFileModule implements Module {
    */
   private final HashMap<ZipEntry, Object> cache = HashMapFactory.make();
 
+  /**
+   * The jar file mapped into memory, once it is needed
+   */
+  private MappedJarFile mapped;
+
+  /**
+   * Set if the jar file cannot be mapped, so it is read through the {@link JarFile} instead
+   */
+  private boolean unmappable;
+
   public JarFileModule(JarFile f) {
     if (f == null) {
       throw new IllegalArgumentException("null f");
@@ -100,10 +112,16 @@ public class JarFileModule implements Module {
     }
 
     try {
-      InputStream s = file.getInputStream(entry);
-      byte[] bb = FileUtil.readBytes(s);
+      byte[] bb;
+      ByteBuffer buffer = getContents(entry.getName());
+      if (buffer != null) {
+        bb = toByteArray(buffer);
+      } else {
+        InputStream s = file.getInputStream(entry);
+        bb = FileUtil.readBytes(s);
+        s.close();
+      }
       cache.put(entry, CacheReference.make(bb));
-      s.close();
       return bb;
     } catch (IOException e) {
       e.printStackTrace();
@@ -112,6 +130,47 @@ public class JarFileModule implements Module {
     }
   }
 
+  /**
+   * Get the contents of an entry from the mapped jar file, without copying them if the entry is stored. Unlike
+   * {@link #getContents(ZipEntry)}, the contents are not cached.
+   * 
+   * @return the contents, from the position to the limit of the result, or null if the jar file cannot be mapped or
+   *         has no such entry
+   */
+  public ByteBuffer getContents(String entryName) throws IOException {
+    MappedJarFile m = getMappedJarFile();
+    return m == null ? null : m.getContents(entryName);
+  }
+
+  /**
+   * @return the contents of a buffer as an array, which is the buffer's own array if it holds exactly the contents
+   */
+  private static byte[] toByteArray(ByteBuffer buffer) {
+    if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+        && buffer.remaining() == buffer.array().length) {
+      return buffer.array();
+    }
+    byte[] result = new byte[buffer.remaining()];
+    buffer.duplicate().get(result);
+    return result;
+  }
+
+  /**
+   * Map the jar file into memory, if that has not been done yet.
+   * 
+   * @return the mapped jar file, or null if it cannot be mapped, e.g. because it is a ZIP64 archive
+   */
+  public synchronized MappedJarFile getMappedJarFile() {
+    if (mapped == null && !unmappable) {
+      try {
+        mapped = new MappedJarFile(new File(file.getName()));
+      } catch (IOException e) {
+        unmappable = true;
+      }
+    }
+    return mapped;
+  }
+
   public JarFile getJarFile() {
     return file;
   }
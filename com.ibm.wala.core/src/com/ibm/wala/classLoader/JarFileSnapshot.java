@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.classLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Pair;
+
+/**
+ * A record of the class files in a jar file: for each one, the name of the class, its modifiers, its superclass and its
+ * interfaces. That is all a {@link ClassLoaderImpl} needs to put the class in a class hierarchy, so a loader that finds
+ * a snapshot for a jar file does not have to read its class files up front.
+ *
+ * Snapshots are kept in a directory, one file per jar file, named after a hash of the jar file contents; a jar file
+ * that changes simply gets a new snapshot. The file is memory-mapped when loaded, and headers are decoded when they are
+ * looked up.
+ *
+ * The format is a magic number and version, the number of entries, and then for each entry: the entry name, the class
+ * name, the modifiers, the superclass name (empty for none), the number of interfaces and their names. Names are UTF-8
+ * strings preceded by their length as an unsigned short.
+ */
+public class JarFileSnapshot {
+
+  private static final int MAGIC = 0x57414c41;
+
+  private static final int VERSION = 1;
+
+  private static final String SUFFIX = ".snapshot";
+
+  /**
+   * The information recorded for one class file
+   */
+  public static class ClassHeader {
+    private final String name;
+
+    private final int modifiers;
+
+    private final String superName;
+
+    private final String[] interfaceNames;
+
+    ClassHeader(String name, int modifiers, String superName, String[] interfaceNames) {
+      this.name = name;
+      this.modifiers = modifiers;
+      this.superName = superName;
+      this.interfaceNames = interfaceNames;
+    }
+
+    /**
+     * @return the internal name of the class, without a leading 'L'
+     */
+    public String getName() {
+      return name;
+    }
+
+    public int getModifiers() {
+      return modifiers;
+    }
+
+    /**
+     * @return the internal name of the superclass, or null if there is none
+     */
+    public String getSuperName() {
+      return superName;
+    }
+
+    public String[] getInterfaceNames() {
+      return interfaceNames;
+    }
+  }
+
+  /**
+   * the mapped snapshot file; only read with absolute positions or through duplicates, so it can be shared by threads
+   */
+  private final ByteBuffer buffer;
+
+  /**
+   * the position of each entry's class header in the buffer, by entry name
+   */
+  private final Map<String, Integer> offsets;
+
+  private JarFileSnapshot(ByteBuffer buffer, Map<String, Integer> offsets) {
+    this.buffer = buffer;
+    this.offsets = offsets;
+  }
+
+  /**
+   * @return the number of class files recorded in this snapshot
+   */
+  public int size() {
+    return offsets.size();
+  }
+
+  /**
+   * @return the header recorded for the class file with the given entry name, or null if there is none
+   */
+  public ClassHeader find(String entryName) {
+    Integer offset = offsets.get(entryName);
+    if (offset == null) {
+      return null;
+    }
+    ByteBuffer b = buffer.duplicate();
+    b.position(offset);
+    String name = readString(b);
+    int modifiers = b.getInt();
+    String superName = readString(b);
+    String[] interfaceNames = new String[b.getShort() & 0xffff];
+    for (int i = 0; i < interfaceNames.length; i++) {
+      interfaceNames[i] = readString(b);
+    }
+    return new ClassHeader(name, modifiers, superName.length() == 0 ? null : superName, interfaceNames);
+  }
+
+  /**
+   * @param file a file named by {@link #getSnapshotFile(File, JarFileModule)}
+   * @return the snapshot held in the file, or null if there is none or it cannot be read
+   */
+  public static JarFileSnapshot load(File file) {
+    if (file == null || !file.isFile()) {
+      return null;
+    }
+    try (RandomAccessFile f = new RandomAccessFile(file, "r"); FileChannel channel = f.getChannel()) {
+      MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (b.getInt() != MAGIC || b.getInt() != VERSION) {
+        return null;
+      }
+      int count = b.getInt();
+      Map<String, Integer> offsets = HashMapFactory.make(count);
+      for (int i = 0; i < count; i++) {
+        String entryName = readString(b);
+        offsets.put(entryName, b.position());
+        skipString(b);
+        b.getInt();
+        skipString(b);
+        int interfaces = b.getShort() & 0xffff;
+        for (int j = 0; j < interfaces; j++) {
+          skipString(b);
+        }
+      }
+      return new JarFileSnapshot(b, offsets);
+    } catch (IOException e) {
+      return null;
+    } catch (RuntimeException e) {
+      // a truncated or otherwise corrupt snapshot; ignore it
+      return null;
+    }
+  }
+
+  /**
+   * Record the given class files of a jar file in a snapshot. The snapshot is written to a temporary file first, so a
+   * concurrent {@link #load} never sees a partial snapshot.
+   *
+   * @param file a file named by {@link #getSnapshotFile(File, JarFileModule)}
+   * @param classFiles pairs of an entry name and a reader for the class file of that entry
+   * @throws IOException if the snapshot cannot be written
+   */
+  public static void write(File file, Collection<Pair<String, ClassReader>> classFiles) throws IOException {
+    File directory = file.getAbsoluteFile().getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("could not create " + directory);
+    }
+    File tmp = File.createTempFile("wala", SUFFIX, directory);
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(classFiles.size());
+        for (Pair<String, ClassReader> p : classFiles) {
+          ClassReader r = p.snd;
+          writeString(out, p.fst);
+          writeString(out, r.getName());
+          out.writeInt(r.getAccessFlags());
+          writeString(out, r.getSuperName() == null ? "" : r.getSuperName());
+          String[] interfaceNames = r.getInterfaceNames();
+          out.writeShort(interfaceNames.length);
+          for (String s : interfaceNames) {
+            writeString(out, s);
+          }
+        }
+      } catch (InvalidClassFileException e) {
+        throw new IOException("cannot record class file in " + file + ": " + e.getMessage());
+      }
+      if (!tmp.renameTo(file) && !file.isFile()) {
+        throw new IOException("could not rename " + tmp + " to " + file);
+      }
+    } finally {
+      tmp.delete();
+    }
+  }
+
+  /**
+   * @return the file in the directory that holds, or would hold, the snapshot of the given jar file, or null if the jar
+   *         file cannot be read
+   */
+  public static File getSnapshotFile(File directory, JarFileModule module) {
+    File jarFile = new File(module.getJarFile().getName());
+    if (!jarFile.isFile()) {
+      return null;
+    }
+    try (InputStream s = new BufferedInputStream(new FileInputStream(jarFile), 65536)) {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      byte[] b = new byte[65536];
+      for (int n = s.read(b); n != -1; n = s.read(b)) {
+        digest.update(b, 0, n);
+      }
+      StringBuilder name = new StringBuilder();
+      for (byte x : digest.digest()) {
+        name.append(Character.forDigit((x >> 4) & 0xf, 16)).append(Character.forDigit(x & 0xf, 16));
+      }
+      return new File(directory, name.append(SUFFIX).toString());
+    } catch (IOException e) {
+      return null;
+    } catch (NoSuchAlgorithmException e) {
+      return null;
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(b.length);
+    out.write(b);
+  }
+
+  private static String readString(ByteBuffer b) {
+    byte[] bytes = new byte[b.getShort() & 0xffff];
+    b.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void skipString(ByteBuffer b) {
+    int length = b.getShort() & 0xffff;
+    b.position(b.position() + length);
+  }
+}
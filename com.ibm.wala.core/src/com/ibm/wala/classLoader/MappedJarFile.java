@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.classLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * A jar file mapped into memory. The central directory is parsed once, when the file is opened, and the contents of an
+ * entry are read straight from the mapping: those of a stored entry are a slice of it, with no copying, and those of a
+ * deflated entry are inflated into a buffer of exactly the size of the entry.
+ *
+ * Inflaters, and the buffers they read compressed data through, are pooled, so reading the entries of a large jar file
+ * allocates little beyond the entries themselves. ZIP64 archives and archives larger than 2GB cannot be mapped, and
+ * encrypted entries cannot be read; use a {@link java.util.jar.JarFile} for those.
+ *
+ * The contents of a mapped jar file may be read on several threads.
+ */
+public class MappedJarFile {
+
+  private static final int LOCAL_HEADER = 0x04034b50;
+
+  private static final int LOCAL_HEADER_SIZE = 30;
+
+  private static final int CENTRAL_HEADER = 0x02014b50;
+
+  private static final int CENTRAL_HEADER_SIZE = 46;
+
+  private static final int END_HEADER = 0x06054b50;
+
+  private static final int END_HEADER_SIZE = 22;
+
+  private static final int STORED = 0;
+
+  private static final int DEFLATED = 8;
+
+  /**
+   * the size of the buffers compressed data is copied into, since an {@link Inflater} only reads from arrays
+   */
+  private static final int INPUT_BUFFER_SIZE = 8192;
+
+  private static final int MAX_POOLED_INFLATERS = 16;
+
+  /**
+   * An entry in the central directory
+   */
+  public static final class Entry {
+    private final String name;
+
+    private final int method;
+
+    private final int flags;
+
+    private final int compressedSize;
+
+    private final int size;
+
+    private final int localHeaderOffset;
+
+    private Entry(String name, int method, int flags, int compressedSize, int size, int localHeaderOffset) {
+      this.name = name;
+      this.method = method;
+      this.flags = flags;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the size of the contents of the entry
+     */
+    public int getSize() {
+      return size;
+    }
+
+    /**
+     * @return the size of the entry in the jar file
+     */
+    public int getCompressedSize() {
+      return compressedSize;
+    }
+
+    /**
+     * @return true iff the contents of the entry are stored without compression, and so can be read without copying
+     */
+    public boolean isStored() {
+      return method == STORED;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  /**
+   * An inflater and the buffer compressed data is passed to it through
+   */
+  private static final class Decompressor {
+    private final Inflater inflater = new Inflater(true);
+
+    private final byte[] input = new byte[INPUT_BUFFER_SIZE];
+  }
+
+  private final File file;
+
+  private final ByteBuffer data;
+
+  private final Map<String, Entry> entries;
+
+  private final ArrayDeque<Decompressor> decompressors = new ArrayDeque<Decompressor>();
+
+  /**
+   * Map a jar file and read its central directory.
+   *
+   * @throws IOException if the file cannot be read or mapped, or is not a jar file this class can read
+   */
+  public MappedJarFile(File file) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    this.file = file;
+    try (RandomAccessFile f = new RandomAccessFile(file, "r"); FileChannel channel = f.getChannel()) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("too large to map: " + file);
+      }
+      MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      this.data = b.order(ByteOrder.LITTLE_ENDIAN);
+    }
+    this.entries = readCentralDirectory();
+  }
+
+  private Map<String, Entry> readCentralDirectory() throws IOException {
+    int end = findEndHeader();
+    int count = data.getShort(end + 10) & 0xffff;
+    long directorySize = data.getInt(end + 12) & 0xffffffffL;
+    long directoryOffset = data.getInt(end + 16) & 0xffffffffL;
+    if (count == 0xffff || directoryOffset == 0xffffffffL) {
+      throw new ZipException("ZIP64 archives are not supported: " + file);
+    }
+    if (directoryOffset + directorySize > end) {
+      throw new ZipException("invalid central directory in " + file);
+    }
+    Map<String, Entry> result = HashMapFactory.make(count);
+    byte[] name = new byte[256];
+    int offset = (int) directoryOffset;
+    for (int i = 0; i < count; i++) {
+      if (offset + CENTRAL_HEADER_SIZE > end || data.getInt(offset) != CENTRAL_HEADER) {
+        throw new ZipException("invalid central directory entry at " + offset + " in " + file);
+      }
+      int flags = data.getShort(offset + 8) & 0xffff;
+      int method = data.getShort(offset + 10) & 0xffff;
+      long compressedSize = data.getInt(offset + 20) & 0xffffffffL;
+      long size = data.getInt(offset + 24) & 0xffffffffL;
+      int nameLength = data.getShort(offset + 28) & 0xffff;
+      int extraLength = data.getShort(offset + 30) & 0xffff;
+      int commentLength = data.getShort(offset + 32) & 0xffff;
+      long localHeaderOffset = data.getInt(offset + 42) & 0xffffffffL;
+      if (compressedSize > Integer.MAX_VALUE || size > Integer.MAX_VALUE || localHeaderOffset >= directoryOffset) {
+        throw new ZipException("ZIP64 archives are not supported: " + file);
+      }
+      if (nameLength > name.length) {
+        name = new byte[nameLength];
+      }
+      ByteBuffer b = data.duplicate();
+      b.position(offset + CENTRAL_HEADER_SIZE);
+      b.get(name, 0, nameLength);
+      String s = new String(name, 0, nameLength, StandardCharsets.UTF_8);
+      // keep the first of several entries with the same name
+      if (!result.containsKey(s)) {
+        result.put(s, new Entry(s, method, flags, (int) compressedSize, (int) size, (int) localHeaderOffset));
+      }
+      offset += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+    return result;
+  }
+
+  /**
+   * @return the offset of the end of central directory record, which is followed only by the archive comment
+   */
+  private int findEndHeader() throws ZipException {
+    int last = data.limit() - END_HEADER_SIZE;
+    int first = Math.max(0, last - 0xffff);
+    for (int offset = last; offset >= first; offset--) {
+      if (data.getInt(offset) == END_HEADER && offset + END_HEADER_SIZE + (data.getShort(offset + 20) & 0xffff) == data.limit()) {
+        return offset;
+      }
+    }
+    throw new ZipException("not a jar file: " + file);
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return the entries of the jar file
+   */
+  public Collection<Entry> getEntries() {
+    return Collections.unmodifiableCollection(entries.values());
+  }
+
+  /**
+   * @return the entry with the given name, or null if there is none
+   */
+  public Entry getEntry(String name) {
+    return entries.get(name);
+  }
+
+  /**
+   * Read the pages of the file into memory, sequentially; reading the entries afterwards is then faster for a large jar
+   * file, since they are not read in jar file order. This does not use the Java heap.
+   */
+  public void load() {
+    if (data instanceof MappedByteBuffer) {
+      ((MappedByteBuffer) data).load();
+    }
+  }
+
+  /**
+   * @return the contents of the entry with the given name, or null if there is none
+   * @see #getContents(Entry)
+   */
+  public ByteBuffer getContents(String name) throws IOException {
+    Entry e = getEntry(name);
+    return e == null ? null : getContents(e);
+  }
+
+  /**
+   * Get the contents of an entry, from the position to the limit of the result. The result is read-only if it is a
+   * slice of the mapped file, and is a new array otherwise.
+   */
+  public ByteBuffer getContents(Entry e) throws IOException {
+    if (e == null) {
+      throw new IllegalArgumentException("null e");
+    }
+    if ((e.flags & 1) != 0) {
+      throw new ZipException("encrypted entry " + e + " in " + file);
+    }
+    int offset = e.localHeaderOffset;
+    if (offset + LOCAL_HEADER_SIZE > data.limit() || data.getInt(offset) != LOCAL_HEADER) {
+      throw new ZipException("invalid local header for " + e + " in " + file);
+    }
+    // the extra field of the local header need not be the same as in the central directory
+    int start = offset + LOCAL_HEADER_SIZE + (data.getShort(offset + 26) & 0xffff) + (data.getShort(offset + 28) & 0xffff);
+    if ((long) start + e.compressedSize > data.limit()) {
+      throw new ZipException("truncated entry " + e + " in " + file);
+    }
+    ByteBuffer compressed = data.duplicate();
+    compressed.position(start);
+    compressed.limit(start + e.compressedSize);
+    switch (e.method) {
+    case STORED:
+      if (e.compressedSize != e.size) {
+        throw new ZipException("invalid size of stored entry " + e + " in " + file);
+      }
+      return compressed.slice().asReadOnlyBuffer();
+    case DEFLATED:
+      return ByteBuffer.wrap(inflate(e, compressed));
+    default:
+      throw new ZipException("unsupported compression method " + e.method + " for " + e + " in " + file);
+    }
+  }
+
+  private byte[] inflate(Entry e, ByteBuffer compressed) throws ZipException {
+    byte[] result = new byte[e.size];
+    Decompressor d = getDecompressor();
+    try {
+      Inflater inflater = d.inflater;
+      int n = 0;
+      while (n < result.length && !inflater.finished()) {
+        if (inflater.needsInput()) {
+          if (!compressed.hasRemaining()) {
+            break;
+          }
+          int len = Math.min(d.input.length, compressed.remaining());
+          compressed.get(d.input, 0, len);
+          inflater.setInput(d.input, 0, len);
+        } else if (inflater.needsDictionary()) {
+          break;
+        }
+        n += inflater.inflate(result, n, result.length - n);
+      }
+      if (n != result.length) {
+        throw new ZipException("invalid size of entry " + e + " in " + file);
+      }
+      return result;
+    } catch (DataFormatException x) {
+      throw new ZipException("invalid compressed data for " + e + " in " + file + ": " + x.getMessage());
+    } finally {
+      release(d);
+    }
+  }
+
+  private Decompressor getDecompressor() {
+    synchronized (decompressors) {
+      Decompressor d = decompressors.poll();
+      if (d != null) {
+        return d;
+      }
+    }
+    return new Decompressor();
+  }
+
+  private void release(Decompressor d) {
+    d.inflater.reset();
+    synchronized (decompressors) {
+      if (decompressors.size() < MAX_POOLED_INFLATERS) {
+        decompressors.push(d);
+        return;
+      }
+    }
+    d.inflater.end();
+  }
+
+  @Override
+  public String toString() {
+    return "MappedJarFile:" + file;
+  }
+}
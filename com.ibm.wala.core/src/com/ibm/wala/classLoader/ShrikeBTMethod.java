@@ -363,10 +363,24 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
 
   protected abstract String getMethodSignature() throws InvalidClassFileException;
 
+  /**
+   * @return the name of the method, as an atom made from {@link #getMethodName()} unless a subclass can do better
+   */
+  protected Atom getMethodNameAtom() throws InvalidClassFileException {
+    return Atom.findOrCreateUnicodeAtom(getMethodName());
+  }
+
+  /**
+   * @return the UTF-8 bytes of {@link #getMethodSignature()}
+   */
+  protected ImmutableByteArray getMethodSignatureBytes() throws InvalidClassFileException {
+    return ImmutableByteArray.make(getMethodSignature());
+  }
+
   private MethodReference computeMethodReference() {
     try {
-      Atom name = Atom.findOrCreateUnicodeAtom(getMethodName());
-      ImmutableByteArray desc = ImmutableByteArray.make(getMethodSignature());
+      Atom name = getMethodNameAtom();
+      ImmutableByteArray desc = getMethodSignatureBytes();
       Descriptor D = Descriptor.findOrCreate(declaringClass.getClassLoader().getLanguage(), desc);
       return MethodReference.findOrCreate(declaringClass.getReference(), name, D);
     } catch (InvalidClassFileException e) {
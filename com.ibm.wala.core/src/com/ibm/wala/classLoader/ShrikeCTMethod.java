@@ -39,6 +39,8 @@ import com.ibm.wala.types.annotations.TypeAnnotation;
 import com.ibm.wala.types.generics.MethodTypeSignature;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.strings.Atom;
+import com.ibm.wala.util.strings.ImmutableByteArray;
 
 /**
  * A wrapper around a Shrike object that represents a method
@@ -89,6 +91,30 @@ public final class ShrikeCTMethod extends ShrikeBTMethod implements IBytecodeMet
     return reader.getMethodType(shrikeMethodIndex);
   }
 
+  /**
+   * Make the name straight from the bytes of the class file, without decoding it into a String first
+   */
+  @Override
+  protected Atom getMethodNameAtom() throws InvalidClassFileException {
+    ClassReader reader = getClassReader();
+    return Atom.findOrCreateUtf8Atom(getUtf8Bytes(reader, reader.getMethodNameIndex(shrikeMethodIndex)));
+  }
+
+  @Override
+  protected ImmutableByteArray getMethodSignatureBytes() throws InvalidClassFileException {
+    ClassReader reader = getClassReader();
+    return new ImmutableByteArray(getUtf8Bytes(reader, reader.getMethodTypeIndex(shrikeMethodIndex)));
+  }
+
+  private byte[] getUtf8Bytes(ClassReader reader, int cpIndex) throws InvalidClassFileException {
+    try {
+      return reader.getCP().getCPUtf8Bytes(cpIndex);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidClassFileException(reader.getMethodRawOffset(shrikeMethodIndex), "Invalid Utf8 constant pool index: "
+          + cpIndex);
+    }
+  }
+
   @Override
   protected int getModifiers() {
     if (modifiers == -1) {
@@ -103,7 +129,7 @@ public final class ShrikeCTMethod extends ShrikeBTMethod implements IBytecodeMet
     if (reader == null) {
       return null;
     }
-    final Decoder d = new CTDecoder(reader);
+    final Decoder d = new CTDecoder(reader, ((ShrikeClass) getDeclaringClass()).getConstantPoolReader());
     try {
       d.decode();
     } catch (Decoder.InvalidBytecodeException ex) {
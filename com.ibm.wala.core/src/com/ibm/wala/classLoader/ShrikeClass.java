@@ -10,13 +10,16 @@
  *******************************************************************************/
 package com.ibm.wala.classLoader;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrikeBT.ConstantPoolReader;
 import com.ibm.wala.shrikeBT.Constants;
+import com.ibm.wala.shrikeBT.shrikeCT.CTDecoder;
 import com.ibm.wala.shrikeCT.AnnotationsReader;
 import com.ibm.wala.shrikeCT.AnnotationsReader.AnnotationType;
 import com.ibm.wala.shrikeCT.ClassConstants;
@@ -65,11 +68,78 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     computeTypeReference();
     this.hashCode = 2161 * getReference().hashCode();
     // as long as the reader is around, pull more data out
-    // of it before the soft reference to it disappears
+    // of it before the soft reference to it disappears. The fields, and their
+    // attributes, are not needed to build a class hierarchy, so they are read
+    // when first asked for.
     computeSuperName();
     computeModifiers();
     computeInterfaceNames();
-    computeFields();
+    this.fieldsComputed = false;
+  }
+
+  /**
+   * Create a class whose name, modifiers, superclass and interfaces were recorded in a {@link JarFileSnapshot}. The class
+   * file itself is not read until some other information is asked for; in particular the fields are computed lazily.
+   * 
+   * @throws IllegalArgumentException if reader or header is null
+   */
+  ShrikeClass(ShrikeClassReaderHandle reader, IClassLoader loader, IClassHierarchy cha, JarFileSnapshot.ClassHeader header) {
+    super(loader, cha);
+    if (reader == null) {
+      throw new IllegalArgumentException("reader is null");
+    }
+    if (header == null) {
+      throw new IllegalArgumentException("header is null");
+    }
+    this.reader = reader;
+    this.typeReference = TypeReference.findOrCreate(loader.getReference(), TypeName.findOrCreate(ImmutableByteArray.make("L"
+        + header.getName())));
+    this.hashCode = 2161 * getReference().hashCode();
+    this.modifiers = header.getModifiers();
+    if (header.getSuperName() != null) {
+      this.superName = ImmutableByteArray.make("L" + header.getSuperName());
+    }
+    String[] s = header.getInterfaceNames();
+    this.interfaceNames = new ImmutableByteArray[s.length];
+    for (int i = 0; i < interfaceNames.length; i++) {
+      interfaceNames[i] = ImmutableByteArray.make("L" + s[i]);
+    }
+    this.fieldsComputed = false;
+  }
+
+  /**
+   * false iff the fields of this class have not been read yet
+   */
+  private boolean fieldsComputed = true;
+
+  private synchronized void computeFieldsIfNeeded() {
+    if (!fieldsComputed) {
+      try {
+        computeFields();
+      } catch (InvalidClassFileException e) {
+        e.printStackTrace();
+        Assertions.UNREACHABLE();
+      }
+      fieldsComputed = true;
+    }
+  }
+
+  @Override
+  public Collection<IField> getDeclaredInstanceFields() {
+    computeFieldsIfNeeded();
+    return super.getDeclaredInstanceFields();
+  }
+
+  @Override
+  public Collection<IField> getDeclaredStaticFields() {
+    computeFieldsIfNeeded();
+    return super.getDeclaredStaticFields();
+  }
+
+  @Override
+  protected List<IField> findDeclaredField(Atom name) {
+    computeFieldsIfNeeded();
+    return super.findDeclaredField(name);
   }
 
   /**
@@ -84,26 +154,51 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     List<FieldImpl> instanceList = new ArrayList<FieldImpl>(fieldCount);
     List<FieldImpl> staticList = new ArrayList<FieldImpl>(fieldCount);
     try {
+      ClassReader.AttrIterator attrs = new ClassReader.AttrIterator();
       for (int i = 0; i < fieldCount; i++) {
         int accessFlags = cr.getFieldAccessFlags(i);
-        Atom name = Atom.findOrCreateUnicodeAtom(cr.getFieldName(i));
-        ImmutableByteArray b = ImmutableByteArray.make(cr.getFieldType(i));
-        Collection<Annotation> annotations = HashSetFactory.make();
-        annotations.addAll(getRuntimeInvisibleAnnotations(i));
-        annotations.addAll(getRuntimeVisibleAnnotations(i));
-        annotations = annotations.isEmpty() ? null : annotations;
-        
-        Collection<TypeAnnotation> typeAnnotations = HashSetFactory.make();
-        typeAnnotations.addAll(getRuntimeInvisibleTypeAnnotations(i));
-        typeAnnotations.addAll(getRuntimeVisibleTypeAnnotations(i));
-        typeAnnotations = typeAnnotations.isEmpty() ? null : typeAnnotations;
-        
+        Atom name = Atom.findOrCreateUtf8Atom(getUtf8Bytes(cr, cr.getFieldNameIndex(i)));
+        ImmutableByteArray b = new ImmutableByteArray(getUtf8Bytes(cr, cr.getFieldTypeIndex(i)));
+
+        // look at the names of the attributes once, and only read those that are there
+        boolean hasAnnotations = false;
+        boolean hasTypeAnnotations = false;
+        boolean hasSignature = false;
+        for (cr.initFieldAttributeIterator(i, attrs); attrs.isValid(); attrs.advance()) {
+          String attrName = attrs.getName();
+          if (attrName.equals("RuntimeVisibleAnnotations") || attrName.equals("RuntimeInvisibleAnnotations")) {
+            hasAnnotations = true;
+          } else if (attrName.equals("RuntimeVisibleTypeAnnotations") || attrName.equals("RuntimeInvisibleTypeAnnotations")) {
+            hasTypeAnnotations = true;
+          } else if (attrName.equals("Signature")) {
+            hasSignature = true;
+          }
+        }
+
+        Collection<Annotation> annotations = null;
+        if (hasAnnotations) {
+          annotations = HashSetFactory.make();
+          annotations.addAll(getRuntimeInvisibleAnnotations(i));
+          annotations.addAll(getRuntimeVisibleAnnotations(i));
+          annotations = annotations.isEmpty() ? null : annotations;
+        }
+
+        Collection<TypeAnnotation> typeAnnotations = null;
+        if (hasTypeAnnotations) {
+          typeAnnotations = HashSetFactory.make();
+          typeAnnotations.addAll(getRuntimeInvisibleTypeAnnotations(i));
+          typeAnnotations.addAll(getRuntimeVisibleTypeAnnotations(i));
+          typeAnnotations = typeAnnotations.isEmpty() ? null : typeAnnotations;
+        }
+
         TypeSignature sig = null;
-        SignatureReader signatureReader = getSignatureReader(i);
-        if (signatureReader != null) {
-          String signature = signatureReader.getSignature();
-          if (signature != null) {
-            sig = TypeSignature.make(signature);
+        if (hasSignature) {
+          SignatureReader signatureReader = getSignatureReader(i);
+          if (signatureReader != null) {
+            String signature = signatureReader.getSignature();
+            if (signature != null) {
+              sig = TypeSignature.make(signature);
+            }
           }
         }
         
@@ -124,6 +219,24 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     }
   }
 
+  /**
+   * @return the bytes of a Utf8 constant, as they are in the class file, without decoding them into a String
+   */
+  private static byte[] getUtf8Bytes(ClassReader cr, int cpIndex) throws InvalidClassFileException {
+    try {
+      return cr.getCP().getCPUtf8Bytes(cpIndex);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidClassFileException(0, "Invalid Utf8 constant pool index: " + cpIndex);
+    }
+  }
+
+  /**
+   * @return the name of a class constant with an 'L' in front of it, without decoding it into a String
+   */
+  private static ImmutableByteArray getClassName(ClassReader cr, int cpIndex) throws InvalidClassFileException {
+    return ImmutableByteArray.concat((byte) 'L', new ImmutableByteArray(cr.getCP().getCPClassBytes(cpIndex)));
+  }
+
   /**
    * @throws InvalidClassFileException
    */
@@ -139,9 +252,10 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
    */
   private void computeSuperName() {
     try {
-      String s = reader.get().getSuperName();
-      if (s != null) {
-        superName = ImmutableByteArray.make("L" + s);
+      ClassReader cr = reader.get();
+      int s = cr.getSuperNameIndex();
+      if (s != 0) {
+        superName = getClassName(cr, s);
       }
     } catch (InvalidClassFileException e) {
       Assertions.UNREACHABLE();
@@ -156,10 +270,10 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
    */
   private void computeInterfaceNames() {
     try {
-      String[] s = reader.get().getInterfaceNames();
-      interfaceNames = new ImmutableByteArray[s.length];
+      ClassReader cr = reader.get();
+      interfaceNames = new ImmutableByteArray[cr.getInterfaceCount()];
       for (int i = 0; i < interfaceNames.length; i++) {
-        interfaceNames[i] = ImmutableByteArray.make("L" + s[i]);
+        interfaceNames[i] = getClassName(cr, cr.getInterfaceNameIndex(i));
       }
     } catch (InvalidClassFileException e) {
       Assertions.UNREACHABLE();
@@ -192,8 +306,8 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
    *           iff Shrike can't read this class
    */
   private void computeTypeReference() throws InvalidClassFileException {
-    String className = "L" + reader.get().getName();
-    ImmutableByteArray name = ImmutableByteArray.make(className);
+    ClassReader cr = reader.get();
+    ImmutableByteArray name = getClassName(cr, cr.getNameIndex());
 
     typeReference = TypeReference.findOrCreate(getClassLoader().getReference(), TypeName.findOrCreate(name));
   }
@@ -222,6 +336,24 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     }
   }
 
+  /**
+   * the constant pool reader the methods of this class are decoded with. It is shared so that the decoded methods share
+   * the instructions that refer to the constant pool, and is only weakly held since it refers to the class file.
+   */
+  private WeakReference<ConstantPoolReader> constantPoolReader;
+
+  /**
+   * @return a reader for the constant pool of this class, shared by the decoders of its methods
+   */
+  synchronized ConstantPoolReader getConstantPoolReader() {
+    ConstantPoolReader result = constantPoolReader == null ? null : constantPoolReader.get();
+    if (result == null) {
+      result = CTDecoder.makeConstantPoolReader(getReader());
+      constantPoolReader = new WeakReference<>(result);
+    }
+    return result;
+  }
+
   /**
    * Clear all optional cached data associated with this class
    */
@@ -240,6 +372,7 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     // clear the cached interfaces
     allInterfaces = null;
     // toss away the Shrike reader
+    constantPoolReader = null;
     reader.clear();
   }
 
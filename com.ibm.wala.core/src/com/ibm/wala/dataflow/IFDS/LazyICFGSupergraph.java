@@ -0,0 +1,583 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dataflow.IFDS;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.cfg.BasicBlockInContext;
+import com.ibm.wala.ipa.cfg.ExplodedInterproceduralCFG;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.analysis.ExplodedControlFlowGraph;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.util.collections.ComposedIterator;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.MapIterator;
+import com.ibm.wala.util.functions.Function;
+import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.impl.NumberedNodeIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * Forward supergraph over the exploded control-flow graphs of the nodes of a call graph, built on demand.
+ *
+ * Unlike an {@link ICFGSupergraph}, which materializes an {@link ExplodedInterproceduralCFG}, this supergraph stores no
+ * nodes and no edges: the successors and predecessors of a block are computed from the control-flow graph of its
+ * procedure, and from those of its callers or callees, each time they are asked for. The control-flow graphs themselves
+ * are kept in a cache holding at most a given number of procedures, least recently used first out, so that the memory
+ * used by a {@link TabulationSolver} over a large call graph is bounded by the procedures it is working on rather than
+ * by the whole program.
+ *
+ * A control-flow graph evicted from the cache is rebuilt from the IR of its procedure when it is needed again. Its
+ * blocks are equal to those of the evicted graph, so the results of the solver, which are keyed by block, are not
+ * affected.
+ *
+ * The edges are those of {@link ExplodedInterproceduralCFG}: the intraprocedural edges, an edge from each call block to
+ * the entry block of each callee that has a control-flow graph, and an edge from the exit block of each such callee to
+ * each successor of the call block.
+ *
+ * Nodes are numbered one procedure at a time, in the order in which the procedures are first reached. Enumerating all
+ * nodes, with {@link #iterator()}, {@link #getNumberOfNodes()} or {@link #getMaxNumber()}, builds the control-flow graph
+ * of every procedure in the call graph.
+ */
+public class LazyICFGSupergraph implements ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> {
+
+  /**
+   * default maximum number of control-flow graphs kept in the cache
+   */
+  public static final int DEFAULT_MAX_CACHED_CFGS = 1000;
+
+  private final CallGraph cg;
+
+  private final LoadingCache<CGNode, Optional<ExplodedControlFlowGraph>> cfgs;
+
+  /**
+   * call graph node number -&gt; supergraph number of its first block, or -1 if its blocks are not numbered yet
+   */
+  private int[] firstNumber = new int[0];
+
+  /**
+   * procedures whose blocks are numbered, in the order of their first numbers
+   */
+  private CGNode[] numberedProcs = new CGNode[16];
+
+  /**
+   * first numbers of the blocks of numberedProcs, in increasing order
+   */
+  private int[] numberedFirst = new int[16];
+
+  private int numberedCount = 0;
+
+  private int nextNumber = 0;
+
+  protected LazyICFGSupergraph(CallGraph cg, int maxCachedCFGs) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    if (maxCachedCFGs < 1) {
+      throw new IllegalArgumentException("maxCachedCFGs must be positive: " + maxCachedCFGs);
+    }
+    this.cg = cg;
+    this.cfgs = CacheBuilder.newBuilder().maximumSize(maxCachedCFGs)
+        .build(new CacheLoader<CGNode, Optional<ExplodedControlFlowGraph>>() {
+          @Override
+          public Optional<ExplodedControlFlowGraph> load(CGNode n) {
+            IR ir = n.getIR();
+            return ir == null ? Optional.<ExplodedControlFlowGraph> absent() : Optional.of(ExplodedControlFlowGraph.make(ir));
+          }
+        });
+  }
+
+  public static LazyICFGSupergraph make(CallGraph cg) {
+    return make(cg, DEFAULT_MAX_CACHED_CFGS);
+  }
+
+  /**
+   * @param maxCachedCFGs maximum number of control-flow graphs kept in memory at a time
+   */
+  public static LazyICFGSupergraph make(CallGraph cg, int maxCachedCFGs) {
+    return new LazyICFGSupergraph(cg, maxCachedCFGs);
+  }
+
+  public CallGraph getCallGraph() {
+    return cg;
+  }
+
+  /**
+   * @return the control-flow graph of n, or null if n has no IR
+   */
+  public ExplodedControlFlowGraph getCFG(CGNode n) {
+    if (n == null) {
+      throw new IllegalArgumentException("n is null");
+    }
+    return cfgs.getUnchecked(n).orNull();
+  }
+
+  public ExplodedControlFlowGraph getCFG(BasicBlockInContext<IExplodedBasicBlock> n) {
+    if (n == null) {
+      throw new IllegalArgumentException("n is null");
+    }
+    return getCFG(n.getNode());
+  }
+
+  private ExplodedControlFlowGraph cfgOf(BasicBlockInContext<IExplodedBasicBlock> n) {
+    ExplodedControlFlowGraph cfg = getCFG(n);
+    if (cfg == null) {
+      throw new IllegalArgumentException("no control-flow graph for " + n.getNode());
+    }
+    return cfg;
+  }
+
+  private static BasicBlockInContext<IExplodedBasicBlock> inContext(CGNode n, IExplodedBasicBlock b) {
+    return new BasicBlockInContext<IExplodedBasicBlock>(n, b);
+  }
+
+  private static CallSiteReference getCallSite(IExplodedBasicBlock callBlock) {
+    return ((SSAAbstractInvokeInstruction) callBlock.getInstruction()).getCallSite();
+  }
+
+  /**
+   * add to result the blocks in caller that call callee
+   */
+  private void addCallBlocks(CGNode caller, CGNode callee, Set<BasicBlockInContext<IExplodedBasicBlock>> result) {
+    ExplodedControlFlowGraph ccfg = getCFG(caller);
+    if (ccfg == null) {
+      return;
+    }
+    Set<CallSiteReference> sites = Iterator2Collection.toSet(cg.getPossibleSites(caller, callee));
+    SSAInstruction[] instructions = ccfg.getInstructions();
+    for (int i = 0; i < instructions.length; i++) {
+      if (instructions[i] instanceof SSAAbstractInvokeInstruction
+          && sites.contains(((SSAAbstractInvokeInstruction) instructions[i]).getCallSite())) {
+        result.add(inContext(caller, ccfg.getBlockForInstruction(i)));
+      }
+    }
+  }
+
+  private Set<BasicBlockInContext<IExplodedBasicBlock>> succs(BasicBlockInContext<IExplodedBasicBlock> n) {
+    CGNode proc = n.getNode();
+    IExplodedBasicBlock b = n.getDelegate();
+    ExplodedControlFlowGraph cfg = cfgOf(n);
+    Set<BasicBlockInContext<IExplodedBasicBlock>> result = HashSetFactory.make();
+    for (Iterator<IExplodedBasicBlock> it = cfg.getSuccNodes(b); it.hasNext();) {
+      result.add(inContext(proc, it.next()));
+    }
+    if (isCall(n)) {
+      for (CGNode callee : cg.getPossibleTargets(proc, getCallSite(b))) {
+        ExplodedControlFlowGraph tcfg = getCFG(callee);
+        if (tcfg != null) {
+          result.add(inContext(callee, tcfg.entry()));
+        }
+      }
+    }
+    if (b.isExitBlock()) {
+      Set<BasicBlockInContext<IExplodedBasicBlock>> calls = HashSetFactory.make();
+      for (Iterator<CGNode> callers = cg.getPredNodes(proc); callers.hasNext();) {
+        addCallBlocks(callers.next(), proc, calls);
+      }
+      for (BasicBlockInContext<IExplodedBasicBlock> call : calls) {
+        ExplodedControlFlowGraph ccfg = getCFG(call.getNode());
+        for (Iterator<IExplodedBasicBlock> it = ccfg.getSuccNodes(call.getDelegate()); it.hasNext();) {
+          result.add(inContext(call.getNode(), it.next()));
+        }
+      }
+    }
+    return result;
+  }
+
+  private Set<BasicBlockInContext<IExplodedBasicBlock>> preds(BasicBlockInContext<IExplodedBasicBlock> n) {
+    CGNode proc = n.getNode();
+    IExplodedBasicBlock b = n.getDelegate();
+    ExplodedControlFlowGraph cfg = cfgOf(n);
+    Set<BasicBlockInContext<IExplodedBasicBlock>> result = HashSetFactory.make();
+    for (Iterator<IExplodedBasicBlock> it = cfg.getPredNodes(b); it.hasNext();) {
+      IExplodedBasicBlock p = it.next();
+      result.add(inContext(proc, p));
+      if (p.getInstruction() instanceof SSAAbstractInvokeInstruction) {
+        // n is a return site; the exits of the callees flow to it
+        for (CGNode callee : cg.getPossibleTargets(proc, getCallSite(p))) {
+          ExplodedControlFlowGraph tcfg = getCFG(callee);
+          if (tcfg != null) {
+            result.add(inContext(callee, tcfg.exit()));
+          }
+        }
+      }
+    }
+    if (b.isEntryBlock()) {
+      for (Iterator<CGNode> callers = cg.getPredNodes(proc); callers.hasNext();) {
+        addCallBlocks(callers.next(), proc, result);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Graph<? extends CGNode> getProcedureGraph() {
+    return cg;
+  }
+
+  @Override
+  public byte classifyEdge(BasicBlockInContext<IExplodedBasicBlock> src, BasicBlockInContext<IExplodedBasicBlock> dest) {
+    if (isCall(src)) {
+      if (isEntry(dest)) {
+        return CALL_EDGE;
+      } else {
+        return CALL_TO_RETURN_EDGE;
+      }
+    } else if (isExit(src)) {
+      return RETURN_EDGE;
+    } else {
+      return OTHER;
+    }
+  }
+
+  @Override
+  public Iterator<BasicBlockInContext<IExplodedBasicBlock>> getCallSites(BasicBlockInContext<IExplodedBasicBlock> r, CGNode callee) {
+    return getCallSitesAsSet(r, callee).iterator();
+  }
+
+  @Override
+  public Set<BasicBlockInContext<IExplodedBasicBlock>> getCallSitesAsSet(BasicBlockInContext<IExplodedBasicBlock> r,
+      CGNode callee) {
+    if (r == null) {
+      throw new IllegalArgumentException("r is null");
+    }
+    CGNode proc = r.getNode();
+    Set<BasicBlockInContext<IExplodedBasicBlock>> result = HashSetFactory.make();
+    for (Iterator<IExplodedBasicBlock> it = cfgOf(r).getPredNodes(r.getDelegate()); it.hasNext();) {
+      IExplodedBasicBlock p = it.next();
+      if (p.getInstruction() instanceof SSAAbstractInvokeInstruction) {
+        Set<CGNode> targets = cg.getPossibleTargets(proc, getCallSite(p));
+        if (callee == null ? targets.isEmpty() : targets.contains(callee)) {
+          result.add(inContext(proc, p));
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Iterator<? extends BasicBlockInContext<IExplodedBasicBlock>> getCalledNodes(BasicBlockInContext<IExplodedBasicBlock> call) {
+    if (!isCall(call)) {
+      return EmptyIterator.instance();
+    }
+    Set<BasicBlockInContext<IExplodedBasicBlock>> result = HashSetFactory.make();
+    for (CGNode callee : cg.getPossibleTargets(call.getNode(), getCallSite(call.getDelegate()))) {
+      ExplodedControlFlowGraph tcfg = getCFG(callee);
+      if (tcfg != null) {
+        result.add(inContext(callee, tcfg.entry()));
+      }
+    }
+    return result.iterator();
+  }
+
+  @Override
+  public Iterator<BasicBlockInContext<IExplodedBasicBlock>> getNormalSuccessors(BasicBlockInContext<IExplodedBasicBlock> call) {
+    return EmptyIterator.instance();
+  }
+
+  @Override
+  public Iterator<? extends BasicBlockInContext<IExplodedBasicBlock>> getReturnSites(BasicBlockInContext<IExplodedBasicBlock> call,
+      CGNode callee) {
+    return getReturnSitesAsSet(call, callee).iterator();
+  }
+
+  @Override
+  public Set<BasicBlockInContext<IExplodedBasicBlock>> getReturnSitesAsSet(BasicBlockInContext<IExplodedBasicBlock> call,
+      CGNode callee) {
+    if (call == null) {
+      throw new IllegalArgumentException("call is null");
+    }
+    Set<BasicBlockInContext<IExplodedBasicBlock>> result = HashSetFactory.make();
+    for (Iterator<IExplodedBasicBlock> it = cfgOf(call).getSuccNodes(call.getDelegate()); it.hasNext();) {
+      result.add(inContext(call.getNode(), it.next()));
+    }
+    return result;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public BasicBlockInContext<IExplodedBasicBlock>[] getEntriesForProcedure(CGNode procedure) {
+    ExplodedControlFlowGraph cfg = getCFG(procedure);
+    return cfg == null ? new BasicBlockInContext[0] : new BasicBlockInContext[] { inContext(procedure, cfg.entry()) };
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public BasicBlockInContext<IExplodedBasicBlock>[] getExitsForProcedure(CGNode procedure) {
+    ExplodedControlFlowGraph cfg = getCFG(procedure);
+    return cfg == null ? new BasicBlockInContext[0] : new BasicBlockInContext[] { inContext(procedure, cfg.exit()) };
+  }
+
+  @Override
+  public int getNumberOfBlocks(CGNode procedure) {
+    ExplodedControlFlowGraph cfg = getCFG(procedure);
+    return cfg == null ? 0 : cfg.getNumberOfNodes();
+  }
+
+  @Override
+  public int getLocalBlockNumber(BasicBlockInContext<IExplodedBasicBlock> n) {
+    return n.getDelegate().getNumber();
+  }
+
+  @Override
+  public BasicBlockInContext<IExplodedBasicBlock> getLocalBlock(CGNode procedure, int i) {
+    return inContext(procedure, getCFG(procedure).getNode(i));
+  }
+
+  @Override
+  public CGNode getProcOf(BasicBlockInContext<IExplodedBasicBlock> n) {
+    return n.getNode();
+  }
+
+  @Override
+  public boolean isCall(BasicBlockInContext<IExplodedBasicBlock> n) {
+    return n.getDelegate().getInstruction() instanceof SSAAbstractInvokeInstruction;
+  }
+
+  @Override
+  public boolean isEntry(BasicBlockInContext<IExplodedBasicBlock> n) {
+    return n.getDelegate().isEntryBlock();
+  }
+
+  @Override
+  public boolean isExit(BasicBlockInContext<IExplodedBasicBlock> n) {
+    return n.getDelegate().isExitBlock();
+  }
+
+  @Override
+  public boolean isReturn(BasicBlockInContext<IExplodedBasicBlock> n) {
+    for (Iterator<IExplodedBasicBlock> it = cfgOf(n).getPredNodes(n.getDelegate()); it.hasNext();) {
+      if (it.next().getInstruction() instanceof SSAAbstractInvokeInstruction) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean containsNode(BasicBlockInContext<IExplodedBasicBlock> n) {
+    if (n == null || !cg.containsNode(n.getNode())) {
+      return false;
+    }
+    ExplodedControlFlowGraph cfg = getCFG(n.getNode());
+    return cfg != null && cfg.containsNode(n.getDelegate());
+  }
+
+  @Override
+  public Iterator<BasicBlockInContext<IExplodedBasicBlock>> getSuccNodes(BasicBlockInContext<IExplodedBasicBlock> n) {
+    return succs(n).iterator();
+  }
+
+  @Override
+  public int getSuccNodeCount(BasicBlockInContext<IExplodedBasicBlock> n) {
+    return succs(n).size();
+  }
+
+  @Override
+  public IntSet getSuccNodeNumbers(BasicBlockInContext<IExplodedBasicBlock> n) {
+    return numbers(succs(n));
+  }
+
+  @Override
+  public Iterator<BasicBlockInContext<IExplodedBasicBlock>> getPredNodes(BasicBlockInContext<IExplodedBasicBlock> n) {
+    return preds(n).iterator();
+  }
+
+  @Override
+  public int getPredNodeCount(BasicBlockInContext<IExplodedBasicBlock> n) {
+    return preds(n).size();
+  }
+
+  @Override
+  public IntSet getPredNodeNumbers(BasicBlockInContext<IExplodedBasicBlock> n) {
+    return numbers(preds(n));
+  }
+
+  @Override
+  public boolean hasEdge(BasicBlockInContext<IExplodedBasicBlock> src, BasicBlockInContext<IExplodedBasicBlock> dst) {
+    return succs(src).contains(dst);
+  }
+
+  private IntSet numbers(Set<BasicBlockInContext<IExplodedBasicBlock>> nodes) {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    for (BasicBlockInContext<IExplodedBasicBlock> n : nodes) {
+      result.add(getNumber(n));
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of the first block of n, numbering the blocks of n if they are not numbered yet
+   */
+  private synchronized int getFirstNumber(CGNode n) {
+    int cgNumber = cg.getNumber(n);
+    if (cgNumber >= firstNumber.length) {
+      int oldLength = firstNumber.length;
+      firstNumber = Arrays.copyOf(firstNumber, Math.max(cgNumber + 1, 2 * oldLength));
+      Arrays.fill(firstNumber, oldLength, firstNumber.length, -1);
+    }
+    if (firstNumber[cgNumber] == -1) {
+      if (numberedCount == numberedProcs.length) {
+        numberedProcs = Arrays.copyOf(numberedProcs, 2 * numberedCount);
+        numberedFirst = Arrays.copyOf(numberedFirst, 2 * numberedCount);
+      }
+      firstNumber[cgNumber] = nextNumber;
+      numberedProcs[numberedCount] = n;
+      numberedFirst[numberedCount] = nextNumber;
+      numberedCount++;
+      nextNumber += getNumberOfBlocks(n);
+    }
+    return firstNumber[cgNumber];
+  }
+
+  private void numberAllProcedures() {
+    for (CGNode n : cg) {
+      getFirstNumber(n);
+    }
+  }
+
+  @Override
+  public int getNumber(BasicBlockInContext<IExplodedBasicBlock> n) {
+    if (n == null) {
+      throw new IllegalArgumentException("n is null");
+    }
+    return getFirstNumber(n.getNode()) + cfgOf(n).getNumber(n.getDelegate());
+  }
+
+  @Override
+  public BasicBlockInContext<IExplodedBasicBlock> getNode(int number) {
+    CGNode proc;
+    int first;
+    synchronized (this) {
+      if (number < 0 || number >= nextNumber) {
+        return null;
+      }
+      // the last procedure whose first number is at most number; procedures with no blocks share the first number of
+      // the next one, so take the last of those
+      int i = Arrays.binarySearch(numberedFirst, 0, numberedCount, number);
+      if (i < 0) {
+        i = -i - 2;
+      }
+      while (i + 1 < numberedCount && numberedFirst[i + 1] == number) {
+        i++;
+      }
+      proc = numberedProcs[i];
+      first = numberedFirst[i];
+    }
+    return getLocalBlock(proc, number - first);
+  }
+
+  /**
+   * This builds the control-flow graph of every procedure.
+   */
+  @Override
+  public int getMaxNumber() {
+    numberAllProcedures();
+    synchronized (this) {
+      return nextNumber - 1;
+    }
+  }
+
+  /**
+   * This builds the control-flow graph of every procedure.
+   */
+  @Override
+  public int getNumberOfNodes() {
+    return getMaxNumber() + 1;
+  }
+
+  /**
+   * This builds the control-flow graph of every procedure, though not all at once.
+   */
+  @Override
+  public Iterator<BasicBlockInContext<IExplodedBasicBlock>> iterator() {
+    return new ComposedIterator<CGNode, BasicBlockInContext<IExplodedBasicBlock>>(cg.iterator()) {
+      @Override
+      public Iterator<? extends BasicBlockInContext<IExplodedBasicBlock>> makeInner(final CGNode outer) {
+        ExplodedControlFlowGraph cfg = getCFG(outer);
+        if (cfg == null) {
+          return EmptyIterator.instance();
+        }
+        return new MapIterator<IExplodedBasicBlock, BasicBlockInContext<IExplodedBasicBlock>>(cfg.iterator(),
+            new Function<IExplodedBasicBlock, BasicBlockInContext<IExplodedBasicBlock>>() {
+              @Override
+              public BasicBlockInContext<IExplodedBasicBlock> apply(IExplodedBasicBlock b) {
+                return inContext(outer, b);
+              }
+            });
+      }
+    };
+  }
+
+  @Override
+  public Iterator<BasicBlockInContext<IExplodedBasicBlock>> iterateNodes(IntSet s) {
+    return new NumberedNodeIterator<BasicBlockInContext<IExplodedBasicBlock>>(s, this);
+  }
+
+  @Override
+  public void addNode(BasicBlockInContext<IExplodedBasicBlock> n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeNode(BasicBlockInContext<IExplodedBasicBlock> n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeNodeAndEdges(BasicBlockInContext<IExplodedBasicBlock> n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void addEdge(BasicBlockInContext<IExplodedBasicBlock> src, BasicBlockInContext<IExplodedBasicBlock> dst) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeEdge(BasicBlockInContext<IExplodedBasicBlock> src, BasicBlockInContext<IExplodedBasicBlock> dst) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeAllIncidentEdges(BasicBlockInContext<IExplodedBasicBlock> node) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeIncomingEdges(BasicBlockInContext<IExplodedBasicBlock> node) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeOutgoingEdges(BasicBlockInContext<IExplodedBasicBlock> node) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String toString() {
+    return "lazy supergraph of " + cg.getNumberOfNodes() + " procedures, " + cfgs.size() + " control-flow graphs cached";
+  }
+}
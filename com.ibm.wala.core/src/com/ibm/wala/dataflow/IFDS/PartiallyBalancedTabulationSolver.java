@@ -11,10 +11,11 @@
 package com.ibm.wala.dataflow.IFDS;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
-import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntIterator;
@@ -34,12 +35,25 @@ public class PartiallyBalancedTabulationSolver<T, P, F> extends TabulationSolver
     return new PartiallyBalancedTabulationSolver<T, P, F>(p, monitor);
   }
 
-  private final Collection<Pair<T,Integer>> unbalancedSeeds = HashSetFactory.make();
+  /**
+   * @param nThreads the number of threads to tabulate on
+   * @see TabulationSolver#TabulationSolver(TabulationProblem, IProgressMonitor, int)
+   */
+  public static <T, P, F> PartiallyBalancedTabulationSolver<T, P, F> createPartiallyBalancedTabulationSolver(
+      PartiallyBalancedTabulationProblem<T, P, F> p, IProgressMonitor monitor, int nThreads) {
+    return new PartiallyBalancedTabulationSolver<T, P, F>(p, monitor, nThreads);
+  }
+
+  private final Collection<Pair<T,Integer>> unbalancedSeeds = Collections.newSetFromMap(new ConcurrentHashMap<Pair<T,Integer>, Boolean>());
 
   protected PartiallyBalancedTabulationSolver(PartiallyBalancedTabulationProblem<T, P, F> p, IProgressMonitor monitor) {
     super(p, monitor);
   }
 
+  protected PartiallyBalancedTabulationSolver(PartiallyBalancedTabulationProblem<T, P, F> p, IProgressMonitor monitor, int nThreads) {
+    super(p, monitor, nThreads);
+  }
+
   @Override
   protected boolean propagate(T s_p, int i, T n, int j) {
     boolean result = super.propagate(s_p, i, n, j);
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dataflow.ssa;
+
+import com.ibm.wala.dataflow.graph.AbstractMeetOperator;
+import com.ibm.wala.dataflow.graph.DataflowSolver;
+import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
+import com.ibm.wala.fixpoint.AbstractOperator;
+import com.ibm.wala.fixpoint.IVariable;
+import com.ibm.wala.fixpoint.UnaryOperator;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAPhiInstruction;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+
+/**
+ * An {@link SSAInference} for a dataflow problem given, as for a {@link DataflowSolver}, by an
+ * {@link ITransferFunctionProvider}, but whose nodes are SSA instructions rather than basic blocks. The system has one variable
+ * per SSA value, so an instruction is evaluated again only when a value it uses has changed.
+ * <ul>
+ * <li>the value defined by a phi is the meet of its operands
+ * <li>the value defined by any other instruction, including pis and catch instructions, is its node transfer function applied to
+ * the meet of its operands, or to its only operand when the meet of one operand is a no-op; when the provider has no node
+ * transfer functions, it is the meet of its operands; when the node transfer function is null, the instruction is ignored
+ * <li>values defined by no instruction, such as parameters, constants and the exceptions thrown by instructions, keep the value
+ * given them by {@link #makeValueVariable(int)}
+ * </ul>
+ * Edge transfer functions are not supported; build the IR with pi nodes to refine values along branches.
+ *
+ * @param <V> type of abstract states computed
+ */
+public abstract class SparseDataflowSolver<V extends IVariable<?>> extends SSAInference<V> {
+
+  private final IR ir;
+
+  private final ITransferFunctionProvider<SSAInstruction, V> functions;
+
+  private boolean initialized = false;
+
+  public SparseDataflowSolver(IR ir, ITransferFunctionProvider<SSAInstruction, V> functions) {
+    if (ir == null) {
+      throw new IllegalArgumentException("ir is null");
+    }
+    if (functions == null) {
+      throw new IllegalArgumentException("functions is null");
+    }
+    if (functions.hasEdgeTransferFunctions()) {
+      throw new IllegalArgumentException("edge transfer functions are not supported by a sparse solver");
+    }
+    this.ir = ir;
+    this.functions = functions;
+  }
+
+  /**
+   * @return a fresh variable holding the lattice value of an SSA value before any instruction is evaluated
+   */
+  protected abstract V makeValueVariable(int valueNumber);
+
+  /**
+   * @return a fresh variable to hold the meet of the operands of s, when s has other than one operand
+   */
+  protected abstract V makeInVariable(SSAInstruction s);
+
+  private void initialize() {
+    if (!initialized) {
+      initialized = true;
+      init(ir, new VariableFactory() {
+        @Override
+        public V makeVariable(int valueNumber) {
+          return makeValueVariable(valueNumber);
+        }
+      }, new OperatorFactory<V>() {
+        @Override
+        public AbstractOperator<V> get(SSAInstruction instruction) {
+          return makeOperator(instruction);
+        }
+      });
+    }
+  }
+
+  private AbstractOperator<V> makeOperator(SSAInstruction s) {
+    AbstractMeetOperator<V> meet = functions.getMeetOperator();
+    if (s instanceof SSAPhiInstruction || !functions.hasNodeTransferFunctions()) {
+      return new InstructionOperator(meet, null, null);
+    }
+    UnaryOperator<V> f = functions.getNodeTransferFunction(s);
+    if (f == null) {
+      return null;
+    }
+    int nUses = 0;
+    for (int j = 0; j < s.getNumberOfUses(); j++) {
+      if (s.getUse(j) > 0) {
+        nUses++;
+      }
+    }
+    return new InstructionOperator(meet, f, nUses == 1 && meet.isUnaryNoOp() ? null : makeInVariable(s));
+  }
+
+  /**
+   * The operator of an instruction: the meet of its operands, followed by its node transfer function if any
+   */
+  private final class InstructionOperator extends AbstractOperator<V> {
+    private final AbstractMeetOperator<V> meet;
+
+    private final UnaryOperator<V> f;
+
+    /**
+     * the variable holding the meet of the operands, or null if f applies directly to the only operand
+     */
+    private final V in;
+
+    /**
+     * the operands, without those of undefined values, computed on the first evaluation
+     */
+    private V[] operands;
+
+    InstructionOperator(AbstractMeetOperator<V> meet, UnaryOperator<V> f, V in) {
+      this.meet = meet;
+      this.f = f;
+      this.in = in;
+    }
+
+    @Override
+    public byte evaluate(V lhs, V[] rhs) {
+      if (operands == null) {
+        operands = definedOperands(rhs);
+      }
+      if (f == null) {
+        return meet.evaluate(lhs, operands);
+      } else if (in == null) {
+        return f.evaluate(lhs, operands[0]);
+      } else {
+        meet.evaluate(in, operands);
+        return f.evaluate(lhs, in);
+      }
+    }
+
+    private V[] definedOperands(V[] rhs) {
+      int n = 0;
+      for (V v : rhs) {
+        if (v != null) {
+          n++;
+        }
+      }
+      V[] result = makeStmtRHS(n);
+      n = 0;
+      for (V v : rhs) {
+        if (v != null) {
+          result[n++] = v;
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o;
+    }
+
+    @Override
+    public String toString() {
+      return f == null ? meet.toString() : f + " of " + meet;
+    }
+  }
+
+  @Override
+  protected void initializeVariables() {
+    // the variables are initialized by makeValueVariable
+  }
+
+  @Override
+  protected void initializeWorkList() {
+    addAllStatementsToWorkList();
+  }
+
+  @Override
+  public boolean solve(IProgressMonitor monitor) throws CancelException {
+    initialize();
+    return super.solve(monitor);
+  }
+
+  /**
+   * Queue for evaluation the instructions that use a value; call this after changing the variable of the value from outside the
+   * solver, then {@link #solve(IProgressMonitor)} again.
+   */
+  public void changedValue(int valueNumber) {
+    changedVariable(getValue(valueNumber));
+  }
+
+  /**
+   * @return the variable of an SSA value
+   */
+  public V getValue(int valueNumber) {
+    initialize();
+    if (valueNumber <= 0 || valueNumber > ir.getSymbolTable().getMaxValueNumber()) {
+      throw new IllegalArgumentException("bad value number " + valueNumber);
+    }
+    return getVariable(valueNumber);
+  }
+
+  public IR getIR() {
+    return ir;
+  }
+}
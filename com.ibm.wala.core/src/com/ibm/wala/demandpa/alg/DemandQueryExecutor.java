@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.demandpa.alg;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.demandpa.alg.DemandRefinementPointsTo.PointsToResult;
+import com.ibm.wala.demandpa.flowgraph.IFlowGraph;
+import com.ibm.wala.demandpa.flowgraph.SynchronizedFlowGraph;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.CancelRuntimeException;
+import com.ibm.wala.util.ParallelUtil;
+import com.ibm.wala.util.Predicate;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Pair;
+
+/**
+ * Answers batches of independent points-to queries with a {@link DemandRefinementPointsTo} on several threads.
+ *
+ * All threads share the analysis's flow graph, through a {@link SynchronizedFlowGraph}, so the subgraph of a call graph
+ * node is built once for all queries. Each thread has its own copy of the per-query state: the refinement policy, the
+ * state machine and the count of nodes traversed. So each query has its own budget, as set by the refinement policy, and
+ * a query that exceeds it ends with {@link PointsToResult#BUDGETEXCEEDED} without affecting the others. If the analysis
+ * {@link DemandRefinementPointsTo#setCacheQueries(boolean) caches queries}, the threads share its cache.
+ *
+ * The analysis must not be used, or reconfigured, while a batch is running.
+ */
+public class DemandQueryExecutor {
+
+  private final DemandRefinementPointsTo analysis;
+
+  private final IFlowGraph sharedGraph;
+
+  private final int nThreads;
+
+  public DemandQueryExecutor(DemandRefinementPointsTo analysis, int nThreads) {
+    if (analysis == null) {
+      throw new IllegalArgumentException("analysis is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("nThreads must be positive: " + nThreads);
+    }
+    this.analysis = analysis;
+    this.sharedGraph = new SynchronizedFlowGraph(analysis.getFlowGraph());
+    this.nThreads = nThreads;
+  }
+
+  /**
+   * @return the points-to set of each pointer key in queries, or <code>null</code> for a key whose points-to set can't
+   *         be computed in the allocated budget
+   * @see DemandRefinementPointsTo#getPointsTo(PointerKey)
+   */
+  public Map<PointerKey, Collection<InstanceKey>> getPointsTo(Collection<? extends PointerKey> queries) {
+    Map<PointerKey, Collection<InstanceKey>> result = HashMapFactory.make();
+    for (Map.Entry<PointerKey, Pair<PointsToResult, Collection<InstanceKey>>> e : getPointsTo(queries,
+        Predicate.<InstanceKey> falsePred()).entrySet()) {
+      result.put(e.getKey(), e.getValue().snd);
+    }
+    return result;
+  }
+
+  /**
+   * @return for each pointer key in queries, the result of {@link DemandRefinementPointsTo#getPointsTo(PointerKey, Predicate)}
+   */
+  public Map<PointerKey, Pair<PointsToResult, Collection<InstanceKey>>> getPointsTo(Collection<? extends PointerKey> queries,
+      final Predicate<InstanceKey> ikeyPred) {
+    if (queries == null) {
+      throw new IllegalArgumentException("queries is null");
+    }
+    final List<PointerKey> todo = new ArrayList<PointerKey>(HashSetFactory.make(queries));
+    @SuppressWarnings("unchecked")
+    final Pair<PointsToResult, Collection<InstanceKey>>[] results = new Pair[todo.size()];
+    try {
+      ParallelUtil.forEach(results.length, nThreads, "DemandQueryExecutor worker", new ParallelUtil.IndexedTaskFactory() {
+        @Override
+        public ParallelUtil.IndexedTask make() {
+          final DemandRefinementPointsTo worker = analysis.makeWorker(sharedGraph);
+          return new ParallelUtil.IndexedTask() {
+            @Override
+            public void run(int i) {
+              results[i] = worker.getPointsTo(todo.get(i), ikeyPred);
+            }
+          };
+        }
+      });
+    } catch (CancelException e) {
+      throw new CancelRuntimeException(e);
+    }
+
+    Map<PointerKey, Pair<PointsToResult, Collection<InstanceKey>>> result = HashMapFactory.make();
+    for (int i = 0; i < results.length; i++) {
+      result.put(todo.get(i), results[i]);
+    }
+    return result;
+  }
+}
@@ -45,6 +45,8 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.ibm.wala.analysis.reflection.InstanceKeyWithNode;
 import com.ibm.wala.classLoader.CallSiteReference;
@@ -163,6 +165,11 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
 
   private RefinementPolicyFactory refinementPolicyFactory;
 
+  /**
+   * cross-query cache of points-to results, or <code>null</code> if results are not cached
+   */
+  private ConcurrentMap<PointerKeyAndState, Pair<PointsToResult, Collection<InstanceKeyAndState>>> queryCache;
+
   public RefinementPolicy getRefinementPolicy() {
     return refinementPolicy;
   }
@@ -273,8 +280,26 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
       System.err.println("answering query for " + pk);
     }
     startNewQuery();
-    Pair<PointsToResult, Collection<InstanceKeyAndState>> p = outerRefinementLoop(new PointerKeyAndState(queriedPk, stateMachine
-        .getStartState()), ikeyPred);
+    PointerKeyAndState queried = new PointerKeyAndState(queriedPk, stateMachine.getStartState());
+    if (queryCache != null) {
+      Pair<PointsToResult, Collection<InstanceKeyAndState>> cached = queryCache.get(queried);
+      if (cached != null) {
+        if (cached.snd != null && (cached.snd.isEmpty() || passesPred(cached.snd, ikeyPred))) {
+          return Pair.make(PointsToResult.SUCCESS, cached.snd);
+        } else if (cached.fst != PointsToResult.SUCCESS) {
+          // all refinement passes were run, and later passes only shrink the points-to set, so a new
+          // query could not satisfy ikeyPred either
+          return cached;
+        }
+      }
+    }
+    Pair<PointsToResult, Collection<InstanceKeyAndState>> p = outerRefinementLoop(queried, ikeyPred);
+    if (queryCache != null) {
+      if (p.snd != null) {
+        p = Pair.make(p.fst, Collections.unmodifiableCollection(p.snd));
+      }
+      queryCache.put(queried, p);
+    }
     return p;
   }
 
@@ -2027,6 +2052,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
 
   public void setStateMachineFactory(StateMachineFactory<IFlowLabel> stateMachineFactory) {
     this.stateMachineFactory = stateMachineFactory;
+    clearQueryCache();
   }
 
   public RefinementPolicyFactory getRefinementPolicyFactory() {
@@ -2035,6 +2061,46 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
 
   public void setRefinementPolicyFactory(RefinementPolicyFactory refinementPolicyFactory) {
     this.refinementPolicyFactory = refinementPolicyFactory;
+    clearQueryCache();
+  }
+
+  /**
+   * Cache the result of each points-to query for the next query of the same pointer key. A cached result is reused if
+   * its points-to set satisfies the predicate of the new query, or if every refinement pass was run to compute it. The
+   * cache is cleared whenever the refinement policy or the state machine changes.
+   */
+  public void setCacheQueries(boolean cacheQueries) {
+    if (!cacheQueries) {
+      queryCache = null;
+    } else if (queryCache == null) {
+      queryCache = new ConcurrentHashMap<PointerKeyAndState, Pair<PointsToResult, Collection<InstanceKeyAndState>>>();
+    }
+  }
+
+  public boolean isCacheQueries() {
+    return queryCache != null;
+  }
+
+  public void clearQueryCache() {
+    if (queryCache != null) {
+      queryCache.clear();
+    }
+  }
+
+  public IFlowGraph getFlowGraph() {
+    return g;
+  }
+
+  /**
+   * @return an analysis configured like this one, with its own per-query state, that answers queries over flowGraph and
+   *         shares the query cache of this one
+   */
+  DemandRefinementPointsTo makeWorker(IFlowGraph flowGraph) {
+    DemandRefinementPointsTo result = new DemandRefinementPointsTo(cg, (ThisFilteringHeapModel) heapModel, mam, cha, options,
+        stateMachineFactory, flowGraph);
+    result.refinementPolicyFactory = refinementPolicyFactory;
+    result.queryCache = queryCache;
+    return result;
   }
 
   /**
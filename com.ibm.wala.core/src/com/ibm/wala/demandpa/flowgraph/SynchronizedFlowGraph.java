@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.demandpa.flowgraph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.demandpa.flowgraph.IFlowLabel.IFlowLabelVisitor;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.StaticFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallerSiteContext;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+
+/**
+ * A thread-safe view of an {@link IFlowGraph}, so that several demand points-to queries can run at once over a flow
+ * graph that grows as they add subgraphs for call graph nodes.
+ *
+ * Every call holds the lock of this object while it reads or changes the underlying graph. Iterators and sets are copied
+ * before the lock is released, and {@link #visitSuccs(Object, IFlowLabelVisitor)} and
+ * {@link #visitPreds(Object, IFlowLabelVisitor)} collect the edges under the lock and apply the visitor outside it, so a
+ * visitor may itself call back into the graph.
+ */
+public class SynchronizedFlowGraph implements IFlowGraph {
+
+  private final IFlowGraph delegate;
+
+  public SynchronizedFlowGraph(IFlowGraph delegate) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("delegate is null");
+    }
+    this.delegate = delegate;
+  }
+
+  public IFlowGraph getDelegate() {
+    return delegate;
+  }
+
+  private static <T> Iterator<T> copy(Iterator<? extends T> it) {
+    return Iterator2Collection.<T> toList(it).iterator();
+  }
+
+  private static <T> Set<T> copy(Set<? extends T> s) {
+    if (s == null) {
+      return null;
+    }
+    Set<T> result = HashSetFactory.make(s.size());
+    result.addAll(s);
+    return result;
+  }
+
+  @Override
+  public void visitSuccs(Object node, IFlowLabelVisitor v) {
+    List<IFlowLabel> labels = new ArrayList<IFlowLabel>();
+    List<Object> nodes = new ArrayList<Object>();
+    synchronized (this) {
+      for (Iterator<? extends IFlowLabel> succLabelIter = delegate.getSuccLabels(node); succLabelIter.hasNext();) {
+        IFlowLabel label = succLabelIter.next();
+        for (Iterator<? extends Object> succNodeIter = delegate.getSuccNodes(node, label); succNodeIter.hasNext();) {
+          labels.add(label);
+          nodes.add(succNodeIter.next());
+        }
+      }
+    }
+    for (int i = 0; i < labels.size(); i++) {
+      labels.get(i).visit(v, nodes.get(i));
+    }
+  }
+
+  @Override
+  public void visitPreds(Object node, IFlowLabelVisitor v) {
+    List<IFlowLabel> labels = new ArrayList<IFlowLabel>();
+    List<Object> nodes = new ArrayList<Object>();
+    synchronized (this) {
+      for (Iterator<? extends IFlowLabel> predLabelIter = delegate.getPredLabels(node); predLabelIter.hasNext();) {
+        IFlowLabel label = predLabelIter.next();
+        for (Iterator<? extends Object> predNodeIter = delegate.getPredNodes(node, label); predNodeIter.hasNext();) {
+          labels.add(label);
+          nodes.add(predNodeIter.next());
+        }
+      }
+    }
+    for (int i = 0; i < labels.size(); i++) {
+      labels.get(i).visit(v, nodes.get(i));
+    }
+  }
+
+  @Override
+  public synchronized void addSubgraphForNode(CGNode node) throws IllegalArgumentException {
+    delegate.addSubgraphForNode(node);
+  }
+
+  @Override
+  public synchronized boolean hasSubgraphForNode(CGNode node) {
+    return delegate.hasSubgraphForNode(node);
+  }
+
+  @Override
+  public synchronized boolean isParam(LocalPointerKey pk) {
+    return delegate.isParam(pk);
+  }
+
+  @Override
+  public synchronized Iterator<SSAAbstractInvokeInstruction> getInstrsPassingParam(LocalPointerKey pk) {
+    return copy(delegate.getInstrsPassingParam(pk));
+  }
+
+  @Override
+  public synchronized SSAAbstractInvokeInstruction getInstrReturningTo(LocalPointerKey pk) {
+    return delegate.getInstrReturningTo(pk);
+  }
+
+  @Override
+  public synchronized Iterator<? extends Object> getWritesToStaticField(StaticFieldKey sfk) throws IllegalArgumentException {
+    return copy(delegate.getWritesToStaticField(sfk));
+  }
+
+  @Override
+  public synchronized Iterator<? extends Object> getReadsOfStaticField(StaticFieldKey sfk) throws IllegalArgumentException {
+    return copy(delegate.getReadsOfStaticField(sfk));
+  }
+
+  @Override
+  public synchronized Iterator<PointerKey> getWritesToInstanceField(PointerKey pk, IField f) {
+    return copy(delegate.getWritesToInstanceField(pk, f));
+  }
+
+  @Override
+  public synchronized Iterator<PointerKey> getReadsOfInstanceField(PointerKey pk, IField f) {
+    return copy(delegate.getReadsOfInstanceField(pk, f));
+  }
+
+  @Override
+  public synchronized Set<CallerSiteContext> getPotentialCallers(PointerKey formalPk) {
+    return copy(delegate.getPotentialCallers(formalPk));
+  }
+
+  @Override
+  public synchronized Set<CGNode> getPossibleTargets(CGNode caller, CallSiteReference site, LocalPointerKey actualPk) {
+    return copy(delegate.getPossibleTargets(caller, site, actualPk));
+  }
+
+  @Override
+  public synchronized Iterator<Object> iterator() {
+    return copy(delegate.iterator());
+  }
+
+  @Override
+  public synchronized int getNumberOfNodes() {
+    return delegate.getNumberOfNodes();
+  }
+
+  @Override
+  public synchronized void addNode(Object n) {
+    delegate.addNode(n);
+  }
+
+  @Override
+  public synchronized void removeNode(Object n) {
+    delegate.removeNode(n);
+  }
+
+  @Override
+  public synchronized boolean containsNode(Object n) {
+    return delegate.containsNode(n);
+  }
+
+  @Override
+  public synchronized void removeNodeAndEdges(Object n) {
+    delegate.removeNodeAndEdges(n);
+  }
+
+  @Override
+  public synchronized Iterator<Object> getPredNodes(Object n) {
+    return copy(delegate.getPredNodes(n));
+  }
+
+  @Override
+  public synchronized int getPredNodeCount(Object n) {
+    return delegate.getPredNodeCount(n);
+  }
+
+  @Override
+  public synchronized Iterator<Object> getSuccNodes(Object n) {
+    return copy(delegate.getSuccNodes(n));
+  }
+
+  @Override
+  public synchronized int getSuccNodeCount(Object n) {
+    return delegate.getSuccNodeCount(n);
+  }
+
+  @Override
+  public synchronized void addEdge(Object src, Object dst) {
+    delegate.addEdge(src, dst);
+  }
+
+  @Override
+  public synchronized void removeEdge(Object src, Object dst) {
+    delegate.removeEdge(src, dst);
+  }
+
+  @Override
+  public synchronized void removeAllIncidentEdges(Object node) {
+    delegate.removeAllIncidentEdges(node);
+  }
+
+  @Override
+  public synchronized void removeIncomingEdges(Object node) {
+    delegate.removeIncomingEdges(node);
+  }
+
+  @Override
+  public synchronized void removeOutgoingEdges(Object node) {
+    delegate.removeOutgoingEdges(node);
+  }
+
+  @Override
+  public synchronized boolean hasEdge(Object src, Object dst) {
+    return delegate.hasEdge(src, dst);
+  }
+
+  @Override
+  public synchronized IFlowLabel getDefaultLabel() {
+    return delegate.getDefaultLabel();
+  }
+
+  @Override
+  public synchronized Iterator<Object> getPredNodes(Object n, IFlowLabel label) {
+    return copy(delegate.getPredNodes(n, label));
+  }
+
+  @Override
+  public synchronized Iterator<? extends IFlowLabel> getPredLabels(Object n) {
+    return copy(delegate.getPredLabels(n));
+  }
+
+  @Override
+  public synchronized int getPredNodeCount(Object n, IFlowLabel label) {
+    return delegate.getPredNodeCount(n, label);
+  }
+
+  @Override
+  public synchronized Iterator<? extends Object> getSuccNodes(Object n, IFlowLabel label) {
+    return copy(delegate.getSuccNodes(n, label));
+  }
+
+  @Override
+  public synchronized Iterator<? extends IFlowLabel> getSuccLabels(Object n) {
+    return copy(delegate.getSuccLabels(n));
+  }
+
+  @Override
+  public synchronized int getSuccNodeCount(Object n, IFlowLabel label) {
+    return delegate.getSuccNodeCount(n, label);
+  }
+
+  @Override
+  public synchronized void addEdge(Object src, Object dst, IFlowLabel label) {
+    delegate.addEdge(src, dst, label);
+  }
+
+  @Override
+  public synchronized void removeEdge(Object src, Object dst, IFlowLabel label) {
+    delegate.removeEdge(src, dst, label);
+  }
+
+  @Override
+  public synchronized boolean hasEdge(Object src, Object dst, IFlowLabel label) {
+    return delegate.hasEdge(src, dst, label);
+  }
+
+  @Override
+  public synchronized Set<? extends IFlowLabel> getEdgeLabels(Object src, Object dst) {
+    return copy(delegate.getEdgeLabels(src, dst));
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "synchronized " + delegate;
+  }
+}
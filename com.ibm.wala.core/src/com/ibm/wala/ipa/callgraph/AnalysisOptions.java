@@ -14,7 +14,11 @@ import com.ibm.wala.analysis.reflection.ReflectionContextInterpreter;
 import com.ibm.wala.analysis.reflection.ReflectionContextSelector;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.ReflectionHandler;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.IRFactory;
 import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 
 /**
  * Basic interface for options that control call graph generation.
@@ -191,6 +195,20 @@ public class AnalysisOptions {
    */
   private long maxNumberOfNodes = -1;
 
+  /**
+   * Number of threads used to prepare batches of newly discovered {@link CGNode}s for constraint generation, i.e., to build their
+   * {@link IR}s and {@link DefUse} information ahead of time. Constraints themselves are always added on the calling thread in
+   * discovery order, so the resulting call graph does not depend on this value. The default, <code>1</code>, disables the
+   * parallel phase.
+   */
+  private int constraintGenerationParallelism = 1;
+
+  /**
+   * Factory for the sets held by points-to set variables during pointer analysis, or null to use
+   * {@link com.ibm.wala.util.intset.IntSetUtil#getDefaultIntSetFactory()}.
+   */
+  private MutableIntSetFactory<?> pointsToSetFactory = null;
+
   // SJF: I'm not sure these factories and caches belong here.
   // TODO: figure out how to clean this up.
 
@@ -229,6 +247,45 @@ public class AnalysisOptions {
     this.maxNumberOfNodes = maxNumberOfNodes;
   }
 
+  /**
+   * @see #setConstraintGenerationParallelism(int)
+   */
+  public int getConstraintGenerationParallelism() {
+    return constraintGenerationParallelism;
+  }
+
+  /**
+   * How many threads should prepare newly discovered call graph nodes for constraint generation? A value greater than
+   * <code>1</code> only pays off if the {@link IRFactory} and the analysis cache in use tolerate concurrent access.
+   * 
+   * @throws IllegalArgumentException if parallelism &lt; 1
+   */
+  public void setConstraintGenerationParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("invalid parallelism: " + parallelism);
+    }
+    this.constraintGenerationParallelism = parallelism;
+  }
+
+  /**
+   * @see #setPointsToSetFactory(MutableIntSetFactory)
+   */
+  public MutableIntSetFactory<?> getPointsToSetFactory() {
+    return pointsToSetFactory;
+  }
+
+  /**
+   * Choose the representation of points-to sets, e.g. {@link com.ibm.wala.util.intset.MutableRoaringIntSetFactory} for
+   * compressed bitmaps. A propagation call graph builder passes the factory to its
+   * {@link com.ibm.wala.ipa.callgraph.propagation.PropagationSystem}, which makes its points-to sets with it; other sets
+   * are not affected.
+   * 
+   * @param factory a factory, or null to use the default
+   */
+  public void setPointsToSetFactory(MutableIntSetFactory<?> factory) {
+    this.pointsToSetFactory = factory;
+  }
+
 
   /**
    * @return Policy that determines methods called at call sites.
@@ -10,18 +10,26 @@
  *******************************************************************************/
 package com.ibm.wala.ipa.callgraph;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.ipa.modref.GenReach;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.CancelRuntimeException;
+import com.ibm.wala.util.ParallelUtil;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.functions.Function;
 import com.ibm.wala.util.graph.impl.GraphInverter;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.OrdinalSet;
 
 /**
@@ -57,6 +65,63 @@ public class CallGraphTransitiveClosure {
     }
   }
   
+  /**
+   * Compute the transitive closure of an analysis result over all callees, one strongly connected component of the call
+   * graph at a time, callees first. The results are numbered densely, and the result of each component is a single
+   * {@link BitVector} shared by all its nodes, so this is much cheaper than {@link #transitiveClosure(CallGraph, Map)}
+   * for large call graphs; the sets computed are the same.
+   * 
+   * @param cg the call graph
+   * @param nodeResults analysis result for each individual node
+   * @return a map from each node to the analysis result for the node and its transitive callees
+   */
+  public static <T> Map<CGNode, OrdinalSet<T>> sccTransitiveClosure(CallGraph cg, Map<CGNode, Collection<T>> nodeResults) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    if (nodeResults == null) {
+      throw new IllegalArgumentException("nodeResults is null");
+    }
+    MutableMapping<T> domain = MutableMapping.make();
+    for (Collection<T> c : nodeResults.values()) {
+      for (T x : c) {
+        domain.add(x);
+      }
+    }
+
+    // the components come out callers first
+    List<Set<CGNode>> sccs = new ArrayList<Set<CGNode>>();
+    for (SCCIterator<CGNode> it = new SCCIterator<CGNode>(cg); it.hasNext();) {
+      sccs.add(it.next());
+    }
+    BitVector[] closure = new BitVector[cg.getMaxNumber() + 1];
+    Map<CGNode, OrdinalSet<T>> result = HashMapFactory.make();
+    for (int i = sccs.size() - 1; i >= 0; i--) {
+      Set<CGNode> scc = sccs.get(i);
+      BitVector bv = new BitVector(domain.getSize());
+      for (CGNode n : scc) {
+        Collection<T> own = nodeResults.get(n);
+        if (own != null) {
+          for (T x : own) {
+            bv.set(domain.getMappedIndex(x));
+          }
+        }
+        for (Iterator<CGNode> succs = cg.getSuccNodes(n); succs.hasNext();) {
+          CGNode callee = succs.next();
+          if (!scc.contains(callee)) {
+            bv.or(closure[cg.getNumber(callee)]);
+          }
+        }
+      }
+      OrdinalSet<T> set = new OrdinalSet<T>(new BitVectorIntSet(bv), domain);
+      for (CGNode n : scc) {
+        closure[cg.getNumber(n)] = bv;
+        result.put(n, set);
+      }
+    }
+    return result;
+  }
+
   /**
    * Collect analysis result for each {@link CGNode} in a {@link Map}.
    */
@@ -69,4 +134,40 @@ public class CallGraphTransitiveClosure {
     return result;
     
   }
+
+  /**
+   * Collect analysis result for each {@link CGNode} in a {@link Map}, computing the results on nThreads threads, the
+   * calling thread being one of them. nodeResultComputer must be safe to call from several threads at once.
+   */
+  public static <T> Map<CGNode, Collection<T>> collectNodeResults(CallGraph cg,
+      final Function<CGNode, Collection<T>> nodeResultComputer, int nThreads) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("nThreads must be positive: " + nThreads);
+    }
+    final List<CGNode> nodes = new ArrayList<CGNode>(cg.getNumberOfNodes());
+    for (Iterator<? extends CGNode> it = cg.iterator(); it.hasNext();) {
+      nodes.add(it.next());
+    }
+    @SuppressWarnings("unchecked")
+    final Collection<T>[] results = new Collection[nodes.size()];
+    try {
+      ParallelUtil.forEach(results.length, nThreads, "CallGraphTransitiveClosure worker", new ParallelUtil.IndexedTask() {
+        @Override
+        public void run(int i) {
+          results[i] = nodeResultComputer.apply(nodes.get(i));
+        }
+      });
+    } catch (CancelException e) {
+      throw new CancelRuntimeException(e);
+    }
+
+    Map<CGNode, Collection<T>> result = HashMapFactory.make(nodes.size());
+    for (int i = 0; i < results.length; i++) {
+      result.put(nodes.get(i), results[i]);
+    }
+    return result;
+  }
 }
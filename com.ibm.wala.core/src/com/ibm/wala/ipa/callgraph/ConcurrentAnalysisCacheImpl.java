@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ssa.ConcurrentSSACache;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.SSAOptions;
+
+/**
+ * An {@link AnalysisCache} that may be shared by threads that build IRs concurrently.
+ *
+ * @see ConcurrentSSACache
+ */
+public class ConcurrentAnalysisCacheImpl extends AnalysisCache {
+
+  public ConcurrentAnalysisCacheImpl(IRFactory<IMethod> irFactory, SSAOptions ssaOptions) {
+    super(irFactory, ssaOptions, new ConcurrentSSACache(irFactory));
+  }
+
+  public ConcurrentAnalysisCacheImpl(IRFactory<IMethod> irFactory) {
+    this(irFactory, new AnalysisOptions().getSSAOptions());
+  }
+
+  public ConcurrentAnalysisCacheImpl() {
+    this(new DefaultIRFactory());
+  }
+
+}
@@ -0,0 +1,534 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+
+/**
+ * Writes a {@link CallGraph} in one of three formats, walking the graph node by node in the order of the node numbers.
+ * No format holds the graph in memory: the writers keep only the strings seen so far, so that each is written once, and
+ * the edges of one node at a time.
+ *
+ * A method is identified by the name of its class loader and its signature in JVM form, the class name followed by a dot
+ * and the selector, e.g. <code>Ljava/lang/Object.toString()Ljava/lang/String;</code>. A context is identified by its
+ * <code>toString()</code>, except for {@link Everywhere}, which is flagged. Only the Java invocation codes are supported.
+ * <ul>
+ * <li>{@link #writeBinary(CallGraph, OutputStream)}: a compact, sequential format of varints
+ * <li>{@link #writeEdgeList(CallGraph, OutputStream)}: a gzip'd CSV file with a line per call edge
+ * <li>{@link #writeColumnar(CallGraph, File)}: the columns of int arrays read by {@link MappedCallGraph}
+ * </ul>
+ */
+public class CallGraphWriter {
+
+  /**
+   * "WCGB"
+   */
+  static final int BINARY_MAGIC = 0x57434742;
+
+  static final int BINARY_VERSION = 1;
+
+  /**
+   * flags of a node
+   */
+  static final int STATIC = 1;
+
+  static final int EVERYWHERE = 2;
+
+  static final int ENTRYPOINT = 4;
+
+  static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final IInvokeInstruction.Dispatch[] DISPATCH_VALUES = IInvokeInstruction.Dispatch.values();
+
+  private CallGraphWriter() {
+  }
+
+  /**
+   * the strings seen so far, numbered in order of appearance
+   */
+  private static final class Strings {
+    private final Map<String, Integer> numbers = HashMapFactory.make();
+
+    private final List<String> values = new ArrayList<String>();
+
+    /**
+     * @return the number of s, or -1 - the new number of s if it is new
+     */
+    int add(String s) {
+      Integer number = numbers.get(s);
+      if (number != null) {
+        return number;
+      }
+      number = values.size();
+      numbers.put(s, number);
+      values.add(s);
+      return -1 - number;
+    }
+
+    int number(String s) {
+      int n = add(s);
+      return n < 0 ? -1 - n : n;
+    }
+  }
+
+  static String loaderName(MethodReference m) {
+    return m.getDeclaringClass().getClassLoader().getName().toString();
+  }
+
+  static String signature(MethodReference m) {
+    return m.getDeclaringClass().getName().toString() + "." + m.getSelector();
+  }
+
+  static int dispatch(CallSiteReference site) {
+    IInvokeInstruction.IDispatch code = site.getInvocationCode();
+    for (int i = 0; i < DISPATCH_VALUES.length; i++) {
+      if (DISPATCH_VALUES[i] == code) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("unsupported invocation code " + code + " of " + site);
+  }
+
+  static IInvokeInstruction.Dispatch dispatch(int ordinal) {
+    return DISPATCH_VALUES[ordinal];
+  }
+
+  private static int flags(CGNode n, int number, IntSet entrypoints) {
+    int flags = 0;
+    if (n.getMethod().isStatic()) {
+      flags |= STATIC;
+    }
+    if (n.getContext() == Everywhere.EVERYWHERE) {
+      flags |= EVERYWHERE;
+    }
+    if (entrypoints.contains(number)) {
+      flags |= ENTRYPOINT;
+    }
+    return flags;
+  }
+
+  private static IntSet entrypointNumbers(CallGraph cg) {
+    MutableIntSet result = IntSetUtil.make();
+    for (CGNode n : cg.getEntrypointNodes()) {
+      result.add(cg.getNumber(n));
+    }
+    return result;
+  }
+
+  /**
+   * @return the numbers of the nodes in targets, in increasing order
+   */
+  private static int[] sortedNumbers(CallGraph cg, Set<CGNode> targets) {
+    int[] result = new int[targets.size()];
+    int i = 0;
+    for (CGNode t : targets) {
+      result[i++] = cg.getNumber(t);
+    }
+    Arrays.sort(result);
+    return result;
+  }
+
+  private static void checkArguments(CallGraph cg, Object out) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    if (out == null) {
+      throw new IllegalArgumentException("out is null");
+    }
+  }
+
+  /**
+   * Write cg as a sequence of varints: unsigned LEB128, 7 bits a byte, least significant first. After the magic number
+   * and the version come the number of node slots (the largest node number plus one) and the numbers of the fake root
+   * and fake world clinit nodes plus one, or 0 if there is none. Then for each node, in increasing order of numbers:
+   * <ul>
+   * <li>the difference to the number of the previous node (or to -1), so never 0
+   * <li>its flags: 1 if the method is static, 2 if the context is {@link Everywhere}, 4 if it is an entrypoint
+   * <li>the class loader and the signature of its method, and its context unless it is {@link Everywhere}, as strings
+   * <li>the number of call sites, and for each site its program counter, the ordinal of its
+   * {@link IInvokeInstruction.Dispatch invocation code}, the class loader and signature of its declared target as
+   * strings, the number of targets and their node numbers, in increasing order, each as the difference to the previous
+   * one (or to -1)
+   * </ul>
+   * followed by a 0. A string is written as its number plus one, or, the first time it appears, as 0 followed by its
+   * length and its UTF-8 bytes, which gives it the next number.
+   */
+  public static void writeBinary(CallGraph cg, OutputStream stream) throws IOException {
+    checkArguments(cg, stream);
+    VarintOutput out = new VarintOutput(new BufferedOutputStream(stream, 1 << 16));
+    Strings strings = new Strings();
+    IntSet entrypoints = entrypointNumbers(cg);
+    out.writeInt(BINARY_MAGIC);
+    out.writeVarint(BINARY_VERSION);
+    out.writeVarint(cg.getMaxNumber() + 1);
+    out.writeVarint(cg.getFakeRootNode() == null ? 0 : cg.getNumber(cg.getFakeRootNode()) + 1);
+    out.writeVarint(cg.getFakeWorldClinitNode() == null ? 0 : cg.getNumber(cg.getFakeWorldClinitNode()) + 1);
+    int previous = -1;
+    for (int i = 0; i <= cg.getMaxNumber(); i++) {
+      CGNode n = cg.getNode(i);
+      if (n == null) {
+        continue;
+      }
+      out.writeVarint(i - previous);
+      previous = i;
+      int flags = flags(n, i, entrypoints);
+      out.writeVarint(flags);
+      MethodReference m = n.getMethod().getReference();
+      out.writeString(loaderName(m), strings);
+      out.writeString(signature(m), strings);
+      if ((flags & EVERYWHERE) == 0) {
+        out.writeString(n.getContext().toString(), strings);
+      }
+      List<CallSiteReference> sites = new ArrayList<CallSiteReference>();
+      for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext();) {
+        sites.add(it.next());
+      }
+      out.writeVarint(sites.size());
+      for (CallSiteReference site : sites) {
+        out.writeVarint(site.getProgramCounter());
+        out.writeVarint(dispatch(site));
+        out.writeString(loaderName(site.getDeclaredTarget()), strings);
+        out.writeString(signature(site.getDeclaredTarget()), strings);
+        int[] targets = sortedNumbers(cg, cg.getPossibleTargets(n, site));
+        out.writeVarint(targets.length);
+        int previousTarget = -1;
+        for (int t : targets) {
+          out.writeVarint(t - previousTarget);
+          previousTarget = t;
+        }
+      }
+    }
+    out.writeVarint(0);
+    out.flush();
+  }
+
+  private static final class VarintOutput {
+    private final OutputStream out;
+
+    VarintOutput(OutputStream out) {
+      this.out = out;
+    }
+
+    void writeInt(int v) throws IOException {
+      out.write(v >>> 24);
+      out.write(v >>> 16);
+      out.write(v >>> 8);
+      out.write(v);
+    }
+
+    void writeVarint(int v) throws IOException {
+      if (v < 0) {
+        throw new IllegalArgumentException("negative varint " + v);
+      }
+      while ((v & ~0x7f) != 0) {
+        out.write((v & 0x7f) | 0x80);
+        v >>>= 7;
+      }
+      out.write(v);
+    }
+
+    void writeString(String s, Strings strings) throws IOException {
+      int number = strings.add(s);
+      if (number >= 0) {
+        writeVarint(number + 1);
+      } else {
+        byte[] bytes = s.getBytes(UTF8);
+        writeVarint(0);
+        writeVarint(bytes.length);
+        out.write(bytes);
+      }
+    }
+
+    void flush() throws IOException {
+      out.flush();
+    }
+  }
+
+  /**
+   * Write cg as a gzip'd CSV file with a header line and then a line per call edge, giving the number and method of the
+   * caller, the program counter of the call site, and the number and method of the callee:
+   *
+   * <pre>
+   * caller,callerMethod,pc,callee,calleeMethod
+   * </pre>
+   *
+   * A method is written as its class loader, a space and its signature. Call sites with no targets are not written.
+   */
+  public static void writeEdgeList(CallGraph cg, OutputStream stream) throws IOException {
+    checkArguments(cg, stream);
+    GZIPOutputStream gzip = new GZIPOutputStream(stream, 1 << 16);
+    Writer out = new BufferedWriter(new OutputStreamWriter(gzip, UTF8), 1 << 16);
+    out.write("caller,callerMethod,pc,callee,calleeMethod\n");
+    for (int i = 0; i <= cg.getMaxNumber(); i++) {
+      CGNode n = cg.getNode(i);
+      if (n == null) {
+        continue;
+      }
+      String caller = i + "," + csv(methodName(n));
+      for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext();) {
+        CallSiteReference site = it.next();
+        for (int t : sortedNumbers(cg, cg.getPossibleTargets(n, site))) {
+          out.write(caller);
+          out.write(',');
+          out.write(Integer.toString(site.getProgramCounter()));
+          out.write(',');
+          out.write(Integer.toString(t));
+          out.write(',');
+          out.write(csv(methodName(cg.getNode(t))));
+          out.write('\n');
+        }
+      }
+    }
+    out.flush();
+    gzip.finish();
+  }
+
+  private static String methodName(CGNode n) {
+    MethodReference m = n.getMethod().getReference();
+    return loaderName(m) + " " + signature(m);
+  }
+
+  /**
+   * quote s if it holds a comma, a quote or a line break
+   */
+  private static String csv(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+        return '"' + s.replace("\"", "\"\"") + '"';
+      }
+    }
+    return s;
+  }
+
+  /**
+   * Write cg in the format mapped by {@link MappedCallGraph}: a header of ints and then sections of big-endian ints, a
+   * column per attribute of the nodes, of the call sites and of the edges. The graph is walked twice: once to count the
+   * sites and edges, which gives the position of each section in the file, and once to fill in all the sections at the
+   * same time, each through a small buffer. The strings come last.
+   *
+   * @throws IllegalStateException if the graph changes between the two walks
+   */
+  public static void writeColumnar(CallGraph cg, File file) throws IOException {
+    checkArguments(cg, file);
+    int nNodes = cg.getMaxNumber() + 1;
+    long nSites = 0;
+    long nTargets = 0;
+    long nSuccs = 0;
+    long nPreds = 0;
+    for (int i = 0; i < nNodes; i++) {
+      CGNode n = cg.getNode(i);
+      if (n == null) {
+        continue;
+      }
+      for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext();) {
+        nSites++;
+        nTargets += cg.getNumberOfTargets(n, it.next());
+      }
+      nSuccs += cg.getSuccNodeCount(n);
+      nPreds += cg.getPredNodeCount(n);
+    }
+    if (Math.max(Math.max(nSites + 1, nTargets), Math.max(nSuccs, nPreds)) > Integer.MAX_VALUE / 4) {
+      throw new IllegalArgumentException("call graph is too large for the columnar format");
+    }
+    IntSet entrypoints = entrypointNumbers(cg);
+    int nEntrypoints = entrypoints.size();
+
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(0);
+      FileChannel channel = raf.getChannel();
+      long position = 4L * MappedCallGraph.HEADER_INTS;
+      Column nodeLoaders = new Column(channel, position);
+      Column nodeMethods = new Column(channel, position += 4L * nNodes);
+      Column nodeContexts = new Column(channel, position += 4L * nNodes);
+      Column nodeFlags = new Column(channel, position += 4L * nNodes);
+      Column siteOffsets = new Column(channel, position += 4L * nNodes);
+      Column sitePcs = new Column(channel, position += 4L * (nNodes + 1));
+      Column siteDispatches = new Column(channel, position += 4L * nSites);
+      Column siteLoaders = new Column(channel, position += 4L * nSites);
+      Column siteMethods = new Column(channel, position += 4L * nSites);
+      Column targetOffsets = new Column(channel, position += 4L * nSites);
+      Column targets = new Column(channel, position += 4L * (nSites + 1));
+      Column succOffsets = new Column(channel, position += 4L * nTargets);
+      Column succs = new Column(channel, position += 4L * (nNodes + 1));
+      Column predOffsets = new Column(channel, position += 4L * nSuccs);
+      Column preds = new Column(channel, position += 4L * (nNodes + 1));
+      Column entries = new Column(channel, position += 4L * nPreds);
+      position += 4L * nEntrypoints;
+
+      Strings strings = new Strings();
+      siteOffsets.add(0);
+      targetOffsets.add(0);
+      succOffsets.add(0);
+      predOffsets.add(0);
+      for (int i = 0; i < nNodes; i++) {
+        CGNode n = cg.getNode(i);
+        if (n == null) {
+          nodeLoaders.add(-1);
+          nodeMethods.add(-1);
+          nodeContexts.add(-1);
+          nodeFlags.add(0);
+        } else {
+          MethodReference m = n.getMethod().getReference();
+          int flags = flags(n, i, entrypoints);
+          nodeLoaders.add(strings.number(loaderName(m)));
+          nodeMethods.add(strings.number(signature(m)));
+          nodeContexts.add((flags & EVERYWHERE) == 0 ? strings.number(n.getContext().toString()) : -1);
+          nodeFlags.add(flags);
+          for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext();) {
+            CallSiteReference site = it.next();
+            sitePcs.add(site.getProgramCounter());
+            siteDispatches.add(dispatch(site));
+            siteLoaders.add(strings.number(loaderName(site.getDeclaredTarget())));
+            siteMethods.add(strings.number(signature(site.getDeclaredTarget())));
+            targets.addAll(sortedNumbers(cg, cg.getPossibleTargets(n, site)));
+            targetOffsets.add(targets.size);
+          }
+          succs.addAll(sorted(cg.getSuccNodeNumbers(n)));
+          preds.addAll(sorted(cg.getPredNodeNumbers(n)));
+        }
+        siteOffsets.add(sitePcs.size);
+        succOffsets.add(succs.size);
+        predOffsets.add(preds.size);
+      }
+      for (IntIterator it = entrypoints.intIterator(); it.hasNext();) {
+        entries.add(it.next());
+      }
+      if (sitePcs.size != nSites || targets.size != nTargets || succs.size != nSuccs || preds.size != nPreds) {
+        throw new IllegalStateException("call graph changed while it was written");
+      }
+      for (Column c : new Column[] { nodeLoaders, nodeMethods, nodeContexts, nodeFlags, siteOffsets, sitePcs, siteDispatches,
+          siteLoaders, siteMethods, targetOffsets, targets, succOffsets, succs, predOffsets, preds, entries }) {
+        c.flush();
+      }
+
+      // the strings, as offsets into their UTF-8 bytes
+      Column stringOffsets = new Column(channel, position);
+      Column stringBytes = new Column(channel, position + 4L * (strings.values.size() + 1));
+      int byteSize = 0;
+      stringOffsets.add(0);
+      for (String s : strings.values) {
+        byte[] bytes = s.getBytes(UTF8);
+        stringBytes.addBytes(bytes);
+        byteSize += bytes.length;
+        stringOffsets.add(byteSize);
+      }
+      stringOffsets.flush();
+      stringBytes.flush();
+
+      Column header = new Column(channel, 0);
+      header.addAll(new int[] { MappedCallGraph.MAGIC, MappedCallGraph.VERSION, nNodes, (int) nSites, (int) nTargets,
+          (int) nSuccs, (int) nPreds, nEntrypoints, cg.getFakeRootNode() == null ? -1 : cg.getNumber(cg.getFakeRootNode()),
+          cg.getFakeWorldClinitNode() == null ? -1 : cg.getNumber(cg.getFakeWorldClinitNode()), strings.values.size(),
+          byteSize });
+      header.flush();
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static int[] sorted(IntSet s) {
+    if (s == null) {
+      return new int[0];
+    }
+    int[] result = new int[s.size()];
+    int i = 0;
+    for (IntIterator it = s.intIterator(); it.hasNext();) {
+      result[i++] = it.next();
+    }
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * a section of a file, filled in order through a buffer
+   */
+  private static final class Column {
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 13);
+
+    private long position;
+
+    /**
+     * the number of ints added
+     */
+    int size = 0;
+
+    Column(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+    }
+
+    void add(int value) throws IOException {
+      if (!buffer.hasRemaining()) {
+        flush();
+      }
+      buffer.putInt(value);
+      size++;
+    }
+
+    void addAll(int[] values) throws IOException {
+      for (int v : values) {
+        add(v);
+      }
+    }
+
+    void addBytes(byte[] bytes) throws IOException {
+      for (int i = 0; i < bytes.length;) {
+        if (!buffer.hasRemaining()) {
+          flush();
+        }
+        int n = Math.min(buffer.remaining(), bytes.length - i);
+        buffer.put(bytes, i, n);
+        i += n;
+      }
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      buffer.clear();
+    }
+  }
+}
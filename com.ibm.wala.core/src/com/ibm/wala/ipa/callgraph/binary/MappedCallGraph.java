@@ -0,0 +1,726 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.SyntheticMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextItem;
+import com.ibm.wala.ipa.callgraph.ContextKey;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.BasicCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.FakeRootClass;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.graph.impl.NumberedNodeIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * A read-only call graph over a file written by {@link CallGraphWriter#writeColumnar(CallGraph, File)}. The file is
+ * mapped into memory rather than parsed, so opening it costs a few system calls regardless of its size, and pages are
+ * read on demand. Only the columnar format can be read this way: in the varint stream written by
+ * {@link CallGraphWriter#writeBinary(CallGraph, java.io.OutputStream)}, records have variable length, so a node can only
+ * be found by reading everything written before it.
+ *
+ * The nodes are made on demand from the file, and are equal when they have the same number. The method of a node is
+ * resolved in the given class hierarchy; a method that isn't there, such as the fake root method, is represented by a
+ * {@link SyntheticMethod} with no IR. The context of a node is {@link Everywhere#EVERYWHERE} if it was written from
+ * {@link Everywhere}, and otherwise a context that only keeps the <code>toString()</code> of the original one. The IR of a
+ * node is that of its method in the {@link Everywhere} context, from the given cache.
+ *
+ * Each section of the file is mapped separately, so each must be smaller than 2GB: there can be at most 2^29 nodes, call
+ * sites, call edges and so on.
+ */
+public class MappedCallGraph extends AbstractNumberedGraph<CGNode> implements CallGraph {
+
+  /**
+   * "WCGC"
+   */
+  static final int MAGIC = 0x57434743;
+
+  static final int VERSION = 1;
+
+  static final int HEADER_INTS = 12;
+
+  private final IClassHierarchy cha;
+
+  private final IAnalysisCacheView cache;
+
+  private final int nNodes;
+
+  private final int fakeRoot;
+
+  private final int fakeWorldClinit;
+
+  private final IntBuffer nodeLoaders;
+
+  private final IntBuffer nodeMethods;
+
+  private final IntBuffer nodeContexts;
+
+  private final IntBuffer nodeFlags;
+
+  private final IntBuffer siteOffsets;
+
+  private final IntBuffer sitePcs;
+
+  private final IntBuffer siteDispatches;
+
+  private final IntBuffer siteLoaders;
+
+  private final IntBuffer siteMethods;
+
+  private final IntBuffer targetOffsets;
+
+  private final IntBuffer targets;
+
+  private final IntBuffer succOffsets;
+
+  private final IntBuffer succs;
+
+  private final IntBuffer predOffsets;
+
+  private final IntBuffer preds;
+
+  private final IntBuffer entrypoints;
+
+  private final int nStrings;
+
+  private final IntBuffer stringOffsets;
+
+  private final ByteBuffer stringBytes;
+
+  /**
+   * the number of nodes, counted on demand
+   */
+  private int nodeCount = -1;
+
+  /**
+   * the number of each string, built on the first lookup of nodes by method
+   */
+  private Map<String, Integer> stringNumbers;
+
+  /**
+   * A cursor that maps the sections of a file one after the other.
+   */
+  private static class Sections {
+    private final FileChannel channel;
+
+    private long position;
+
+    Sections(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+    }
+
+    ByteBuffer bytes(int size) throws IOException {
+      return map(size);
+    }
+
+    IntBuffer ints(int size) throws IOException {
+      if (size < 0 || size > Integer.MAX_VALUE / 4) {
+        throw new IOException("section of " + size + " ints is too large to map");
+      }
+      return map(4 * size).asIntBuffer();
+    }
+
+    private ByteBuffer map(int size) throws IOException {
+      if (position + size > channel.size()) {
+        throw new IOException("truncated call graph file");
+      }
+      ByteBuffer result = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+      position += size;
+      return result;
+    }
+  }
+
+  /**
+   * Map a file written by {@link CallGraphWriter#writeColumnar(CallGraph, File)}. The file must not be changed while the
+   * result is in use.
+   *
+   * @param cha the class hierarchy in which to resolve the methods of the nodes
+   * @param cache the cache that gives the IR of the nodes
+   */
+  public static MappedCallGraph open(File file, IClassHierarchy cha, IAnalysisCacheView cache) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("file is null");
+    }
+    if (cha == null) {
+      throw new IllegalArgumentException("cha is null");
+    }
+    if (cache == null) {
+      throw new IllegalArgumentException("cache is null");
+    }
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      // a mapping stays valid after its channel is closed
+      return new MappedCallGraph(raf.getChannel(), cha, cache);
+    } finally {
+      raf.close();
+    }
+  }
+
+  private MappedCallGraph(FileChannel channel, IClassHierarchy cha, IAnalysisCacheView cache) throws IOException {
+    this.cha = cha;
+    this.cache = cache;
+    Sections sections = new Sections(channel, 0);
+    IntBuffer header = sections.ints(HEADER_INTS);
+    if (header.get(0) != MAGIC) {
+      throw new IOException("not a call graph file");
+    }
+    if (header.get(1) != VERSION) {
+      throw new IOException("unsupported call graph file version " + header.get(1));
+    }
+    nNodes = header.get(2);
+    int nSites = header.get(3);
+    fakeRoot = header.get(8);
+    fakeWorldClinit = header.get(9);
+    nStrings = header.get(10);
+    nodeLoaders = sections.ints(nNodes);
+    nodeMethods = sections.ints(nNodes);
+    nodeContexts = sections.ints(nNodes);
+    nodeFlags = sections.ints(nNodes);
+    siteOffsets = sections.ints(nNodes + 1);
+    sitePcs = sections.ints(nSites);
+    siteDispatches = sections.ints(nSites);
+    siteLoaders = sections.ints(nSites);
+    siteMethods = sections.ints(nSites);
+    targetOffsets = sections.ints(nSites + 1);
+    targets = sections.ints(header.get(4));
+    succOffsets = sections.ints(nNodes + 1);
+    succs = sections.ints(header.get(5));
+    predOffsets = sections.ints(nNodes + 1);
+    preds = sections.ints(header.get(6));
+    entrypoints = sections.ints(header.get(7));
+    stringOffsets = sections.ints(nStrings + 1);
+    stringBytes = sections.bytes(header.get(11));
+  }
+
+  private String getString(int number) {
+    int start = stringOffsets.get(number);
+    byte[] bytes = new byte[stringOffsets.get(number + 1) - start];
+    ByteBuffer b = stringBytes.duplicate();
+    b.position(start);
+    b.get(bytes);
+    return new String(bytes, CallGraphWriter.UTF8);
+  }
+
+  private synchronized int getStringNumber(String s) {
+    if (stringNumbers == null) {
+      stringNumbers = HashMapFactory.make(nStrings);
+      for (int i = 0; i < nStrings; i++) {
+        stringNumbers.put(getString(i), i);
+      }
+    }
+    Integer result = stringNumbers.get(s);
+    return result == null ? -1 : result;
+  }
+
+  private MethodReference getMethodReference(int loader, int signature) {
+    ClassLoaderReference loaderRef = cha.getScope().getLoader(Atom.findOrCreateUnicodeAtom(getString(loader)));
+    String s = getString(signature);
+    int dot = s.indexOf('.');
+    if (dot < 0) {
+      throw new IllegalStateException("ill-formed method signature " + s);
+    }
+    TypeReference type = TypeReference.findOrCreate(loaderRef, s.substring(0, dot));
+    return MethodReference.findOrCreate(type, Selector.make(s.substring(dot + 1)));
+  }
+
+  private boolean isNode(int number) {
+    return number >= 0 && number < nNodes && nodeMethods.get(number) >= 0;
+  }
+
+  private int checkNode(CGNode n) {
+    if (n == null) {
+      throw new IllegalArgumentException("n is null");
+    }
+    if (!(n instanceof MappedNode) || ((MappedNode) n).getGraph() != this) {
+      throw new IllegalArgumentException("node not in call graph " + n);
+    }
+    return n.getGraphNodeId();
+  }
+
+  /**
+   * The context of a node that was written from a context other than {@link Everywhere}: it has none of the original's
+   * items, just its name.
+   */
+  private static final class MappedContext implements Context {
+    private final String name;
+
+    MappedContext(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public ContextItem get(ContextKey key) {
+      return null;
+    }
+
+    @Override
+    public int hashCode() {
+      return name.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof MappedContext && name.equals(((MappedContext) obj).name);
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private final class MappedNode implements CGNode {
+    private final int number;
+
+    private IMethod method;
+
+    MappedNode(int number) {
+      this.number = number;
+    }
+
+    MappedCallGraph getGraph() {
+      return MappedCallGraph.this;
+    }
+
+    @Override
+    public synchronized IMethod getMethod() {
+      if (method == null) {
+        MethodReference ref = getMethodReference(nodeLoaders.get(number), nodeMethods.get(number));
+        method = cha.resolveMethod(ref);
+        if (method == null) {
+          IClass declaringClass = cha.lookupClass(ref.getDeclaringClass());
+          if (declaringClass == null) {
+            declaringClass = new FakeRootClass(ref.getDeclaringClass(), cha);
+          }
+          method = new SyntheticMethod(ref, declaringClass, (nodeFlags.get(number) & CallGraphWriter.STATIC) != 0, false);
+        }
+      }
+      return method;
+    }
+
+    @Override
+    public Context getContext() {
+      int context = nodeContexts.get(number);
+      return context < 0 ? Everywhere.EVERYWHERE : new MappedContext(getString(context));
+    }
+
+    @Override
+    @Deprecated
+    public boolean addTarget(CallSiteReference site, CGNode target) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IR getIR() {
+      IMethod m = getMethod();
+      return m instanceof SyntheticMethod ? null : cache.getIR(m, Everywhere.EVERYWHERE);
+    }
+
+    @Override
+    public DefUse getDU() {
+      IR ir = getIR();
+      return ir == null ? null : cache.getDefUse(ir);
+    }
+
+    @Override
+    public Iterator<NewSiteReference> iterateNewSites() {
+      IR ir = getIR();
+      return ir == null ? EmptyIterator.<NewSiteReference> instance() : ir.iterateNewSites();
+    }
+
+    @Override
+    public Iterator<CallSiteReference> iterateCallSites() {
+      List<CallSiteReference> result = new ArrayList<CallSiteReference>();
+      for (int s = siteOffsets.get(number); s < siteOffsets.get(number + 1); s++) {
+        result.add(getSite(s));
+      }
+      return result.iterator();
+    }
+
+    @Override
+    public int getGraphNodeId() {
+      return number;
+    }
+
+    @Override
+    public void setGraphNodeId(int number) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IClassHierarchy getClassHierarchy() {
+      return cha;
+    }
+
+    @Override
+    public int hashCode() {
+      return number;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof MappedNode && ((MappedNode) obj).getGraph() == getGraph() && ((MappedNode) obj).number == number;
+    }
+
+    @Override
+    public String toString() {
+      return "Node: " + getMethodReference(nodeLoaders.get(number), nodeMethods.get(number)) + " Context: " + getContext();
+    }
+  }
+
+  private CallSiteReference getSite(int s) {
+    return CallSiteReference.make(sitePcs.get(s), getMethodReference(siteLoaders.get(s), siteMethods.get(s)),
+        CallGraphWriter.dispatch(siteDispatches.get(s)));
+  }
+
+  /**
+   * @return the index of site among the call sites of node n, or -1
+   */
+  private int findSite(int n, CallSiteReference site) {
+    if (site == null) {
+      throw new IllegalArgumentException("site is null");
+    }
+    for (int s = siteOffsets.get(n); s < siteOffsets.get(n + 1); s++) {
+      if (sitePcs.get(s) == site.getProgramCounter() && getSite(s).equals(site)) {
+        return s;
+      }
+    }
+    return -1;
+  }
+
+  private final NumberedNodeManager<CGNode> nodeManager = new NumberedNodeManager<CGNode>() {
+
+    @Override
+    public Iterator<CGNode> iterator() {
+      return new Iterator<CGNode>() {
+        private int next = advance(0);
+
+        private int advance(int i) {
+          while (i < nNodes && !isNode(i)) {
+            i++;
+          }
+          return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next < nNodes;
+        }
+
+        @Override
+        public CGNode next() {
+          if (next >= nNodes) {
+            throw new NoSuchElementException();
+          }
+          CGNode result = new MappedNode(next);
+          next = advance(next + 1);
+          return result;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      if (nodeCount < 0) {
+        int result = 0;
+        for (int i = 0; i < nNodes; i++) {
+          if (isNode(i)) {
+            result++;
+          }
+        }
+        nodeCount = result;
+      }
+      return nodeCount;
+    }
+
+    @Override
+    public void addNode(CGNode n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeNode(CGNode n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsNode(CGNode n) {
+      return n instanceof MappedNode && ((MappedNode) n).getGraph() == MappedCallGraph.this;
+    }
+
+    @Override
+    public int getNumber(CGNode n) {
+      return checkNode(n);
+    }
+
+    @Override
+    public CGNode getNode(int number) {
+      return isNode(number) ? new MappedNode(number) : null;
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return nNodes - 1;
+    }
+
+    @Override
+    public Iterator<CGNode> iterateNodes(IntSet s) {
+      return new NumberedNodeIterator<CGNode>(s, this);
+    }
+  };
+
+  private final NumberedEdgeManager<CGNode> edgeManager = new NumberedEdgeManager<CGNode>() {
+
+    @Override
+    public Iterator<CGNode> getPredNodes(CGNode n) {
+      int number = checkNode(n);
+      return nodes(preds, predOffsets.get(number), predOffsets.get(number + 1)).iterator();
+    }
+
+    @Override
+    public int getPredNodeCount(CGNode n) {
+      int number = checkNode(n);
+      return predOffsets.get(number + 1) - predOffsets.get(number);
+    }
+
+    @Override
+    public Iterator<CGNode> getSuccNodes(CGNode n) {
+      int number = checkNode(n);
+      return nodes(succs, succOffsets.get(number), succOffsets.get(number + 1)).iterator();
+    }
+
+    @Override
+    public int getSuccNodeCount(CGNode n) {
+      int number = checkNode(n);
+      return succOffsets.get(number + 1) - succOffsets.get(number);
+    }
+
+    @Override
+    public IntSet getSuccNodeNumbers(CGNode n) {
+      int number = checkNode(n);
+      return toIntSet(succs, succOffsets.get(number), succOffsets.get(number + 1));
+    }
+
+    @Override
+    public IntSet getPredNodeNumbers(CGNode n) {
+      int number = checkNode(n);
+      return toIntSet(preds, predOffsets.get(number), predOffsets.get(number + 1));
+    }
+
+    /**
+     * the successors of each node are sorted, so binary search
+     */
+    @Override
+    public boolean hasEdge(CGNode src, CGNode dst) {
+      int number = checkNode(src);
+      int target = checkNode(dst);
+      int low = succOffsets.get(number);
+      int high = succOffsets.get(number + 1) - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int value = succs.get(mid);
+        if (value < target) {
+          low = mid + 1;
+        } else if (value > target) {
+          high = mid - 1;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void addEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAllIncidentEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeIncomingEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeOutgoingEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+  };
+
+  @Override
+  protected NumberedNodeManager<CGNode> getNodeManager() {
+    return nodeManager;
+  }
+
+  @Override
+  protected NumberedEdgeManager<CGNode> getEdgeManager() {
+    return edgeManager;
+  }
+
+  private List<CGNode> nodes(IntBuffer values, int from, int to) {
+    List<CGNode> result = new ArrayList<CGNode>(to - from);
+    for (int i = from; i < to; i++) {
+      result.add(new MappedNode(values.get(i)));
+    }
+    return result;
+  }
+
+  private static IntSet toIntSet(IntBuffer values, int from, int to) {
+    int[] result = new int[to - from];
+    for (int i = from; i < to; i++) {
+      result[i - from] = values.get(i);
+    }
+    return IntSetUtil.make(result);
+  }
+
+  @Override
+  public CGNode getFakeRootNode() {
+    return fakeRoot < 0 ? null : new MappedNode(fakeRoot);
+  }
+
+  @Override
+  public CGNode getFakeWorldClinitNode() {
+    return fakeWorldClinit < 0 ? null : new MappedNode(fakeWorldClinit);
+  }
+
+  @Override
+  public Collection<CGNode> getEntrypointNodes() {
+    return nodes(entrypoints, 0, entrypoints.limit());
+  }
+
+  @Override
+  public CGNode getNode(IMethod method, Context C) {
+    if (method == null) {
+      throw new IllegalArgumentException("method is null");
+    }
+    for (CGNode n : getNodes(method.getReference())) {
+      if (n.getContext().equals(C)) {
+        return n;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Like {@link BasicCallGraph#getNodes(MethodReference)}, m is first resolved in the class hierarchy, but a method that
+   * isn't there is looked up as is. Scans the method of every node.
+   */
+  @Override
+  public Set<CGNode> getNodes(MethodReference m) {
+    if (m == null) {
+      throw new IllegalArgumentException("m is null");
+    }
+    IMethod resolved = cha.resolveMethod(m);
+    if (resolved != null) {
+      m = resolved.getReference();
+    }
+    int loader = getStringNumber(CallGraphWriter.loaderName(m));
+    int signature = getStringNumber(CallGraphWriter.signature(m));
+    if (loader < 0 || signature < 0) {
+      return Collections.emptySet();
+    }
+    Set<CGNode> result = HashSetFactory.make();
+    for (int i = 0; i < nNodes; i++) {
+      if (nodeMethods.get(i) == signature && nodeLoaders.get(i) == loader) {
+        result.add(new MappedNode(i));
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  @Override
+  public Set<CGNode> getPossibleTargets(CGNode node, CallSiteReference site) {
+    int s = findSite(checkNode(node), site);
+    if (s < 0) {
+      return Collections.emptySet();
+    }
+    return HashSetFactory.make(nodes(targets, targetOffsets.get(s), targetOffsets.get(s + 1)));
+  }
+
+  @Override
+  public int getNumberOfTargets(CGNode node, CallSiteReference site) {
+    int s = findSite(checkNode(node), site);
+    return s < 0 ? 0 : targetOffsets.get(s + 1) - targetOffsets.get(s);
+  }
+
+  @Override
+  public Iterator<CallSiteReference> getPossibleSites(CGNode src, CGNode target) {
+    int number = checkNode(src);
+    int t = checkNode(target);
+    List<CallSiteReference> result = new ArrayList<CallSiteReference>();
+    for (int s = siteOffsets.get(number); s < siteOffsets.get(number + 1); s++) {
+      for (int i = targetOffsets.get(s); i < targetOffsets.get(s + 1); i++) {
+        if (targets.get(i) == t) {
+          result.add(getSite(s));
+          break;
+        }
+      }
+    }
+    return result.iterator();
+  }
+}
@@ -140,6 +140,32 @@ public abstract class BasicCallGraph<T> extends AbstractNumberedGraph<CGNode> im
     return nodes.get(K);
   }
 
+  /**
+   * Make a node represent another version of its method, for instance one whose class was loaded again after its code changed.
+   * 
+   * @throws IllegalArgumentException if method is not a version of the method of N
+   */
+  protected void replaceMethod(NodeImpl N, IMethod method) {
+    if (method == null) {
+      throw new IllegalArgumentException("method is null");
+    }
+    if (!method.getReference().equals(N.getMethod().getReference())) {
+      throw new IllegalArgumentException("method " + method + " is not a version of " + N.getMethod());
+    }
+    if (nodes.remove(new Key(N.getMethod(), N.getContext())) != null) {
+      nodes.put(new Key(method, N.getContext()), N);
+    }
+    N.method = method;
+  }
+
+  /**
+   * forget the mappings from keys and method references to nodes, for a graph that will get no more nodes
+   */
+  protected void clearNodeIndex() {
+    nodes.clear();
+    mr2Nodes.clear();
+  }
+
   @Override
   public CGNode getFakeRootNode() {
     return fakeRoot;
@@ -170,9 +196,10 @@ public abstract class BasicCallGraph<T> extends AbstractNumberedGraph<CGNode> im
   public abstract class NodeImpl extends NodeWithNumber implements CGNode {
 
     /**
-     * The method this node represents.
+     * The method this node represents. It only changes to another version of the same method, see
+     * {@link BasicCallGraph#replaceMethod(NodeImpl, IMethod)}.
      */
-    protected final IMethod method;
+    protected IMethod method;
 
     /**
      * The context this node represents.
@@ -0,0 +1,552 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.impl;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.graph.AbstractNumberedGraph;
+import com.ibm.wala.util.graph.NumberedEdgeManager;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.graph.impl.NumberedNodeIterator;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+
+/**
+ * An immutable call graph, with the nodes and node numbers of the call graph it was made from, and its edges in
+ * compressed sparse row form: int arrays of successors and predecessors, each sorted, with the offset of each node into
+ * them, and the call sites of each node sorted by program counter, each with a range of an int array of targets. It
+ * holds no hash sets, and only one hash map, from each method to the numbers of its nodes.
+ *
+ * As in {@link ExplicitCallGraph}, the targets of a call site are found by its program counter alone.
+ *
+ * @see ExplicitCallGraph#freeze()
+ */
+public class CompactCallGraph extends AbstractNumberedGraph<CGNode> implements CallGraph {
+
+  private final IClassHierarchy cha;
+
+  /**
+   * the node of each number, or null
+   */
+  private final CGNode[] nodes;
+
+  private final int nNodes;
+
+  private final CGNode fakeRoot;
+
+  private final CGNode fakeWorldClinit;
+
+  private final Collection<CGNode> entrypoints;
+
+  private final int[] succOffsets;
+
+  private final int[] succs;
+
+  private final int[] predOffsets;
+
+  private final int[] preds;
+
+  /**
+   * the call sites with at least one target, in order of node number and then of program counter
+   */
+  private final CallSiteReference[] sites;
+
+  private final int[] sitePcs;
+
+  private final int[] siteOffsets;
+
+  private final int[] targetOffsets;
+
+  private final int[] targets;
+
+  private final Map<MethodReference, int[]> methodNodes;
+
+  private static final Comparator<CallSiteReference> BY_PC = new Comparator<CallSiteReference>() {
+    @Override
+    public int compare(CallSiteReference o1, CallSiteReference o2) {
+      return o1.getProgramCounter() - o2.getProgramCounter();
+    }
+  };
+
+  /**
+   * a growable array of ints
+   */
+  private static final class Ints {
+    private int[] values;
+
+    private int size = 0;
+
+    Ints(int capacity) {
+      values = new int[capacity];
+    }
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, 2 * size + 1);
+      }
+      values[size++] = value;
+    }
+
+    void addSorted(IntSet s) {
+      int start = size;
+      if (s != null) {
+        for (IntIterator it = s.intIterator(); it.hasNext();) {
+          add(it.next());
+        }
+      }
+      Arrays.sort(values, start, size);
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+  /**
+   * Copy cg, which must not change while it is copied.
+   */
+  public static CompactCallGraph make(CallGraph cg) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    return new CompactCallGraph(cg);
+  }
+
+  private CompactCallGraph(CallGraph cg) {
+    cha = cg.getClassHierarchy();
+    fakeRoot = cg.getFakeRootNode();
+    fakeWorldClinit = cg.getFakeWorldClinitNode();
+    entrypoints = Collections.unmodifiableList(new ArrayList<CGNode>(cg.getEntrypointNodes()));
+
+    int size = cg.getMaxNumber() + 1;
+    nodes = new CGNode[size];
+    succOffsets = new int[size + 1];
+    predOffsets = new int[size + 1];
+    siteOffsets = new int[size + 1];
+    Ints succList = new Ints(1024);
+    Ints predList = new Ints(1024);
+    Ints targetList = new Ints(1024);
+    Ints targetOffsetList = new Ints(1024);
+    List<CallSiteReference> siteList = new ArrayList<CallSiteReference>();
+    Map<MethodReference, Ints> methodNodeLists = HashMapFactory.make();
+    targetOffsetList.add(0);
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      CGNode n = cg.getNode(i);
+      nodes[i] = n;
+      if (n != null) {
+        count++;
+        MethodReference m = n.getMethod().getReference();
+        Ints numbers = methodNodeLists.get(m);
+        if (numbers == null) {
+          numbers = new Ints(1);
+          methodNodeLists.put(m, numbers);
+        }
+        numbers.add(i);
+        succList.addSorted(cg.getSuccNodeNumbers(n));
+        predList.addSorted(cg.getPredNodeNumbers(n));
+
+        List<CallSiteReference> nodeSites = new ArrayList<CallSiteReference>();
+        for (Iterator<CallSiteReference> it = n.iterateCallSites(); it.hasNext();) {
+          CallSiteReference site = it.next();
+          if (cg.getNumberOfTargets(n, site) > 0) {
+            nodeSites.add(site);
+          }
+        }
+        Collections.sort(nodeSites, BY_PC);
+        int lastPc = -1;
+        for (CallSiteReference site : nodeSites) {
+          if (site.getProgramCounter() == lastPc) {
+            // the targets are those of the program counter, already added
+            continue;
+          }
+          lastPc = site.getProgramCounter();
+          siteList.add(site);
+          int start = targetList.size;
+          for (CGNode t : cg.getPossibleTargets(n, site)) {
+            targetList.add(cg.getNumber(t));
+          }
+          Arrays.sort(targetList.values, start, targetList.size);
+          targetOffsetList.add(targetList.size);
+        }
+      }
+      succOffsets[i + 1] = succList.size;
+      predOffsets[i + 1] = predList.size;
+      siteOffsets[i + 1] = siteList.size();
+    }
+    nNodes = count;
+    succs = succList.toArray();
+    preds = predList.toArray();
+    targets = targetList.toArray();
+    targetOffsets = targetOffsetList.toArray();
+    sites = siteList.toArray(new CallSiteReference[siteList.size()]);
+    sitePcs = new int[sites.length];
+    for (int s = 0; s < sites.length; s++) {
+      sitePcs[s] = sites[s].getProgramCounter();
+    }
+    methodNodes = HashMapFactory.make(methodNodeLists.size());
+    for (Map.Entry<MethodReference, Ints> e : methodNodeLists.entrySet()) {
+      methodNodes.put(e.getKey(), e.getValue().toArray());
+    }
+  }
+
+  private int checkNode(CGNode n) {
+    if (n == null) {
+      throw new IllegalArgumentException("n is null");
+    }
+    int number = n.getGraphNodeId();
+    if (number < 0 || number >= nodes.length || !n.equals(nodes[number])) {
+      throw new IllegalArgumentException("node not in call graph " + n);
+    }
+    return number;
+  }
+
+  /**
+   * @return the index of a value in values[from, to), which is sorted, or -1
+   */
+  private static int find(int[] values, int from, int to, int value) {
+    int i = Arrays.binarySearch(values, from, to, value);
+    return i < 0 ? -1 : i;
+  }
+
+  /**
+   * @return the index of the call site of node n at the program counter of site, or -1 if it has no targets
+   */
+  private int findSite(int n, CallSiteReference site) {
+    if (site == null) {
+      throw new IllegalArgumentException("site is null");
+    }
+    return find(sitePcs, siteOffsets[n], siteOffsets[n + 1], site.getProgramCounter());
+  }
+
+  /**
+   * The nodes with the numbers in values[from, to), which is sorted.
+   */
+  private final class NodeRange extends AbstractSet<CGNode> {
+    private final int[] values;
+
+    private final int from;
+
+    private final int to;
+
+    NodeRange(int[] values, int from, int to) {
+      this.values = values;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public Iterator<CGNode> iterator() {
+      return new Iterator<CGNode>() {
+        private int i = from;
+
+        @Override
+        public boolean hasNext() {
+          return i < to;
+        }
+
+        @Override
+        public CGNode next() {
+          if (i >= to) {
+            throw new NoSuchElementException();
+          }
+          return nodes[values[i++]];
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof CGNode)) {
+        return false;
+      }
+      int number = ((CGNode) o).getGraphNodeId();
+      int i = find(values, from, to, number);
+      return i >= 0 && o.equals(nodes[number]);
+    }
+  }
+
+  private static IntSet toIntSet(int[] values, int from, int to) {
+    return IntSetUtil.make(Arrays.copyOfRange(values, from, to));
+  }
+
+  private final NumberedNodeManager<CGNode> nodeManager = new NumberedNodeManager<CGNode>() {
+
+    @Override
+    public Iterator<CGNode> iterator() {
+      return new Iterator<CGNode>() {
+        private int next = advance(0);
+
+        private int advance(int i) {
+          while (i < nodes.length && nodes[i] == null) {
+            i++;
+          }
+          return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next < nodes.length;
+        }
+
+        @Override
+        public CGNode next() {
+          if (next >= nodes.length) {
+            throw new NoSuchElementException();
+          }
+          CGNode result = nodes[next];
+          next = advance(next + 1);
+          return result;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      return nNodes;
+    }
+
+    @Override
+    public void addNode(CGNode n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeNode(CGNode n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsNode(CGNode n) {
+      if (n == null) {
+        return false;
+      }
+      int number = n.getGraphNodeId();
+      return number >= 0 && number < nodes.length && n.equals(nodes[number]);
+    }
+
+    @Override
+    public int getNumber(CGNode n) {
+      return checkNode(n);
+    }
+
+    @Override
+    public CGNode getNode(int number) {
+      return number < 0 || number >= nodes.length ? null : nodes[number];
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return nodes.length - 1;
+    }
+
+    @Override
+    public Iterator<CGNode> iterateNodes(IntSet s) {
+      return new NumberedNodeIterator<CGNode>(s, this);
+    }
+  };
+
+  private final NumberedEdgeManager<CGNode> edgeManager = new NumberedEdgeManager<CGNode>() {
+
+    @Override
+    public Iterator<CGNode> getPredNodes(CGNode n) {
+      int number = checkNode(n);
+      return new NodeRange(preds, predOffsets[number], predOffsets[number + 1]).iterator();
+    }
+
+    @Override
+    public int getPredNodeCount(CGNode n) {
+      int number = checkNode(n);
+      return predOffsets[number + 1] - predOffsets[number];
+    }
+
+    @Override
+    public Iterator<CGNode> getSuccNodes(CGNode n) {
+      int number = checkNode(n);
+      return new NodeRange(succs, succOffsets[number], succOffsets[number + 1]).iterator();
+    }
+
+    @Override
+    public int getSuccNodeCount(CGNode n) {
+      int number = checkNode(n);
+      return succOffsets[number + 1] - succOffsets[number];
+    }
+
+    @Override
+    public IntSet getSuccNodeNumbers(CGNode n) {
+      int number = checkNode(n);
+      return toIntSet(succs, succOffsets[number], succOffsets[number + 1]);
+    }
+
+    @Override
+    public IntSet getPredNodeNumbers(CGNode n) {
+      int number = checkNode(n);
+      return toIntSet(preds, predOffsets[number], predOffsets[number + 1]);
+    }
+
+    @Override
+    public boolean hasEdge(CGNode src, CGNode dst) {
+      int number = checkNode(src);
+      return find(succs, succOffsets[number], succOffsets[number + 1], checkNode(dst)) >= 0;
+    }
+
+    @Override
+    public void addEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeEdge(CGNode src, CGNode dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAllIncidentEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeIncomingEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeOutgoingEdges(CGNode node) {
+      throw new UnsupportedOperationException();
+    }
+  };
+
+  @Override
+  protected NumberedNodeManager<CGNode> getNodeManager() {
+    return nodeManager;
+  }
+
+  @Override
+  protected NumberedEdgeManager<CGNode> getEdgeManager() {
+    return edgeManager;
+  }
+
+  @Override
+  public CGNode getFakeRootNode() {
+    return fakeRoot;
+  }
+
+  @Override
+  public CGNode getFakeWorldClinitNode() {
+    return fakeWorldClinit;
+  }
+
+  @Override
+  public Collection<CGNode> getEntrypointNodes() {
+    return entrypoints;
+  }
+
+  @Override
+  public CGNode getNode(IMethod method, Context C) {
+    if (method == null) {
+      throw new IllegalArgumentException("method is null");
+    }
+    int[] numbers = methodNodes.get(method.getReference());
+    if (numbers != null) {
+      for (int i : numbers) {
+        if (nodes[i].getMethod().equals(method) && nodes[i].getContext().equals(C)) {
+          return nodes[i];
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * As in {@link BasicCallGraph}, m is first resolved in the class hierarchy.
+   */
+  @Override
+  public Set<CGNode> getNodes(MethodReference m) {
+    IMethod im = cha.resolveMethod(m);
+    if (im == null) {
+      return Collections.emptySet();
+    }
+    int[] numbers = methodNodes.get(im.getReference());
+    return numbers == null ? Collections.<CGNode> emptySet() : new NodeRange(numbers, 0, numbers.length);
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  @Override
+  public Set<CGNode> getPossibleTargets(CGNode node, CallSiteReference site) {
+    int s = findSite(checkNode(node), site);
+    return s < 0 ? Collections.<CGNode> emptySet() : new NodeRange(targets, targetOffsets[s], targetOffsets[s + 1]);
+  }
+
+  @Override
+  public int getNumberOfTargets(CGNode node, CallSiteReference site) {
+    int s = findSite(checkNode(node), site);
+    return s < 0 ? 0 : targetOffsets[s + 1] - targetOffsets[s];
+  }
+
+  @Override
+  public Iterator<CallSiteReference> getPossibleSites(CGNode src, CGNode target) {
+    int n = checkNode(src);
+    int t = checkNode(target);
+    List<CallSiteReference> result = new ArrayList<CallSiteReference>();
+    for (int s = siteOffsets[n]; s < siteOffsets[n + 1]; s++) {
+      if (find(targets, targetOffsets[s], targetOffsets[s + 1], t) >= 0) {
+        result.add(sites[s]);
+      }
+    }
+    return result.iterator();
+  }
+
+  /**
+   * @return the numbers of the possible targets of the call site, or null if there are none
+   */
+  public IntSet getPossibleTargetNumbers(CGNode node, CallSiteReference site) {
+    int s = findSite(checkNode(node), site);
+    return s < 0 ? null : toIntSet(targets, targetOffsets[s], targetOffsets[s + 1]);
+  }
+}
@@ -11,9 +11,11 @@
 package com.ibm.wala.ipa.callgraph.impl;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import com.ibm.wala.cfg.ControlFlowGraph;
@@ -65,7 +67,12 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
   /**
    * special object to track call graph edges
    */
-  private final ExplicitEdgeManager edgeManager = makeEdgeManger();
+  private ExplicitEdgeManager edgeManager = makeEdgeManger();
+
+  /**
+   * has this graph been {@link #freeze() frozen}?
+   */
+  private boolean frozen = false;
 
   public ExplicitCallGraph(IClassHierarchy cha, AnalysisOptions options, IAnalysisCacheView cache) {
     super();
@@ -119,6 +126,9 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
     if (context == null) {
       throw new IllegalArgumentException("null context");
     }
+    if (frozen) {
+      throw new IllegalStateException("call graph is frozen");
+    }
     Key k = new Key(method, context);
     CGNode result = getNode(k);
     if (result == null) {
@@ -214,6 +224,9 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
     }
 
     protected boolean addTarget(int pc, CGNode tNode) {
+      if (frozen) {
+        throw new IllegalStateException("call graph is frozen");
+      }
       allTargets.add(getCallGraph().getNumber(tNode));
       Object S = targets.get(pc);
       if (S == null) {
@@ -301,6 +314,40 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
       allTargets.clear();
     }
 
+    /**
+     * Forget the call graph edges out of this node and the IR cached for it, for instance because the code of its method has
+     * changed. The edges are discovered again when constraints are next added for this node.
+     */
+    public void invalidate() {
+      // the call from the fake root to the fake world clinit is not discovered from constraints, so keep it
+      List<CallSiteReference> clinitSites = new ArrayList<CallSiteReference>();
+      CGNode clinit = getFakeWorldClinitNode();
+      if (this == getFakeRootNode() && clinit != null) {
+        for (Iterator<CallSiteReference> it = getPossibleSites(clinit); it.hasNext();) {
+          clinitSites.add(it.next());
+        }
+      }
+      for (IntIterator it = allTargets.intIterator(); it.hasNext();) {
+        edgeManager.removeEdge(this, getNode(it.next()));
+      }
+      clearAllTargets();
+      for (CallSiteReference site : clinitSites) {
+        addTarget(site, clinit);
+      }
+      ir = new WeakReference<IR>(null);
+      du = new WeakReference<DefUse>(null);
+      cache.invalidate(getMethod(), getContext());
+    }
+
+    /**
+     * As {@link #invalidate()}, and from now on this node represents newVersion of its method, for instance one whose class was
+     * loaded again after its code changed.
+     */
+    public void invalidate(IMethod newVersion) {
+      invalidate();
+      replaceMethod(this, newVersion);
+    }
+
     @Override
     public IR getIR() {
       if (getMethod().isSynthetic()) {
@@ -522,4 +569,23 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
   public IAnalysisCacheView getAnalysisCache() {
     return cache;
   }
+
+  /**
+   * Convert this finished call graph into a {@link CompactCallGraph}, with the same nodes and node numbers, and release
+   * the mutable structures that hold the edges of this graph and index its nodes. The nodes still give their methods,
+   * contexts and IR, but this graph must not be used any more: it no longer has any edges, and it can't be changed.
+   */
+  public CompactCallGraph freeze() {
+    if (frozen) {
+      throw new IllegalStateException("call graph is already frozen");
+    }
+    CompactCallGraph result = CompactCallGraph.make(this);
+    frozen = true;
+    for (CGNode n : this) {
+      ((ExplicitNode) n).clearAllTargets();
+    }
+    edgeManager = makeEdgeManger();
+    clearNodeIndex();
+    return result;
+  }
 }
@@ -20,6 +20,8 @@ import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 
@@ -45,12 +47,30 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
 
   private PointerKey pointerKey;
 
+  /**
+   * the factory for the points-to set, or null to use the default
+   */
+  private final MutableIntSetFactory<?> factory;
+
   public PointsToSetVariable(PointerKey key) {
+    this(key, null);
+  }
+
+  /**
+   * @param factory the factory for the points-to set, or null to use {@link IntSetUtil#getDefaultIntSetFactory()}
+   */
+  public PointsToSetVariable(PointerKey key, MutableIntSetFactory<?> factory) {
     super();
     if (key == null) {
       throw new IllegalArgumentException("null key");
     }
     this.pointerKey = key;
+    this.factory = factory;
+  }
+
+  @Override
+  protected MutableIntSetFactory<?> getIntSetFactory() {
+    return factory == null ? super.getIntSetFactory() : factory;
   }
 
   public PointerKey getPointerKey() {
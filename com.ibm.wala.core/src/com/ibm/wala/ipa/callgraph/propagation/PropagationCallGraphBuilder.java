@@ -10,8 +10,11 @@
  *******************************************************************************/
 package com.ibm.wala.ipa.callgraph.propagation;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.ibm.wala.analysis.reflection.IllegalArgumentExceptionContext;
@@ -41,6 +44,7 @@ import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.CancelRuntimeException;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
@@ -227,6 +231,7 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
       throw new IllegalArgumentException("options is null");
     }
     system = makeSystem(options);
+    system.setPointsToSetFactory(options.getPointsToSetFactory());
 
     if (DEBUG_GENERAL) {
       System.err.println("Enter makeCallGraph!");
@@ -266,6 +271,75 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     customInit();
 
     solver = makeSolver();
+    solve(monitor);
+
+    return callGraph;
+  }
+
+  /**
+   * Bring the call graph and pointer analysis built by {@link #makeCallGraph(AnalysisOptions, IProgressMonitor)} up to date after
+   * the code of some classes has changed, starting from the previous results rather than from scratch.
+   * 
+   * The constraints added for the nodes of methods of the changed classes are removed, along with their call graph edges, and the
+   * points-to sets that may have depended on them are cleared (see {@link PropagationSystem#removeConstraintsFromNodes(Set)}).
+   * Then constraints are added again for the nodes owning cleared points-to sets, and the system is solved again.
+   * 
+   * The result is the same as that of a new analysis, except that it may remain conservative where code was removed: nodes that are
+   * no longer reachable stay in the call graph, and constraints that were added while solving, such as those that pass arguments to
+   * call targets or that read and write fields, are kept even if the points-to sets that gave rise to them have shrunk.
+   * 
+   * The changed classes are matched with the nodes of the call graph by their {@link TypeReference}, so they may be new versions
+   * loaded again after the change, e.g. by a new class hierarchy. The node of a method then represents the version of the method
+   * declared by the new version of its class, and its constraints are added from the code of that version. Calls are still
+   * dispatched in the class hierarchy of this builder, so the new versions should declare the methods other classes call, and
+   * methods they declare in addition are not found as call targets.
+   * 
+   * @param changedClasses classes whose methods may have different code than when the call graph was last built or updated,
+   *          either as found in the class hierarchy of this builder or as loaded again after the change
+   * @return the call graph, updated
+   * @throws IllegalStateException if no call graph has been built yet
+   */
+  public CallGraph updateCallGraph(Collection<IClass> changedClasses, IProgressMonitor monitor) throws IllegalArgumentException,
+      CallGraphBuilderCancelException {
+    if (changedClasses == null) {
+      throw new IllegalArgumentException("changedClasses is null");
+    }
+    if (system == null || solver == null) {
+      throw new IllegalStateException("no call graph to update");
+    }
+    Map<TypeReference, IClass> classes = HashMapFactory.make();
+    for (IClass c : changedClasses) {
+      classes.put(c.getReference(), c);
+    }
+    Set<CGNode> changedNodes = HashSetFactory.make();
+    for (CGNode n : callGraph) {
+      if (classes.containsKey(n.getMethod().getDeclaringClass().getReference())) {
+        changedNodes.add(n);
+      }
+    }
+    if (changedNodes.isEmpty()) {
+      return callGraph;
+    }
+
+    for (CGNode n : changedNodes) {
+      ExplicitCallGraph.ExplicitNode node = (ExplicitCallGraph.ExplicitNode) n;
+      IMethod m = classes.get(n.getMethod().getDeclaringClass().getReference()).getMethod(n.getMethod().getSelector());
+      if (m == null || m == n.getMethod() || !m.getReference().equals(n.getMethod().getReference())) {
+        // the same version, or the method is gone from the new version of its class, in which case the node keeps the old code
+        node.invalidate();
+      } else {
+        node.invalidate(m);
+      }
+    }
+    for (CGNode n : system.removeConstraintsFromNodes(changedNodes)) {
+      markChanged(n);
+    }
+    solve(monitor);
+
+    return callGraph;
+  }
+
+  private void solve(IProgressMonitor monitor) throws CallGraphBuilderCancelException {
     try {
       solver.solve(monitor);
     } catch (CancelException e) {
@@ -277,8 +351,6 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
           system.extractPointerAnalysis(this));
       throw c;
     }
-
-    return callGraph;
   }
 
   protected PropagationSystem makeSystem(AnalysisOptions options) {
@@ -330,16 +402,27 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
   protected boolean addConstraintsFromNewNodes(IProgressMonitor monitor) throws CancelException {
     boolean result = false;
     while (!discoveredNodes.isEmpty()) {
-      Iterator<CGNode> it = discoveredNodes.iterator();
+      List<CGNode> batch = new ArrayList<CGNode>(discoveredNodes);
       discoveredNodes = HashSetFactory.make();
-      while (it.hasNext()) {
-        CGNode n = it.next();
+      prepareNodesForConstraints(batch, monitor);
+      for (CGNode n : batch) {
         result |= addConstraintsFromNode(n, monitor);
       }
     }
     return result;
   }
 
+  /**
+   * Hook called with each batch of newly discovered nodes, before constraints are added for any of them. Subclasses may use this
+   * to compute, possibly in parallel, information that {@link #addConstraintsFromNode(CGNode, IProgressMonitor)} will need.
+   * Implementations must not add constraints or discover nodes; constraints for the batch are still added one node at a time, in
+   * order, so the result of the analysis does not depend on what happens here.
+   * 
+   * @param nodes the batch, in the order in which constraints will be added
+   */
+  protected void prepareNodesForConstraints(List<CGNode> nodes, IProgressMonitor monitor) throws CancelException {
+  }
+
   /**
    * @return the PointerKey that acts as a representative for the class of pointers that includes the local variable identified by
    *         the value number parameter.
@@ -664,7 +664,7 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
 
   @Override
   @SuppressWarnings("unchecked")
-  public Iterator<AbstractStatement> getStatementsThatUse(PointsToSetVariable v) {
+  public Iterator<AbstractStatement<PointsToSetVariable, ?>> getStatementsThatUse(PointsToSetVariable v) {
     if (v == null) {
       throw new IllegalArgumentException("v is null");
     }
@@ -681,16 +681,16 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
         result = new CompoundIterator<INodeWithNumber>(new ImplicitUseIterator(op, v, s), result);
       }
     }
-    List<AbstractStatement> list = new ArrayList<AbstractStatement>();
+    List<AbstractStatement<PointsToSetVariable, ?>> list = new ArrayList<AbstractStatement<PointsToSetVariable, ?>>();
     while (result.hasNext()) {
-      list.add((AbstractStatement) result.next());
+      list.add((AbstractStatement<PointsToSetVariable, ?>) result.next());
     }
     return list.iterator();
   }
 
   @Override
   @SuppressWarnings("unchecked")
-  public Iterator<AbstractStatement> getStatementsThatDef(PointsToSetVariable v) {
+  public Iterator<AbstractStatement<PointsToSetVariable, ?>> getStatementsThatDef(PointsToSetVariable v) {
     if (v == null) {
       throw new IllegalArgumentException("v is null");
     }
@@ -708,9 +708,9 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
       }
     }
 
-    List<AbstractStatement> list = new ArrayList<AbstractStatement>();
+    List<AbstractStatement<PointsToSetVariable, ?>> list = new ArrayList<AbstractStatement<PointsToSetVariable, ?>>();
     while (result.hasNext()) {
-      list.add((AbstractStatement) result.next());
+      list.add((AbstractStatement<PointsToSetVariable, ?>) result.next());
     }
     return list.iterator();
   }
@@ -23,13 +23,14 @@ import java.util.Set;
 import com.ibm.wala.classLoader.ArrayClass;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSolver;
-import com.ibm.wala.fixedpoint.impl.Worklist;
+import com.ibm.wala.fixedpoint.impl.IFixedPointWorklist;
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
 import com.ibm.wala.fixpoint.IFixedPointSystem;
 import com.ibm.wala.fixpoint.IVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
@@ -49,7 +50,9 @@ import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.SynchronizedMutableMapping;
 import com.ibm.wala.util.ref.ReferenceCleanser;
 import com.ibm.wala.util.warnings.Warnings;
 
@@ -77,9 +80,10 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   private final PropagationGraph flowGraph = new PropagationGraph();
 
   /**
-   * bijection from InstanceKey &lt;=&gt; Integer
+   * bijection from InstanceKey &lt;=&gt; Integer. Clients of the pointer analysis, e.g. a parallel
+   * {@link com.ibm.wala.ipa.modref.ModRef}, read it on several threads, and may add to it while they do.
    */
-  protected final MutableMapping<InstanceKey> instanceKeys = MutableMapping.make();
+  protected final MutableMapping<InstanceKey> instanceKeys = SynchronizedMutableMapping.make();
 
   /**
    * A mapping from IClass -> MutableSharedBitVectorIntSet The range represents the instance keys that correspond to a given class.
@@ -118,6 +122,12 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
   private int periodicMaintainInterval = DEFAULT_PERIODIC_MAINTENANCE_INTERVAL;
 
+  /**
+   * Factory for points-to sets and for the sets of instance keys of each class, or null to use
+   * {@link IntSetUtil#getDefaultIntSetFactory()}
+   */
+  private MutableIntSetFactory<?> pointsToSetFactory = null;
+
   public PropagationSystem(CallGraph cg, PointerKeyFactory pointerKeyFactory, InstanceKeyFactory instanceKeyFactory) {
     if (cg == null) {
       throw new IllegalArgumentException("null cg");
@@ -164,7 +174,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     assert klass.getReference() != TypeReference.JavaLangObject;
     MutableIntSet result = class2InstanceKey.get(klass);
     if (result == null) {
-      result = IntSetUtil.getDefaultIntSetFactory().make();
+      result = getPointsToSetFactory().make();
       class2InstanceKey.put(klass, result);
     }
     return result;
@@ -178,10 +188,10 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     assert klass.getReference() != TypeReference.JavaLangObject;
     MutableIntSet set = class2InstanceKey.get(klass);
     if (set == null) {
-      return IntSetUtil.getDefaultIntSetFactory().make();
+      return getPointsToSetFactory().make();
     } else {
       // return a copy.
-      return IntSetUtil.getDefaultIntSetFactory().makeCopy(set);
+      return getPointsToSetFactory().makeCopy(set);
     }
   }
 
@@ -268,7 +278,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
     PointsToSetVariable result = pointsToMap.getPointsToSet(key);
     if (result == null) {
-      result = new PointsToSetVariable(key);
+      result = new PointsToSetVariable(key, pointsToSetFactory);
       pointsToMap.put(key, result);
     } else {
       // check that the filter for this variable remains unique
@@ -694,15 +704,15 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
   /**
    * Use with care.
    */
-  Worklist getWorklist() {
+  IFixedPointWorklist getWorklist() {
     return workList;
   }
 
-  public Iterator<AbstractStatement> getStatementsThatUse(PointsToSetVariable v) {
+  public Iterator<AbstractStatement<PointsToSetVariable, ?>> getStatementsThatUse(PointsToSetVariable v) {
     return flowGraph.getStatementsThatUse(v);
   }
 
-  public Iterator<AbstractStatement> getStatementsThatDef(PointsToSetVariable v) {
+  public Iterator<AbstractStatement<PointsToSetVariable, ?>> getStatementsThatDef(PointsToSetVariable v) {
     return flowGraph.getStatementsThatDef(v);
   }
 
@@ -729,6 +739,101 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     pointsToMap.revertToPreTransitive();
   }
 
+  /**
+   * Remove the constraints added for the code of some nodes, for instance because that code has changed, and clear the points-to
+   * sets which may have been computed from them, so that they can be computed again.
+   *
+   * The constraints removed are those that define or use the local variables of the nodes, that use their parameters, or that
+   * define their return values; constraints that pass arguments to the nodes or return values from them are added by the callers,
+   * and are kept. The points-to sets cleared are the local variables and return values of the nodes, and all points-to sets which
+   * the removed constraints flowed into, directly or indirectly. Points-to sets outside any node that may have been given values
+   * directly are not cleared, and nor are the sets that flow from them, so results for those may remain conservative.
+   *
+   * The statements that define the cleared points-to sets are added to the work list. The values given directly to local variables,
+   * such as new objects, are not recorded as constraints, so the nodes which own cleared points-to sets must have their constraints
+   * added again before solving.
+   *
+   * @return the nodes owning points-to sets that were cleared, including the given nodes
+   * @throws IllegalArgumentException if nodes is null
+   */
+  public Set<CGNode> removeConstraintsFromNodes(Set<CGNode> nodes) {
+    if (nodes == null) {
+      throw new IllegalArgumentException("nodes is null");
+    }
+    Set<PointsToSetVariable> locals = HashSetFactory.make();
+    Set<AbstractStatement<PointsToSetVariable, ?>> obsolete = HashSetFactory.make();
+    for (Iterator<PointerKey> it = pointsToMap.iterateKeys(); it.hasNext();) {
+      PointerKey key = it.next();
+      if (!(key instanceof AbstractLocalPointerKey) || !nodes.contains(((AbstractLocalPointerKey) key).getNode())) {
+        continue;
+      }
+      if (pointsToMap.isImplicit(key) || pointsToMap.isUnified(key)) {
+        continue;
+      }
+      PointsToSetVariable v = pointsToMap.getPointsToSet(key);
+      if (v == null) {
+        continue;
+      }
+      if (key instanceof LocalPointerKey && ((LocalPointerKey) key).isParameter()) {
+        obsolete.addAll(Iterator2Collection.toSet(getStatementsThatUse(v)));
+      } else if (key instanceof ReturnValueKey) {
+        locals.add(v);
+        obsolete.addAll(Iterator2Collection.toSet(getStatementsThatDef(v)));
+      } else {
+        locals.add(v);
+        obsolete.addAll(Iterator2Collection.toSet(getStatementsThatUse(v)));
+        obsolete.addAll(Iterator2Collection.toSet(getStatementsThatDef(v)));
+      }
+    }
+
+    // the points-to sets that lose inputs
+    List<PointsToSetVariable> worklist = new LinkedList<>(locals);
+    for (AbstractStatement<PointsToSetVariable, ?> s : obsolete) {
+      if (s.getLHS() != null) {
+        worklist.add(s.getLHS());
+      }
+      removeStatement(s);
+    }
+    fixedSetMap.keySet().removeAll(locals);
+
+    // ... and all points-to sets they flow into
+    Set<PointsToSetVariable> cleared = HashSetFactory.make();
+    while (!worklist.isEmpty()) {
+      PointsToSetVariable v = worklist.remove(0);
+      if (cleared.contains(v) || !(locals.contains(v) || isRecomputable(v.getPointerKey()))) {
+        continue;
+      }
+      cleared.add(v);
+      for (Iterator<AbstractStatement<PointsToSetVariable, ?>> it = getStatementsThatUse(v); it.hasNext();) {
+        AbstractStatement<PointsToSetVariable, ?> s = it.next();
+        if (s.getLHS() != null && !cleared.contains(s.getLHS())) {
+          worklist.add(s.getLHS());
+        }
+      }
+    }
+
+    Set<CGNode> result = HashSetFactory.make(nodes);
+    for (PointsToSetVariable v : cleared) {
+      v.removeAll();
+      if (v.getPointerKey() instanceof AbstractLocalPointerKey) {
+        result.add(((AbstractLocalPointerKey) v.getPointerKey()).getNode());
+      }
+    }
+    for (PointsToSetVariable v : cleared) {
+      for (Iterator<AbstractStatement<PointsToSetVariable, ?>> it = getStatementsThatDef(v); it.hasNext();) {
+        addToWorkList(it.next());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return true if the points-to set for key can be recomputed from the constraints of the system and of its node, if any
+   */
+  private boolean isRecomputable(PointerKey key) {
+    return key instanceof AbstractLocalPointerKey || !pointsToMap.isTransitiveRoot(key);
+  }
+
   public Iterator getTransitiveRoots() {
     return pointsToMap.getTransitiveRoots();
   }
@@ -767,6 +872,20 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     this.periodicMaintainInterval = periodicMaintainInteval;
   }
 
+  /**
+   * Choose the representation of points-to sets. Call this before adding constraints: sets already made keep their
+   * representation.
+   * 
+   * @param factory a factory, or null to use {@link IntSetUtil#getDefaultIntSetFactory()}
+   */
+  public void setPointsToSetFactory(MutableIntSetFactory<?> factory) {
+    this.pointsToSetFactory = factory;
+  }
+
+  private MutableIntSetFactory<?> getPointsToSetFactory() {
+    return pointsToSetFactory == null ? IntSetUtil.getDefaultIntSetFactory() : pointsToSetFactory;
+  }
+
   /**
    * Unify the points-to-sets for the variables identified by the set s
    * 
@@ -18,6 +18,8 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.ibm.wala.analysis.reflection.CloneInterpreter;
 import com.ibm.wala.cfg.ControlFlowGraph;
@@ -32,18 +34,22 @@ import com.ibm.wala.classLoader.ProgramCounter;
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
 import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
 import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.callgraph.impl.FakeRootMethod;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.shrikeBT.ConditionalBranchInstruction;
 import com.ibm.wala.shrikeBT.IInvokeInstruction;
 import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.IRView;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
@@ -158,6 +164,22 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
 
   public IProgressMonitor monitor;
 
+  /**
+   * Batches with fewer nodes than this are not worth preparing in parallel
+   */
+  private final static int MIN_PARALLEL_BATCH_SIZE = 8;
+
+  /**
+   * Number of methods for which a single task builds IRs, before it stops splitting its work
+   */
+  private final static int PREPARE_TASK_GRAIN = 4;
+
+  /**
+   * Pool used to prepare batches of nodes in parallel; created on demand when
+   * {@link AnalysisOptions#getConstraintGenerationParallelism()} &gt; 1
+   */
+  private ForkJoinPool preparePool;
+
   protected SSAPropagationCallGraphBuilder(IClassHierarchy cha, AnalysisOptions options, IAnalysisCacheView cache,
       PointerKeyFactory pointerKeyFactory) {
     super(cha, options, cache, pointerKeyFactory);
@@ -240,6 +262,99 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     return true;
   }
 
+  @Override
+  public CallGraph makeCallGraph(AnalysisOptions options, IProgressMonitor monitor) throws IllegalArgumentException,
+      CallGraphBuilderCancelException {
+    try {
+      return super.makeCallGraph(options, monitor);
+    } finally {
+      if (preparePool != null) {
+        preparePool.shutdown();
+        preparePool = null;
+      }
+    }
+  }
+
+  /**
+   * If parallel constraint generation is enabled, build the {@link IRView} and {@link DefUse} for every node in the batch on a
+   * fork-join pool, so that they are already cached when the instructions of each node are visited. The visitors themselves mutate
+   * the {@link PropagationSystem} and the call graph, so they still run one node at a time in batch order, which keeps the result
+   * identical to that of a sequential build.
+   * 
+   * Only methods whose IR does not depend on the context are prepared, since only those are certain to be found in the cache by
+   * whatever {@link SSAContextInterpreter} is in use.
+   */
+  @Override
+  protected void prepareNodesForConstraints(List<CGNode> nodes, IProgressMonitor monitor) throws CancelException {
+    int parallelism = options.getConstraintGenerationParallelism();
+    if (parallelism <= 1 || nodes.size() < MIN_PARALLEL_BATCH_SIZE) {
+      return;
+    }
+    IAnalysisCacheView cache = getAnalysisCache();
+    Set<IMethod> methods = HashSetFactory.make();
+    for (CGNode node : nodes) {
+      IMethod method = node.getMethod();
+      if (!haveAlreadyVisited(node) && !method.isAbstract() && !method.isNative()
+          && cache.getIRFactory().contextIsIrrelevant(method)) {
+        methods.add(method);
+      }
+    }
+    if (methods.size() < MIN_PARALLEL_BATCH_SIZE) {
+      return;
+    }
+    if (preparePool == null) {
+      preparePool = new ForkJoinPool(parallelism);
+    }
+    try {
+      preparePool.invoke(new PrepareIRsTask(cache, methods.toArray(new IMethod[methods.size()]), 0, methods.size()));
+    } catch (RuntimeException e) {
+      // preparing is only an optimization: any method whose IR could not be built here is built again, and the
+      // failure reported, when constraints are added for its node.
+      if (DEBUG) {
+        e.printStackTrace();
+      }
+    }
+    MonitorUtil.throwExceptionIfCanceled(monitor);
+  }
+
+  /**
+   * Builds and caches the IR and {@link DefUse} for a range of methods, splitting the range among worker threads
+   */
+  private static class PrepareIRsTask extends RecursiveAction {
+
+    private static final long serialVersionUID = -6282233049385325546L;
+
+    private final IAnalysisCacheView cache;
+
+    private final IMethod[] methods;
+
+    private final int from;
+
+    private final int to;
+
+    PrepareIRsTask(IAnalysisCacheView cache, IMethod[] methods, int from, int to) {
+      this.cache = cache;
+      this.methods = methods;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= PREPARE_TASK_GRAIN) {
+        for (int i = from; i < to; i++) {
+          IR ir = cache.getIR(methods[i], Everywhere.EVERYWHERE);
+          if (ir != null) {
+            cache.getDefUse(ir);
+          }
+        }
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new PrepareIRsTask(cache, methods, from, mid), new PrepareIRsTask(cache, methods, mid, to));
+      }
+    }
+  }
+
   /**
    * @return a visitor to examine instructions in the ir
    */
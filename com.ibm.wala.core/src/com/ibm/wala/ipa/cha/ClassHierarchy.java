@@ -232,6 +232,10 @@ public class ClassHierarchy implements IClassHierarchy {
           loaders[idx++] = icl;
 
           if (progressMonitor != null) {
+            // the loader may have stopped reading class files early
+            if (progressMonitor.isCanceled()) {
+              throw new CancelCHAConstructionException();
+            }
             progressMonitor.worked(idx);
           }
         }
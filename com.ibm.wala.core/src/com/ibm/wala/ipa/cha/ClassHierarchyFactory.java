@@ -10,6 +10,7 @@
  *******************************************************************************/
 package com.ibm.wala.ipa.cha;
 
+import java.io.File;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -34,6 +35,24 @@ public class ClassHierarchyFactory {
     return make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
   }
 
+  /**
+   * Like {@link #make(AnalysisScope)}, but takes the classes of each jar file from a snapshot in the given directory if
+   * there is one, rather than reading its class files, and writes snapshots for jar files that have none.
+   * 
+   * @see com.ibm.wala.classLoader.JarFileSnapshot
+   */
+  public static ClassHierarchy make(AnalysisScope scope, File snapshotDirectory) throws ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    if (snapshotDirectory == null) {
+      throw new IllegalArgumentException("null snapshotDirectory");
+    }
+    ClassLoaderFactoryImpl factory = new ClassLoaderFactoryImpl(scope.getExclusions());
+    factory.setSnapshotDirectory(snapshotDirectory);
+    return make(scope, factory);
+  }
+
   /**
    * temporarily marking this internal to avoid infinite sleep with randomly chosen IProgressMonitor.
    */
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.cha;
+
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy.Node;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * Builds class hierarchies whose class loaders read their class files on several threads. Classes are still added to the
+ * loaders and to the hierarchy one at a time, in the same order as {@link SeqClassHierarchyFactory}, so the resulting
+ * hierarchy is the same.
+ */
+public class ParallelClassHierarchyFactory {
+
+  /**
+   * @return a ClassHierarchy object representing the analysis scope, read with one thread per available processor
+   * @throws ClassHierarchyException
+   */
+  public static ClassHierarchy make(AnalysisScope scope) throws ClassHierarchyException {
+    return make(scope, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param parallelism number of threads used to read the class files of each loader
+   * @return a ClassHierarchy object representing the analysis scope
+   * @throws ClassHierarchyException
+   */
+  public static ClassHierarchy make(AnalysisScope scope, int parallelism) throws ClassHierarchyException {
+    return make(scope, parallelism, null);
+  }
+
+  /**
+   * @param parallelism number of threads used to read the class files of each loader
+   * @param monitor if non-null, construction throws {@link CancelCHAConstructionException} soon after it is canceled
+   * @return a ClassHierarchy object representing the analysis scope
+   * @throws ClassHierarchyException
+   */
+  public static ClassHierarchy make(AnalysisScope scope, int parallelism, IProgressMonitor monitor)
+      throws ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("invalid parallelism: " + parallelism);
+    }
+    return new ClassHierarchy(scope, new ClassLoaderFactoryImpl(scope.getExclusions(), parallelism, monitor), monitor,
+        HashMapFactory.<TypeReference, Node> make());
+  }
+
+}
@@ -44,11 +44,33 @@ import com.ibm.wala.util.intset.OrdinalSet;
  */
 public class ModRef<T extends InstanceKey> {
 
+  /**
+   * number of threads to scan call graph nodes on, or 0 to compute the results sequentially and close them with a
+   * {@link CallGraphTransitiveClosure#transitiveClosure dataflow solver}
+   */
+  private final int nThreads;
+
   public static <U extends InstanceKey> ModRef<U> make(Class<U> klass) {
     return new ModRef<U>();
   }
 
+  /**
+   * @return a ModRef that scans call graph nodes on nThreads threads, and closes the results over callees one strongly
+   *         connected component at a time with {@link CallGraphTransitiveClosure#sccTransitiveClosure bit vectors}
+   */
+  public static <U extends InstanceKey> ModRef<U> make(Class<U> klass, int nThreads) {
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("nThreads must be positive: " + nThreads);
+    }
+    return new ModRef<U>(nThreads);
+  }
+
   protected ModRef() {
+    this(0);
+  }
+
+  protected ModRef(int nThreads) {
+    this.nThreads = nThreads;
   }
 
   /**
@@ -62,7 +84,7 @@ public class ModRef<T extends InstanceKey> {
       throw new IllegalArgumentException("cg is null");
     }
     Map<CGNode, Collection<PointerKey>> scan = scanForMod(cg, pa, heapExclude);
-    return CallGraphTransitiveClosure.transitiveClosure(cg, scan);
+    return close(cg, scan);
   }
 
   /**
@@ -76,7 +98,7 @@ public class ModRef<T extends InstanceKey> {
       throw new IllegalArgumentException("cg is null");
     }
     Map<CGNode, Collection<PointerKey>> scan = scanForRef(cg, pa, heapExclude);
-    return CallGraphTransitiveClosure.transitiveClosure(cg, scan);
+    return close(cg, scan);
   }
 
   /**
@@ -95,6 +117,22 @@ public class ModRef<T extends InstanceKey> {
     return computeRef(cg, pa, null);
   }
 
+  private Map<CGNode, OrdinalSet<PointerKey>> close(CallGraph cg, Map<CGNode, Collection<PointerKey>> scan) {
+    if (nThreads == 0) {
+      return CallGraphTransitiveClosure.transitiveClosure(cg, scan);
+    } else {
+      return CallGraphTransitiveClosure.sccTransitiveClosure(cg, scan);
+    }
+  }
+
+  private Map<CGNode, Collection<PointerKey>> collect(CallGraph cg, Function<CGNode, Collection<PointerKey>> scanNode) {
+    if (nThreads == 0) {
+      return CallGraphTransitiveClosure.collectNodeResults(cg, scanNode);
+    } else {
+      return CallGraphTransitiveClosure.collectNodeResults(cg, scanNode, nThreads);
+    }
+  }
+
   /**
    * For each call graph node, what heap locations (as determined by a heap model) may it write, <bf> NOT </bf> including its
    * callees transitively
@@ -103,7 +141,7 @@ public class ModRef<T extends InstanceKey> {
    */
   private Map<CGNode, Collection<PointerKey>> scanForMod(CallGraph cg, final PointerAnalysis<T> pa, final HeapExclusions heapExclude) {
 
-    return CallGraphTransitiveClosure.collectNodeResults(cg, new Function<CGNode, Collection<PointerKey>>() {
+    return collect(cg, new Function<CGNode, Collection<PointerKey>>() {
 
       @Override
       public Collection<PointerKey> apply(CGNode n) {
@@ -119,7 +157,7 @@ public class ModRef<T extends InstanceKey> {
    * @param heapExclude
    */
   private Map<CGNode, Collection<PointerKey>> scanForRef(CallGraph cg, final PointerAnalysis<T> pa, final HeapExclusions heapExclude) {
-    return CallGraphTransitiveClosure.collectNodeResults(cg, new Function<CGNode, Collection<PointerKey>>() {
+    return collect(cg, new Function<CGNode, Collection<PointerKey>>() {
 
       @Override
       public Collection<PointerKey> apply(CGNode n) {
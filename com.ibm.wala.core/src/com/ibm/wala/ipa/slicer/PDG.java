@@ -89,7 +89,7 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
 
   private final CGNode node;
 
-  private Statement[] paramCalleeStatements;
+  private volatile Statement[] paramCalleeStatements;
 
   private Statement[] returnStatements;
 
@@ -125,7 +125,12 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
 
   private final boolean ignoreAllocHeapDefs;
 
-  private boolean isPopulated = false;
+  private volatile boolean isPopulated = false;
+
+  /**
+   * is the thread holding the lock on this populating it? populate() is reentered while the nodes are created.
+   */
+  private boolean populating = false;
 
   /**
    * @param mod the set of heap locations which may be written (transitively) by this node. These are logically return values in the
@@ -170,17 +175,28 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
    * WARNING: Since we're using a {@link HashMap} of {@link SSAInstruction}s, and equals() of {@link SSAInstruction} assumes a
    * canonical representative for each instruction, we <bf>must</bf> ensure that we use the same IR object throughout
    * initialization!!
+   * 
+   * Other threads reading this PDG wait until it is populated.
    */
   private void populate() {
     if (!isPopulated) {
-      // ensure that we keep the single, canonical IR live throughout initialization, while the instructionIndices map
-      // is live.
-      IR ir = node.getIR();
-      isPopulated = true;
-
-      Map<SSAInstruction, Integer> instructionIndices = computeInstructionIndices(ir);
-      createNodes(ref, cOptions, ir);
-      createScalarEdges(cOptions, ir, instructionIndices);
+      synchronized (this) {
+        if (!isPopulated && !populating) {
+          // ensure that we keep the single, canonical IR live throughout initialization, while the instructionIndices map
+          // is live.
+          IR ir = node.getIR();
+          populating = true;
+          try {
+            Map<SSAInstruction, Integer> instructionIndices = computeInstructionIndices(ir);
+            createNodes(ref, cOptions, ir);
+            createScalarEdges(cOptions, ir, instructionIndices);
+          } finally {
+            // a failed population is not retried, as the nodes already created would be created again
+            populating = false;
+            isPopulated = true;
+          }
+        }
+      }
     }
   }
 
@@ -922,7 +938,7 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
    * 
    * @param ref the set of heap locations which may be read (transitively) by this node. These are logically parameters in the SDG.
    */
-  private void createCalleeParams() {
+  private synchronized void createCalleeParams() {
     if (paramCalleeStatements == null) {
       ArrayList<Statement> list = new ArrayList<Statement>();
       int paramCount = node.getMethod().getNumberOfParameters();
@@ -1108,7 +1124,11 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
   public Iterator<Statement> getPredNodes(Statement N) {
     populate();
     if (!dOptions.isIgnoreHeap()) {
-      computeIncomingHeapDependencies(N);
+      // heap dependences are added as they are asked for, so another thread may be adding edges
+      synchronized (this) {
+        computeIncomingHeapDependencies(N);
+        return Iterator2Collection.toList(delegate.getPredNodes(N)).iterator();
+      }
     }
     return delegate.getPredNodes(N);
   }
@@ -1164,7 +1184,11 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
   public Iterator<Statement> getSuccNodes(Statement N) {
     populate();
     if (!dOptions.isIgnoreHeap()) {
-      computeOutgoingHeapDependencies(N);
+      // heap dependences are added as they are asked for, so another thread may be adding edges
+      synchronized (this) {
+        computeOutgoingHeapDependencies(N);
+        return Iterator2Collection.toList(delegate.getSuccNodes(N)).iterator();
+      }
     }
     return delegate.getSuccNodes(N);
   }
@@ -1172,6 +1196,11 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
   @Override
   public boolean hasEdge(Statement src, Statement dst) throws UnimplementedError {
     populate();
+    if (!dOptions.isIgnoreHeap()) {
+      synchronized (this) {
+        return delegate.hasEdge(src, dst);
+      }
+    }
     return delegate.hasEdge(src, dst);
   }
 
@@ -1270,6 +1299,11 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
   }
 /** BEGIN Custom change: control deps */
   public boolean isControlDependend(Statement from, Statement to) {
+    if (!dOptions.isIgnoreHeap()) {
+      synchronized (this) {
+        return delegate.hasEdge(from, to, Dependency.CONTROL_DEP);
+      }
+    }
     return delegate.hasEdge(from, to, Dependency.CONTROL_DEP);
   }
 /** END Custom change: control deps */
@@ -11,9 +11,11 @@
 package com.ibm.wala.ipa.slicer;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -66,7 +68,8 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
   private static final boolean DEBUG_LAZY = false;
 
   /**
-   * node manager for graph API
+   * node manager for graph API. Its lock also guards the lazy addition of statements, so that several threads may slice
+   * over this SDG at once.
    */
   private final Nodes nodeMgr = new Nodes();
 
@@ -88,7 +91,7 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
   /**
    * keeps track of PDG for each call graph node
    */
-  private LoadingCache<CGNode, PDG<T>> pdgMap;
+  private volatile LoadingCache<CGNode, PDG<T>> pdgMap;
 
   /**
    * governs data dependence edges in the graph
@@ -113,7 +116,7 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
   /**
    * CGNodes for which we have added all statements
    */
-  private final Collection<CGNode> statementsAdded = HashSetFactory.make();
+  private final Collection<CGNode> statementsAdded = Collections.newSetFromMap(new ConcurrentHashMap<CGNode, Boolean>());
 
   /**
    * If non-null, represents the heap locations to exclude from data dependence
@@ -179,15 +182,19 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
     if (DEBUG_LAZY) {
       Assertions.UNREACHABLE();
     }
-    // change pdgMap so no eviction is ever performed, presumably we want this
-    // if calling eagerConstruction();
-    pdgMap = CacheBuilder.newBuilder().build(new CacheLoader<CGNode, PDG<T>>() {
-      @Override
-      public PDG<T> load(CGNode node) {
-        return createPDG(node);
+    synchronized (nodeMgr) {
+      if (eagerComputed) {
+        return;
       }
-    });
-    if (!eagerComputed) {
+      // change pdgMap so no eviction is ever performed, presumably we want this
+      // if calling eagerConstruction(); only once, so as not to drop the PDGs
+      // built since
+      pdgMap = CacheBuilder.newBuilder().build(new CacheLoader<CGNode, PDG<T>>() {
+        @Override
+        public PDG<T> load(CGNode node) {
+          return createPDG(node);
+        }
+      });
       eagerComputed = true;
       computeAllPDGs();
       for (PDG<T> pdg : pdgMap.asMap().values()) {
@@ -200,10 +207,16 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
 
   private void addPDGStatementNodes(CGNode node) {
     if (!statementsAdded.contains(node)) {
-      statementsAdded.add(node);
-      PDG<?> pdg = getPDG(node);
-      for (Iterator<? extends Statement> it = pdg.iterator(); it.hasNext();) {
-        addNode(it.next());
+      // populate the PDG before taking the lock, so that threads build different PDGs at once
+      Iterator<? extends Statement> it = getPDG(node).iterator();
+      synchronized (nodeMgr) {
+        if (!statementsAdded.contains(node)) {
+          while (it.hasNext()) {
+            addNode(it.next());
+          }
+          // only now, so that a thread which finds node here also finds its statements
+          statementsAdded.add(node);
+        }
       }
     }
   }
@@ -230,7 +243,7 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
   private class Nodes extends SlowNumberedNodeManager<Statement> {
 
     @Override
-    public boolean containsNode(Statement N) {
+    public synchronized boolean containsNode(Statement N) {
       if (super.containsNode(N)) {
         // first try it without eager construction.
         return true;
@@ -241,14 +254,14 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
     }
 
     @Override
-    public int getMaxNumber() {
+    public synchronized int getMaxNumber() {
       // this may be bad. Are you sure you want to call this?
       eagerConstruction();
       return super.getMaxNumber();
     }
 
     @Override
-    public Statement getNode(int number) {
+    public synchronized Statement getNode(int number) {
       Statement s = getNodeLazy(number);
       if (s != null) {
         // found it. don't do eager construction.
@@ -264,7 +277,14 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
     public int getNumber(Statement s) {
       CGNode n = s.getNode();
       addPDGStatementNodes(n);
-      return super.getNumber(s);
+      synchronized (this) {
+        return super.getNumber(s);
+      }
+    }
+
+    @Override
+    public synchronized void addNode(Statement n) {
+      super.addNode(n);
     }
 
     @Override
@@ -274,7 +294,7 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
     }
 
     @Override
-    public Iterator<Statement> iterator() {
+    public synchronized Iterator<Statement> iterator() {
       eagerConstruction();
       return super.iterator();
     }
@@ -283,19 +303,19 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
      * iterate over the nodes <bf>without</bf> constructing any new ones. Use with extreme care. May break graph traversals that
      * lazily add more nodes.
      */
-    Iterator<? extends Statement> iterateLazyNodes() {
+    synchronized Iterator<? extends Statement> iterateLazyNodes() {
       return super.iterator();
     }
 
     /**
      * get the node with the given number if it already exists. Use with extreme care.
      */
-    public Statement getNodeLazy(int number) {
+    public synchronized Statement getNodeLazy(int number) {
       return super.getNode(number);
     }
 
     @Override
-    public int getNumberOfNodes() {
+    public synchronized int getNumberOfNodes() {
       eagerConstruction();
       return super.getNumberOfNodes();
     }
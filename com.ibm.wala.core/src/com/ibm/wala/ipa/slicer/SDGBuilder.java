@@ -62,6 +62,14 @@ public class SDGBuilder<T extends InstanceKey> {
     return this;
   }
 
+  /**
+   * use a ModRef that computes on nThreads threads; see {@link ModRef#make(Class, int)}
+   */
+  public SDGBuilder<T> computeAndSetModRef(Class<T> instanceKeyClass, int nThreads) {
+    this.modRef = ModRef.make(instanceKeyClass, nThreads);
+    return this;
+  }
+
   public SDGBuilder<T> setdOptions(DataDependenceOptions dOptions) {
     this.dOptions = dOptions;
     return this;
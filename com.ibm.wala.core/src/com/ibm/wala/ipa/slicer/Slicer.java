@@ -10,8 +10,11 @@
  *******************************************************************************/
 package com.ibm.wala.ipa.slicer;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import com.ibm.wala.dataflow.IFDS.BackwardsSDGSupergraph;
 import com.ibm.wala.dataflow.IFDS.IMergeFunction;
@@ -29,6 +32,8 @@ import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.modref.ModRef;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.ParallelUtil;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 
 /**
@@ -256,6 +261,40 @@ public class Slicer {
     return computeBackwardSlice(sdg,ss,-1, -1);
   }
 
+  /**
+   * Use the passed-in SDG to compute the backward slice of each of a batch of statements, on nThreads threads
+   * 
+   * @return a map from each statement in ss to its backward slice
+   * @throws CancelException
+   */
+  public static Map<Statement, Collection<Statement>> computeBackwardSlices(SDG sdg, Collection<Statement> ss, int nThreads)
+      throws IllegalArgumentException, CancelException {
+    return computeSlices(sdg, ss, true, nThreads, -1, -1);
+  }
+
+  /**
+   * Use the passed-in SDG to compute the forward slice of each of a batch of statements, on nThreads threads
+   * 
+   * @return a map from each statement in ss to its forward slice
+   * @throws CancelException
+   */
+  public static Map<Statement, Collection<Statement>> computeForwardSlices(SDG sdg, Collection<Statement> ss, int nThreads)
+      throws IllegalArgumentException, CancelException {
+    return computeSlices(sdg, ss, false, nThreads, -1, -1);
+  }
+
+  /**
+   * @param ss a collection of statements of interest, each sliced separately
+   * @throws CancelException
+   */
+  protected static Map<Statement, Collection<Statement>> computeSlices(SDG sdg, Collection<Statement> ss, boolean backward,
+      int nThreads, int threshold, long timeoutSec) throws CancelException {
+    if (sdg == null) {
+      throw new IllegalArgumentException("sdg cannot be null");
+    }
+    return new Slicer().slice(sdg, ss, backward, nThreads, threshold, timeoutSec);
+  }
+
   /**
    * @param ss a collection of statements of interest
    * @throws CancelException
@@ -313,19 +352,72 @@ public class Slicer {
     return slice(sdg,roots,backward,-1,-1);
   }
   
+  /**
+   * Batch driver logic: compute the slice of each of a collection of statements, as
+   * {@link #slice(SDG, Collection, boolean, int, long)} would from that statement alone.
+   * 
+   * The slices are computed on nThreads threads, the calling thread being one of them, each taking the next statement
+   * not yet sliced. The threads share the SDG, so a PDG built, or a heap dependence computed, for one slice is reused by
+   * all later ones.
+   * 
+   * @param sdg governing system dependence graph
+   * @param criteria the statements to slice from
+   * @param backward do backwards slices?
+   * @param nThreads number of threads to slice on
+   * @param threshold as for {@link #slice(SDG, Collection, boolean, int, long)}, for each slice
+   * @param timeoutSec timeout in seconds, for each slice
+   * @return a map from each statement in criteria to its slice
+   * @throws CancelException if any of the slices is canceled; the other threads stop after their current slice
+   */
+  public Map<Statement, Collection<Statement>> slice(final SDG sdg, Collection<Statement> criteria, final boolean backward,
+      int nThreads, final int threshold, final long timeoutSec) throws CancelException {
+    if (sdg == null) {
+      throw new IllegalArgumentException("sdg cannot be null");
+    }
+    if (criteria == null) {
+      throw new IllegalArgumentException("criteria cannot be null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("nThreads must be positive: " + nThreads);
+    }
+    final List<Statement> todo = new ArrayList<Statement>(HashSetFactory.make(criteria));
+    @SuppressWarnings("unchecked")
+    final Collection<Statement>[] slices = new Collection[todo.size()];
+    ParallelUtil.forEach(slices.length, nThreads, "Slicer worker", new ParallelUtil.IndexedTask() {
+      @Override
+      public void run(int i) throws CancelException {
+        slices[i] = slice(sdg, Collections.singleton(todo.get(i)), backward, threshold, timeoutSec);
+      }
+    });
+    Map<Statement, Collection<Statement>> result = HashMapFactory.make();
+    for (int i = 0; i < slices.length; i++) {
+      result.put(todo.get(i), slices[i]);
+    }
+    return result;
+  }
+
   /**
    * Slice method for SDGSupergraphLightweight
    */
   public Collection<Long> slice(SDGSupergraphLightweight sdg, Collection<Long> roots, boolean backward, int threshold,
       long timeoutSec) throws CancelException {
+    return slice((ISDGSupergraph<Long, Integer>) sdg, roots, backward, threshold, timeoutSec);
+  }
+
+  /**
+   * Slice method for any representation of an SDG, e.g. a
+   * {@link com.ibm.wala.ipa.slicer.binary.MappedSDGSupergraph} read from a file
+   */
+  public <T, P> Collection<T> slice(ISDGSupergraph<T, P> sdg, Collection<T> roots, boolean backward, int threshold,
+      long timeoutSec) throws CancelException {
     if (sdg == null) {
       throw new IllegalArgumentException("sdg cannot be null");
     }
-    SliceProblem<Long, Integer> p = new SliceProblem<Long, Integer>(roots, sdg, backward);
-    PartiallyBalancedTabulationSolver<Long, Integer, Object> solver = PartiallyBalancedTabulationSolver
+    SliceProblem<T, P> p = new SliceProblem<T, P>(roots, sdg, backward);
+    PartiallyBalancedTabulationSolver<T, P, Object> solver = PartiallyBalancedTabulationSolver
         .createPartiallyBalancedTabulationSolver(p, null);
-    TabulationResult<Long, Integer, Object> tr = solver.solve(threshold, timeoutSec);
-    Collection<Long> slice = tr.getSupergraphNodesReached();
+    TabulationResult<T, P, Object> tr = solver.solve(threshold, timeoutSec);
+    Collection<T> slice = tr.getSupergraphNodesReached();
     return slice;
   }
 
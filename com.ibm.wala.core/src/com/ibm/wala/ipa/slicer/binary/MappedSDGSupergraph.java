@@ -0,0 +1,619 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.slicer.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.ibm.wala.dataflow.IFDS.ISDGSupergraph;
+import com.ibm.wala.ipa.slicer.Statement;
+import com.ibm.wala.ipa.slicer.Statement.Kind;
+import com.ibm.wala.util.collections.EmptyIterator;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.graph.impl.NumberedNodeIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+
+/**
+ * A read-only SDG supergraph over a file written by {@link SDGBinaryWriter}. The file is mapped into memory rather
+ * than parsed, so opening it costs a few system calls regardless of its size, pages are read on demand, and processes
+ * that slice over the same file share its pages.
+ *
+ * A statement is represented by its number in the file, and a procedure by the number of its call graph node. To map a
+ * statement back to the {@link Statement} of an SDG built with the same options, get the PDG of call graph node
+ * {@link #getProcOf(Integer)} and its node {@link #getLocalBlockNumber(Integer)}; conversely
+ * {@link #getLocalBlock(Integer, int)} gives the number of a statement of the SDG.
+ *
+ * Each section of the file is mapped separately, so each must be smaller than 2GB: there can be at most 2^29
+ * statements, successor edges, predecessor edges and so on.
+ */
+public class MappedSDGSupergraph implements ISDGSupergraph<Integer, Integer> {
+
+  /**
+   * "WSDG"
+   */
+  static final int MAGIC = 0x57534447;
+
+  static final int VERSION = 1;
+
+  private static final int HEADER_INTS = 9;
+
+  private static final Kind[] STATEMENT_KIND_VALUES = Statement.Kind.values();
+
+  private final int nStatements;
+
+  private final int nProcs;
+
+  private final ByteBuffer kinds;
+
+  private final IntBuffer procs;
+
+  private final IntBuffer procFirst;
+
+  private final IntBuffer succOffsets;
+
+  private final IntBuffer succs;
+
+  private final IntBuffer predOffsets;
+
+  private final IntBuffer preds;
+
+  private final IntBuffer entryOffsets;
+
+  private final IntBuffer entries;
+
+  private final IntBuffer exitOffsets;
+
+  private final IntBuffer exits;
+
+  private final IntBuffer partnerOffsets;
+
+  private final IntBuffer partners;
+
+  private final IntBuffer locations;
+
+  private final NumberedNodeManager<Integer> nodeManager = new NumberedNodeManager<Integer>() {
+
+    @Override
+    public Iterator<Integer> iterator() {
+      return MappedSDGSupergraph.this.iterator();
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+      return nStatements;
+    }
+
+    @Override
+    public void addNode(Integer n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeNode(Integer n) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsNode(Integer n) {
+      return MappedSDGSupergraph.this.containsNode(n);
+    }
+
+    @Override
+    public int getNumber(Integer n) {
+      return n;
+    }
+
+    @Override
+    public Integer getNode(int number) {
+      return number;
+    }
+
+    @Override
+    public int getMaxNumber() {
+      return nStatements - 1;
+    }
+
+    @Override
+    public Iterator<Integer> iterateNodes(IntSet s) {
+      return new NumberedNodeIterator<Integer>(s, this);
+    }
+  };
+
+  /**
+   * A cursor that maps the sections of a file one after the other.
+   */
+  private static class Sections {
+    private final FileChannel channel;
+
+    private long position;
+
+    Sections(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+    }
+
+    ByteBuffer bytes(int size) throws IOException {
+      ByteBuffer result = map(size);
+      // keep the int sections aligned
+      position += (4 - size % 4) % 4;
+      return result;
+    }
+
+    IntBuffer ints(int size) throws IOException {
+      if (size > Integer.MAX_VALUE / 4) {
+        throw new IOException("section of " + size + " ints is too large to map");
+      }
+      return map(4 * size).asIntBuffer();
+    }
+
+    private ByteBuffer map(int size) throws IOException {
+      if (position + size > channel.size()) {
+        throw new IOException("truncated SDG file");
+      }
+      ByteBuffer result = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+      position += size;
+      return result;
+    }
+  }
+
+  /**
+   * Map a file written by {@link SDGBinaryWriter}. The file must not be changed while the result is in use.
+   */
+  public static MappedSDGSupergraph open(File file) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("file is null");
+    }
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      // a mapping stays valid after its channel is closed
+      return new MappedSDGSupergraph(raf.getChannel());
+    } finally {
+      raf.close();
+    }
+  }
+
+  private MappedSDGSupergraph(FileChannel channel) throws IOException {
+    Sections sections = new Sections(channel, 0);
+    IntBuffer header = sections.ints(HEADER_INTS);
+    if (header.get(0) != MAGIC) {
+      throw new IOException("not an SDG file");
+    }
+    if (header.get(1) != VERSION) {
+      throw new IOException("unsupported SDG file version " + header.get(1));
+    }
+    nStatements = header.get(2);
+    nProcs = header.get(3);
+    kinds = sections.bytes(nStatements);
+    procs = sections.ints(nStatements);
+    procFirst = sections.ints(nProcs + 1);
+    succOffsets = sections.ints(nStatements + 1);
+    succs = sections.ints(header.get(4));
+    predOffsets = sections.ints(nStatements + 1);
+    preds = sections.ints(header.get(5));
+    entryOffsets = sections.ints(nProcs + 1);
+    entries = sections.ints(header.get(6));
+    exitOffsets = sections.ints(nProcs + 1);
+    exits = sections.ints(header.get(7));
+    partnerOffsets = sections.ints(nStatements + 1);
+    partners = sections.ints(header.get(8));
+    locations = sections.ints(nStatements);
+  }
+
+  /**
+   * @return the number of procedures, i.e. one more than the largest call graph node number
+   */
+  public int getNumberOfProcedures() {
+    return nProcs;
+  }
+
+  /**
+   * an iterator over the statements at positions [from, to) of an int section
+   */
+  private static Iterator<Integer> slice(final IntBuffer values, final int from, final int to) {
+    return new Iterator<Integer>() {
+      private int i = from;
+
+      @Override
+      public boolean hasNext() {
+        return i < to;
+      }
+
+      @Override
+      public Integer next() {
+        if (i >= to) {
+          throw new NoSuchElementException();
+        }
+        return values.get(i++);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  private static Integer[] toArray(IntBuffer values, int from, int to) {
+    Integer[] result = new Integer[to - from];
+    for (int i = from; i < to; i++) {
+      result[i - from] = values.get(i);
+    }
+    return result;
+  }
+
+  private static Set<Integer> toSet(IntBuffer values, int from, int to) {
+    Set<Integer> result = HashSetFactory.make(to - from);
+    for (int i = from; i < to; i++) {
+      result.add(values.get(i));
+    }
+    return result;
+  }
+
+  private static IntSet toIntSet(IntBuffer values, int from, int to) {
+    int[] result = new int[to - from];
+    for (int i = from; i < to; i++) {
+      result[i - from] = values.get(i);
+    }
+    return IntSetUtil.make(result);
+  }
+
+  private void checkStatement(int n) {
+    if (n < 0 || n >= nStatements) {
+      throw new IllegalArgumentException("invalid statement " + n);
+    }
+  }
+
+  private void checkProcedure(int p) {
+    if (p < 0 || p >= nProcs) {
+      throw new IllegalArgumentException("invalid procedure " + p);
+    }
+  }
+
+  @Override
+  public Iterator<Integer> iterator() {
+    return range(nStatements);
+  }
+
+  private static Iterator<Integer> range(final int size) {
+    return new Iterator<Integer>() {
+      private int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return i < size;
+      }
+
+      @Override
+      public Integer next() {
+        if (i >= size) {
+          throw new NoSuchElementException();
+        }
+        return i++;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public int getNumberOfNodes() {
+    return nStatements;
+  }
+
+  @Override
+  public boolean containsNode(Integer n) {
+    return n != null && n >= 0 && n < nStatements;
+  }
+
+  @Override
+  public int getNumber(Integer n) {
+    checkStatement(n);
+    return n;
+  }
+
+  @Override
+  public Integer getNode(int number) {
+    checkStatement(number);
+    return number;
+  }
+
+  @Override
+  public int getMaxNumber() {
+    return nStatements - 1;
+  }
+
+  @Override
+  public Iterator<Integer> iterateNodes(IntSet s) {
+    return nodeManager.iterateNodes(s);
+  }
+
+  @Override
+  public Iterator<Integer> getSuccNodes(Integer n) {
+    checkStatement(n);
+    return slice(succs, succOffsets.get(n), succOffsets.get(n + 1));
+  }
+
+  @Override
+  public Iterator<Integer> getPredNodes(Integer n) {
+    checkStatement(n);
+    return slice(preds, predOffsets.get(n), predOffsets.get(n + 1));
+  }
+
+  @Override
+  public int getSuccNodeCount(Integer n) {
+    checkStatement(n);
+    return succOffsets.get(n + 1) - succOffsets.get(n);
+  }
+
+  @Override
+  public int getPredNodeCount(Integer n) {
+    checkStatement(n);
+    return predOffsets.get(n + 1) - predOffsets.get(n);
+  }
+
+  @Override
+  public IntSet getSuccNodeNumbers(Integer n) {
+    checkStatement(n);
+    return toIntSet(succs, succOffsets.get(n), succOffsets.get(n + 1));
+  }
+
+  @Override
+  public IntSet getPredNodeNumbers(Integer n) {
+    checkStatement(n);
+    return toIntSet(preds, predOffsets.get(n), predOffsets.get(n + 1));
+  }
+
+  /**
+   * the successors of each statement are sorted, so binary search
+   */
+  @Override
+  public boolean hasEdge(Integer src, Integer dst) {
+    checkStatement(src);
+    int low = succOffsets.get(src);
+    int high = succOffsets.get(src + 1) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int value = succs.get(mid);
+      if (value < dst) {
+        low = mid + 1;
+      } else if (value > dst) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public Kind getKind(Integer s) {
+    checkStatement(s);
+    return STATEMENT_KIND_VALUES[(kinds.get(s) & 0xff) >> 1];
+  }
+
+  @Override
+  public boolean isCall(Integer n) {
+    checkStatement(n);
+    return (kinds.get(n) & 1) == 1;
+  }
+
+  @Override
+  public boolean isReturn(Integer n) {
+    Kind kind = getKind(n);
+    return (kind == Statement.Kind.EXC_RET_CALLER || kind == Statement.Kind.HEAP_RET_CALLER
+        || kind == Statement.Kind.NORMAL_RET_CALLER);
+  }
+
+  @Override
+  public boolean isEntry(Integer n) {
+    Kind kind = getKind(n);
+    return (kind == Statement.Kind.PARAM_CALLEE || kind == Statement.Kind.HEAP_PARAM_CALLEE || kind == Statement.Kind.METHOD_ENTRY);
+  }
+
+  @Override
+  public boolean isExit(Integer n) {
+    Kind kind = getKind(n);
+    return (kind == Statement.Kind.EXC_RET_CALLEE || kind == Statement.Kind.HEAP_RET_CALLEE
+        || kind == Statement.Kind.NORMAL_RET_CALLEE || kind == Statement.Kind.METHOD_EXIT);
+  }
+
+  @Override
+  public Iterator<? extends Integer> getCalledNodes(Integer call) {
+    Kind kind = getKind(call);
+    if (kind == Statement.Kind.NORMAL) {
+      Set<Integer> result = HashSetFactory.make();
+      for (Iterator<Integer> it = getSuccNodes(call); it.hasNext();) {
+        Integer succ = it.next();
+        if (isEntry(succ)) {
+          result.add(succ);
+        }
+      }
+      return result.iterator();
+    } else if (kind == Statement.Kind.PARAM_CALLER || kind == Statement.Kind.HEAP_PARAM_CALLER) {
+      return getSuccNodes(call);
+    }
+    Assertions.UNREACHABLE(kind);
+    return null;
+  }
+
+  /**
+   * The logic in SDGSupergraph for the backwards case seems unnecessary given the way BackwardsSupergraph works
+   */
+  @Override
+  public Iterator<Integer> getNormalSuccessors(Integer call) {
+    return EmptyIterator.instance();
+  }
+
+  @Override
+  public Set<Integer> getReturnSitesAsSet(Integer call, Integer callee) {
+    checkStatement(call);
+    return toSet(partners, partnerOffsets.get(call), partnerOffsets.get(call + 1));
+  }
+
+  @Override
+  public Set<Integer> getCallSitesAsSet(Integer ret, Integer callee) {
+    checkStatement(ret);
+    return toSet(partners, partnerOffsets.get(ret), partnerOffsets.get(ret + 1));
+  }
+
+  @Override
+  public Iterator<? extends Integer> getReturnSites(Integer call, Integer callee) {
+    checkStatement(call);
+    return slice(partners, partnerOffsets.get(call), partnerOffsets.get(call + 1));
+  }
+
+  @Override
+  public Iterator<? extends Integer> getCallSites(Integer ret, Integer callee) {
+    checkStatement(ret);
+    return slice(partners, partnerOffsets.get(ret), partnerOffsets.get(ret + 1));
+  }
+
+  @Override
+  public Integer getProcOf(Integer n) {
+    checkStatement(n);
+    return procs.get(n);
+  }
+
+  @Override
+  public Integer[] getEntriesForProcedure(Integer procedure) {
+    checkProcedure(procedure);
+    return toArray(entries, entryOffsets.get(procedure), entryOffsets.get(procedure + 1));
+  }
+
+  @Override
+  public Integer[] getExitsForProcedure(Integer procedure) {
+    checkProcedure(procedure);
+    return toArray(exits, exitOffsets.get(procedure), exitOffsets.get(procedure + 1));
+  }
+
+  @Override
+  public int getNumberOfBlocks(Integer procedure) {
+    checkProcedure(procedure);
+    return procFirst.get(procedure + 1) - procFirst.get(procedure);
+  }
+
+  @Override
+  public int getLocalBlockNumber(Integer n) {
+    return n - procFirst.get(getProcOf(n));
+  }
+
+  @Override
+  public Integer getLocalBlock(Integer procedure, int i) {
+    if (i < 0 || i >= getNumberOfBlocks(procedure)) {
+      throw new IllegalArgumentException("invalid block " + i + " of procedure " + procedure);
+    }
+    return procFirst.get(procedure) + i;
+  }
+
+  /**
+   * the method entry statement is the first entry of its procedure
+   */
+  @Override
+  public Integer getMethodEntryNodeForStatement(Integer s) {
+    int p = getProcOf(s);
+    int from = entryOffsets.get(p);
+    if (from == entryOffsets.get(p + 1) || getKind(entries.get(from)) != Statement.Kind.METHOD_ENTRY) {
+      throw new IllegalArgumentException("No method entry found for statement " + s);
+    }
+    return entries.get(from);
+  }
+
+  /**
+   * the method exit statement is the first exit of its procedure
+   */
+  @Override
+  public Integer getMethodExitNodeForStatement(Integer s) {
+    int p = getProcOf(s);
+    int from = exitOffsets.get(p);
+    if (from == exitOffsets.get(p + 1) || getKind(exits.get(from)) != Statement.Kind.METHOD_EXIT) {
+      throw new IllegalArgumentException("No method exit found for statement " + s);
+    }
+    return exits.get(from);
+  }
+
+  @Override
+  public boolean haveSameLocation(Integer first, Integer second) {
+    checkStatement(first);
+    checkStatement(second);
+    int l1 = locations.get(first);
+    int l2 = locations.get(second);
+    if (l1 < 0 || l2 < 0) {
+      throw new IllegalArgumentException("One or both args are not HeapStatements: " + first + "  " + second);
+    }
+    return l1 == l2;
+  }
+
+  @Override
+  public Graph<? extends Integer> getProcedureGraph() {
+    Assertions.UNREACHABLE();
+    return null;
+  }
+
+  @Override
+  public byte classifyEdge(Integer src, Integer dest) {
+    Assertions.UNREACHABLE();
+    return 0;
+  }
+
+  @Override
+  public void addNode(Integer n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeNode(Integer n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeNodeAndEdges(Integer n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void addEdge(Integer src, Integer dst) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeEdge(Integer src, Integer dst) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeAllIncidentEdges(Integer node) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeIncomingEdges(Integer node) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeOutgoingEdges(Integer node) {
+    throw new UnsupportedOperationException();
+  }
+}
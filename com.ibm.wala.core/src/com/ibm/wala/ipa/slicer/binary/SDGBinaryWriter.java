@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.slicer.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.slicer.HeapStatement;
+import com.ibm.wala.ipa.slicer.PDG;
+import com.ibm.wala.ipa.slicer.SDG;
+import com.ibm.wala.ipa.slicer.SDGSupergraph;
+import com.ibm.wala.ipa.slicer.Statement;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * Writes an {@link SDG} in the binary format read by {@link MappedSDGSupergraph}. All PDGs and all edges of the SDG are
+ * built.
+ *
+ * Statements are numbered consecutively, procedure by procedure, in the order of the call graph node numbers, and within
+ * a procedure in the order of the PDG's node numbers. The file is a header of int counts followed by these sections, all
+ * big-endian, each starting on a multiple of 4 bytes:
+ * <ul>
+ * <li>the {@link Statement.Kind} ordinal of each statement, shifted left by one, or'ed with 1 if it is a call in the
+ * supergraph; a byte per statement
+ * <li>the call graph node number of each statement
+ * <li>the number of the first statement of each procedure, plus the number of statements
+ * <li>successors and predecessors, each as an offset per statement into an array of statement numbers
+ * <li>entries and exits of each procedure, each as an offset per procedure into an array of statement numbers, with the
+ * method entry or exit statement first
+ * <li>the call statements of each return statement and the return statements of each call statement, as an offset per
+ * statement into an array of statement numbers
+ * <li>the number of the heap location of each heap statement, or -1
+ * </ul>
+ */
+public class SDGBinaryWriter {
+
+  private SDGBinaryWriter() {
+  }
+
+  /**
+   * a growable array of ints
+   */
+  private static final class Ints {
+    private int[] values = new int[1024];
+
+    private int size = 0;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, 2 * size);
+      }
+      values[size++] = value;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.writeInt(values[i]);
+      }
+    }
+  }
+
+  public static void write(SDG<? extends InstanceKey> sdg, File file) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("file is null");
+    }
+    OutputStream out = new FileOutputStream(file);
+    try {
+      write(sdg, out);
+    } finally {
+      out.close();
+    }
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  public static void write(SDG<? extends InstanceKey> sdg, OutputStream stream) throws IOException {
+    if (sdg == null) {
+      throw new IllegalArgumentException("sdg is null");
+    }
+    if (stream == null) {
+      throw new IllegalArgumentException("stream is null");
+    }
+    CallGraph cg = sdg.getCallGraph();
+    SDGSupergraph supergraph = new SDGSupergraph(sdg, false);
+    int nProcs = cg.getMaxNumber() + 1;
+
+    // number the statements
+    PDG[] pdgs = new PDG[nProcs];
+    int[] procFirst = new int[nProcs + 1];
+    for (int p = 0; p < nProcs; p++) {
+      CGNode n = cg.getNode(p);
+      int size = 0;
+      if (n != null) {
+        pdgs[p] = sdg.getPDG(n);
+        size = pdgs[p].getNumberOfNodes();
+        if (size != pdgs[p].getMaxNumber() + 1) {
+          throw new IllegalArgumentException("PDG numbering is not dense for " + n);
+        }
+      }
+      procFirst[p + 1] = procFirst[p] + size;
+    }
+    int nStatements = procFirst[nProcs];
+
+    byte[] kinds = new byte[nStatements];
+    int[] procs = new int[nStatements];
+    int[] locations = new int[nStatements];
+    int[] succOffsets = new int[nStatements + 1];
+    int[] predOffsets = new int[nStatements + 1];
+    int[] partnerOffsets = new int[nStatements + 1];
+    int[] entryOffsets = new int[nProcs + 1];
+    int[] exitOffsets = new int[nProcs + 1];
+    Ints succs = new Ints();
+    Ints preds = new Ints();
+    Ints partners = new Ints();
+    Ints entries = new Ints();
+    Ints exits = new Ints();
+    Map<PointerKey, Integer> locationNumbers = HashMapFactory.make();
+
+    for (int p = 0; p < nProcs; p++) {
+      PDG pdg = pdgs[p];
+      if (pdg != null) {
+        for (Statement s : supergraph.getEntriesForProcedure(pdg)) {
+          entries.add(number(s, cg, pdgs, procFirst));
+        }
+        for (Statement s : supergraph.getExitsForProcedure(pdg)) {
+          exits.add(number(s, cg, pdgs, procFirst));
+        }
+        for (int local = 0; local < procFirst[p + 1] - procFirst[p]; local++) {
+          int i = procFirst[p] + local;
+          Statement s = pdg.getNode(local);
+          boolean isCall = supergraph.isCall(s);
+          kinds[i] = (byte) (s.getKind().ordinal() << 1 | (isCall ? 1 : 0));
+          procs[i] = p;
+          locations[i] = -1;
+          if (s instanceof HeapStatement) {
+            PointerKey location = ((HeapStatement) s).getLocation();
+            Integer number = locationNumbers.get(location);
+            if (number == null) {
+              number = locationNumbers.size();
+              locationNumbers.put(location, number);
+            }
+            locations[i] = number;
+          }
+          addAll(sdg.getSuccNodes(s), succs, cg, pdgs, procFirst);
+          succOffsets[i + 1] = succs.size;
+          addAll(sdg.getPredNodes(s), preds, cg, pdgs, procFirst);
+          predOffsets[i + 1] = preds.size;
+          if (isCall) {
+            addAll(nullToEmpty(supergraph.getReturnSitesAsSet(s, null)), partners, cg, pdgs, procFirst);
+          } else if (supergraph.isReturn(s)) {
+            addAll(nullToEmpty(supergraph.getCallSitesAsSet(s, null)), partners, cg, pdgs, procFirst);
+          }
+          partnerOffsets[i + 1] = partners.size;
+        }
+      }
+      entryOffsets[p + 1] = entries.size;
+      exitOffsets[p + 1] = exits.size;
+    }
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+    out.writeInt(MappedSDGSupergraph.MAGIC);
+    out.writeInt(MappedSDGSupergraph.VERSION);
+    out.writeInt(nStatements);
+    out.writeInt(nProcs);
+    out.writeInt(succs.size);
+    out.writeInt(preds.size);
+    out.writeInt(entries.size);
+    out.writeInt(exits.size);
+    out.writeInt(partners.size);
+    out.write(kinds);
+    for (int i = nStatements; i % 4 != 0; i++) {
+      out.writeByte(0);
+    }
+    writeInts(procs, out);
+    writeInts(procFirst, out);
+    writeInts(succOffsets, out);
+    succs.write(out);
+    writeInts(predOffsets, out);
+    preds.write(out);
+    writeInts(entryOffsets, out);
+    entries.write(out);
+    writeInts(exitOffsets, out);
+    exits.write(out);
+    writeInts(partnerOffsets, out);
+    partners.write(out);
+    writeInts(locations, out);
+    out.flush();
+  }
+
+  private static int number(Statement s, CallGraph cg, PDG<?>[] pdgs, int[] procFirst) {
+    int p = cg.getNumber(s.getNode());
+    int local = pdgs[p].getNumber(s);
+    if (local < 0) {
+      throw new IllegalArgumentException("statement not in its PDG: " + s);
+    }
+    return procFirst[p] + local;
+  }
+
+  /**
+   * add the numbers of statements to result, in increasing order
+   */
+  private static void addAll(Iterator<? extends Statement> statements, Ints result, CallGraph cg, PDG<?>[] pdgs,
+      int[] procFirst) {
+    int start = result.size;
+    while (statements.hasNext()) {
+      result.add(number(statements.next(), cg, pdgs, procFirst));
+    }
+    Arrays.sort(result.values, start, result.size);
+  }
+
+  private static void addAll(Set<? extends Statement> statements, Ints result, CallGraph cg, PDG<?>[] pdgs, int[] procFirst) {
+    addAll(statements.iterator(), result, cg, pdgs, procFirst);
+  }
+
+  private static Set<? extends Statement> nullToEmpty(Set<? extends Statement> s) {
+    return s == null ? Collections.<Statement> emptySet() : s;
+  }
+
+  private static void writeInts(int[] values, DataOutputStream out) throws IOException {
+    for (int v : values) {
+      out.writeInt(v);
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.util.WalaRuntimeException;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.ref.CacheReference;
+
+/**
+ * A thread-safe cache for auxiliary information based on an SSA representation.
+ *
+ * A mapping from (IMethod,Context) -> SSAOptions -> SoftReference -> something, like {@link AuxiliaryCache}, but lookups for
+ * different keys never contend on a common lock. In addition, {@link #findOrCreate(IMethod, Context, SSAOptions, Callable)}
+ * computes the information for any given key at most once at a time: other threads that ask for the same key wait for the first
+ * computation to finish and share its result.
+ */
+public class ConcurrentAuxiliaryCache implements IAuxiliaryCache {
+
+  /**
+   * A mapping from (IMethod,Context) -> SSAOptions -> SoftReference -> something
+   */
+  private final ConcurrentMap<Pair<IMethod, Context>, ConcurrentMap<SSAOptions, Object>> dictionary = new ConcurrentHashMap<Pair<IMethod, Context>, ConcurrentMap<SSAOptions, Object>>();
+
+  /**
+   * computations currently in progress, keyed by ((IMethod,Context),SSAOptions)
+   */
+  private final ConcurrentMap<Pair<Pair<IMethod, Context>, SSAOptions>, FutureTask<?>> pending = new ConcurrentHashMap<Pair<Pair<IMethod, Context>, SSAOptions>, FutureTask<?>>();
+
+  /**
+   * Help out the garbage collector: purge cleared references after this many items have been cached
+   */
+  final private static int PURGE_THRESHOLD = 2000;
+
+  /**
+   * number of items cached since the last purge
+   */
+  private final AtomicInteger nItems = new AtomicInteger();
+
+  /*
+   * @see com.ibm.wala.ssa.IAuxiliaryCache#wipe()
+   */
+  @Override
+  public void wipe() {
+    dictionary.clear();
+    nItems.set(0);
+  }
+
+  /**
+   * clear out entries whose referents have been collected
+   */
+  private void purge() {
+    for (Iterator<Map.Entry<Pair<IMethod, Context>, ConcurrentMap<SSAOptions, Object>>> it = dictionary.entrySet().iterator(); it
+        .hasNext();) {
+      Map<SSAOptions, Object> m = it.next().getValue();
+      for (Iterator<Object> it2 = m.values().iterator(); it2.hasNext();) {
+        if (CacheReference.get(it2.next()) == null) {
+          it2.remove();
+        }
+      }
+      if (m.isEmpty()) {
+        it.remove();
+      }
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.ssa.IAuxiliaryCache#find(com.ibm.wala.classLoader.IMethod, com.ibm.wala.ipa.callgraph.Context,
+   * com.ibm.wala.ssa.SSAOptions)
+   */
+  @Override
+  public Object find(IMethod m, Context c, SSAOptions options) {
+    Map<SSAOptions, Object> methodMap = dictionary.get(Pair.make(m, c));
+    if (methodMap == null) {
+      return null;
+    }
+    Object ref = methodMap.get(options);
+    return ref == null ? null : CacheReference.get(ref);
+  }
+
+  /*
+   * @see com.ibm.wala.ssa.IAuxiliaryCache#cache(com.ibm.wala.classLoader.IMethod, com.ibm.wala.ipa.callgraph.Context,
+   * com.ibm.wala.ssa.SSAOptions, java.lang.Object)
+   */
+  @Override
+  public void cache(IMethod m, Context c, SSAOptions options, Object aux) {
+    if (nItems.incrementAndGet() > PURGE_THRESHOLD) {
+      nItems.set(0);
+      purge();
+    }
+    Pair<IMethod, Context> p = Pair.make(m, c);
+    ConcurrentMap<SSAOptions, Object> methodMap = dictionary.get(p);
+    if (methodMap == null) {
+      ConcurrentMap<SSAOptions, Object> fresh = new ConcurrentHashMap<SSAOptions, Object>(2);
+      methodMap = dictionary.putIfAbsent(p, fresh);
+      if (methodMap == null) {
+        methodMap = fresh;
+      }
+    }
+    methodMap.put(options, CacheReference.make(aux));
+  }
+
+  /**
+   * Find the object cached for a &lt;m,c,options&gt; triple, or else compute it with <code>creator</code> and cache it. At most
+   * one thread runs a creator for a given triple at any time; concurrent callers for the same triple block until that creator
+   * finishes and then return its result.
+   *
+   * @param creator computes the object; may return null, in which case nothing is cached
+   * @return the cached or newly computed object
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T findOrCreate(final IMethod m, final Context c, final SSAOptions options, final Callable<T> creator) {
+    T result = (T) find(m, c, options);
+    if (result != null) {
+      return result;
+    }
+    Pair<Pair<IMethod, Context>, SSAOptions> key = Pair.make(Pair.make(m, c), options);
+    FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+      @Override
+      public T call() throws Exception {
+        // another thread may have finished computing this between our lookup and our registration
+        T x = (T) find(m, c, options);
+        if (x == null) {
+          x = creator.call();
+          if (x != null) {
+            cache(m, c, options, x);
+          }
+        }
+        return x;
+      }
+    });
+    FutureTask<?> inProgress = pending.putIfAbsent(key, task);
+    if (inProgress == null) {
+      try {
+        task.run();
+      } finally {
+        pending.remove(key, task);
+      }
+      inProgress = task;
+    }
+    return (T) await(inProgress);
+  }
+
+  private static Object await(FutureTask<?> task) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return task.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          } else {
+            throw new WalaRuntimeException("failed to compute auxiliary information", cause);
+          }
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.ssa.IAuxiliaryCache#invalidate(com.ibm.wala.classLoader.IMethod, com.ibm.wala.ipa.callgraph.Context)
+   */
+  @Override
+  public void invalidate(IMethod method, Context c) {
+    dictionary.remove(Pair.make(method, c));
+  }
+}
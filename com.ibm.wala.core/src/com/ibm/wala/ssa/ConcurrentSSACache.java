@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.util.concurrent.Callable;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+
+/**
+ * An {@link SSACache} for clients that build IRs from several threads.
+ *
+ * {@link SSACache} serializes all requests on a single monitor. This cache instead relies on {@link ConcurrentAuxiliaryCache}s:
+ * requests for unrelated methods proceed in parallel, while concurrent requests for the same (IMethod, Context, SSAOptions) build
+ * the IR (or {@link DefUse}) only once.
+ *
+ * The {@link IRFactory} must tolerate being called from several threads at once.
+ */
+public class ConcurrentSSACache extends SSACache {
+
+  /**
+   * The factory that actually creates new IR objects
+   */
+  private final IRFactory<IMethod> factory;
+
+  /**
+   * A cache of SSA IRs
+   */
+  private final ConcurrentAuxiliaryCache irCache;
+
+  /**
+   * A cache of DefUse information
+   */
+  private final ConcurrentAuxiliaryCache duCache;
+
+  /**
+   * @param factory a factory for creating IRs
+   */
+  public ConcurrentSSACache(IRFactory<IMethod> factory) {
+    this(factory, new ConcurrentAuxiliaryCache(), new ConcurrentAuxiliaryCache());
+  }
+
+  /**
+   * @param factory a factory for creating IRs
+   */
+  public ConcurrentSSACache(IRFactory<IMethod> factory, ConcurrentAuxiliaryCache irCache, ConcurrentAuxiliaryCache duCache) {
+    super(factory, irCache, duCache);
+    this.factory = factory;
+    this.irCache = irCache;
+    this.duCache = duCache;
+  }
+
+  /*
+   * @see com.ibm.wala.ssa.SSACache#findOrCreateIR(com.ibm.wala.classLoader.IMethod, com.ibm.wala.ipa.callgraph.Context,
+   * com.ibm.wala.ssa.SSAOptions)
+   */
+  @Override
+  public IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
+    if (m == null) {
+      throw new IllegalArgumentException("m is null");
+    }
+    if (m.isAbstract() || m.isNative()) {
+      return null;
+    }
+
+    final Context context = factory.contextIsIrrelevant(m) ? Everywhere.EVERYWHERE : c;
+
+    return irCache.findOrCreate(m, context, options, new Callable<IR>() {
+      @Override
+      public IR call() {
+        return factory.makeIR(m, context, options);
+      }
+    });
+  }
+
+  /*
+   * @see com.ibm.wala.ssa.SSACache#findOrCreateDU(com.ibm.wala.classLoader.IMethod, com.ibm.wala.ipa.callgraph.Context,
+   * com.ibm.wala.ssa.SSAOptions)
+   */
+  @Override
+  public DefUse findOrCreateDU(final IMethod m, Context c, final SSAOptions options) {
+    if (m == null) {
+      throw new IllegalArgumentException("m is null");
+    }
+    if (m.isAbstract() || m.isNative()) {
+      return null;
+    }
+
+    final Context context = factory.contextIsIrrelevant(m) ? Everywhere.EVERYWHERE : c;
+
+    return duCache.findOrCreate(m, context, options, new Callable<DefUse>() {
+      @Override
+      public DefUse call() {
+        return new DefUse(findOrCreateIR(m, context, options));
+      }
+    });
+  }
+
+  /*
+   * @see com.ibm.wala.ssa.SSACache#findOrCreateDU(com.ibm.wala.ssa.IR, com.ibm.wala.ipa.callgraph.Context)
+   */
+  @Override
+  public DefUse findOrCreateDU(final IR ir, Context C) {
+    if (ir == null) {
+      throw new IllegalArgumentException("ir is null");
+    }
+    return duCache.findOrCreate(ir.getMethod(), C, ir.getOptions(), new Callable<DefUse>() {
+      @Override
+      public DefUse call() {
+        return new DefUse(ir);
+      }
+    });
+  }
+}
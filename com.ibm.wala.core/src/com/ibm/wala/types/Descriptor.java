@@ -10,10 +10,10 @@
  *******************************************************************************/
 package com.ibm.wala.types;
 
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.ibm.wala.classLoader.Language;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.strings.ImmutableByteArray;
 import com.ibm.wala.util.strings.StringStuff;
 import com.ibm.wala.util.strings.UTF8Convert;
@@ -28,7 +28,7 @@ public final class Descriptor {
   /**
    * A mapping from Key -> Descriptor
    */
-  private static final Map<Key, Descriptor> map = HashMapFactory.make();
+  private static final ConcurrentMap<Key, Descriptor> map = new ConcurrentHashMap<Key, Descriptor>();
 
   /**
    * key holds the logical value of this descriptor
@@ -47,11 +47,17 @@ public final class Descriptor {
     if (parameters != null && parameters.length == 0) {
       parameters = null;
     }
-    Key k = new Key(returnType, parameters);
+    return findOrCreate(new Key(returnType, parameters));
+  }
+
+  private static Descriptor findOrCreate(Key k) {
     Descriptor result = map.get(k);
     if (result == null) {
       result = new Descriptor(k);
-      map.put(k, result);
+      Descriptor old = map.putIfAbsent(k, result);
+      if (old != null) {
+        result = old;
+      }
     }
     return result;
   }
@@ -63,13 +69,7 @@ public final class Descriptor {
   public static Descriptor findOrCreate(Language l, ImmutableByteArray b) throws IllegalArgumentException {
     TypeName returnType = StringStuff.parseForReturnTypeName(l, b);
     TypeName[] parameters = StringStuff.parseForParameterNames(l, b);
-    Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return findOrCreate(new Key(returnType, parameters));
   }
 
   public static Descriptor findOrCreate(ImmutableByteArray b) throws IllegalArgumentException {
@@ -10,9 +10,9 @@
  *******************************************************************************/
 package com.ibm.wala.types;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
 import com.ibm.wala.util.shrike.ShrikeUtil;
@@ -27,7 +27,7 @@ public final class FieldReference extends MemberReference {
   /**
    * Used to canonicalize MemberReferences a mapping from Key -> MemberReference
    */
-  final private static HashMap<Key, FieldReference> dictionary = HashMapFactory.make();
+  final private static ConcurrentMap<Key, FieldReference> dictionary = new ConcurrentHashMap<Key, FieldReference>();
 
   private final TypeReference fieldType;
 
@@ -41,7 +41,7 @@ public final class FieldReference extends MemberReference {
    * 
    * @param mn the name of the member
    */
-  public static synchronized FieldReference findOrCreate(TypeReference tref, Atom mn, TypeReference fieldType) {
+  public static FieldReference findOrCreate(TypeReference tref, Atom mn, TypeReference fieldType) {
     if (tref == null) {
       throw new IllegalArgumentException("null tref");
     }
@@ -54,8 +54,8 @@ public final class FieldReference extends MemberReference {
 
     val = new FieldReference(key, fieldType);
 
-    dictionary.put(key, val);
-    return val;
+    FieldReference old = dictionary.putIfAbsent(key, val);
+    return old == null ? val : old;
   }
 
   /**
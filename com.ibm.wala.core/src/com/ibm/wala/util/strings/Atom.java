@@ -11,9 +11,8 @@
 package com.ibm.wala.util.strings;
 
 import java.io.Serializable;
-import java.util.HashMap;
-
-import com.ibm.wala.util.collections.HashMapFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * An utf8-encoded byte string.
@@ -28,9 +27,10 @@ public final class Atom implements Serializable {
   private static final long serialVersionUID = -3256390509887654329L;
 
   /**
-   * Used to canonicalize Atoms, a mapping from AtomKey -> Atom. AtomKeys are not canonical, but Atoms are.
+   * Used to canonicalize Atoms, a mapping from AtomKey -> Atom. AtomKeys are not canonical, but Atoms are. Lookups do not
+   * lock, so any number of threads may intern atoms at once.
    */
-  final private static HashMap<AtomKey, Atom> dictionary = HashMapFactory.make();
+  final private static ConcurrentMap<AtomKey, Atom> dictionary = new ConcurrentHashMap<AtomKey, Atom>();
 
   /**
    * The utf8 value this atom represents
@@ -105,36 +105,37 @@ public final class Atom implements Serializable {
     if (off + len < 0) {
       throw new IllegalArgumentException("off + len is too big: " + off + " + " + len);
     }
-    byte val[] = new byte[len];
-    for (int i = 0; i < len; ++i) {
-      val[i] = utf8[off++];
-    }
-    return findOrCreate(val);
+    // look the bytes up in place; they are only copied if the atom is new
+    return findOrCreate(new AtomKey(utf8, off, len));
 
   }
 
-  public static synchronized Atom findOrCreate(byte[] bytes) {
+  public static Atom findOrCreate(byte[] bytes) {
     if (bytes == null) {
       throw new IllegalArgumentException("bytes is null");
     }
-    AtomKey key = new AtomKey(bytes);
-    Atom val = dictionary.get(key);
+    return findOrCreate(new AtomKey(bytes, 0, bytes.length));
+  }
+
+  private static Atom findOrCreate(AtomKey probe) {
+    Atom val = dictionary.get(probe);
     if (val != null) {
       return val;
     }
+    AtomKey key = probe.compact();
     val = new Atom(key);
-    dictionary.put(key, val);
-    return val;
+    Atom old = dictionary.putIfAbsent(key, val);
+    return old == null ? val : old;
   }
 
-  public static synchronized Atom findOrCreate(ImmutableByteArray b) {
+  public static Atom findOrCreate(ImmutableByteArray b) {
     if (b == null) {
       throw new IllegalArgumentException("b is null");
     }
     return findOrCreate(b.b);
   }
 
-  public static synchronized Atom findOrCreate(ImmutableByteArray b, int start, int length) {
+  public static Atom findOrCreate(ImmutableByteArray b, int start, int length) {
     if (b == null) {
       throw new IllegalArgumentException("b is null");
     }
@@ -308,27 +309,53 @@ public final class Atom implements Serializable {
    */
   private final static class AtomKey {
     /**
-     * The utf8 value this atom key represents
+     * The utf8 value this atom key represents is val[off:off+len]. Only keys used for lookups refer to part of an array;
+     * keys stored in the dictionary always have off == 0 and len == val.length.
      */
     private final byte val[];
 
+    private final int off;
+
+    private final int len;
+
     /**
      * Cached hash code for this atom key.
      */
     private final int hash;
 
     /**
-     * Create atom from given utf8 sequence.
+     * Create atom key from the given utf8 sequence, without copying it.
      */
-    private AtomKey(byte utf8[]) {
+    private AtomKey(byte utf8[], int off, int len) {
       int tmp = 99989;
-      for (int i = utf8.length; --i >= 0;) {
+      for (int i = off + len; --i >= off;) {
         tmp = 99991 * tmp + utf8[i];
       }
       this.val = utf8;
+      this.off = off;
+      this.len = len;
       this.hash = tmp;
     }
 
+    private AtomKey(byte utf8[], int hash) {
+      this.val = utf8;
+      this.off = 0;
+      this.len = utf8.length;
+      this.hash = hash;
+    }
+
+    /**
+     * @return a key for the same value that does not share its array with the caller's slice
+     */
+    private AtomKey compact() {
+      if (off == 0 && len == val.length) {
+        return this;
+      }
+      byte[] copy = new byte[len];
+      System.arraycopy(val, off, copy, 0, len);
+      return new AtomKey(copy, hash);
+    }
+
     /**
      * @see java.lang.Object#equals(Object)
      */
@@ -343,10 +370,10 @@ public final class Atom implements Serializable {
       AtomKey that = (AtomKey) other;
       if (hash != that.hash)
         return false;
-      if (val.length != that.val.length)
+      if (len != that.len)
         return false;
-      for (int i = 0; i < val.length; i++) {
-        if (val[i] != that.val[i])
+      for (int i = 0; i < len; i++) {
+        if (val[off + i] != that.val[that.off + i])
           return false;
       }
 
@@ -359,7 +386,7 @@ public final class Atom implements Serializable {
      */
     @Override
     public final String toString() {
-      return new String(val);
+      return new String(val, off, len);
     }
 
     /**
@@ -131,4 +131,33 @@ public abstract class ConstantPoolReader {
 
   public abstract String getConstantPoolDynamicType(int index);
 
+  /**
+   * The instructions the {@link Decoder} made from constant pool items of this constant pool, so that methods decoded
+   * with the same reader share them; created when first needed.
+   */
+  private InstructionTable decodedInstructions;
+
+  /**
+   * @return the instruction made for the given {@link InstructionTable#key(int, int)} before, or null
+   */
+  synchronized Instruction getDecodedInstruction(int key) {
+    return decodedInstructions == null ? null : decodedInstructions.get(key);
+  }
+
+  /**
+   * @return the instruction made for the given key before, if another thread got there first, and otherwise
+   *         instruction, which is recorded for the key
+   */
+  synchronized Instruction addDecodedInstruction(int key, Instruction instruction) {
+    if (decodedInstructions == null) {
+      decodedInstructions = new InstructionTable();
+    } else {
+      Instruction old = decodedInstructions.get(key);
+      if (old != null) {
+        return old;
+      }
+    }
+    decodedInstructions.put(key, instruction);
+    return instruction;
+  }
 }
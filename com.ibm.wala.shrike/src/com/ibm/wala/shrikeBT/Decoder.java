@@ -11,6 +11,7 @@
 package com.ibm.wala.shrikeBT;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import com.ibm.wala.shrikeBT.IBinaryOpInstruction.Operator;
 
@@ -35,6 +36,11 @@ import com.ibm.wala.shrikeBT.IBinaryOpInstruction.Operator;
  *    ExceptionHandler[][] exnHandlers = d.getHandlers();
  * 
  * </pre>
+ * 
+ * The working data of a decoding is kept per thread and reused from one method to the next, so decoding allocates little
+ * beyond its results. Instructions are immutable, and each distinct instruction with an operand is made only once:
+ * instructions that refer to the constant pool are shared by all methods decoded with the same {@link ConstantPoolReader},
+ * and local variable accesses and constants are shared by all methods decoded on a thread.
  */
 public abstract class Decoder implements Constants {
   private static final int UNSEEN = -1;
@@ -130,6 +136,44 @@ public abstract class Decoder implements Constants {
 
   private static final Instruction makeZero = ConstantInstruction.make(0);
 
+  /**
+   * Working data for decoding, reused by the methods decoded on a thread
+   */
+  private static final class DecodingContext {
+    /**
+     * true while a decoder uses this context
+     */
+    boolean inUse;
+
+    int[] decodedOffset = new int[0];
+
+    byte[] decodedSize = new byte[0];
+
+    final ArrayList<Instruction> decoded = new ArrayList<>();
+
+    /**
+     * operand stacks not in use
+     */
+    final ArrayList<byte[]> freeStacks = new ArrayList<>();
+
+    /**
+     * instructions that do not refer to a constant pool, such as loads of local variables above 15
+     */
+    final InstructionTable instructions = new InstructionTable();
+  }
+
+  /**
+   * the most instructions kept in {@link DecodingContext#instructions} before they are thrown away
+   */
+  private static final int MAX_SHARED_INSTRUCTIONS = 4096;
+
+  private static final ThreadLocal<DecodingContext> contexts = new ThreadLocal<DecodingContext>() {
+    @Override
+    protected DecodingContext initialValue() {
+      return new DecodingContext();
+    }
+  };
+
   // Holds the result of decoding
   private IInstruction[] instructions;
 
@@ -157,6 +201,8 @@ public abstract class Decoder implements Constants {
 
   private RetInfo[] retInfo;
 
+  private DecodingContext context;
+
   /**
    * This constructor is only supposed to be used by subclasses.
    * 
@@ -194,6 +240,123 @@ public abstract class Decoder implements Constants {
     return ci;
   }
 
+  /**
+   * @return the instruction for an opcode that refers to constant pool item index, made once per constant pool reader
+   */
+  private Instruction getConstantPoolInstruction(int opcode, int index) throws InvalidBytecodeException {
+    int key = InstructionTable.key(opcode, index);
+    Instruction i = constantPool.getDecodedInstruction(key);
+    if (i != null) {
+      return i;
+    }
+    switch (opcode) {
+    case OP_ldc:
+    case OP_ldc_w:
+    case OP_ldc2_w:
+      i = makeConstantPoolLoad(index);
+      break;
+    case OP_getstatic:
+    case OP_getfield:
+      i = GetInstruction.make(constantPool, index, opcode == OP_getstatic);
+      break;
+    case OP_putstatic:
+    case OP_putfield:
+      i = PutInstruction.make(constantPool, index, opcode == OP_putstatic);
+      break;
+    case OP_invokevirtual:
+    case OP_invokespecial:
+    case OP_invokestatic:
+    case OP_invokeinterface:
+      i = InvokeInstruction.make(constantPool, index, opcode);
+      break;
+    case OP_invokedynamic:
+      i = InvokeDynamicInstruction.make(constantPool, index, opcode);
+      break;
+    case OP_new:
+      i = NewInstruction.make(constantPool.getConstantPoolClassType(index), 0);
+      break;
+    case OP_anewarray:
+      i = NewInstruction.make(Util.makeArray(constantPool.getConstantPoolClassType(index)), 1);
+      break;
+    case OP_checkcast:
+      i = CheckCastInstruction.make(constantPool.getConstantPoolClassType(index));
+      break;
+    case OP_instanceof:
+      i = InstanceofInstruction.make(constantPool.getConstantPoolClassType(index));
+      break;
+    default:
+      throw new IllegalArgumentException("opcode " + opcode + " does not refer to the constant pool");
+    }
+    return constantPool.addDecodedInstruction(key, i);
+  }
+
+  private Instruction getLoadInstruction(int typeIndex, int var) {
+    if (var < 16) {
+      return LoadInstruction.make(indexedTypes[typeIndex], var);
+    }
+    int key = InstructionTable.key(OP_iload + typeIndex, var);
+    Instruction i = context.instructions.get(key);
+    if (i == null) {
+      i = LoadInstruction.make(indexedTypes[typeIndex], var);
+      addSharedInstruction(key, i);
+    }
+    return i;
+  }
+
+  private Instruction getStoreInstruction(int typeIndex, int var) {
+    if (var < 16) {
+      return StoreInstruction.make(indexedTypes[typeIndex], var);
+    }
+    int key = InstructionTable.key(OP_istore + typeIndex, var);
+    Instruction i = context.instructions.get(key);
+    if (i == null) {
+      i = StoreInstruction.make(indexedTypes[typeIndex], var);
+      addSharedInstruction(key, i);
+    }
+    return i;
+  }
+
+  /**
+   * @param c a constant of at most 16 bits
+   */
+  private Instruction getIntConstantInstruction(int c) {
+    if ((byte) c == c) {
+      return ConstantInstruction.make(c);
+    }
+    int key = InstructionTable.key(OP_sipush, c);
+    Instruction i = context.instructions.get(key);
+    if (i == null) {
+      i = ConstantInstruction.make(c);
+      addSharedInstruction(key, i);
+    }
+    return i;
+  }
+
+  private void addSharedInstruction(int key, Instruction i) {
+    if (context.instructions.size() >= MAX_SHARED_INSTRUCTIONS) {
+      context.instructions.clear();
+    }
+    context.instructions.put(key, i);
+  }
+
+  /**
+   * @return an operand stack for this method, whose contents are undefined
+   */
+  private byte[] allocateStack() {
+    ArrayList<byte[]> free = context.freeStacks;
+    while (!free.isEmpty()) {
+      byte[] s = free.remove(free.size() - 1);
+      if (s.length >= code.length * 2) {
+        return s;
+      }
+    }
+    return new byte[code.length * 2];
+  }
+
+  private void releaseStack(byte[] stackWords) {
+    context.freeStacks.add(stackWords);
+  }
+
   private static int elemCount(byte[] stack, int stackPtr) throws InvalidBytecodeException {
     if (stackPtr < 0) {
       throw new InvalidBytecodeException("Stack underflow");
@@ -286,10 +449,11 @@ public abstract class Decoder implements Constants {
             int handlerAddr = rawHandlers[j + 2];
 
             if (decodedOffset[handlerAddr] < 0) {
-              byte[] stackWords = new byte[code.length * 2];
+              byte[] stackWords = allocateStack();
               // the bottom element on the stack must be a return address.
               stackWords[0] = 1;
               decodeAt(handlerAddr, 1, stackWords);
+              releaseStack(stackWords);
             }
 
             int r = findReturnToVar(v, handlerAddr, visited);
@@ -383,9 +547,10 @@ public abstract class Decoder implements Constants {
     if (retAddr > 0) {
       RetInfo r = retInfo[retAddr];
       r.sub = subAddr;
-      byte[] cloneStackWords = new byte[r.stackWords.length];
-      System.arraycopy(r.stackWords, 0, cloneStackWords, 0, cloneStackWords.length);
+      byte[] cloneStackWords = allocateStack();
+      System.arraycopy(r.stackWords, 0, cloneStackWords, 0, r.stackLen);
       decodeAt(retToAddr, r.stackLen, cloneStackWords);
+      releaseStack(cloneStackWords);
     }
   }
 
@@ -470,19 +635,16 @@ public abstract class Decoder implements Constants {
         index++;
         break;
       case OP_sipush:
-        i = ConstantInstruction.make(decodeShort(index));
+        i = getIntConstantInstruction(decodeShort(index));
         index += 2;
         break;
       case OP_ldc:
-        i = makeConstantPoolLoad(code[index] & 0xFF);
+        i = getConstantPoolInstruction(opcode, code[index] & 0xFF);
         index++;
         break;
       case OP_ldc_w:
-        i = makeConstantPoolLoad(decodeShort(index));
-        index += 2;
-        break;
       case OP_ldc2_w:
-        i = makeConstantPoolLoad(decodeShort(index));
+        i = getConstantPoolInstruction(opcode, decodeUShort(index));
         index += 2;
         break;
       case OP_iload:
@@ -490,7 +652,7 @@ public abstract class Decoder implements Constants {
       case OP_fload:
       case OP_dload:
       case OP_aload:
-        i = LoadInstruction.make(indexedTypes[opcode - OP_iload], wide ? decodeUShort(index) : (code[index] & 0xFF));
+        i = getLoadInstruction(opcode - OP_iload, wide ? decodeUShort(index) : (code[index] & 0xFF));
         index += wide ? 2 : 1;
         break;
       case OP_istore:
@@ -498,7 +660,7 @@ public abstract class Decoder implements Constants {
       case OP_fstore:
       case OP_dstore:
       case OP_astore:
-        i = StoreInstruction.make(indexedTypes[opcode - OP_istore], wide ? decodeUShort(index) : (code[index] & 0xFF));
+        i = getStoreInstruction(opcode - OP_istore, wide ? decodeUShort(index) : (code[index] & 0xFF));
         index += wide ? 2 : 1;
         break;
       case OP_pop2:
@@ -520,10 +682,10 @@ public abstract class Decoder implements Constants {
         int v = wide ? decodeUShort(index) : (code[index] & 0xFF);
         int c = wide ? decodeShort(index + 2) : code[index + 1];
 
-        decoded.add(LoadInstruction.make(TYPE_int, v));
-        decoded.add(ConstantInstruction.make(c));
+        decoded.add(getLoadInstruction(TYPE_int_index, v));
+        decoded.add(getIntConstantInstruction(c));
         decoded.add(BinaryOpInstruction.make(TYPE_int, Operator.ADD));
-        i = StoreInstruction.make(TYPE_int, v);
+        i = getStoreInstruction(TYPE_int_index, v);
         index += wide ? 4 : 2;
         break;
       }
@@ -572,7 +734,7 @@ public abstract class Decoder implements Constants {
         if (retInfo == null) {
           throw new InvalidBytecodeException("'ret' outside of subroutine");
         }
-        retInfo[index - (wide ? 2 : 1)] = new RetInfo(-1, v, stackLen, stackWords);
+        retInfo[index - (wide ? 2 : 1)] = new RetInfo(-1, v, stackLen, Arrays.copyOf(stackWords, stackLen));
 
         index += wide ? 2 : 1;
         break;
@@ -612,59 +774,28 @@ public abstract class Decoder implements Constants {
         break;
       }
       case OP_getstatic:
-      case OP_getfield: {
-        int f = decodeUShort(index);
-        i = GetInstruction.make(constantPool, f, opcode == OP_getstatic);
-        index += 2;
-        break;
-      }
+      case OP_getfield:
       case OP_putstatic:
-      case OP_putfield: {
-        int f = decodeUShort(index);
-        i = PutInstruction.make(constantPool, f, opcode == OP_putstatic);
-        index += 2;
-        break;
-      }
+      case OP_putfield:
       case OP_invokevirtual:
       case OP_invokespecial:
-      case OP_invokestatic: {
-        int m = decodeUShort(index);
-        i = InvokeInstruction.make(constantPool, m, opcode);
+      case OP_invokestatic:
+      case OP_new:
+      case OP_anewarray:
+      case OP_checkcast:
+      case OP_instanceof:
+        i = getConstantPoolInstruction(opcode, decodeUShort(index));
         index += 2;
         break;
-      }
-      case OP_invokeinterface: {
-        int m = decodeUShort(index);
-        i = InvokeInstruction.make(constantPool, m, opcode);
-        index += 4;
-        break;
-      }
-      case OP_invokedynamic: {
-        int m = decodeUShort(index);
-        i = InvokeDynamicInstruction.make(constantPool, m, opcode);
+      case OP_invokeinterface:
+      case OP_invokedynamic:
+        i = getConstantPoolInstruction(opcode, decodeUShort(index));
         index += 4;
         break;
-      }
-      case OP_new:
-        i = NewInstruction.make(constantPool.getConstantPoolClassType(decodeUShort(index)), 0);
-        index += 2;
-        break;
       case OP_newarray:
         i = NewInstruction.make(Util.makeArray(getPrimitiveType(code[index])), 1);
         index++;
         break;
-      case OP_anewarray:
-        i = NewInstruction.make(Util.makeArray(constantPool.getConstantPoolClassType(decodeUShort(index))), 1);
-        index += 2;
-        break;
-      case OP_checkcast:
-        i = CheckCastInstruction.make(constantPool.getConstantPoolClassType(decodeUShort(index)));
-        index += 2;
-        break;
-      case OP_instanceof:
-        i = InstanceofInstruction.make(constantPool.getConstantPoolClassType(decodeUShort(index)));
-        index += 2;
-        break;
       case OP_wide:
         wide = true;
         opcode = code[index] & 0xFF;
@@ -731,7 +862,7 @@ public abstract class Decoder implements Constants {
   }
 
   private void decodeAt(int index, int stackLen, byte[] stackWords) throws InvalidBytecodeException {
-    if (index < 0 || index >= decodedOffset.length) {
+    if (index < 0 || index >= code.length) {
       throw new InvalidBytecodeException(index, "Branch index " + index + " out of range");
     }
 
@@ -765,7 +896,11 @@ public abstract class Decoder implements Constants {
             int t = targets[i];
 
             if (t >= 0) {
-              decodeAt(t, stackLen, stackWords.clone());
+              // only the words below stackLen matter to the branch target
+              byte[] targetStackWords = allocateStack();
+              System.arraycopy(stackWords, 0, targetStackWords, 0, stackLen);
+              decodeAt(t, stackLen, targetStackWords);
+              releaseStack(targetStackWords);
             }
           }
 
@@ -804,7 +939,7 @@ public abstract class Decoder implements Constants {
 
       index = newIndex;
 
-      if (index >= decodedOffset.length) {
+      if (index >= code.length) {
         throw new InvalidBytecodeException(index, "Fell off end of bytecode array");
       }
     }
@@ -947,21 +1082,45 @@ public abstract class Decoder implements Constants {
    * @throws InvalidBytecodeException the incoming code is invalid and would fail Java bytecode verification
    */
   final public void decode() throws InvalidBytecodeException {
-    byte[] stackWords = new byte[code.length * 2];
+    context = contexts.get();
+    if (context.inUse) {
+      // decoding on this thread already; this should not happen, but don't disturb it
+      context = new DecodingContext();
+    }
+    context.inUse = true;
+    try {
+      decodeWithContext();
+    } finally {
+      context.decoded.clear();
+      context.inUse = false;
+      context = null;
+      decoded = null;
+      decodedOffset = null;
+      decodedSize = null;
+      belongsToSub = null;
+      JSRs = null;
+    }
+  }
 
-    decoded = new ArrayList<>();
-    decodedOffset = new int[code.length];
-    for (int i = 0; i < decodedOffset.length; i++) {
-      decodedOffset[i] = UNSEEN;
+  private void decodeWithContext() throws InvalidBytecodeException {
+    if (context.decodedOffset.length < code.length) {
+      context.decodedOffset = new int[code.length];
+      context.decodedSize = new byte[code.length];
     }
-    decodedSize = new byte[code.length];
+    decoded = context.decoded;
+    decodedOffset = context.decodedOffset;
+    Arrays.fill(decodedOffset, 0, code.length, UNSEEN);
+    decodedSize = context.decodedSize;
+    Arrays.fill(decodedSize, 0, code.length, (byte) 0);
 
+    byte[] stackWords = allocateStack();
     decodeAt(0, 0, stackWords);
     // Decode code that's only reachable through exception handlers
     for (int i = 0; i < rawHandlers.length; i += 4) {
       stackWords[0] = 1;
       decodeAt(rawHandlers[i + 2], 1, stackWords);
     }
+    releaseStack(stackWords);
 
     if (retInfo != null) {
       computeSubroutineMap();
@@ -988,7 +1147,7 @@ public abstract class Decoder implements Constants {
 
     // shuffle decoded instructions into method order
     int p = 0;
-    for (int i = 0; i < decodedOffset.length; i++) {
+    for (int i = 0; i < code.length; i++) {
       int offset = decodedOffset[i];
 
       if (offset >= 0 && (belongsToSub == null || belongsToSub[i] == 0)) {
@@ -1024,7 +1183,7 @@ public abstract class Decoder implements Constants {
       int handlersValidBefore = -1;
 
       p = 0;
-      for (int i = 0; i < decodedOffset.length; i++) {
+      for (int i = 0; i < code.length; i++) {
         if (decodedOffset[i] >= 0 && (belongsToSub == null || belongsToSub[i] == 0)) {
           if (i >= handlersValidBefore) {
             // We just crossed a handler range boundary
@@ -1057,12 +1216,6 @@ public abstract class Decoder implements Constants {
         handlers[i] = noHandlers;
       }
     }
-
-    decoded = null;
-    decodedOffset = null;
-    decodedSize = null;
-    belongsToSub = null;
-    JSRs = null;
   }
 
   /**
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.shrikeBT;
+
+/**
+ * A table of instructions keyed by opcode and operand, used by the {@link Decoder} to make each distinct instruction
+ * once. Keys are built by {@link #key(int, int)}; looking up a key does not allocate. This class is not thread-safe.
+ */
+final class InstructionTable {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private int[] keys = new int[INITIAL_CAPACITY];
+
+  private Instruction[] values = new Instruction[INITIAL_CAPACITY];
+
+  private int size;
+
+  /**
+   * @param opcode an opcode, 1 to 255
+   * @param operand an operand of at most 16 bits, e.g. a constant pool or local variable index
+   */
+  static int key(int opcode, int operand) {
+    return (opcode << 16) | (operand & 0xFFFF);
+  }
+
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return the instruction with the given key, or null if there is none
+   */
+  Instruction get(int key) {
+    int mask = keys.length - 1;
+    for (int i = hash(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return values[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Record the instruction for a key that is not in the table yet.
+   */
+  void put(int key, Instruction instruction) {
+    if ((size + 1) * 2 > keys.length) {
+      rehash(keys.length * 2);
+    }
+    insert(key, instruction);
+    size++;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Remove all instructions, and shrink the table back to its initial capacity.
+   */
+  void clear() {
+    keys = new int[INITIAL_CAPACITY];
+    values = new Instruction[INITIAL_CAPACITY];
+    size = 0;
+  }
+
+  private void insert(int key, Instruction instruction) {
+    int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    while (keys[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = instruction;
+  }
+
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    Instruction[] oldValues = values;
+    keys = new int[capacity];
+    values = new Instruction[capacity];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        insert(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+}
@@ -10,14 +10,17 @@
  *******************************************************************************/
 package com.ibm.wala.shrikeBT.analysis;
 
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.wala.shrikeBT.Constants;
 
 /**
  * This implementation of ClassHierarchyProvider is a simple writable data structure representing a class hierarchy. You call
  * setClassInfo to record information about a class.
+ * 
+ * A store may be read and written on several threads at once, e.g. by verifiers running in parallel over the classes of a jar
+ * file. The information recorded for a class is immutable, so lookups do not block.
  */
 public final class ClassHierarchyStore implements ClassHierarchyProvider {
   private static final String[] noClasses = new String[0];
@@ -39,7 +42,7 @@ public final class ClassHierarchyStore implements ClassHierarchyProvider {
     }
   }
 
-  final private HashMap<String, ClassInfo> contents = new HashMap<>();
+  final private ConcurrentHashMap<String, ClassInfo> contents = new ConcurrentHashMap<>();
 
   /**
    * Create an empty store.
@@ -58,6 +61,9 @@ public final class ClassHierarchyStore implements ClassHierarchyProvider {
    */
   public void setClassInfo(String cl, boolean isInterface, boolean isFinal, String superClass, String[] superInterfaces)
       throws IllegalArgumentException {
+    if (cl == null) {
+      throw new IllegalArgumentException("cl is null");
+    }
     if (superClass != null && superClass.equals(cl)) {
       throw new IllegalArgumentException("Class " + cl + " cannot be its own superclass");
     }
@@ -68,22 +74,36 @@ public final class ClassHierarchyStore implements ClassHierarchyProvider {
    * Delete the class information from the store.
    */
   public void removeClassInfo(String cl) {
-    contents.remove(cl);
+    if (cl != null) {
+      contents.remove(cl);
+    }
   }
 
   /**
-   * Iterate through all classes in the store.
+   * Iterate through all classes in the store. The iterator reflects the classes in the store when it was created, and may or may
+   * not reflect classes added later.
    */
   public Iterator<String> iterateOverClasses() {
     return contents.keySet().iterator();
   }
 
+  /**
+   * @return the number of classes in the store
+   */
+  public int size() {
+    return contents.size();
+  }
+
+  private ClassInfo getInfo(String cl) {
+    return cl == null ? null : contents.get(cl);
+  }
+
   /**
    * @see ClassHierarchyProvider#getSuperClass(String)
    */
   @Override
   public String getSuperClass(String cl) {
-    ClassInfo info = contents.get(cl);
+    ClassInfo info = getInfo(cl);
     return info == null ? null : info.superClass;
   }
 
@@ -92,7 +112,7 @@ public final class ClassHierarchyStore implements ClassHierarchyProvider {
    */
   @Override
   public String[] getSuperInterfaces(String cl) {
-    ClassInfo info = contents.get(cl);
+    ClassInfo info = getInfo(cl);
     return info == null ? null : info.superInterfaces;
   }
 
@@ -101,7 +121,7 @@ public final class ClassHierarchyStore implements ClassHierarchyProvider {
    */
   @Override
   public String[] getSubClasses(String cl) {
-    ClassInfo info = contents.get(cl);
+    ClassInfo info = getInfo(cl);
     return (info == null || !info.isFinal) ? null : noClasses;
   }
 
@@ -110,7 +130,7 @@ public final class ClassHierarchyStore implements ClassHierarchyProvider {
    */
   @Override
   public int isInterface(String cl) {
-    ClassInfo info = contents.get(cl);
+    ClassInfo info = getInfo(cl);
     return info == null ? Constants.MAYBE : (info.isInterface ? Constants.YES : Constants.NO);
   }
 }
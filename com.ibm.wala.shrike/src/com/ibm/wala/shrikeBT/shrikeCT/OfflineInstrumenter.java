@@ -78,6 +78,44 @@ final public class OfflineInstrumenter extends OfflineInstrumenterBase {
     internalOutputModifiedClass(out, out.getInputName(), code);
   }
 
+  /**
+   * Instruments the classes for {@link OfflineInstrumenter#instrumentAll(ClassProcessor, int)}.
+   */
+  public static interface ClassProcessor {
+    /**
+     * Instrument a class. This may be called on several threads at once, for different classes.
+     * 
+     * @return the class to output, usually the result of ci.emitClass() with any further changes, or null if the class is not to
+     *         be output
+     */
+    public ClassWriter process(ClassInstrumenter ci) throws InvalidClassFileException, IOException;
+  }
+
+  /**
+   * Instrument every class, as a loop over {@link #nextClass()} calling {@link #outputModifiedClass(ClassInstrumenter, ClassWriter)}
+   * for each class the processor returns a ClassWriter for would. The classes are read on one thread, decoded, instrumented and
+   * compiled on parallelism threads, and written in input order on the calling thread, so the output JAR has the same entries with
+   * the same contents as with the loop. The processor, and the class hierarchy provider if any, must be safe to use on several
+   * threads at once.
+   * 
+   * @throws IllegalArgumentException if p is null or parallelism &lt; 1
+   */
+  public void instrumentAll(final ClassProcessor p, int parallelism) throws IllegalArgumentException, IOException {
+    if (p == null) {
+      throw new IllegalArgumentException("p is null");
+    }
+    internalInstrumentAll(new ClassTransformer() {
+      @Override
+      public Object transform(Object cl) throws IOException {
+        try {
+          return p.process((ClassInstrumenter) cl);
+        } catch (InvalidClassFileException e) {
+          throw new IOException("Class is invalid: " + e.getMessage());
+        }
+      }
+    }, parallelism);
+  }
+
   /**
    * Update the original class with some method changes. This method calls out.emitClass() for you.
    */
@@ -12,8 +12,21 @@ package com.ibm.wala.shrikeBT.shrikeCT.tools;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
+import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import com.ibm.wala.shrikeBT.ConstantPoolReader;
 import com.ibm.wala.shrikeBT.Decoder;
 import com.ibm.wala.shrikeBT.Disassembler;
 import com.ibm.wala.shrikeBT.MethodData;
@@ -32,73 +45,206 @@ import com.ibm.wala.shrikeCT.InvalidClassFileException;
  * This is a demo class.
  * 
  * Class files are taken as input arguments (or if there are none, from standard input). The methods in those files are
- * instrumented: we insert a System.err.println() at ever method call, and a System.err.println() at every method entry.
+ * verified, against a class hierarchy made from the headers of all of the input classes.
  * 
- * In Unix, I run it like this: java -cp ~/dev/shrike/shrike com.ibm.wala.shrikeBT.shrikeCT.tools.BatchVerifier test.jar -o
- * output.jar
+ * In Unix, I run it like this: java -cp ~/dev/shrike/shrike com.ibm.wala.shrikeBT.shrikeCT.tools.BatchVerifier test.jar
+ * [-d] [--threads n]
  * 
- * The instrumented classes are placed in the directory "output" under the current directory. Disassembled code is written to the
- * file "report" under the current directory.
+ * Classes are verified on n threads, by default one per processor; --threads must come after the input files. The
+ * verification of each method, and its disassembled code if -d is given, is written to the file "report" under the
+ * current directory, in the order of the input classes whatever the number of threads. A summary of the errors found
+ * in each class, the throughput and a histogram of the time taken to verify each class is printed on standard error.
  */
 public class BatchVerifier {
-  private static boolean disasm = false;
 
-  final private static ClassHierarchyStore store = new ClassHierarchyStore();
+  /**
+   * The outcome of verifying one class
+   */
+  private static final class ClassResult {
+    final String className;
 
-  private static int errors = 0;
+    /**
+     * what to write to the report file for the class
+     */
+    final String report;
+
+    final int methods;
+
+    final int errors;
+
+    final long nanos;
+
+    ClassResult(String className, String report, int methods, int errors, long nanos) {
+      this.className = className;
+      this.report = report;
+      this.methods = methods;
+      this.errors = errors;
+      this.nanos = nanos;
+    }
+  }
 
   public static void main(String[] args) throws Exception {
     OfflineInstrumenter oi = new OfflineInstrumenter(true);
     args = oi.parseStandardArgs(args);
 
+    boolean disasm = false;
+    int threads = Runtime.getRuntime().availableProcessors();
     for (int i = 0; i < args.length; i++) {
       if (args[i].equals("-d")) {
         disasm = true;
+      } else if (args[i].equals("--threads") && i + 1 < args.length) {
+        threads = Integer.parseInt(args[i + 1]);
+        i++;
       }
     }
+    if (threads < 1) {
+      throw new IllegalArgumentException("--threads must be at least 1, not " + threads);
+    }
 
+    List<ClassResult> results;
+    long start = System.nanoTime();
     try (final PrintWriter w = new PrintWriter(new BufferedWriter(new FileWriter("report", false)))) {
+      results = verifyAll(oi, threads, disasm, w);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    oi.close();
 
-      oi.beginTraversal();
+    printSummary(System.err, results, threads, elapsed);
+    int errors = countErrors(results);
+    if (errors > 0) {
+      System.err.println(errors + " error" + (errors > 1 ? "s" : "") + " detected");
+    }
+  }
+
+  /**
+   * Verify the methods of the classes of oi against a class hierarchy made from their headers, and write the report of each
+   * class to w, in the order of the classes of oi.
+   * 
+   * @param threads the number of threads to verify the classes on
+   * @param disasm whether to write the disassembled code of each method to the report
+   * @return the number of errors found
+   */
+  public static int verify(OfflineInstrumenter oi, int threads, boolean disasm, Writer w) throws Exception {
+    if (oi == null) {
+      throw new IllegalArgumentException("oi is null");
+    }
+    if (w == null) {
+      throw new IllegalArgumentException("w is null");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1, not " + threads);
+    }
+    PrintWriter p = new PrintWriter(w);
+    int errors = countErrors(verifyAll(oi, threads, disasm, p));
+    p.flush();
+    return errors;
+  }
+
+  /**
+   * @return a class hierarchy made from the headers of the classes of oi
+   */
+  public static ClassHierarchyStore makeClassHierarchy(OfflineInstrumenter oi) throws Exception {
+    if (oi == null) {
+      throw new IllegalArgumentException("oi is null");
+    }
+    ClassHierarchyStore store = new ClassHierarchyStore();
+    oi.beginTraversal();
+    ClassInstrumenter ci;
+    while ((ci = oi.nextClass()) != null) {
+      CTUtils.addClassToHierarchy(store, ci.getReader());
+    }
+    return store;
+  }
+
+  private static int countErrors(List<ClassResult> results) {
+    int errors = 0;
+    for (ClassResult r : results) {
+      errors += r.errors;
+    }
+    return errors;
+  }
+
+  /**
+   * Verify the classes of oi on a pool of threads, and write their reports in order. Only a few classes more than there
+   * are threads are read ahead, so the input need not fit in memory.
+   */
+  private static List<ClassResult> verifyAll(OfflineInstrumenter oi, int threads, final boolean disasm, PrintWriter w)
+      throws Exception {
+    // the headers of the input classes, shared by all of the verifying threads
+    final ClassHierarchyStore store = makeClassHierarchy(oi);
+    oi.beginTraversal();
+    List<ClassResult> results = new ArrayList<>();
+    ArrayDeque<Future<ClassResult>> pending = new ArrayDeque<>();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
       ClassInstrumenter ci;
       while ((ci = oi.nextClass()) != null) {
-        ClassReader cr = ci.getReader();
-        CTUtils.addClassToHierarchy(store, cr);
+        final ClassReader cr = ci.getReader();
+        pending.add(pool.submit(new Callable<ClassResult>() {
+          @Override
+          public ClassResult call() throws Exception {
+            return doClass(cr, store, disasm);
+          }
+        }));
+        if (pending.size() >= 4 * threads) {
+          writeResult(pending.poll(), w, results);
+        }
       }
-
-      oi.beginTraversal();
-      while ((ci = oi.nextClass()) != null) {
-        doClass(ci.getReader(), w);
+      while (!pending.isEmpty()) {
+        writeResult(pending.poll(), w, results);
       }
+    } finally {
+      pool.shutdownNow();
     }
+    return results;
+  }
 
-    oi.close();
-
-    if (errors > 0) {
-      System.err.println(errors + " error" + (errors > 1 ? "s" : "") + " detected");
+  private static void writeResult(Future<ClassResult> f, PrintWriter w, List<ClassResult> results) throws Exception {
+    ClassResult r;
+    try {
+      r = f.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      } else {
+        throw e;
+      }
     }
+    w.write(r.report);
+    w.flush();
+    results.add(r);
   }
 
-  private static void doClass(final ClassReader cr, PrintWriter w) throws Exception {
+  private static ClassResult doClass(final ClassReader cr, ClassHierarchyStore store, boolean disasm) throws Exception {
+    long start = System.nanoTime();
+    StringWriter report = new StringWriter();
+    PrintWriter w = new PrintWriter(report);
     int methodCount = cr.getMethodCount();
+    int verified = 0;
+    int classErrors = 0;
     w.write("Verifying " + cr.getName() + "\n");
-    w.flush();
 
     ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
+    ConstantPoolReader cpr = CTDecoder.makeConstantPoolReader(cr);
 
     for (int i = 0; i < methodCount; i++) {
       cr.initMethodAttributeIterator(i, iter);
       for (; iter.isValid(); iter.advance()) {
         if (iter.getName().equals("Code")) {
           w.write("Verifying " + cr.getName() + "." + cr.getMethodName(i) + " " + cr.getMethodType(i) + ":\n");
-          w.flush();
+          verified++;
 
           CodeReader code = new CodeReader(iter);
-          CTDecoder d = new CTDecoder(code);
+          CTDecoder d = new CTDecoder(code, cpr);
           try {
             d.decode();
           } catch (Decoder.InvalidBytecodeException e) {
-            throw new InvalidClassFileException(code.getRawOffset(), e.getMessage());
+            // report the class, and go on with the others
+            w.println("ERROR: DECODING FAILED");
+            new InvalidClassFileException(code.getRawOffset(), e.getMessage()).printStackTrace(w);
+            classErrors++;
+            break;
           }
           MethodData md = new MethodData(d, cr.getMethodAccessFlags(i), CTDecoder.convertClassToType(cr.getName()), cr
               .getMethodName(i), cr.getMethodType(i));
@@ -106,23 +252,59 @@ public class BatchVerifier {
           if (disasm) {
             w.write("ShrikeBT code:\n");
             (new Disassembler(md)).disassembleTo(w);
-            w.flush();
           }
 
           Verifier v = new Verifier(md);
+          v.setClassHierarchy(store);
           try {
             v.verify();
           } catch (FailureException e) {
             w.println("ERROR: VERIFICATION FAILED");
             e.printStackTrace(w);
             e.printPath(w);
-            errors++;
-            w.flush();
+            classErrors++;
           }
 
           break;
         }
       }
     }
+    w.flush();
+    return new ClassResult(cr.getName(), report.toString(), verified, classErrors, System.nanoTime() - start);
+  }
+
+  /**
+   * Print the classes with errors, the throughput, and a histogram of the time taken to verify each class, in buckets
+   * of powers of two milliseconds.
+   */
+  private static void printSummary(PrintStream out, List<ClassResult> results, int threads, long elapsedNanos) {
+    int methods = 0;
+    long busyNanos = 0;
+    int[] histogram = new int[64];
+    int maxBucket = 0;
+    for (ClassResult r : results) {
+      methods += r.methods;
+      busyNanos += r.nanos;
+      int bucket = 64 - Long.numberOfLeadingZeros(TimeUnit.NANOSECONDS.toMillis(r.nanos));
+      histogram[bucket]++;
+      maxBucket = Math.max(maxBucket, bucket);
+    }
+
+    for (ClassResult r : results) {
+      if (r.errors > 0) {
+        out.println("FAILED " + r.className + ": " + r.errors + " error" + (r.errors > 1 ? "s" : ""));
+      }
+    }
+
+    double seconds = elapsedNanos / 1e9;
+    out.println(String.format("Verified %d classes, %d methods, in %.2fs on %d thread%s: %.1f classes/s, %.1f methods/s",
+        results.size(), methods, seconds, threads, threads > 1 ? "s" : "", results.size() / seconds, methods / seconds));
+    out.println(String.format("Total verification time %.2fs", busyNanos / 1e9));
+
+    out.println("Verification time per class:");
+    for (int b = 0; b <= maxBucket; b++) {
+      String range = b == 0 ? "< 1ms" : (1L << (b - 1)) + "-" + (1L << b) + "ms";
+      out.println(String.format("%14s: %d", range, histogram[b]));
+    }
   }
 }
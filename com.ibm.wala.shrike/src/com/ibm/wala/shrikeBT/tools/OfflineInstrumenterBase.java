@@ -12,17 +12,30 @@ package com.ibm.wala.shrikeBT.tools;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -49,9 +62,7 @@ public abstract class OfflineInstrumenterBase {
 
   private JarOutputStream outputJar;
 
-  private JarFile cachedJar;
-
-  private File cachedJarFile;
+  final private HashMap<File, JarFile> openJars = new HashMap<>();
 
   private ManifestBuilder manifestBuilder;
 
@@ -159,21 +170,17 @@ public abstract class OfflineInstrumenterBase {
   }
 
   /**
-   * Open a JAR/ZIP file. This routine caches the last JAR file opened to save effort when the same file is accessed again and
-   * again. DO NOT close the file returned by this routine until you've finished with this OfflineInstrumente completely. Also, this
-   * JarFile will be closed the next time someone calls openCachedJar.
+   * Open a JAR/ZIP file. This routine keeps the JAR files it opens open, to save effort when the same file is accessed again
+   * and again, even when the inputs alternate between files. DO NOT close the file returned by this routine; close() closes it
+   * when you've finished with this OfflineInstrumenter completely.
    */
   private JarFile openCachedJar(File file) throws IOException {
-    if (cachedJarFile != null && cachedJarFile.equals(file)) {
-      return cachedJar;
-    } else {
-      if (cachedJar != null) {
-        cachedJar.close();
-      }
-      cachedJarFile = file;
-      cachedJar = new JarFile(file, false);
-      return cachedJar;
+    JarFile jar = openJars.get(file);
+    if (jar == null) {
+      jar = new JarFile(file, false);
+      openJars.put(file, jar);
     }
+    return jar;
   }
 
   /**
@@ -399,6 +406,198 @@ public abstract class OfflineInstrumenterBase {
     }
   }
 
+  /**
+   * Instruments the classes for {@link OfflineInstrumenterBase#internalInstrumentAll(ClassTransformer, int)}.
+   */
+  protected static interface ClassTransformer {
+    /**
+     * @return the modifications to the class, as passed to writeClassTo, or null if the class is not to be output
+     */
+    Object transform(Object cl) throws IOException;
+  }
+
+  /**
+   * A class read, instrumented and written to a byte array by a worker thread
+   */
+  private static final class ProcessedClass {
+    final String className;
+
+    /**
+     * the class file to output, or null if there is none
+     */
+    final byte[] bytes;
+
+    ProcessedClass(String className, byte[] bytes) {
+      this.className = className;
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * An input handed from the reader to the writer, with the worker's result for it
+   */
+  private static final class PendingClass {
+    final Input in;
+
+    final Future<ProcessedClass> result;
+
+    PendingClass(Input in, Future<ProcessedClass> result) {
+      this.in = in;
+      this.result = result;
+    }
+  }
+
+  /**
+   * marks the end of the inputs
+   */
+  private static final PendingClass END = new PendingClass(null, null);
+
+  /**
+   * Transform every class and output the result, as a loop over internalNextClass() calling internalOutputModifiedClass()
+   * would. With a parallelism of more than one, this is a pipeline: one thread reads the inputs, parallelism threads make,
+   * transform and write out the classes, and the calling thread puts them in the output JAR, in input order. The output JAR
+   * has the same entries, in the same order and with the same contents, as with the loop; the transformer, and the class
+   * hierarchy provider if any, must be safe to use on several threads at once.
+   * 
+   * @throws IllegalArgumentException if parallelism &lt; 1
+   */
+  final protected void internalInstrumentAll(final ClassTransformer transformer, int parallelism) throws IOException,
+      IllegalArgumentException {
+    if (transformer == null) {
+      throw new IllegalArgumentException("transformer is null");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("invalid parallelism: " + parallelism);
+    }
+    makeOutputJar();
+    if (parallelism == 1) {
+      beginTraversal();
+      for (Object cl = internalNextClass(); cl != null; cl = internalNextClass()) {
+        Object mods = transformer.transform(cl);
+        if (mods != null) {
+          internalOutputModifiedClass(cl, inputs.get(inputIndex - 1).getInputName(), mods);
+        }
+      }
+      return;
+    }
+
+    final ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+    // bounds the number of classes held in memory between the reader and the writer
+    final BlockingQueue<PendingClass> queue = new ArrayBlockingQueue<>(4 * parallelism);
+    Thread reader = new Thread("OfflineInstrumenter reader") {
+      @Override
+      public void run() {
+        readAll(transformer, workers, queue);
+      }
+    };
+    reader.setDaemon(true);
+    reader.start();
+    try {
+      for (PendingClass p = queue.take(); p != END; p = queue.take()) {
+        ProcessedClass c = getResult(p.result);
+        p.in.setClassName(c.className);
+        String name = p.in.getInputName();
+        if (c.bytes != null && !entryNames.contains(name)) {
+          putNextEntry(new ZipEntry(name));
+          outputJar.write(c.bytes);
+          outputJar.closeEntry();
+        }
+      }
+      inputIndex = inputs.size();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("instrumentation interrupted");
+    } finally {
+      reader.interrupt();
+      workers.shutdownNow();
+      try {
+        reader.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * The reader stage of internalInstrumentAll: read each class in turn, hand it to a worker, and queue the result for the
+   * writer. The first input that cannot be read ends the queue with its failure.
+   */
+  private void readAll(final ClassTransformer transformer, ExecutorService workers, BlockingQueue<PendingClass> queue) {
+    try {
+      for (int i = 0; i < inputs.size(); i++) {
+        final Input in = inputs.get(i);
+        if (ignoringInputs.get(i) || !in.isClass()) {
+          continue;
+        }
+        Future<ProcessedClass> result;
+        try {
+          final byte[] bytes = readInput(in);
+          result = workers.submit(new Callable<ProcessedClass>() {
+            @Override
+            public ProcessedClass call() throws IOException {
+              return processClass(in, bytes, transformer);
+            }
+          });
+        } catch (final IOException e) {
+          FutureTask<ProcessedClass> failure = new FutureTask<>(new Callable<ProcessedClass>() {
+            @Override
+            public ProcessedClass call() throws IOException {
+              throw e;
+            }
+          });
+          failure.run();
+          queue.put(new PendingClass(in, failure));
+          return;
+        }
+        queue.put(new PendingClass(in, result));
+      }
+      queue.put(END);
+    } catch (InterruptedException e) {
+      // the writer gave up
+    } catch (RejectedExecutionException e) {
+      // the writer gave up
+    }
+  }
+
+  private static byte[] readInput(Input in) throws IOException {
+    try (final InputStream s = in.open()) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      copyStream(s, bytes);
+      return bytes.toByteArray();
+    }
+  }
+
+  /**
+   * The worker stage of internalInstrumentAll: make the class, transform it, and write it out.
+   */
+  private ProcessedClass processClass(Input in, byte[] bytes, ClassTransformer transformer) throws IOException {
+    Object cl = makeClassFromStream(in.getInputName(), new BufferedInputStream(new ByteArrayInputStream(bytes)));
+    String className = getClassName(cl);
+    Object mods = transformer.transform(cl);
+    if (mods == null) {
+      return new ProcessedClass(className, null);
+    }
+    ByteArrayOutputStream s = new ByteArrayOutputStream(bytes.length);
+    writeClassTo(cl, mods, s);
+    return new ProcessedClass(className, s.toByteArray());
+  }
+
+  private static ProcessedClass getResult(Future<ProcessedClass> result) throws IOException, InterruptedException {
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new IOException(cause);
+      }
+    }
+  }
+
   private static String toEntryName(String className) {
     return className.replace('.', '/') + ".class";
   }
@@ -594,9 +793,10 @@ public abstract class OfflineInstrumenterBase {
       outputJar.close();
     }
 
-    if (cachedJar != null) {
-      cachedJar.close();
+    for (JarFile jar : openJars.values()) {
+      jar.close();
     }
+    openJars.clear();
   }
 
   private void putNextEntry(ZipEntry newEntry) throws IOException, IllegalStateException {
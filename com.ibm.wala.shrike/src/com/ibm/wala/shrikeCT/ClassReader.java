@@ -10,13 +10,19 @@
  *******************************************************************************/
 package com.ibm.wala.shrikeCT;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * This is the core class for reading class file data.
  * 
  * ClassReader performs lazy parsing, and thus most of the methods can throw an InvalidClassFileException.
+ * 
+ * The class file data can be a byte[] or a {@link ByteBuffer}, such as a slice of a memory-mapped jar file; the data is
+ * read in place and not copied.
  */
 public final class ClassReader implements ClassConstants {
-  private final byte[] bytes;
+  private final ByteBuffer bytes;
 
   private int[] methodOffsets;
 
@@ -40,14 +46,28 @@ public final class ClassReader implements ClassConstants {
    * @throws InvalidClassFileException the class file data is corrupt
    */
   public ClassReader(byte[] bytes) throws InvalidClassFileException {
-    this.bytes = bytes;
+    this(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Build a reader over the remaining bytes of a buffer. The reader does not change the position of the buffer, and
+   * the buffer must not be changed while the reader is in use.
+   * 
+   * @param bytes the class file data, from the position to the limit of the buffer
+   * @throws InvalidClassFileException the class file data is corrupt
+   */
+  public ClassReader(ByteBuffer bytes) throws InvalidClassFileException {
+    if (bytes == null) {
+      throw new IllegalArgumentException("null bytes");
+    }
+    this.bytes = bytes.slice().order(ByteOrder.BIG_ENDIAN);
     parse();
   }
 
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (bytes.limit() < offset + required) {
       throw new InvalidClassFileException(offset, "file truncated, expected " + required + " bytes, saw only "
-          + (bytes.length - offset));
+          + (bytes.limit() - offset));
     }
   }
 
@@ -103,7 +123,7 @@ public final class ClassReader implements ClassConstants {
     int attrCount = getUShort(offset);
     offset = skipAttributes(offset + 2, attrCount);
 
-    if (offset != bytes.length) {
+    if (offset != bytes.limit()) {
       throw new InvalidClassFileException(offset, "extra data in class file");
     }
   }
@@ -149,10 +169,32 @@ public final class ClassReader implements ClassConstants {
   }
 
   /**
-   * @return the raw class data bytes
+   * @return the raw class data bytes. If the reader was not built from a byte[], the data is copied into one the first
+   *         time this is called.
    */
   public byte[] getBytes() {
-    return bytes;
+    return cpParser.getRawBytes();
+  }
+
+  /**
+   * @return the length of the raw class data
+   */
+  public int getLength() {
+    return bytes.limit();
+  }
+
+  /**
+   * Copy part of the raw class data, without copying the rest of it as {@link #getBytes()} might.
+   * 
+   * @param offset the offset of the data in the class file
+   * @param dest the array to copy to
+   * @param destOffset where to start in dest
+   * @param length the number of bytes to copy
+   */
+  public void getBytes(int offset, byte[] dest, int destOffset, int length) {
+    ByteBuffer b = bytes.duplicate();
+    b.position(offset);
+    b.get(dest, destOffset, length);
   }
 
   /**
@@ -302,35 +344,35 @@ public final class ClassReader implements ClassConstants {
    * @return the signed 32-bit value at offset i in the class data
    */
   public int getInt(int i) {
-    return (bytes[i] << 24) + ((bytes[i + 1] & 0xFF) << 16) + ((bytes[i + 2] & 0xFF) << 8) + (bytes[i + 3] & 0xFF);
+    return bytes.getInt(i);
   }
 
   /**
    * @return the unsigned 16-bit value at offset i in the class data
    */
   public int getUShort(int i) {
-    return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
+    return bytes.getChar(i);
   }
 
   /**
    * @return the signed 16-bit value at offset i in the class data
    */
   public int getShort(int i) {
-    return (bytes[i] << 8) + (bytes[i + 1] & 0xFF);
+    return bytes.getShort(i);
   }
 
   /**
    * @return the signed 8-bit value at offset i in the class data
    */
   public byte getByte(int i) {
-    return bytes[i];
+    return bytes.get(i);
   }
   
   /**
    * @return the unsigned 8-bit value at offset i in the class data
    */
   public int getUnsignedByte(int i) {
-    return bytes[i] & 0xff;
+    return bytes.get(i) & 0xff;
   }
 
   /**
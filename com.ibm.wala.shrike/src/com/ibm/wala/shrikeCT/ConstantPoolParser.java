@@ -10,6 +10,9 @@
  *******************************************************************************/
 package com.ibm.wala.shrikeCT;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import com.ibm.wala.shrikeCT.BootstrapMethodsReader.BootstrapMethod;
 import com.ibm.wala.shrikeCT.ClassReader.AttrIterator;
 
@@ -87,7 +90,9 @@ public final class ConstantPoolParser implements ClassConstants {
     }
   }
 
-  final private byte[] bytes;
+  final private ByteBuffer bytes;
+
+  private byte[] rawBytes;
 
   private int[] cpOffsets;
 
@@ -121,7 +126,21 @@ public final class ConstantPoolParser implements ClassConstants {
    * @param itemCount the number of items in the pool
    */
   public ConstantPoolParser(byte[] bytes, int offset, int itemCount) throws InvalidClassFileException {
-    this.bytes = bytes;
+    this(ByteBuffer.wrap(bytes), offset, itemCount);
+  }
+
+  /**
+   * @param bytes the raw class file data, starting at index 0 of the buffer
+   * @param offset the start of the constant pool data
+   * @param itemCount the number of items in the pool
+   */
+  public ConstantPoolParser(ByteBuffer bytes, int offset, int itemCount) throws InvalidClassFileException {
+    if (bytes == null) {
+      throw new IllegalArgumentException("null bytes");
+    }
+    ByteBuffer b = bytes.duplicate();
+    b.position(0);
+    this.bytes = b.order(ByteOrder.BIG_ENDIAN);
     if (offset < 0) {
       throw new IllegalArgumentException("invalid offset: " + offset);
     }
@@ -132,10 +151,20 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   /**
-   * @return the buffer holding the raw class file data
+   * @return the buffer holding the raw class file data. If the data is not held in a byte[], it is copied into one the
+   *         first time this is called.
    */
   public byte[] getRawBytes() {
-    return bytes;
+    if (rawBytes == null) {
+      if (bytes.hasArray() && bytes.arrayOffset() == 0 && bytes.array().length == bytes.limit()) {
+        rawBytes = bytes.array();
+      } else {
+        byte[] b = new byte[bytes.limit()];
+        bytes.duplicate().get(b);
+        rawBytes = b;
+      }
+    }
+    return rawBytes;
   }
 
   /**
@@ -166,9 +195,9 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (bytes.limit() < offset + required) {
       throw new InvalidClassFileException(offset, "file truncated, expected " + required + " bytes, saw only "
-          + (bytes.length - offset));
+          + (bytes.limit() - offset));
     }
   }
 
@@ -187,6 +216,27 @@ public final class ConstantPoolParser implements ClassConstants {
     }
   }
 
+  /**
+   * Get the name of a Class without decoding it, e.g. to make an interned name from it without going through a String.
+   * 
+   * @return the name of the Class at constant pool item i, in JVM format (e.g., java/lang/Object), as the modified UTF-8
+   *         bytes of the class file
+   */
+  public byte[] getCPClassBytes(int i) throws InvalidClassFileException, IllegalArgumentException {
+    if (i < 1 || i >= cpItems.length) {
+      throw new IllegalArgumentException("Constant pool item #" + i + " out of range");
+    }
+    int offset = cpOffsets[i];
+    if (offset == 0 || getByte(offset) != CONSTANT_Class) {
+      throw new IllegalArgumentException("Constant pool item #" + i + " is not a Class");
+    }
+    try {
+      return getCPUtf8Bytes(getUShort(offset + 1));
+    } catch (IllegalArgumentException ex) {
+      throw new InvalidClassFileException(offset, "Invalid class name at constant pool item #" + i + ": " + ex.getMessage());
+    }
+  }
+
   /**
    * @return the name of the Class at constant pool item i, in JVM format (e.g., java/lang/Object)
    */
@@ -545,6 +595,26 @@ public final class ConstantPoolParser implements ClassConstants {
         + ", is an invalid Java Utf8 string (byte is " + getByte(offset) + ")");
   }
 
+  /**
+   * Get a Utf8 string without decoding it. Unlike the result of {@link #getCPUtf8(int)}, the result is not cached.
+   * 
+   * @return the value of the Utf8 string at constant pool item i, as the modified UTF-8 bytes of the class file
+   */
+  public byte[] getCPUtf8Bytes(int i) throws IllegalArgumentException {
+    if (i < 1 || i >= cpItems.length) {
+      throw new IllegalArgumentException("Constant pool item #" + i + " out of range");
+    }
+    int offset = cpOffsets[i];
+    if (offset == 0 || getByte(offset) != CONSTANT_Utf8) {
+      throw new IllegalArgumentException("Constant pool item #" + i + " is not a Utf8");
+    }
+    byte[] result = new byte[getUShort(offset + 1)];
+    ByteBuffer b = bytes.duplicate();
+    b.position(offset + 3);
+    b.get(result);
+    return result;
+  }
+
   /**
    * @return the value of the Utf8 string at constant pool item i
    */
@@ -649,11 +719,11 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private byte getByte(int i) {
-    return bytes[i];
+    return bytes.get(i);
   }
 
   private int getUShort(int i) {
-    return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
+    return bytes.getChar(i);
   }
 
   // private short getShort(int i) {
@@ -661,7 +731,7 @@ public final class ConstantPoolParser implements ClassConstants {
   // }
 
   private int getInt(int i) {
-    return (bytes[i] << 24) + ((bytes[i + 1] & 0xFF) << 16) + ((bytes[i + 2] & 0xFF) << 8) + (bytes[i + 3] & 0xFF);
+    return bytes.getInt(i);
   }
 
   private long getLong(int i) {
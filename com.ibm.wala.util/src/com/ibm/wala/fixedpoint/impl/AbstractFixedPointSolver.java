@@ -34,7 +34,8 @@ import com.ibm.wala.util.debug.VerboseAction;
  * 
  * The set of steps and variables is internally represented as a graph. Each step and each variable is a node in the graph. If a
  * step produces a variable that is used by another step, the graph has a directed edge from the producer to the consumer.
- * Fixed-point iteration proceeds in a topological order according to these edges.
+ * Fixed-point iteration proceeds in a topological order according to these edges, unless another {@link WorklistPolicy}
+ * is chosen.
  */
 @SuppressWarnings("rawtypes")
 public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implements IFixedPointSolver<T>, FixedPointConstants,
@@ -91,10 +92,20 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
    */
   private int nCreated = 0;
 
+  /**
+   * the order in which statements are evaluated; declared before {@link #workList}, which is made according to it
+   */
+  private WorklistPolicy policy = WorklistPolicy.TOPOLOGICAL;
+
+  /**
+   * counts of the work done, kept whether or not we are verbose
+   */
+  private final SolverMetrics metrics = new SolverMetrics();
+
   /**
    * worklist for the iterative solver
    */
-  protected Worklist workList = new Worklist();
+  protected IFixedPointWorklist workList = makeWorklist();
 
   /**
    * A boolean which is initially true, but set to false after the first call to solve();
@@ -102,6 +113,45 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
   private boolean firstSolve = true;
 
   protected abstract T[] makeStmtRHS(int size);
+
+  /**
+   * Subclasses can override this to choose a different worklist; it is called during construction, so it should not
+   * depend on subclass state.
+   * 
+   * @return an empty worklist
+   */
+  protected IFixedPointWorklist makeWorklist() {
+    return policy.makeWorklist();
+  }
+
+  public WorklistPolicy getWorklistPolicy() {
+    return policy;
+  }
+
+  /**
+   * Choose the order in which statements are evaluated. This takes effect at once: the statements on the worklist are moved
+   * to a worklist made by {@link #makeWorklist()}, and, once the solver has started, renumbered for the new policy.
+   * 
+   * @throws IllegalArgumentException if policy is null
+   */
+  public void setWorklistPolicy(WorklistPolicy policy) {
+    if (policy == null) {
+      throw new IllegalArgumentException("policy is null");
+    }
+    this.policy = policy;
+    if (firstSolve) {
+      reorder(false);
+    } else {
+      orderStatementsInternal();
+    }
+  }
+
+  /**
+   * @return counts of the work done by this solver so far
+   */
+  public SolverMetrics getMetrics() {
+    return metrics;
+  }
   
   /**
    * Some setup which occurs only before the first solve
@@ -148,6 +198,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
         System.err.println(("Before evaluation " + s));
       }
       byte code = s.evaluate();
+      metrics.evaluations++;
       if (verbose) {
         nEvaluated++;
         if (nEvaluated % getVerboseInterval() == 0) {
@@ -162,6 +213,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
         System.err.println(("After evaluation  " + s + " " + isChanged(code)));
       }
       if (isChanged(code)) {
+        metrics.changes++;
         globalChange = true;
         updateWorkList(s);
       }
@@ -231,7 +283,13 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
    * @param s the step to add
    */
   public void addToWorkList(AbstractStatement s) {
+    if (!s.isQueued()) {
+      metrics.insertions++;
+    }
     workList.insertStatement(s);
+    if (workList.size() > metrics.maxWorklistSize) {
+      metrics.maxWorklistSize = workList.size();
+    }
   }
 
   /**
@@ -288,6 +346,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
   private void incorporateNewStatement(boolean toWorkList, boolean eager, AbstractStatement s) {
     if (eager) {
       byte code = s.evaluate();
+      metrics.evaluations++;
       if (verbose) {
         nEvaluated++;
         if (nEvaluated % getVerboseInterval() == 0) {
@@ -298,6 +357,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
         }
       }
       if (isChanged(code)) {
+        metrics.changes++;
         updateWorkList(s);
       }
       if (isFixed(code)) {
@@ -472,7 +532,8 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
         System.err.println("Reorder " + nEvaluated + " " + nCreated);
       }
     }
-    reorder();
+    reorder(true);
+    metrics.reorders++;
     if (verbose) {
       if (nEvaluated > 0) {
         System.err.println("Reorder finished " + nEvaluated + " " + nCreated);
@@ -502,18 +563,22 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
 
   /**
    * Re-order the step definitions.
+   * 
+   * @param renumber whether to compute a new ordering, or just to move the statements to a new worklist
    */
-  private void reorder() {
+  private void reorder(boolean renumber) {
     // drain the worklist
     LinkedList<AbstractStatement> temp = new LinkedList<>();
     while (!workList.isEmpty()) {
       AbstractStatement eq = workList.takeStatement();
       temp.add(eq);
     }
-    workList = new Worklist();
+    workList = makeWorklist();
 
     // compute new ordering
-    getFixedPointSystem().reorder();
+    if (renumber) {
+      policy.reorder(getFixedPointSystem());
+    }
 
     // re-populate worklist
     for (Iterator<AbstractStatement> it = temp.iterator(); it.hasNext();) {
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+
+/**
+ * A worklist that keeps statements in buckets indexed by order number, rather than in a heap. Inserting a statement is
+ * constant time, and taking one only has to scan forward from the lowest non-empty bucket. Statements with the same
+ * order number are taken last in, first out.
+ * 
+ * This pays off when order numbers are dense and small, as they are after
+ * {@link AbstractFixedPointSolver#orderStatements()}; it needs space proportional to the largest order number seen.
+ */
+@SuppressWarnings("rawtypes")
+public class BucketWorklist implements IFixedPointWorklist {
+
+  /**
+   * buckets[i] holds the queued statements with order number i, or is null if there have been none
+   */
+  private ArrayList<AbstractStatement>[] buckets = newBuckets(16);
+
+  /**
+   * no bucket below this index holds a statement
+   */
+  private int min = 0;
+
+  private int size = 0;
+
+  @SuppressWarnings("unchecked")
+  private static ArrayList<AbstractStatement>[] newBuckets(int n) {
+    return new ArrayList[n];
+  }
+
+  @Override
+  public AbstractStatement takeStatement() throws NoSuchElementException {
+    if (size == 0) {
+      throw new NoSuchElementException("worklist is empty");
+    }
+    while (buckets[min] == null || buckets[min].isEmpty()) {
+      min++;
+    }
+    ArrayList<AbstractStatement> bucket = buckets[min];
+    AbstractStatement result = bucket.remove(bucket.size() - 1);
+    size--;
+    result.setQueued(false);
+    return result;
+  }
+
+  @Override
+  public void insertStatement(AbstractStatement eq) {
+    if (eq == null) {
+      throw new IllegalArgumentException("eq is null");
+    }
+    if (eq.isQueued()) {
+      return;
+    }
+    int i = Math.max(0, eq.getOrderNumber());
+    if (i >= buckets.length) {
+      ArrayList<AbstractStatement>[] old = buckets;
+      buckets = newBuckets(Math.max(i + 1, 2 * old.length));
+      System.arraycopy(old, 0, buckets, 0, old.length);
+    }
+    if (buckets[i] == null) {
+      buckets[i] = new ArrayList<>(2);
+    }
+    buckets[i].add(eq);
+    eq.setQueued(true);
+    if (size == 0 || i < min) {
+      min = i;
+    }
+    size++;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return "BucketWorklist, size " + size;
+  }
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.util.collections.Heap;
+
+/**
+ * A worklist that takes first the statement that has been queued the fewest times, that is, the one whose inputs have
+ * changed least often, and among those the one with the lowest order number. A statement in a loop that is still
+ * converging is put off until its quieter inputs have settled, rather than evaluated again each time one of them changes.
+ * 
+ * Statements are told apart by their {@link AbstractStatement#getGraphNodeId() node number}, as set by a
+ * {@link DefaultFixedPointSystem}; statements without one are ordered by order number alone. The counts start afresh
+ * with each new worklist, so each time the solver re-sorts its statements.
+ */
+@SuppressWarnings("rawtypes")
+public class ChangeFrequencyWorklist implements IFixedPointWorklist {
+
+  /**
+   * counts[i] is the number of times the statement with node number i has been inserted
+   */
+  private int[] counts = new int[64];
+
+  private final Heap<AbstractStatement> heap = new Heap<AbstractStatement>(100) {
+    @Override
+    protected boolean compareElements(AbstractStatement eq1, AbstractStatement eq2) {
+      int c1 = getCount(eq1);
+      int c2 = getCount(eq2);
+      return c1 < c2 || (c1 == c2 && eq1.getOrderNumber() < eq2.getOrderNumber());
+    }
+  };
+
+  /**
+   * @return the number of times eq has been inserted into this worklist
+   */
+  public int getCount(AbstractStatement eq) {
+    int id = eq.getGraphNodeId();
+    return (id < 0 || id >= counts.length) ? 0 : counts[id];
+  }
+
+  @Override
+  public AbstractStatement takeStatement() throws NoSuchElementException {
+    AbstractStatement result = heap.take();
+    result.setQueued(false);
+    return result;
+  }
+
+  @Override
+  public void insertStatement(AbstractStatement eq) {
+    if (eq == null) {
+      throw new IllegalArgumentException("eq is null");
+    }
+    if (eq.isQueued()) {
+      return;
+    }
+    // the count only changes while eq is off the heap, so the heap stays ordered
+    int id = eq.getGraphNodeId();
+    if (id >= 0) {
+      if (id >= counts.length) {
+        counts = Arrays.copyOf(counts, Math.max(id + 1, 2 * counts.length));
+      }
+      counts[id]++;
+    }
+    eq.setQueued(true);
+    heap.insert(eq);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return heap.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return heap.size();
+  }
+
+  @Override
+  public String toString() {
+    return "ChangeFrequencyWorklist, size " + heap.size();
+  }
+}
@@ -10,7 +10,11 @@
  *******************************************************************************/
 package com.ibm.wala.fixedpoint.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import com.ibm.wala.fixpoint.AbstractStatement;
@@ -28,6 +32,7 @@ import com.ibm.wala.util.graph.GraphIntegrity;
 import com.ibm.wala.util.graph.INodeWithNumber;
 import com.ibm.wala.util.graph.NumberedGraph;
 import com.ibm.wala.util.graph.impl.SparseNumberedGraph;
+import com.ibm.wala.util.graph.traverse.DFS;
 import com.ibm.wala.util.graph.traverse.Topological;
 
 /**
@@ -220,6 +225,156 @@ public class DefaultFixedPointSystem<T extends IVariable<?>> implements IFixedPo
     }
   }
 
+  /**
+   * Number the variables in a weak topological order: the strongly connected components of the graph come in topological
+   * order, and each component starts at its head, the node that comes first in reverse postorder, followed by the rest of
+   * the component, split the same way once the edges into the head are ignored. A loop is thus numbered in the order of
+   * its body, starting at its head, and an inner loop is numbered as a block before what follows it in the outer one, so a
+   * worklist ordered by these numbers brings each inner loop to its fixed point before moving on.
+   */
+  public void reorderBySCC() {
+    new WeakTopologicalOrder().number();
+  }
+
+  /**
+   * State of {@link DefaultFixedPointSystem#reorderBySCC()}; all arrays are indexed by graph node number.
+   */
+  private class WeakTopologicalOrder {
+    /**
+     * the reverse postorder number of each node
+     */
+    private final int[] rpo = new int[graph.getMaxNumber() + 1];
+
+    /**
+     * the nodes being split have region[n] == the current region; others are ignored
+     */
+    private final int[] region = new int[rpo.length];
+
+    private int nextRegion = 1;
+
+    private final int[] index = new int[rpo.length];
+
+    private final int[] lowLink = new int[rpo.length];
+
+    private final boolean[] onStack = new boolean[rpo.length];
+
+    private final Comparator<INodeWithNumber> byRPO = new Comparator<INodeWithNumber>() {
+      @Override
+      public int compare(INodeWithNumber o1, INodeWithNumber o2) {
+        return rpo[graph.getNumber(o1)] - rpo[graph.getNumber(o2)];
+      }
+    };
+
+    private int number = 0;
+
+    void number() {
+      ArrayList<INodeWithNumber> nodes = new ArrayList<>(graph.getNumberOfNodes());
+      for (Iterator<INodeWithNumber> finish = DFS.iterateFinishTime(graph); finish.hasNext();) {
+        nodes.add(finish.next());
+      }
+      Collections.reverse(nodes);
+      for (int i = 0; i < nodes.size(); i++) {
+        rpo[graph.getNumber(nodes.get(i))] = i;
+      }
+      split(nodes);
+    }
+
+    /**
+     * number the given nodes, which are in reverse postorder, component by component
+     */
+    private void split(List<INodeWithNumber> nodes) {
+      for (List<INodeWithNumber> scc : components(nodes)) {
+        if (scc.size() == 1) {
+          numberVariable(scc.get(0));
+        } else {
+          Collections.sort(scc, byRPO);
+          numberVariable(scc.get(0));
+          split(scc.subList(1, scc.size()));
+        }
+      }
+    }
+
+    private void numberVariable(INodeWithNumber n) {
+      if (n instanceof IVariable) {
+        @SuppressWarnings("unchecked")
+        T v = (T) n;
+        v.setOrderNumber(number++);
+      }
+    }
+
+    /**
+     * Tarjan's algorithm, without recursion, on the subgraph induced by nodes
+     * 
+     * @return the strongly connected components of the subgraph, in topological order
+     */
+    private List<List<INodeWithNumber>> components(List<INodeWithNumber> nodes) {
+      int r = nextRegion++;
+      for (INodeWithNumber n : nodes) {
+        int i = graph.getNumber(n);
+        region[i] = r;
+        index[i] = -1;
+      }
+      List<List<INodeWithNumber>> result = new ArrayList<>();
+      ArrayList<INodeWithNumber> stack = new ArrayList<>();
+      ArrayList<INodeWithNumber> path = new ArrayList<>();
+      ArrayList<Iterator<INodeWithNumber>> succs = new ArrayList<>();
+      int counter = 0;
+      for (INodeWithNumber root : nodes) {
+        if (index[graph.getNumber(root)] != -1) {
+          continue;
+        }
+        INodeWithNumber next = root;
+        while (next != null || !path.isEmpty()) {
+          if (next != null) {
+            int i = graph.getNumber(next);
+            index[i] = lowLink[i] = counter++;
+            stack.add(next);
+            onStack[i] = true;
+            path.add(next);
+            succs.add(graph.getSuccNodes(next));
+            next = null;
+          }
+          INodeWithNumber v = path.get(path.size() - 1);
+          int vi = graph.getNumber(v);
+          Iterator<INodeWithNumber> it = succs.get(succs.size() - 1);
+          while (next == null && it.hasNext()) {
+            INodeWithNumber w = it.next();
+            int wi = graph.getNumber(w);
+            if (region[wi] != r) {
+              continue;
+            }
+            if (index[wi] == -1) {
+              next = w;
+            } else if (onStack[wi]) {
+              lowLink[vi] = Math.min(lowLink[vi], index[wi]);
+            }
+          }
+          if (next == null) {
+            path.remove(path.size() - 1);
+            succs.remove(succs.size() - 1);
+            if (lowLink[vi] == index[vi]) {
+              List<INodeWithNumber> scc = new ArrayList<>();
+              INodeWithNumber w;
+              do {
+                w = stack.remove(stack.size() - 1);
+                onStack[graph.getNumber(w)] = false;
+                scc.add(w);
+              } while (w != v);
+              result.add(scc);
+            }
+            if (!path.isEmpty()) {
+              int ui = graph.getNumber(path.get(path.size() - 1));
+              lowLink[ui] = Math.min(lowLink[ui], lowLink[vi]);
+            }
+          }
+        }
+      }
+      // Tarjan's algorithm finds the components in reverse topological order
+      Collections.reverse(result);
+      return result;
+    }
+  }
+
   /**
    * check that this graph is well-formed
    */
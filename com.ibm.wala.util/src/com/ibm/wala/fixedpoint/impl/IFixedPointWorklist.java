@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+import java.util.NoSuchElementException;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+
+/**
+ * The statements awaiting evaluation by an {@link AbstractFixedPointSolver}. A statement is held at most once, however
+ * often it is inserted; statements with lower order numbers should generally be taken first.
+ */
+@SuppressWarnings("rawtypes")
+public interface IFixedPointWorklist {
+
+  /**
+   * @throws NoSuchElementException if the worklist is empty
+   */
+  AbstractStatement takeStatement() throws NoSuchElementException;
+
+  /**
+   * Add a statement, unless it is already on the worklist
+   */
+  void insertStatement(AbstractStatement eq);
+
+  boolean isEmpty();
+
+  int size();
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+
+/**
+ * A worklist that ignores order numbers and takes the statement inserted last first. Insertion and removal are constant
+ * time, and a statement whose inputs just changed is evaluated while they are still hot, at the cost of possibly
+ * evaluating it before its other inputs have settled.
+ */
+@SuppressWarnings("rawtypes")
+public class LifoWorklist implements IFixedPointWorklist {
+
+  private final ArrayList<AbstractStatement> stack = new ArrayList<>();
+
+  @Override
+  public AbstractStatement takeStatement() throws NoSuchElementException {
+    if (stack.isEmpty()) {
+      throw new NoSuchElementException("worklist is empty");
+    }
+    AbstractStatement result = stack.remove(stack.size() - 1);
+    result.setQueued(false);
+    return result;
+  }
+
+  @Override
+  public void insertStatement(AbstractStatement eq) {
+    if (eq == null) {
+      throw new IllegalArgumentException("eq is null");
+    }
+    if (!eq.isQueued()) {
+      eq.setQueued(true);
+      stack.add(eq);
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return stack.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return stack.size();
+  }
+
+  @Override
+  public String toString() {
+    return "LifoWorklist, size " + stack.size();
+  }
+}
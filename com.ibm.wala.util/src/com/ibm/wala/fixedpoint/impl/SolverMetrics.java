@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+/**
+ * Counts of the work done by an {@link AbstractFixedPointSolver}, to compare {@link WorklistPolicy worklist policies}.
+ * The counts accumulate over all calls to {@link AbstractFixedPointSolver#solve}, until {@link #reset()}.
+ */
+public class SolverMetrics {
+
+  int evaluations = 0;
+
+  int changes = 0;
+
+  int insertions = 0;
+
+  int reorders = 0;
+
+  int maxWorklistSize = 0;
+
+  /**
+   * @return the number of statements evaluated
+   */
+  public int getEvaluations() {
+    return evaluations;
+  }
+
+  /**
+   * @return the number of evaluations that changed the statement's left-hand side
+   */
+  public int getChanges() {
+    return changes;
+  }
+
+  /**
+   * @return the number of times a statement not already on the worklist was added to it
+   */
+  public int getInsertions() {
+    return insertions;
+  }
+
+  /**
+   * @return the number of times the solver re-sorted its statements
+   */
+  public int getReorders() {
+    return reorders;
+  }
+
+  /**
+   * @return the largest number of statements on the worklist at once
+   */
+  public int getMaxWorklistSize() {
+    return maxWorklistSize;
+  }
+
+  public void reset() {
+    evaluations = 0;
+    changes = 0;
+    insertions = 0;
+    reorders = 0;
+    maxWorklistSize = 0;
+  }
+
+  @Override
+  public String toString() {
+    return "evaluations " + evaluations + ", changes " + changes + ", insertions " + insertions + ", reorders " + reorders
+        + ", max worklist " + maxWorklistSize;
+  }
+}
@@ -10,20 +10,17 @@
  *******************************************************************************/
 package com.ibm.wala.fixedpoint.impl;
 
-import java.util.HashSet;
 import java.util.NoSuchElementException;
 
 import com.ibm.wala.fixpoint.AbstractStatement;
-import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Heap;
 
 /**
- * Worklist for fixed-point solver implementation
+ * Worklist for fixed-point solver implementation. Statements are kept in a heap ordered by order number; duplicates are
+ * suppressed with the {@link AbstractStatement#isQueued()} bit.
  */
 @SuppressWarnings("rawtypes")
-public class Worklist extends Heap<AbstractStatement> {
-
-  private final HashSet<AbstractStatement> contents = HashSetFactory.make();
+public class Worklist extends Heap<AbstractStatement> implements IFixedPointWorklist {
 
   public Worklist() {
     super(100);
@@ -34,15 +31,17 @@ public class Worklist extends Heap<AbstractStatement> {
     return (eq1.getOrderNumber() < eq2.getOrderNumber());
   }
 
+  @Override
   public AbstractStatement takeStatement() throws NoSuchElementException {
     AbstractStatement result = super.take();
-    contents.remove(result);
+    result.setQueued(false);
     return result;
   }
   
+  @Override
   public void insertStatement(AbstractStatement eq) {
-    if (!contents.contains(eq)) {
-      contents.add(eq);
+    if (!eq.isQueued()) {
+      eq.setQueued(true);
       super.insert(eq);
     }
   }
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.IFixedPointSystem;
+
+/**
+ * The order in which an {@link AbstractFixedPointSolver} evaluates the statements on its worklist. A policy decides both
+ * which worklist the solver uses and how it numbers the statements when it re-sorts them.
+ * 
+ * The fixed point reached is the same under every policy; only the number of evaluations needed to reach it differs.
+ * 
+ * @see AbstractFixedPointSolver#setWorklistPolicy(WorklistPolicy)
+ * @see AbstractFixedPointSolver#getMetrics()
+ */
+public enum WorklistPolicy {
+
+  /**
+   * Statements in a heap ordered by {@link IFixedPointSystem#reorder() topological number}. This is the default.
+   */
+  TOPOLOGICAL {
+    @Override
+    public IFixedPointWorklist makeWorklist() {
+      return new Worklist();
+    }
+  },
+
+  /**
+   * Statements in a heap ordered by a numbering that visits the strongly connected components of the statement graph in
+   * topological order, and the statements of each component in reverse postorder from where the component is entered, so
+   * that a loop is iterated to its fixed point, in the order of its body, before anything after it is evaluated. Systems
+   * other than a {@link DefaultFixedPointSystem} are numbered {@link IFixedPointSystem#reorder() topologically}.
+   */
+  SCC {
+    @Override
+    public IFixedPointWorklist makeWorklist() {
+      return new Worklist();
+    }
+
+    @Override
+    public void reorder(IFixedPointSystem<?> system) {
+      if (system instanceof DefaultFixedPointSystem) {
+        ((DefaultFixedPointSystem<?>) system).reorderBySCC();
+      } else {
+        system.reorder();
+      }
+    }
+  },
+
+  /**
+   * The statement inserted last is taken first; order numbers are ignored, so the solver never re-sorts the statements.
+   * 
+   * @see LifoWorklist
+   */
+  LIFO {
+    @Override
+    public IFixedPointWorklist makeWorklist() {
+      return new LifoWorklist();
+    }
+
+    @Override
+    public void reorder(IFixedPointSystem<?> system) {
+      // order numbers are not used
+    }
+  },
+
+  /**
+   * The statement whose inputs have changed least often is taken first, then the one with the lowest topological number.
+   * 
+   * @see ChangeFrequencyWorklist
+   */
+  CHANGE_FREQUENCY {
+    @Override
+    public IFixedPointWorklist makeWorklist() {
+      return new ChangeFrequencyWorklist();
+    }
+  };
+
+  /**
+   * @return an empty worklist for this policy
+   */
+  public abstract IFixedPointWorklist makeWorklist();
+
+  /**
+   * Renumber the statements of a system for this policy.
+   */
+  public void reorder(IFixedPointSystem<?> system) {
+    system.reorder();
+  }
+}
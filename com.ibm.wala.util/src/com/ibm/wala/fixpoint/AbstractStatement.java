@@ -17,8 +17,22 @@ import com.ibm.wala.util.graph.impl.NodeWithNumber;
  */
 public abstract class AbstractStatement<T extends IVariable, O extends AbstractOperator<T>> extends NodeWithNumber implements IFixedPointStatement<T>{
 
+  /**
+   * Is this statement on a solver's worklist? Maintained by the worklist, so that it can suppress duplicates without a
+   * hash set.
+   */
+  private boolean queued = false;
+
   public abstract O getOperator();
 
+  public final boolean isQueued() {
+    return queued;
+  }
+
+  public final void setQueued(boolean queued) {
+    this.queued = queued;
+  }
+
   /**
    * Subclasses must implement this, to prevent non-determinism.
    */
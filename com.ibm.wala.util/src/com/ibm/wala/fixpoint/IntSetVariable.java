@@ -13,6 +13,7 @@ package com.ibm.wala.fixpoint;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 
 /**
  * A variable for dataflow analysis, representing a set of integers.
@@ -24,13 +25,20 @@ public abstract class IntSetVariable<T extends IntSetVariable> extends AbstractV
 
   MutableIntSet V;
 
+  /**
+   * @return the factory for the sets that hold the value of this variable
+   */
+  protected MutableIntSetFactory<?> getIntSetFactory() {
+    return IntSetUtil.getDefaultIntSetFactory();
+  }
+
   @Override
   public void copyState(T other) {
     if (V == null) {
       if (other.V == null) {
         return;
       } else {
-        V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other.V);
+        V = getIntSetFactory().makeCopy(other.V);
         return;
       }
     } else {
@@ -47,7 +55,7 @@ public abstract class IntSetVariable<T extends IntSetVariable> extends AbstractV
    */
   public boolean addAll(IntSet B) {
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(B);
+      V = getIntSetFactory().makeCopy(B);
       return (B.size() > 0);
     } else {
       boolean result = V.addAll(B);
@@ -101,7 +109,7 @@ public abstract class IntSetVariable<T extends IntSetVariable> extends AbstractV
    */
   public void add(int b) {
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().make();
+      V = getIntSetFactory().make();
     }
     V.add(b);
   }
@@ -165,7 +173,7 @@ public abstract class IntSetVariable<T extends IntSetVariable> extends AbstractV
 
   public boolean addAllInIntersection(IntSet other, IntSet filter) {
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other);
+      V = getIntSetFactory().makeCopy(other);
       V.intersectWith(filter);
       if (V.isEmpty()) {
         V = null;
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Simple utilities for running independent tasks on several threads
+ */
+public class ParallelUtil {
+
+  /**
+   * One of the tasks run by {@link ParallelUtil#forEach(int, int, String, IndexedTask)}
+   */
+  public interface IndexedTask {
+    /**
+     * run the task with index i
+     */
+    void run(int i) throws Exception;
+  }
+
+  /**
+   * Makes the {@link IndexedTask} of each thread of {@link ParallelUtil#forEach(int, int, String, IndexedTaskFactory)}, for
+   * tasks that need state private to a thread.
+   */
+  public interface IndexedTaskFactory {
+    IndexedTask make();
+  }
+
+  /**
+   * Run the tasks with indices 0 to n-1, each once, on at most nThreads threads, the calling thread being one of them. Each
+   * thread takes the next task not yet started. The first exception thrown by a task stops the threads after their current
+   * task, and is rethrown to the caller once all threads have stopped.
+   *
+   * @param n the number of tasks
+   * @param nThreads the maximum number of threads to run them on
+   * @param name the name of the threads started, which are numbered after it
+   * @throws CancelException if a task is canceled, or the calling thread is interrupted while waiting for the others
+   */
+  public static void forEach(int n, int nThreads, String name, final IndexedTask task) throws CancelException {
+    if (task == null) {
+      throw new IllegalArgumentException("task is null");
+    }
+    forEach(n, nThreads, name, new IndexedTaskFactory() {
+      @Override
+      public IndexedTask make() {
+        return task;
+      }
+    });
+  }
+
+  /**
+   * As {@link #forEach(int, int, String, IndexedTask)}, but each thread runs its tasks with its own {@link IndexedTask}, made
+   * by tasks on the calling thread before the threads start.
+   */
+  public static void forEach(final int n, int nThreads, String name, IndexedTaskFactory tasks) throws CancelException {
+    if (n < 0) {
+      throw new IllegalArgumentException("n must not be negative: " + n);
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("nThreads must be positive: " + nThreads);
+    }
+    if (tasks == null) {
+      throw new IllegalArgumentException("tasks is null");
+    }
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    Runnable[] workers = new Runnable[Math.max(1, Math.min(nThreads, n))];
+    for (int w = 0; w < workers.length; w++) {
+      final IndexedTask task = tasks.make();
+      workers[w] = new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int i = next.getAndIncrement(); i < n && failure.get() == null; i = next.getAndIncrement()) {
+              task.run(i);
+            }
+          } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+          }
+        }
+      };
+    }
+    Thread[] threads = new Thread[workers.length - 1];
+    for (int w = 0; w < threads.length; w++) {
+      threads[w] = new Thread(workers[w + 1], name + " " + (w + 1));
+      threads[w].setDaemon(true);
+      threads[w].start();
+    }
+    workers[0].run();
+    boolean interrupted = false;
+    for (Thread t : threads) {
+      while (true) {
+        try {
+          t.join();
+          break;
+        } catch (InterruptedException e) {
+          // the threads stop by themselves once failure is set
+          interrupted = true;
+          failure.compareAndSet(null, CancelException.make("interrupted"));
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    Throwable t = failure.get();
+    if (t instanceof CancelException) {
+      throw (CancelException) t;
+    } else if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    } else if (t != null) {
+      throw new RuntimeException(t);
+    }
+  }
+}
@@ -27,11 +27,14 @@ public class FileOfClasses extends SetOfClasses {
 
   private static final boolean DEBUG = false;
 
-  private Pattern pattern = null;
+  /*
+   * volatile so that class loaders reading class files on several threads may call contains() concurrently
+   */
+  private volatile Pattern pattern = null;
 
   private String regex = null;
 
-  private boolean needsCompile = false;
+  private volatile boolean needsCompile = false;
   
   public FileOfClasses(InputStream input) throws IOException {
     if (input == null) {
@@ -60,7 +63,10 @@ public class FileOfClasses extends SetOfClasses {
     input.close();
   }
 
-  private void compile() {
+  private synchronized void compile() {
+    if (!needsCompile) {
+      return;
+    }
     pattern = Pattern.compile(regex);
     needsCompile = false;
   }
@@ -38,6 +38,8 @@ public class BimodalMutableIntSet implements MutableIntSet {
       impl = IntSetUtil.makeMutableCopy(set);
     } else if (set instanceof MutableSharedBitVectorIntSet) {
       impl = IntSetUtil.makeMutableCopy(((MutableSharedBitVectorIntSet) set).makeSparseCopy());
+    } else if (set instanceof MutableRoaringIntSet) {
+      impl = MutableSparseIntSet.make(set);
     } else {
       Assertions.UNREACHABLE("Unexpected type " + set.getClass());
     }
@@ -150,6 +152,8 @@ public class BimodalMutableIntSet implements MutableIntSet {
     if (set instanceof BimodalMutableIntSet) {
       BimodalMutableIntSet that = (BimodalMutableIntSet) set;
       impl.intersectWith(that.impl);
+    } else if (set instanceof MutableRoaringIntSet) {
+      impl.intersectWith(set);
     } else {
       Assertions.UNREACHABLE();
     }
@@ -171,7 +175,7 @@ public class BimodalMutableIntSet implements MutableIntSet {
     if (that instanceof BimodalMutableIntSet) {
       BimodalMutableIntSet b = (BimodalMutableIntSet) that;
       return impl.intersection(b.impl);
-    } else if (that instanceof BitVectorIntSet) {
+    } else if (that instanceof BitVectorIntSet || that instanceof MutableRoaringIntSet) {
       return impl.intersection(that);
     } else {
       Assertions.UNREACHABLE("Unexpected: " + that);
@@ -344,7 +348,7 @@ public class BimodalMutableIntSet implements MutableIntSet {
       return impl.containsAny(b.impl);
     } else if (that instanceof SparseIntSet) {
       return impl.containsAny(that);
-    } else if (that instanceof BitVectorIntSet) {
+    } else if (that instanceof BitVectorIntSet || that instanceof MutableRoaringIntSet) {
       return impl.containsAny(that);
     } else {
       Assertions.UNREACHABLE("unsupported " + that.getClass());
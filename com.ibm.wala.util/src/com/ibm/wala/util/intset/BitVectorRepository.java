@@ -10,15 +10,24 @@
  *******************************************************************************/
 package com.ibm.wala.util.intset;
 
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Map;
-
-import com.ibm.wala.util.collections.HashMapFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A repository for shared bit vectors as described by Heintze
+ * A repository for shared bit vectors as described by Heintze.
+ *
+ * Shared vectors are hash-consed: the repository is a concurrent hash table keyed by the contents of each vector, so a
+ * lookup costs one hash of the query and at most a few comparisons, and threads do not contend for a lock. Vectors are
+ * held weakly, and disappear from the repository once no set shares them.
+ *
+ * A repository may be given a budget for the memory its vectors occupy. Once the budget is used up, queries for vectors
+ * not yet in the repository get a fresh, unshared copy of the query instead of a new entry.
+ *
+ * Each {@link MutableSharedBitVectorIntSetFactory} shares vectors through one repository; give separate analyses
+ * separate factories over separate repositories to keep their vectors and counters apart.
  */
 public class BitVectorRepository {
 
@@ -26,83 +35,246 @@ public class BitVectorRepository {
 
   private final static int STATS_WINDOW = 100;
 
-  private static int queries = 0;
+  /**
+   * rough size in bytes of an entry, not counting the words of its vector: the set, the vector, the array header, the
+   * weak reference and the hash table node
+   */
+  private final static int ENTRY_OVERHEAD = 128;
+
+  /**
+   * the repository used by sets that are not given one
+   */
+  private final static BitVectorRepository DEFAULT = new BitVectorRepository();
+
+  private final ConcurrentMap<Entry, Entry> entries = new ConcurrentHashMap<>();
+
+  private final ReferenceQueue<BitVectorIntSet> cleared = new ReferenceQueue<>();
+
+  private final long maxBytes;
+
+  private final AtomicLong bytes = new AtomicLong();
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong rejected = new AtomicLong();
+
+  /**
+   * A weak reference to a shared vector, which compares equal to any other entry whose vector has the same bits.
+   */
+  private final static class Entry extends WeakReference<BitVectorIntSet> {
+    private final int hash;
+
+    private final long bytes;
+
+    Entry(BitVectorIntSet value, int hash, ReferenceQueue<BitVectorIntSet> q) {
+      super(value, q);
+      this.hash = hash;
+      this.bytes = ENTRY_OVERHEAD + 4L * value.getBitVector().bits.length;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Entry)) {
+        return false;
+      }
+      Entry other = (Entry) obj;
+      if (hash != other.hash) {
+        return false;
+      }
+      BitVectorIntSet a = get();
+      BitVectorIntSet b = other.get();
+      // a cleared entry is only equal to itself, so it can still be removed
+      return a != null && b != null && a.getBitVector().sameBits(b.getBitVector());
+    }
+  }
+
+  /**
+   * Create a repository with no limit on the memory its vectors occupy.
+   */
+  public BitVectorRepository() {
+    this(Long.MAX_VALUE);
+  }
 
-  private static int hits = 0;
+  /**
+   * @param maxBytes the (approximate) number of bytes the shared vectors of this repository may occupy
+   * @throws IllegalArgumentException if maxBytes is negative
+   */
+  public BitVectorRepository(long maxBytes) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("maxBytes is negative: " + maxBytes);
+    }
+    this.maxBytes = maxBytes;
+  }
 
-  private final static int SUBSET_DELTA = 5;
+  /**
+   * @return the repository used by {@link MutableSharedBitVectorIntSet}s that are not given one
+   */
+  public static BitVectorRepository getDefault() {
+    return DEFAULT;
+  }
 
-  final private static Map<Integer, LinkedList<WeakReference<BitVectorIntSet>>> buckets = HashMapFactory.make();
+  /**
+   * @param value
+   * @return the BitVector in the default repository which is the canonical shared representative of value; the result
+   *         will have the same bits as value.
+   * @throws IllegalArgumentException if value is null
+   */
+  public static BitVectorIntSet findOrCreateSharedSubset(BitVectorIntSet value) {
+    return DEFAULT.findOrCreate(value);
+  }
 
   /**
    * @param value
-   * @return the BitVector in this repository which is the canonical shared
-   *         subset representative of value; the result will have the same bits
-   *         as value, except it may exclude up to SUBSET_DELTA bits.
-   * @throws IllegalArgumentException  if value is null
+   * @return the BitVector in this repository which is the canonical shared representative of value; the result will
+   *         have the same bits as value. The result must not be mutated.
+   * @throws IllegalArgumentException if value is null
    */
-  public static synchronized BitVectorIntSet findOrCreateSharedSubset(BitVectorIntSet value) {
+  public BitVectorIntSet findOrCreate(BitVectorIntSet value) {
     if (value == null) {
       throw new IllegalArgumentException("value is null");
     }
-    if (STATS) {
-      queries++;
-      if (queries % STATS_WINDOW == 0) {
-        reportStats();
+    int hash = hash(value.getBitVector());
+    Entry e = entries.get(new Entry(value, hash, null));
+    BitVectorIntSet bv = e == null ? null : e.get();
+    if (bv != null) {
+      hits.incrementAndGet();
+      countQuery();
+      return bv;
+    }
+
+    // didn't find one. create one.
+    expungeClearedEntries();
+    bv = new BitVectorIntSet(value);
+    Entry n = new Entry(bv, hash, cleared);
+    if (bytes.addAndGet(n.bytes) > maxBytes) {
+      bytes.addAndGet(-n.bytes);
+      rejected.incrementAndGet();
+      misses.incrementAndGet();
+      countQuery();
+      return bv;
+    }
+    while (true) {
+      Entry other = entries.putIfAbsent(n, n);
+      if (other == null) {
+        misses.incrementAndGet();
+        countQuery();
+        return bv;
+      }
+      // another thread got there first
+      BitVectorIntSet o = other.get();
+      if (o != null) {
+        bytes.addAndGet(-n.bytes);
+        hits.incrementAndGet();
+        countQuery();
+        return o;
       }
+      // ... and its vector has been cleared since; retry, now that it no longer matches
+    }
+  }
+
+  /**
+   * A hash of the bits of v which, like {@link BitVector#sameBits(BitVector)}, ignores trailing zero words
+   */
+  private static int hash(BitVector v) {
+    int[] bits = v.bits;
+    int last = bits.length - 1;
+    while (last >= 0 && bits[last] == 0) {
+      last--;
+    }
+    int h = 1234;
+    for (int i = 0; i <= last; i++) {
+      h = 31 * h + bits[i];
     }
-    int size = value.size();
-    for (int i = size; i > size - SUBSET_DELTA; i--) {
-      LinkedList<WeakReference<BitVectorIntSet>> m = buckets.get(Integer.valueOf(i));
-      if (m != null) {
-        Iterator<WeakReference<BitVectorIntSet>> it = m.iterator();
-        while (it.hasNext()) {
-          WeakReference<BitVectorIntSet> wr = it.next();
-          BitVectorIntSet bv = wr.get();
-          if (bv != null) {
-            if (bv.isSubset(value)) {
-              // FOUND ONE!
-              if (STATS) {
-                hits++;
-              }
-              return bv;            
-            }
-          } else {
-            // remove the weak reference to avoid leaks
-            it.remove();
-          }
-        }
+    return h ^ (h >>> 16);
+  }
+
+  private void expungeClearedEntries() {
+    for (Object r = cleared.poll(); r != null; r = cleared.poll()) {
+      Entry e = (Entry) r;
+      if (entries.remove(e) != null) {
+        bytes.addAndGet(-e.bytes);
       }
     }
-    // didn't find one. create one.
-    LinkedList<WeakReference<BitVectorIntSet>> m = buckets.get(size);
-    if (m == null) {
-      m = new LinkedList<>();
-      buckets.put(size, m);
+  }
+
+  private void countQuery() {
+    if (STATS) {
+      if (getQueries() % STATS_WINDOW == 0) {
+        reportStats();
+      }
     }
-    BitVectorIntSet bv = new BitVectorIntSet(value);
-    m.add(new WeakReference<>(bv));
-    return bv;
   }
 
   /**
-   * 
+   * @return the number of queries answered with a vector already in this repository
    */
-  private static void reportStats() {
-    double percent = 100.0 * hits / queries;
-    System.err.println(("BitVectorRepository: queries " + queries + " hits " + percent));
-    System.err.println(("                     entries " + countEntries()));
+  public long getHits() {
+    return hits.get();
   }
 
   /**
+   * @return the number of queries answered with a new vector
    */
-  private static int countEntries() {
-    int result = 0;
-    for (LinkedList<WeakReference<BitVectorIntSet>> l : buckets.values()) {
-      // don't worry about cleared WeakReferences; count will be rough
-      result += l.size();
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of queries answered with an unshared vector because the memory budget was used up
+   */
+  public long getRejected() {
+    return rejected.get();
+  }
+
+  public long getQueries() {
+    return hits.get() + misses.get();
+  }
+
+  /**
+   * @return the number of shared vectors in this repository; some may have been cleared but not yet removed
+   */
+  public int getEntryCount() {
+    expungeClearedEntries();
+    return entries.size();
+  }
+
+  /**
+   * @return the approximate number of bytes occupied by the shared vectors of this repository
+   */
+  public long getBytes() {
+    expungeClearedEntries();
+    return bytes.get();
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Forget all shared vectors. Sets already sharing a vector keep it.
+   */
+  public void clear() {
+    entries.clear();
+    bytes.set(0);
+    while (cleared.poll() != null) {
+      // discard
     }
-    return result;
+  }
+
+  private void reportStats() {
+    double percent = 100.0 * getHits() / getQueries();
+    System.err.println(("BitVectorRepository: queries " + getQueries() + " hits " + percent));
+    System.err.println(("                     entries " + entries.size() + " bytes " + bytes.get()));
   }
 
 }
@@ -0,0 +1,838 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A compressed bitmap implementation of {@link MutableIntSet}, in the style of Roaring bitmaps.
+ *
+ * The set is split into chunks of 2^16 consecutive integers. A chunk with at most {@link #ARRAY_LIMIT} elements is kept
+ * as a sorted array of the low 16 bits of its elements; a fuller chunk is kept as a bitmap of 8KB. So sparse sets cost
+ * about two bytes per element, however large the elements are, and dense sets about one bit per possible element.
+ *
+ * Most points-to sets are small and fall in a single chunk, so the layout is tuned for that case: each container
+ * records its own chunk and cardinality, and a set with one chunk refers to its container directly, so that it is just
+ * two objects.
+ *
+ * Only non-negative integers may be added.
+ *
+ * Note that this is NOT a value with regard to hashCode and equals.
+ */
+public final class MutableRoaringIntSet implements MutableIntSet {
+
+  private static final long serialVersionUID = 2476537264125335286L;
+
+  /**
+   * the largest number of elements kept in an array container
+   */
+  public static final int ARRAY_LIMIT = 4096;
+
+  /**
+   * the number of longs holding the bits of a bitmap container; the long after them holds the chunk and the cardinality
+   */
+  private static final int BITMAP_WORDS = 1 << 10;
+
+  /**
+   * the number of chars before the elements of an array container: the chunk and the cardinality
+   */
+  private static final int HEADER = 2;
+
+  /**
+   * The containers, in ascending order of chunk: null if the set is empty, the container itself if there is one chunk,
+   * and an Object[] of exactly the number of chunks otherwise.
+   *
+   * An array container is a char[] holding the chunk, the cardinality and then the low 16 bits of each element in
+   * ascending order; a bitmap container is a long[] of {@link #BITMAP_WORDS} words of bits followed by the chunk in the
+   * upper half and the cardinality in the lower half of one more long.
+   */
+  private Object data = null;
+
+  private int size = 0;
+
+  public MutableRoaringIntSet() {
+  }
+
+  /**
+   * @throws IllegalArgumentException if set is null or holds a negative integer
+   */
+  public MutableRoaringIntSet(IntSet set) throws IllegalArgumentException {
+    copySet(set);
+  }
+
+  private int chunkCount() {
+    return data == null ? 0 : data instanceof Object[] ? ((Object[]) data).length : 1;
+  }
+
+  private Object container(int chunk) {
+    return data instanceof Object[] ? ((Object[]) data)[chunk] : data;
+  }
+
+  private void setContainer(int chunk, Object container) {
+    if (data instanceof Object[]) {
+      ((Object[]) data)[chunk] = container;
+    } else {
+      data = container;
+    }
+  }
+
+  private static int key(Object container) {
+    if (container instanceof long[]) {
+      return (int) (((long[]) container)[BITMAP_WORDS] >>> 32);
+    } else {
+      return ((char[]) container)[0];
+    }
+  }
+
+  private static int cardinality(Object container) {
+    if (container instanceof long[]) {
+      return (int) ((long[]) container)[BITMAP_WORDS];
+    } else {
+      return ((char[]) container)[1];
+    }
+  }
+
+  private static void setCardinality(long[] bits, int key, int cardinality) {
+    bits[BITMAP_WORDS] = ((long) key << 32) | cardinality;
+  }
+
+  private static char[] newArray(int key, int capacity) {
+    char[] a = new char[HEADER + capacity];
+    a[0] = (char) key;
+    return a;
+  }
+
+  /**
+   * @return the capacity of an array container that must hold at least n elements
+   */
+  private static int arrayCapacity(int n) {
+    return Math.min(ARRAY_LIMIT, Math.max(2, n + (n >> 1)));
+  }
+
+  /**
+   * @return the index of the chunk with the given key, or (-(insertion point) - 1) if there is none
+   */
+  private int findChunk(int key) {
+    int low = 0;
+    int high = chunkCount() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int k = key(container(mid));
+      if (k < key) {
+        low = mid + 1;
+      } else if (k > key) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private void insertChunk(int chunk, Object container) {
+    int n = chunkCount();
+    if (n == 0) {
+      data = container;
+      return;
+    }
+    Object[] old = n == 1 ? new Object[] { data } : (Object[]) data;
+    Object[] containers = new Object[n + 1];
+    System.arraycopy(old, 0, containers, 0, chunk);
+    containers[chunk] = container;
+    System.arraycopy(old, chunk, containers, chunk + 1, n - chunk);
+    data = containers;
+  }
+
+  private void removeChunk(int chunk) {
+    int n = chunkCount();
+    if (n == 1) {
+      data = null;
+    } else if (n == 2) {
+      data = container(1 - chunk);
+    } else {
+      Object[] old = (Object[]) data;
+      Object[] containers = new Object[n - 1];
+      System.arraycopy(old, 0, containers, 0, chunk);
+      System.arraycopy(old, chunk + 1, containers, chunk, n - chunk - 1);
+      data = containers;
+    }
+  }
+
+  private static boolean containerContains(Object container, char low) {
+    if (container instanceof long[]) {
+      return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+    } else {
+      char[] a = (char[]) container;
+      return Arrays.binarySearch(a, HEADER, HEADER + a[1], low) >= 0;
+    }
+  }
+
+  private static long[] toBitmap(char[] a) {
+    long[] bits = new long[BITMAP_WORDS + 1];
+    for (int i = HEADER, end = HEADER + a[1]; i < end; i++) {
+      bits[a[i] >>> 6] |= 1L << a[i];
+    }
+    setCardinality(bits, a[0], a[1]);
+    return bits;
+  }
+
+  private static char[] toArray(long[] bits, int key, int cardinality) {
+    char[] a = newArray(key, cardinality);
+    a[1] = (char) cardinality;
+    int i = HEADER;
+    for (int w = 0; w < BITMAP_WORDS; w++) {
+      for (long word = bits[w]; word != 0; word &= word - 1) {
+        a[i++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+      }
+    }
+    return a;
+  }
+
+  private static Object copyContainer(Object container) {
+    if (container instanceof long[]) {
+      return ((long[]) container).clone();
+    } else {
+      char[] a = (char[]) container;
+      return Arrays.copyOf(a, HEADER + a[1]);
+    }
+  }
+
+  @Override
+  public boolean contains(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int chunk = findChunk(i >>> 16);
+    return chunk >= 0 && containerContains(container(chunk), (char) i);
+  }
+
+  /**
+   * @throws IllegalArgumentException if i &lt; 0
+   */
+  @Override
+  public boolean add(int i) throws IllegalArgumentException {
+    if (i < 0) {
+      throw new IllegalArgumentException("invalid i: " + i);
+    }
+    int key = i >>> 16;
+    char low = (char) i;
+    int chunk = findChunk(key);
+    if (chunk < 0) {
+      char[] a = newArray(key, arrayCapacity(1));
+      a[1] = 1;
+      a[HEADER] = low;
+      insertChunk(-chunk - 1, a);
+      size++;
+      return true;
+    }
+    Object container = container(chunk);
+    if (container instanceof long[]) {
+      long[] bits = (long[]) container;
+      long mask = 1L << low;
+      if ((bits[low >>> 6] & mask) != 0) {
+        return false;
+      }
+      bits[low >>> 6] |= mask;
+      bits[BITMAP_WORDS]++;
+    } else {
+      char[] a = (char[]) container;
+      int cardinality = a[1];
+      int p = Arrays.binarySearch(a, HEADER, HEADER + cardinality, low);
+      if (p >= 0) {
+        return false;
+      }
+      p = -p - 1;
+      if (cardinality == ARRAY_LIMIT) {
+        long[] bits = toBitmap(a);
+        bits[low >>> 6] |= 1L << low;
+        bits[BITMAP_WORDS]++;
+        setContainer(chunk, bits);
+      } else {
+        if (HEADER + cardinality == a.length) {
+          a = Arrays.copyOf(a, HEADER + arrayCapacity(cardinality + 1));
+          setContainer(chunk, a);
+        }
+        System.arraycopy(a, p, a, p + 1, HEADER + cardinality - p);
+        a[p] = low;
+        a[1] = (char) (cardinality + 1);
+      }
+    }
+    size++;
+    return true;
+  }
+
+  @Override
+  public boolean remove(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int key = i >>> 16;
+    char low = (char) i;
+    int chunk = findChunk(key);
+    if (chunk < 0) {
+      return false;
+    }
+    Object container = container(chunk);
+    if (container instanceof long[]) {
+      long[] bits = (long[]) container;
+      long mask = 1L << low;
+      if ((bits[low >>> 6] & mask) == 0) {
+        return false;
+      }
+      bits[low >>> 6] &= ~mask;
+      bits[BITMAP_WORDS]--;
+      int cardinality = cardinality(bits);
+      if (cardinality <= ARRAY_LIMIT) {
+        setContainer(chunk, toArray(bits, key, cardinality));
+      }
+    } else {
+      char[] a = (char[]) container;
+      int cardinality = a[1];
+      int p = Arrays.binarySearch(a, HEADER, HEADER + cardinality, low);
+      if (p < 0) {
+        return false;
+      }
+      System.arraycopy(a, p + 1, a, p, HEADER + cardinality - p - 1);
+      a[1] = (char) (cardinality - 1);
+      if (cardinality == 1) {
+        removeChunk(chunk);
+      }
+    }
+    size--;
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    data = null;
+    size = 0;
+  }
+
+  /**
+   * @throws IllegalArgumentException if set is null or holds a negative integer
+   */
+  @Override
+  public void copySet(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    if (set instanceof MutableRoaringIntSet) {
+      MutableRoaringIntSet that = (MutableRoaringIntSet) set;
+      if (that.data instanceof Object[]) {
+        Object[] containers = ((Object[]) that.data).clone();
+        for (int c = 0; c < containers.length; c++) {
+          containers[c] = copyContainer(containers[c]);
+        }
+        data = containers;
+      } else {
+        data = that.data == null ? null : copyContainer(that.data);
+      }
+      size = that.size;
+    } else {
+      clear();
+      addAll(set);
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if set is null or holds a negative integer
+   */
+  @Override
+  public boolean addAll(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return false;
+    }
+    if (set instanceof MutableRoaringIntSet) {
+      return addAllInternal((MutableRoaringIntSet) set, true);
+    } else {
+      int oldSize = size;
+      for (IntIterator it = set.intIterator(); it.hasNext();) {
+        add(it.next());
+      }
+      return size != oldSize;
+    }
+  }
+
+  /**
+   * @param copy must the containers of that be copied, or may this set take them over?
+   */
+  private boolean addAllInternal(MutableRoaringIntSet that, boolean copy) {
+    int oldSize = size;
+    int chunk = 0;
+    for (int c = 0, m = that.chunkCount(); c < m; c++) {
+      Object other = that.container(c);
+      int key = key(other);
+      int n = chunkCount();
+      while (chunk < n && key(container(chunk)) < key) {
+        chunk++;
+      }
+      if (chunk < n && key(container(chunk)) == key) {
+        unionInto(chunk, other);
+      } else {
+        insertChunk(chunk, copy ? copyContainer(other) : other);
+        size += cardinality(other);
+      }
+      chunk++;
+    }
+    return size != oldSize;
+  }
+
+  /**
+   * Add the elements of another container to a chunk of this set.
+   */
+  private void unionInto(int chunk, Object other) {
+    Object container = container(chunk);
+    int key = key(container);
+    int cardinality = cardinality(container);
+    int otherCardinality = cardinality(other);
+    int added = 0;
+    if (container instanceof long[]) {
+      long[] bits = (long[]) container;
+      added = orInto(bits, other);
+      setCardinality(bits, key, cardinality + added);
+    } else if (other instanceof long[]) {
+      long[] bits = ((long[]) other).clone();
+      added = orInto(bits, container) + otherCardinality - cardinality;
+      setCardinality(bits, key, cardinality + added);
+      setContainer(chunk, bits);
+    } else {
+      char[] a = (char[]) container;
+      char[] b = (char[]) other;
+      // count the new elements first, so that nothing is allocated if there are none
+      for (int i = HEADER, j = HEADER, aEnd = HEADER + cardinality, bEnd = HEADER + otherCardinality; j < bEnd;) {
+        if (i == aEnd || a[i] > b[j]) {
+          added++;
+          j++;
+        } else if (a[i] == b[j]) {
+          i++;
+          j++;
+        } else {
+          i++;
+        }
+      }
+      if (added == 0) {
+        return;
+      }
+      int total = cardinality + added;
+      if (total > ARRAY_LIMIT) {
+        long[] bits = toBitmap(a);
+        orInto(bits, b);
+        setCardinality(bits, key, total);
+        setContainer(chunk, bits);
+      } else {
+        char[] result = HEADER + total <= a.length ? a : newArray(key, arrayCapacity(total));
+        mergeFromBack(a, cardinality, b, otherCardinality, result, total);
+        result[1] = (char) total;
+        setContainer(chunk, result);
+      }
+    }
+    size += added;
+  }
+
+  /**
+   * Merge the elements of two array containers into result, from the highest element down, so that result may be the
+   * same array as a.
+   */
+  private static void mergeFromBack(char[] a, int aCardinality, char[] b, int bCardinality, char[] result, int total) {
+    int i = HEADER + aCardinality - 1;
+    int j = HEADER + bCardinality - 1;
+    int k = HEADER + total - 1;
+    while (j >= HEADER) {
+      if (i >= HEADER && a[i] > b[j]) {
+        result[k--] = a[i--];
+      } else if (i >= HEADER && a[i] == b[j]) {
+        result[k--] = a[i--];
+        j--;
+      } else {
+        result[k--] = b[j--];
+      }
+    }
+    if (result != a) {
+      System.arraycopy(a, HEADER, result, HEADER, i + 1 - HEADER);
+    }
+  }
+
+  /**
+   * @return the number of bits newly set in bits; its cardinality is not updated
+   */
+  private static int orInto(long[] bits, Object other) {
+    int added = 0;
+    if (other instanceof long[]) {
+      long[] o = (long[]) other;
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        long fresh = o[w] & ~bits[w];
+        if (fresh != 0) {
+          added += Long.bitCount(fresh);
+          bits[w] |= fresh;
+        }
+      }
+    } else {
+      char[] a = (char[]) other;
+      for (int i = HEADER, end = HEADER + a[1]; i < end; i++) {
+        long mask = 1L << a[i];
+        if ((bits[a[i] >>> 6] & mask) == 0) {
+          bits[a[i] >>> 6] |= mask;
+          added++;
+        }
+      }
+    }
+    return added;
+  }
+
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("null set");
+    }
+    if (set == this) {
+      return;
+    }
+    MutableRoaringIntSet result;
+    if (set instanceof MutableRoaringIntSet) {
+      result = intersect(this, (MutableRoaringIntSet) set);
+    } else {
+      result = new MutableRoaringIntSet();
+      for (IntIterator it = intIterator(); it.hasNext();) {
+        int x = it.next();
+        if (set.contains(x)) {
+          result.add(x);
+        }
+      }
+    }
+    data = result.data;
+    size = result.size;
+  }
+
+  /**
+   * @throws IllegalArgumentException if other is null or holds a negative integer that filter holds too
+   */
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("other == null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter == null");
+    }
+    if (other instanceof MutableRoaringIntSet && filter instanceof MutableRoaringIntSet) {
+      return addAllInternal(intersect((MutableRoaringIntSet) other, (MutableRoaringIntSet) filter), false);
+    }
+    int oldSize = size;
+    for (IntIterator it = other.intIterator(); it.hasNext();) {
+      int x = it.next();
+      if (filter.contains(x)) {
+        add(x);
+      }
+    }
+    return size != oldSize;
+  }
+
+  /**
+   * @return a new set holding the intersection of a and b, computed a pair of containers at a time
+   */
+  private static MutableRoaringIntSet intersect(MutableRoaringIntSet a, MutableRoaringIntSet b) {
+    MutableRoaringIntSet result = new MutableRoaringIntSet();
+    for (int i = 0, j = 0, m = a.chunkCount(), n = b.chunkCount(); i < m && j < n;) {
+      Object x = a.container(i);
+      Object y = b.container(j);
+      int key = key(x);
+      int k = key(y);
+      if (key < k) {
+        i++;
+      } else if (key > k) {
+        j++;
+      } else {
+        Object container = intersectContainers(x, y);
+        if (container != null) {
+          result.insertChunk(result.chunkCount(), container);
+          result.size += cardinality(container);
+        }
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a new container holding the intersection of two containers of the same chunk, or null if it is empty
+   */
+  private static Object intersectContainers(Object x, Object y) {
+    int key = key(x);
+    if (x instanceof long[] && y instanceof long[]) {
+      long[] a = (long[]) x;
+      long[] b = (long[]) y;
+      long[] bits = new long[BITMAP_WORDS + 1];
+      int cardinality = 0;
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        bits[w] = a[w] & b[w];
+        cardinality += Long.bitCount(bits[w]);
+      }
+      if (cardinality == 0) {
+        return null;
+      }
+      setCardinality(bits, key, cardinality);
+      return cardinality > ARRAY_LIMIT ? bits : toArray(bits, key, cardinality);
+    }
+    if (x instanceof long[]) {
+      return intersectContainers(y, x);
+    }
+    char[] a = (char[]) x;
+    int aEnd = HEADER + a[1];
+    char[] result;
+    int n = HEADER;
+    if (y instanceof long[]) {
+      long[] bits = (long[]) y;
+      result = newArray(key, a[1]);
+      for (int i = HEADER; i < aEnd; i++) {
+        if ((bits[a[i] >>> 6] & (1L << a[i])) != 0) {
+          result[n++] = a[i];
+        }
+      }
+    } else {
+      char[] b = (char[]) y;
+      int bEnd = HEADER + b[1];
+      result = newArray(key, Math.min(a[1], b[1]));
+      for (int i = HEADER, j = HEADER; i < aEnd && j < bEnd;) {
+        if (a[i] < b[j]) {
+          i++;
+        } else if (a[i] > b[j]) {
+          j++;
+        } else {
+          result[n++] = a[i];
+          i++;
+          j++;
+        }
+      }
+    }
+    if (n == HEADER) {
+      return null;
+    }
+    if (n < result.length) {
+      result = Arrays.copyOf(result, n);
+    }
+    result[1] = (char) (n - HEADER);
+    return result;
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    MutableRoaringIntSet result = new MutableRoaringIntSet(this);
+    result.intersectWith(that);
+    return result;
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    MutableRoaringIntSet result = new MutableRoaringIntSet(this);
+    result.addAll(that);
+    return result;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the largest element, or -1 if the set is empty
+   */
+  @Override
+  public int max() {
+    if (size == 0) {
+      return -1;
+    }
+    Object container = container(chunkCount() - 1);
+    int base = key(container) << 16;
+    if (container instanceof long[]) {
+      long[] bits = (long[]) container;
+      for (int w = BITMAP_WORDS - 1;; w--) {
+        if (bits[w] != 0) {
+          return base | (w << 6) | (63 - Long.numberOfLeadingZeros(bits[w]));
+        }
+      }
+    } else {
+      char[] a = (char[]) container;
+      return base | a[HEADER + a[1] - 1];
+    }
+  }
+
+  /**
+   * Use with care; doesn't detect ConcurrentModificationExceptions
+   */
+  @Override
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int chunk = 0;
+
+      /**
+       * in an array container, the index of the next element; in a bitmap, the index of the next word to load
+       */
+      private int pos = -1;
+
+      /**
+       * the bits of the current bitmap word not yet returned
+       */
+      private long word = 0;
+
+      private int remaining = size;
+
+      @Override
+      public boolean hasNext() {
+        return remaining > 0;
+      }
+
+      @Override
+      public int next() {
+        if (remaining <= 0) {
+          throw new NoSuchElementException();
+        }
+        while (true) {
+          Object container = container(chunk);
+          int base = key(container) << 16;
+          if (container instanceof long[]) {
+            long[] bits = (long[]) container;
+            if (pos < 0) {
+              pos = 0;
+            }
+            while (word == 0 && pos < BITMAP_WORDS) {
+              word = bits[pos++];
+            }
+            if (word != 0) {
+              int bit = Long.numberOfTrailingZeros(word);
+              word &= word - 1;
+              remaining--;
+              return base | ((pos - 1) << 6) | bit;
+            }
+          } else {
+            char[] a = (char[]) container;
+            if (pos < 0) {
+              pos = HEADER;
+            }
+            if (pos < HEADER + a[1]) {
+              remaining--;
+              return base | a[pos++];
+            }
+          }
+          chunk++;
+          pos = -1;
+          word = 0;
+        }
+      }
+    };
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int chunk = 0, n = chunkCount(); chunk < n; chunk++) {
+      Object container = container(chunk);
+      int base = key(container) << 16;
+      if (container instanceof long[]) {
+        long[] bits = (long[]) container;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+          for (long word = bits[w]; word != 0; word &= word - 1) {
+            action.act(base | (w << 6) | Long.numberOfTrailingZeros(word));
+          }
+        }
+      } else {
+        char[] a = (char[]) container;
+        for (int i = HEADER, end = HEADER + a[1]; i < end; i++) {
+          action.act(base | a[i]);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void foreachExcluding(final IntSet X, final IntSetAction action) {
+    if (X == null) {
+      throw new IllegalArgumentException("null X");
+    }
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    foreach(new IntSetAction() {
+      @Override
+      public void act(int x) {
+        if (!X.contains(x)) {
+          action.act(x);
+        }
+      }
+    });
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    for (IntIterator it = set.intIterator(); it.hasNext();) {
+      if (contains(it.next())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isSubset(IntSet that) throws IllegalArgumentException {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (size > that.size()) {
+      return false;
+    }
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      if (!that.contains(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean sameValue(IntSet that) throws IllegalArgumentException {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    return size == that.size() && isSubset(that);
+  }
+
+  @Override
+  public String toString() {
+    final StringBuffer sb = new StringBuffer(6 * size + 3);
+    sb.append("{ ");
+    foreach(new IntSetAction() {
+      @Override
+      public void act(int x) {
+        sb.append(x);
+        sb.append(" ");
+      }
+    });
+    sb.append("}");
+    return sb.toString();
+  }
+}
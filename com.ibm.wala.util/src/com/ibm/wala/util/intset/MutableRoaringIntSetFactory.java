@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+/**
+ * A factory for compressed bitmap int sets
+ */
+public class MutableRoaringIntSetFactory implements MutableIntSetFactory<MutableRoaringIntSet> {
+
+  /**
+   * @throws IllegalArgumentException if set is null
+   */
+  @Override
+  public MutableRoaringIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    MutableRoaringIntSet result = new MutableRoaringIntSet();
+    for (int i = 0; i < set.length; i++) {
+      result.add(set[i]);
+    }
+    return result;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#parse(java.lang.String)
+   */
+  @Override
+  public MutableRoaringIntSet parse(String string) throws NumberFormatException {
+    return make(SparseIntSet.parseIntArray(string));
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#makeCopy(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public MutableRoaringIntSet makeCopy(IntSet x) throws IllegalArgumentException {
+    if (x == null) {
+      throw new IllegalArgumentException("x == null");
+    }
+    return new MutableRoaringIntSet(x);
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#make()
+   */
+  @Override
+  public MutableRoaringIntSet make() {
+    return new MutableRoaringIntSet();
+  }
+}
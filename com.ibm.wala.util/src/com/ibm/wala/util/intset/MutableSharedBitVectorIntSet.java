@@ -30,10 +30,27 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
 
   private BitVectorIntSet sharedPart;
 
+  /**
+   * where this set finds its shared part
+   */
+  private final BitVectorRepository repository;
+
   /**
    * 
    */
   public MutableSharedBitVectorIntSet() {
+    this(BitVectorRepository.getDefault());
+  }
+
+  /**
+   * @param repository where this set finds its shared part
+   * @throws IllegalArgumentException if repository is null
+   */
+  public MutableSharedBitVectorIntSet(BitVectorRepository repository) {
+    if (repository == null) {
+      throw new IllegalArgumentException("repository is null");
+    }
+    this.repository = repository;
   }
 
   /**
@@ -41,9 +58,22 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
    * @throws IllegalArgumentException if set is null
    */
   public MutableSharedBitVectorIntSet(MutableSharedBitVectorIntSet set) {
+    this(set, set == null ? null : set.repository);
+  }
+
+  /**
+   * @param set
+   * @param repository where this set finds its shared part
+   * @throws IllegalArgumentException if set or repository is null
+   */
+  public MutableSharedBitVectorIntSet(MutableSharedBitVectorIntSet set, BitVectorRepository repository) {
     if (set == null) {
       throw new IllegalArgumentException("set is null");
     }
+    if (repository == null) {
+      throw new IllegalArgumentException("repository is null");
+    }
+    this.repository = repository;
     if (set.privatePart != null) {
       this.privatePart = MutableSparseIntSet.make(set.privatePart);
     }
@@ -55,9 +85,22 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
    * @throws IllegalArgumentException if s is null
    */
   public MutableSharedBitVectorIntSet(SparseIntSet s) {
+    this(s, BitVectorRepository.getDefault());
+  }
+
+  /**
+   * @param s
+   * @param repository where this set finds its shared part
+   * @throws IllegalArgumentException if s or repository is null
+   */
+  public MutableSharedBitVectorIntSet(SparseIntSet s, BitVectorRepository repository) {
     if (s == null) {
       throw new IllegalArgumentException("s is null");
     }
+    if (repository == null) {
+      throw new IllegalArgumentException("repository is null");
+    }
+    this.repository = repository;
     if (s.size() == 0) {
       return;
     }
@@ -74,9 +117,22 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
    * @throws IllegalArgumentException if s is null
    */
   public MutableSharedBitVectorIntSet(BitVectorIntSet s) {
+    this(s, BitVectorRepository.getDefault());
+  }
+
+  /**
+   * @param s
+   * @param repository where this set finds its shared part
+   * @throws IllegalArgumentException if s or repository is null
+   */
+  public MutableSharedBitVectorIntSet(BitVectorIntSet s, BitVectorRepository repository) {
     if (s == null) {
       throw new IllegalArgumentException("s is null");
     }
+    if (repository == null) {
+      throw new IllegalArgumentException("repository is null");
+    }
+    this.repository = repository;
     copyValue(s);
 
     if (PARANOID) {
@@ -95,7 +151,7 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
       sharedPart = null;
       privatePart = MutableSparseIntSet.make(s);
     } else {
-      sharedPart = BitVectorRepository.findOrCreateSharedSubset(s);
+      sharedPart = repository.findOrCreate(s);
       if (sharedPart.size() == s.size()) {
         privatePart = null;
       } else {
@@ -135,7 +191,7 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
     if (privatePart != null && privatePart.size() > OVERFLOW) {
       if (sharedPart == null) {
         BitVectorIntSet temp = new BitVectorIntSet(privatePart);
-        sharedPart = BitVectorRepository.findOrCreateSharedSubset(temp);
+        sharedPart = repository.findOrCreate(temp);
         temp.removeAll(sharedPart);
         if (!temp.isEmpty())
           privatePart = MutableSparseIntSet.make(temp);
@@ -147,7 +203,7 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
         // so use addAll instead of addAllOblivious: which incrementally
         // updates the population count.
         temp.addAll(privatePart);
-        sharedPart = BitVectorRepository.findOrCreateSharedSubset(temp);
+        sharedPart = repository.findOrCreate(temp);
         temp.removeAll(sharedPart);
         if (!temp.isEmpty())
           privatePart = MutableSparseIntSet.make(temp);
@@ -185,7 +241,7 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
     if (that instanceof MutableSharedBitVectorIntSet) {
       return intersection((MutableSharedBitVectorIntSet) that);
     } else if (that instanceof BitVectorIntSet) {
-      MutableSharedBitVectorIntSet m = new MutableSharedBitVectorIntSet((BitVectorIntSet) that);
+      MutableSharedBitVectorIntSet m = new MutableSharedBitVectorIntSet((BitVectorIntSet) that, repository);
       return intersection(m);
     } else if (that instanceof SparseIntSet) {
       BitVectorIntSet bv = new BitVectorIntSet(that);
@@ -208,7 +264,7 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
    */
   @Override
   public IntSet union(IntSet that) {
-    MutableSharedBitVectorIntSet temp = new MutableSharedBitVectorIntSet();
+    MutableSharedBitVectorIntSet temp = new MutableSharedBitVectorIntSet(repository);
     temp.addAll(this);
     temp.addAll(that);
 
@@ -221,7 +277,7 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
   public IntSet intersection(MutableSharedBitVectorIntSet that) {
     MutableSparseIntSet t = makeSparseCopy();
     t.intersectWith(that);
-    MutableSharedBitVectorIntSet result = new MutableSharedBitVectorIntSet(t);
+    MutableSharedBitVectorIntSet result = new MutableSharedBitVectorIntSet(t, repository);
     if (PARANOID) {
       checkIntegrity();
     }
@@ -353,6 +409,8 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
       return sameValue((BitVectorIntSet) that);
     } else if (that instanceof SemiSparseMutableIntSet) {
       return that.sameValue(this);
+    } else if (that instanceof MutableRoaringIntSet) {
+      return that.sameValue(this);
     } else {
       Assertions.UNREACHABLE("unexpected class " + that.getClass());
       return false;
@@ -858,7 +916,7 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
     if (set instanceof MutableSharedBitVectorIntSet) {
       intersectWithInternal((MutableSharedBitVectorIntSet) set);
     } else if (set instanceof BitVectorIntSet) {
-      intersectWithInternal(new MutableSharedBitVectorIntSet((BitVectorIntSet) set));
+      intersectWithInternal(new MutableSharedBitVectorIntSet((BitVectorIntSet) set, repository));
     } else {
       // this is really slow. optimize as needed.
       for (IntIterator it = intIterator(); it.hasNext();) {
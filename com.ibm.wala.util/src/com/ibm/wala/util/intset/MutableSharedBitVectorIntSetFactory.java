@@ -12,19 +12,44 @@ package com.ibm.wala.util.intset;
 
 
 /**
- * A factory for mutable shared bit vector int sets
+ * A factory for mutable shared bit vector int sets. The sets made by a factory share vectors through the factory's
+ * {@link BitVectorRepository}.
  */
 public class MutableSharedBitVectorIntSetFactory implements MutableIntSetFactory<MutableSharedBitVectorIntSet> {
 
   private final MutableSparseIntSetFactory sparseFactory = new MutableSparseIntSetFactory();
 
+  private final BitVectorRepository repository;
+
+  /**
+   * Create a factory whose sets share vectors through the default repository
+   */
+  public MutableSharedBitVectorIntSetFactory() {
+    this(BitVectorRepository.getDefault());
+  }
+
+  /**
+   * @param repository where the sets made by this factory find their shared parts
+   * @throws IllegalArgumentException if repository is null
+   */
+  public MutableSharedBitVectorIntSetFactory(BitVectorRepository repository) {
+    if (repository == null) {
+      throw new IllegalArgumentException("repository is null");
+    }
+    this.repository = repository;
+  }
+
+  public BitVectorRepository getRepository() {
+    return repository;
+  }
+
   /*
    * @see com.ibm.wala.util.intset.MutableIntSetFactory#make(int[])
    */
   @Override
   public MutableSharedBitVectorIntSet make(int[] set) {
     SparseIntSet s = sparseFactory.make(set);
-    return new MutableSharedBitVectorIntSet(s);
+    return new MutableSharedBitVectorIntSet(s, repository);
   }
 
   /*
@@ -33,7 +58,7 @@ public class MutableSharedBitVectorIntSetFactory implements MutableIntSetFactory
   @Override
   public MutableSharedBitVectorIntSet parse(String string) throws NumberFormatException {
     SparseIntSet s = sparseFactory.parse(string);
-    return new MutableSharedBitVectorIntSet(s);
+    return new MutableSharedBitVectorIntSet(s, repository);
   }
 
   /*
@@ -45,16 +70,16 @@ public class MutableSharedBitVectorIntSetFactory implements MutableIntSetFactory
       throw new IllegalArgumentException("x == null");
     }
     if (x instanceof MutableSharedBitVectorIntSet) {
-      return new MutableSharedBitVectorIntSet((MutableSharedBitVectorIntSet) x);
+      return new MutableSharedBitVectorIntSet((MutableSharedBitVectorIntSet) x, repository);
     } else if (x instanceof SparseIntSet) {
-      return new MutableSharedBitVectorIntSet((SparseIntSet) x);
+      return new MutableSharedBitVectorIntSet((SparseIntSet) x, repository);
     } else if (x instanceof BitVectorIntSet) {
-      return new MutableSharedBitVectorIntSet((BitVectorIntSet) x);
+      return new MutableSharedBitVectorIntSet((BitVectorIntSet) x, repository);
     } else if (x instanceof DebuggingMutableIntSet) {
-      return new MutableSharedBitVectorIntSet(new SparseIntSet(x));
+      return new MutableSharedBitVectorIntSet(new SparseIntSet(x), repository);
     } else {
       // really slow.  optimize as needed.
-      MutableSharedBitVectorIntSet result = new MutableSharedBitVectorIntSet();
+      MutableSharedBitVectorIntSet result = new MutableSharedBitVectorIntSet(repository);
       for (IntIterator it = x.intIterator(); it.hasNext(); ) {
         result.add(it.next());
       }
@@ -67,7 +92,7 @@ public class MutableSharedBitVectorIntSetFactory implements MutableIntSetFactory
    */
   @Override
   public MutableSharedBitVectorIntSet make() {
-    return new MutableSharedBitVectorIntSet();
+    return new MutableSharedBitVectorIntSet(repository);
   }
 
 }
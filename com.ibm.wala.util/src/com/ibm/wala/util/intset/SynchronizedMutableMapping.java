@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * A {@link MutableMapping} that may be read and written on several threads at once. Each operation holds the lock on the
+ * mapping; iterators and collections of the mapped objects are snapshots.
+ */
+public class SynchronizedMutableMapping<T> extends MutableMapping<T> {
+
+  public static <T> SynchronizedMutableMapping<T> make() {
+    return new SynchronizedMutableMapping<>();
+  }
+
+  protected SynchronizedMutableMapping() {
+  }
+
+  @Override
+  public synchronized T getMappedObject(int n) {
+    return super.getMappedObject(n);
+  }
+
+  @Override
+  public synchronized int getMappedIndex(Object o) {
+    return super.getMappedIndex(o);
+  }
+
+  @Override
+  public synchronized boolean hasMappedIndex(T o) {
+    return super.hasMappedIndex(o);
+  }
+
+  @Override
+  public synchronized int add(T o) {
+    return super.add(o);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return super.toString();
+  }
+
+  @Override
+  public synchronized Iterator<T> iterator() {
+    return new ArrayList<T>(super.getObjects()).iterator();
+  }
+
+  @Override
+  public synchronized void deleteMappedObject(T n) {
+    super.deleteMappedObject(n);
+  }
+
+  @Override
+  public synchronized Collection<T> getObjects() {
+    return Collections.unmodifiableCollection(new ArrayList<T>(super.getObjects()));
+  }
+
+  @Override
+  public synchronized void replace(T a, T b) throws IllegalArgumentException {
+    super.replace(a, b);
+  }
+
+  @Override
+  public synchronized void put(int i, T o) {
+    super.put(i, o);
+  }
+
+  @Override
+  public synchronized int getMaximumIndex() {
+    return super.getMaximumIndex();
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return super.getSize();
+  }
+}